@@ -0,0 +1,30 @@
+-- ================================================
+-- 数据库迁移脚本: 添加重复异常计数字段
+-- ================================================
+-- 执行时间: 2026-10-16
+-- 说明: 为 alarm_trend_stat 表添加 suppressed_count 字段，
+--       记录被指纹去重过滤、由后台任务批量回写的异常数量（已计入 exception_count）
+-- ================================================
+
+USE one_agent;
+
+-- 检查并添加 suppressed_count 字段
+ALTER TABLE alarm_trend_stat
+ADD COLUMN IF NOT EXISTS suppressed_count INT NOT NULL DEFAULT 0 COMMENT '被指纹去重过滤的数量(已计入exception_count)'
+AFTER p4_count;
+
+-- 验证字段是否添加成功
+SELECT
+    COLUMN_NAME,
+    COLUMN_TYPE,
+    IS_NULLABLE,
+    COLUMN_DEFAULT,
+    COLUMN_COMMENT
+FROM INFORMATION_SCHEMA.COLUMNS
+WHERE TABLE_SCHEMA = 'one_agent'
+  AND TABLE_NAME = 'alarm_trend_stat'
+  AND COLUMN_NAME IN ('suppressed_count')
+ORDER BY ORDINAL_POSITION;
+
+-- 完成提示
+SELECT '重复异常计数字段迁移完成! ✅' AS status;
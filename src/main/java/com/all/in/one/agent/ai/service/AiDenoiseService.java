@@ -6,14 +6,15 @@ import com.all.in.one.agent.ai.prompt.DenoisePrompt;
 import com.all.in.one.agent.common.model.ExceptionInfo;
 import com.all.in.one.agent.dao.entity.AppAlarmRecord;
 import com.all.in.one.agent.dao.mapper.AppAlarmRecordMapper;
+import com.all.in.one.agent.common.util.LongKeyedCache;
+import com.all.in.one.agent.starter.state.FingerprintState;
+import com.all.in.one.agent.starter.state.FingerprintStateTable;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
@@ -29,6 +30,9 @@ import java.util.concurrent.TimeUnit;
  * 预期过滤率: 70-80%（在通过前两层后）
  * 性能: 1-3s（有缓存时 <1ms）
  * </p>
+ * <p>
+ * 启用统一指纹状态表（{@link FingerprintStateTable}）时，AI 决策作为指纹状态的一个字段缓存，不再单独维护缓存
+ * </p>
  *
  * @author One Agent 4J
  */
@@ -42,8 +46,10 @@ public class AiDenoiseService {
     private final ObjectMapper objectMapper;
     private final AiDenoiseProperties properties;
 
-    // AI 决策结果缓存
-    private final Cache<String, DenoiseDecision> decisionCache;
+    // AI 决策结果缓存（未启用统一指纹状态表时使用）
+    private final LongKeyedCache<DenoiseDecision> decisionCache;
+    private final FingerprintStateTable stateTable;
+    private final long cacheTtlMillis;
 
     // 统计信息
     private long totalChecked = 0;
@@ -54,22 +60,30 @@ public class AiDenoiseService {
     public AiDenoiseService(AppAlarmRecordMapper appAlarmRecordMapper,
                             DenoiseAiService denoiseAiService,
                             ObjectMapper objectMapper,
-                            AiDenoiseProperties properties) {
+                            AiDenoiseProperties properties,
+                            ObjectProvider<FingerprintStateTable> stateTable) {
         this.appAlarmRecordMapper = appAlarmRecordMapper;
         this.denoiseAiService = denoiseAiService;
         this.objectMapper = objectMapper;
         this.properties = properties;
+        this.cacheTtlMillis = TimeUnit.MINUTES.toMillis(properties.getCacheTtlMinutes());
 
         // 初始化缓存
-        if (properties.isCacheEnabled()) {
-            this.decisionCache = Caffeine.newBuilder()
-                    .expireAfterWrite(properties.getCacheTtlMinutes(), TimeUnit.MINUTES)
-                    .maximumSize(properties.getMaxCacheSize())
-                    .recordStats()
-                    .build();
+        FingerprintStateTable table = properties.isCacheEnabled() ? stateTable.getIfAvailable() : null;
+        if (table != null) {
+            this.stateTable = table;
+            this.decisionCache = null;
+            log.info("AI 决策缓存存入统一指纹状态表 - ttl={}分钟", properties.getCacheTtlMinutes());
+        } else if (properties.isCacheEnabled()) {
+            this.stateTable = null;
+            this.decisionCache = new LongKeyedCache<>(
+                    properties.getMaxCacheSize(),
+                    properties.getCacheTtlMinutes(),
+                    TimeUnit.MINUTES);
             log.info("AI 决策缓存已启用 - ttl={}分钟, maxSize={}",
                     properties.getCacheTtlMinutes(), properties.getMaxCacheSize());
         } else {
+            this.stateTable = null;
             this.decisionCache = null;
             log.info("AI 决策缓存已禁用");
         }
@@ -88,12 +102,13 @@ public class AiDenoiseService {
      */
     public DenoiseDecision shouldAlert(ExceptionInfo exceptionInfo) {
         totalChecked++;
+        long fingerprintHash = exceptionInfo.getFingerprintHash();
         String fingerprint = exceptionInfo.getFingerprint();
 
         try {
             // 1. 先查缓存（如果启用）
-            if (decisionCache != null) {
-                DenoiseDecision cached = decisionCache.getIfPresent(fingerprint);
+            if (decisionCache != null || stateTable != null) {
+                DenoiseDecision cached = getCachedDecision(fingerprintHash);
                 if (cached != null) {
                     totalCacheHit++;
                     if (!cached.isShouldAlert()) {
@@ -128,9 +143,7 @@ public class AiDenoiseService {
             DenoiseDecision decision = parseAiResponse(aiResponse);
 
             // 6. 缓存结果
-            if (decisionCache != null) {
-                decisionCache.put(fingerprint, decision);
-            }
+            cacheDecision(fingerprintHash, decision);
 
             // 7. 统计
             if (!decision.isShouldAlert()) {
@@ -163,6 +176,30 @@ public class AiDenoiseService {
         }
     }
 
+    /**
+     * 查询缓存的 AI 决策
+     */
+    private DenoiseDecision getCachedDecision(long fingerprintHash) {
+        if (stateTable != null) {
+            FingerprintState state = stateTable.peek(fingerprintHash);
+            return state != null ? state.decision(System.currentTimeMillis()) : null;
+        }
+        return decisionCache.getIfPresent(fingerprintHash);
+    }
+
+    /**
+     * 缓存 AI 决策
+     */
+    private void cacheDecision(long fingerprintHash, DenoiseDecision decision) {
+        if (stateTable != null) {
+            FingerprintState state = stateTable.state(fingerprintHash);
+            state.putDecision(decision, System.currentTimeMillis() + cacheTtlMillis);
+            stateTable.touch(fingerprintHash, state);
+        } else if (decisionCache != null) {
+            decisionCache.put(fingerprintHash, decision);
+        }
+    }
+
     /**
      * 查询最近的历史告警
      */
@@ -183,7 +220,6 @@ public class AiDenoiseService {
      * 获取统计信息
      */
     public AiDenoiseStats getStats() {
-        CacheStats cacheStats = decisionCache != null ? decisionCache.stats() : null;
         return AiDenoiseStats.builder()
                 .totalChecked(totalChecked)
                 .totalCacheHit(totalCacheHit)
@@ -191,8 +227,10 @@ public class AiDenoiseService {
                 .totalFiltered(totalFiltered)
                 .cacheHitRate(getCacheHitRate())
                 .filterRate(totalChecked > 0 ? (double) totalFiltered / totalChecked : 0.0)
-                .cacheSize(decisionCache != null ? decisionCache.estimatedSize() : 0)
-                .cacheEvictionCount(cacheStats != null ? cacheStats.evictionCount() : 0)
+                .cacheSize(stateTable != null ? stateTable.size()
+                        : decisionCache != null ? decisionCache.estimatedSize() : 0)
+                .cacheEvictionCount(stateTable != null ? stateTable.evictionCount()
+                        : decisionCache != null ? decisionCache.evictionCount() : 0)
                 .build();
     }
 
@@ -220,7 +258,11 @@ public class AiDenoiseService {
      * 清空缓存
      */
     public void clearCache() {
-        if (decisionCache != null) {
+        if (stateTable != null) {
+            // 只清除 AI 决策，保留其他层的状态
+            stateTable.forEach((fingerprintHash, state) -> state.clearDecision());
+            log.info("AI 决策缓存已清空");
+        } else if (decisionCache != null) {
             decisionCache.invalidateAll();
             log.info("AI 决策缓存已清空");
         }
@@ -1,9 +1,15 @@
 package com.all.in.one.agent.api.controller;
 
 import com.all.in.one.agent.ai.service.AiDenoiseService;
+import com.all.in.one.agent.starter.collector.AdaptiveSampler;
+import com.all.in.one.agent.starter.collector.AsyncExceptionDispatcher;
+import com.all.in.one.agent.starter.collector.ExceptionCollector;
+import com.all.in.one.agent.starter.collector.HeavyHitterTracker;
 import com.all.in.one.agent.starter.dedup.FingerprintDeduplicator;
 import com.all.in.one.agent.starter.filter.IgnoreListFilter;
 import com.all.in.one.agent.starter.rule.*;
+import com.all.in.one.agent.starter.severity.SeverityClassifier;
+import com.all.in.one.agent.starter.state.FingerprintStateTable;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,6 +18,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * 漏斗降噪统计 API
  * <p>
@@ -26,6 +34,9 @@ import org.springframework.web.bind.annotation.*;
 @ConditionalOnProperty(prefix = "one-agent.api", name = "enabled", havingValue = "true", matchIfMissing = true)
 public class DenoiseStatsController {
 
+    @Autowired(required = false)
+    private ExceptionCollector exceptionCollector;
+
     @Autowired(required = false)
     private IgnoreListFilter ignoreListFilter;
 
@@ -44,9 +55,18 @@ public class DenoiseStatsController {
     @Autowired(required = false)
     private EnvironmentRule environmentRule;
 
+    @Autowired(required = false)
+    private DslRule dslRule;
+
     @Autowired(required = false)
     private AiDenoiseService aiDenoiseService;
 
+    @Autowired(required = false)
+    private FingerprintStateTable fingerprintStateTable;
+
+    @Autowired(required = false)
+    private SeverityClassifier severityClassifier;
+
     /**
      * 获取完整漏斗统计
      */
@@ -60,6 +80,8 @@ public class DenoiseStatsController {
                 .timeWindowStats(timeWindowRule != null ? timeWindowRule.getStats() : null)
                 .environmentStats(environmentRule != null ? environmentRule.getStats() : null)
                 .layer2Stats(aiDenoiseService != null ? aiDenoiseService.getStats() : null)
+                .dispatchStats(exceptionCollector != null ? exceptionCollector.getDispatchStats() : null)
+                .fingerprintStateStats(fingerprintStateTable != null ? fingerprintStateTable.getStats() : null)
                 .build();
 
         log.info("查询漏斗统计信息 - layer0={}, layer1={}, layer1.5={}, layer2={}",
@@ -92,6 +114,14 @@ public class DenoiseStatsController {
                 .build();
     }
 
+    /**
+     * 获取规则引擎中各规则的执行统计（命中次数、异常次数、耗时分布）
+     */
+    @GetMapping("/stats/layer15/rules")
+    public List<RuleEngine.RuleStats> getRuleStats() {
+        return ruleEngine != null ? ruleEngine.getRuleStats() : List.of();
+    }
+
     /**
      * 获取第 0 层统计（基础过滤）
      */
@@ -145,6 +175,82 @@ public class DenoiseStatsController {
         return aiDenoiseService.getStats();
     }
 
+    /**
+     * 获取异步分发统计（环形缓冲区深度、丢弃计数）
+     */
+    @GetMapping("/stats/dispatch")
+    public AsyncExceptionDispatcher.DispatchStats getDispatchStats() {
+        if (exceptionCollector == null) {
+            return AsyncExceptionDispatcher.DispatchStats.builder()
+                    .enabled(false)
+                    .build();
+        }
+        return exceptionCollector.getDispatchStats();
+    }
+
+    /**
+     * 获取统一指纹状态表统计（未启用时返回 null）
+     */
+    @GetMapping("/stats/fingerprint-state")
+    public FingerprintStateTable.StateTableStats getFingerprintStateStats() {
+        return fingerprintStateTable != null ? fingerprintStateTable.getStats() : null;
+    }
+
+    /**
+     * 获取严重级别分级统计（规则数、分级缓存命中）
+     */
+    @GetMapping("/stats/severity")
+    public SeverityClassifier.SeverityStats getSeverityStats() {
+        return severityClassifier != null ? severityClassifier.getStats() : null;
+    }
+
+    /**
+     * 获取 HTTP 上报自适应采样统计
+     */
+    @GetMapping("/stats/sampling")
+    public AdaptiveSampler.SamplingStats getSamplingStats() {
+        if (exceptionCollector == null) {
+            return AdaptiveSampler.SamplingStats.builder()
+                    .enabled(false)
+                    .build();
+        }
+        return exceptionCollector.getSamplingStats();
+    }
+
+    /**
+     * 获取窗口内出现次数最多的指纹（在漏斗入口统计，包含被各层过滤的异常）
+     *
+     * @param window 时间窗口，如 30s、5m、1h（按分钟向上取整，默认 5m）
+     * @param limit  返回数量，默认 20
+     */
+    @GetMapping("/top-fingerprints")
+    public TopFingerprintsResponse getTopFingerprints(
+            @RequestParam(defaultValue = "5m") String window,
+            @RequestParam(defaultValue = "20") int limit) {
+        long windowMillis = HeavyHitterTracker.parseWindow(window);
+        if (windowMillis <= 0) {
+            log.warn("窗口参数异常 - window={}, 使用默认值5m", window);
+            window = "5m";
+            windowMillis = HeavyHitterTracker.parseWindow(window);
+        }
+        if (limit < 1 || limit > 1000) {
+            log.warn("数量参数异常 - limit={}, 使用默认值20", limit);
+            limit = 20;
+        }
+
+        if (exceptionCollector == null) {
+            return TopFingerprintsResponse.builder()
+                    .window(window)
+                    .fingerprints(List.of())
+                    .build();
+        }
+        return TopFingerprintsResponse.builder()
+                .window(window)
+                .retentionMinutes(exceptionCollector.getHeavyHitterRetentionMinutes())
+                .fingerprints(exceptionCollector.getTopFingerprints(windowMillis, limit))
+                .build();
+    }
+
     /**
      * 重置所有统计信息
      */
@@ -168,9 +274,16 @@ public class DenoiseStatsController {
         if (environmentRule != null) {
             environmentRule.resetStats();
         }
+        if (dslRule != null) {
+            dslRule.resetStats();
+        }
         if (aiDenoiseService != null) {
             aiDenoiseService.resetStats();
         }
+        if (exceptionCollector != null) {
+            exceptionCollector.resetSamplingStats();
+            exceptionCollector.resetTopFingerprints();
+        }
 
         log.info("已重置所有漏斗统计信息");
         return new ResetResponse("统计信息已重置");
@@ -187,11 +300,78 @@ public class DenoiseStatsController {
         if (aiDenoiseService != null) {
             aiDenoiseService.clearCache();
         }
+        if (severityClassifier != null) {
+            severityClassifier.clearCache();
+        }
 
         log.info("已清空所有漏斗缓存");
         return new ResetResponse("缓存已清空");
     }
 
+    /**
+     * 重新编译第 0 层忽略清单（配置变更后调用）
+     */
+    @PostMapping("/ignore-list/refresh")
+    public ResetResponse refreshIgnoreList() {
+        if (ignoreListFilter == null) {
+            return new ResetResponse("基础过滤未启用");
+        }
+        ignoreListFilter.refresh();
+        return new ResetResponse("忽略清单已重新编译");
+    }
+
+    /**
+     * 获取 DSL 规则（编译结果、各规则命中次数、最近一次重新加载的结果）
+     */
+    @GetMapping("/rules/dsl")
+    public DslRule.DslStats getDslRules() {
+        return dslRule != null ? dslRule.getStats() : null;
+    }
+
+    /**
+     * 下发 DSL 规则，替换配置中的规则（编译通过后原子生效，无需重启）
+     */
+    @PutMapping("/rules/dsl")
+    public ResetResponse updateDslRules(@RequestBody List<RuleEngineProperties.DslRuleDefinition> rules) {
+        if (dslRule == null) {
+            return new ResetResponse("DSL 规则未启用");
+        }
+        try {
+            dslRule.reload(rules);
+        } catch (IllegalArgumentException e) {
+            log.warn("DSL 规则下发失败，保留原规则 - error={}", e.getMessage());
+            return new ResetResponse("DSL 规则编译失败，保留原规则：" + e.getMessage());
+        }
+        if (!dslRule.isDslEnabled()) {
+            return new ResetResponse(dslDisabledMessage("DSL 规则已编译保存"));
+        }
+        return new ResetResponse("DSL 规则已生效 - ruleCount=" + dslRule.getStats().getRuleCount());
+    }
+
+    /**
+     * 恢复使用配置中的 DSL 规则并重新读取规则文件
+     */
+    @PostMapping("/rules/dsl/refresh")
+    public ResetResponse refreshDslRules() {
+        if (dslRule == null) {
+            return new ResetResponse("DSL 规则未启用");
+        }
+        try {
+            dslRule.reload(null);
+        } catch (IllegalArgumentException e) {
+            return new ResetResponse("DSL 规则编译失败，保留原规则：" + e.getMessage());
+        }
+        if (!dslRule.isDslEnabled()) {
+            return new ResetResponse(dslDisabledMessage("DSL 规则已重新编译"));
+        }
+        return new ResetResponse("DSL 规则已重新编译 - ruleCount=" + dslRule.getStats().getRuleCount());
+    }
+
+    private String dslDisabledMessage(String action) {
+        return action + "，但 DSL 规则未启用（one-agent.rule-engine.enabled 或 one-agent.rule-engine.dsl.enabled 为 false），"
+                + "规则不会执行 - ruleCount=" + dslRule.getStats().getRuleCount();
+    }
+
     /**
      * 完整漏斗统计响应
      */
@@ -232,6 +412,16 @@ public class DenoiseStatsController {
          * 第 2 层：AI 智能去噪统计
          */
         private AiDenoiseService.AiDenoiseStats layer2Stats;
+
+        /**
+         * 异步分发统计
+         */
+        private AsyncExceptionDispatcher.DispatchStats dispatchStats;
+
+        /**
+         * 统一指纹状态表统计（未启用时为 null）
+         */
+        private FingerprintStateTable.StateTableStats fingerprintStateStats;
     }
 
     /**
@@ -246,6 +436,28 @@ public class DenoiseStatsController {
         private EnvironmentRule.EnvironmentStats environmentStats;
     }
 
+    /**
+     * 高频指纹响应
+     */
+    @Data
+    @Builder
+    public static class TopFingerprintsResponse {
+        /**
+         * 查询窗口
+         */
+        private String window;
+
+        /**
+         * 统计保留时长（分钟），超出的窗口按该值截断
+         */
+        private int retentionMinutes;
+
+        /**
+         * 按出现次数降序排列的指纹
+         */
+        private List<HeavyHitterTracker.TopFingerprint> fingerprints;
+    }
+
     /**
      * 重置响应
      */
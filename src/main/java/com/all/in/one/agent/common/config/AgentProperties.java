@@ -34,6 +34,21 @@ public class AgentProperties {
      */
     private double samplingRate = 1.0;
 
+    /**
+     * 按指纹自适应采样配置（作用于 HTTP 上报）
+     */
+    private AdaptiveSampling adaptiveSampling = new AdaptiveSampling();
+
+    /**
+     * 高频指纹（Top-K）统计配置
+     */
+    private HeavyHitters heavyHitters = new HeavyHitters();
+
+    /**
+     * 重复异常计数回写配置
+     */
+    private SuppressedCountFlush suppressedCountFlush = new SuppressedCountFlush();
+
     /**
      * 上报服务器地址
      */
@@ -64,6 +79,211 @@ public class AgentProperties {
      */
     private StorageStrategy storageStrategy = new StorageStrategy();
 
+    /**
+     * 异步分发配置
+     */
+    private AsyncDispatch asyncDispatch = new AsyncDispatch();
+
+    /**
+     * 主机信息后台刷新间隔（秒），<= 0 表示只在启动时解析一次
+     */
+    private long hostRefreshIntervalSeconds = 300;
+
+    /**
+     * 链路追踪配置
+     */
+    private Trace trace = new Trace();
+
+    /**
+     * 异步分发配置
+     * <p>
+     * 启用后 collect() 只在调用线程上做 Throwable 级别的快速过滤，
+     * 其余降噪、持久化、工单、AI 判断都交给专用工作线程，避免拖慢业务请求
+     * </p>
+     */
+    @Data
+    public static class AsyncDispatch {
+        /**
+         * 是否启用异步分发（默认 false，保持同步处理）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 环形缓冲区大小（会向上取整为 2 的幂）
+         */
+        private int bufferSize = 4096;
+
+        /**
+         * 工作线程数
+         */
+        private int workerThreads = 2;
+
+        /**
+         * 缓冲区满时的溢出策略
+         */
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+        /**
+         * BLOCK 策略下的最长等待时间（毫秒）
+         */
+        private long blockTimeoutMillis = 5;
+    }
+
+    /**
+     * 链路追踪配置
+     * <p>
+     * 提供者在启动时按顺序绑定，采集异常时取第一个非空的 TraceId / SpanId。
+     * 可选值: w3c（traceparent 请求头）、opentelemetry（类路径存在时）、
+     * http-context（HttpLogFilter 上下文）、mdc
+     * </p>
+     */
+    @Data
+    public static class Trace {
+        /**
+         * 提供者顺序
+         */
+        private List<String> providers = new ArrayList<>(List.of("w3c", "opentelemetry", "http-context", "mdc"));
+
+        /**
+         * MDC 中 TraceId 的键
+         */
+        private String mdcTraceIdKey = "traceId";
+
+        /**
+         * MDC 中 SpanId 的键
+         */
+        private String mdcSpanIdKey = "spanId";
+    }
+
+    /**
+     * 按指纹自适应采样配置
+     * <p>
+     * 每个指纹在每个周期内前 N 次必定保留，之后按对数衰减或目标速率采样，
+     * 异常风暴时上报量有上限，罕见异常不会被采样丢弃；最终概率再乘以全局 samplingRate
+     * </p>
+     */
+    @Data
+    public static class AdaptiveSampling {
+        /**
+         * 是否启用（关闭时只按全局 samplingRate 采样）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 采样周期（秒）
+         */
+        private int intervalSeconds = 60;
+
+        /**
+         * 每个指纹每个周期内必定保留的次数
+         */
+        private int keepFirst = 10;
+
+        /**
+         * 超出 keepFirst 后的采样模式
+         */
+        private SamplingMode mode = SamplingMode.LOGARITHMIC;
+
+        /**
+         * TARGET_RATE 模式下每个指纹每个周期的目标保留次数（含 keepFirst）
+         */
+        private int targetPerInterval = 60;
+
+        /**
+         * 最多跟踪的指纹数
+         */
+        private int maxTrackedFingerprints = 10000;
+    }
+
+    /**
+     * 高频指纹（Top-K）统计配置
+     * <p>
+     * 在降噪漏斗入口按分钟统计出现次数最多的指纹（Space-Saving 算法，内存有界），
+     * 并记录每个指纹被哪一层过滤，查询时合并最近若干分钟的统计
+     * </p>
+     */
+    @Data
+    public static class HeavyHitters {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 每分钟跟踪的指纹数（越大越精确，超出的低频指纹会被替换）
+         */
+        private int capacity = 256;
+
+        /**
+         * 统计保留时长（分钟），查询窗口不能超过该值
+         */
+        private int retentionMinutes = 60;
+    }
+
+    /**
+     * 重复异常计数回写配置
+     * <p>
+     * 被指纹去重过滤的异常只在内存中累计次数和首次/最后出现时间，
+     * 由后台任务按固定间隔批量回写到工单发生次数和小时趋势统计，每个间隔一条多行语句
+     * </p>
+     */
+    @Data
+    public static class SuppressedCountFlush {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 回写间隔（毫秒）
+         */
+        private long intervalMillis = 10000;
+
+        /**
+         * 单条语句最多包含的指纹数
+         */
+        private int batchSize = 500;
+
+        /**
+         * 两次回写之间最多累计的指纹数（超出的新指纹只计入丢弃统计）
+         */
+        private int maxPendingFingerprints = 10000;
+    }
+
+    /**
+     * 自适应采样模式
+     */
+    public enum SamplingMode {
+        /**
+         * 对数衰减：第 n 次的保留概率为 keepFirst / n，保留数随发生次数对数增长
+         */
+        LOGARITHMIC,
+        /**
+         * 目标速率：按上一周期的发生次数估算概率，使每个周期保留约 targetPerInterval 次
+         */
+        TARGET_RATE
+    }
+
+    /**
+     * 缓冲区溢出策略
+     */
+    public enum OverflowPolicy {
+        /**
+         * 丢弃最旧的事件，为新事件腾出空间
+         */
+        DROP_OLDEST,
+
+        /**
+         * 丢弃新事件
+         */
+        DROP_NEWEST,
+
+        /**
+         * 阻塞等待，超时后丢弃新事件
+         */
+        BLOCK
+    }
+
     /**
      * 存储策略配置
      */
@@ -167,12 +387,33 @@ public class AgentProperties {
         private int maxBodyLength = 1024;
 
         /**
-         * 堆栈最大深度
+         * 堆栈最大深度（每个异常最多保留的栈帧行数，cause 与外层相同的尾部栈帧按 "... N more" 省略）
          */
         private int maxStackDepth = 50;
 
         /**
-         * 忽略的异常类型
+         * 是否把连续的框架栈帧（CGLIB 代理、反射、Tomcat 过滤器链等）折叠为一行计数
+         */
+        private boolean collapseFrameworkFrames = false;
+
+        /**
+         * 框架栈帧的类名片段（类名包含任意片段即视为框架栈帧）
+         */
+        private List<String> frameworkFramePatterns = new ArrayList<>(List.of(
+                "$$SpringCGLIB$$",
+                "$$EnhancerBySpringCGLIB$$",
+                "jdk.internal.reflect.",
+                "sun.reflect.",
+                "java.lang.reflect.Method",
+                "org.springframework.cglib.",
+                "org.springframework.aop.framework.",
+                "org.apache.catalina.core.ApplicationFilterChain",
+                "org.apache.catalina.core.StandardWrapperValve",
+                "org.springframework.web.filter.OncePerRequestFilter"
+        ));
+
+        /**
+         * 忽略的异常类型（完整类名或简单类名，同时忽略其所有子类）
          */
         private List<String> ignoredExceptions = new ArrayList<>();
 
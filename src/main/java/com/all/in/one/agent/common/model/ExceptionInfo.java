@@ -1,22 +1,43 @@
 package com.all.in.one.agent.common.model;
 
+import com.all.in.one.agent.common.util.FingerprintGenerator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.Instant;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * 异常信息模型
+ * <p>
+ * 64 位指纹、异常类型、错误位置在构建时立即计算；MD5 指纹、完整堆栈、主机信息、
+ * 请求信息可以延迟到首次访问时再生成（通常是持久化或上报阶段），
+ * 被第 0 层 / 第 1 层过滤掉的异常不再承担这部分开销
+ * </p>
+ * <p>
+ * toString / equals / hashCode 直接读取字段而不经过 getter，打日志或放入集合时不会触发延迟加载，
+ * 尚未加载的字段按 null 参与
+ * </p>
  *
  * @author One Agent 4J
  * @since 1.0.0
  */
 @Data
+@ToString(doNotUseGetters = true)
+@EqualsAndHashCode(doNotUseGetters = true)
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -66,10 +87,23 @@ public class ExceptionInfo implements Serializable {
     private String stackTrace;
 
     /**
-     * 异常指纹 (用于去重)
+     * 异常指纹 (MD5，用于持久化和工单关联)
+     * <p>
+     * 未显式设置时由异常类型和错误位置在首次访问时生成
+     * </p>
      */
     private String fingerprint;
 
+    /**
+     * 64 位哈希指纹 (用于去重、频率限制等热路径，0 表示未计算)
+     */
+    private long fingerprintHash;
+
+    /**
+     * 采样权重（1 / 保留概率，0 视为 1），下游统计可据此把采样后的计数还原
+     */
+    private double sampleWeight;
+
     /**
      * 错误类名
      */
@@ -125,6 +159,165 @@ public class ExceptionInfo implements Serializable {
      */
     private String spanId;
 
+    /**
+     * 严重级别（P0-P4），首次分级时写入，规则引擎和工单生成复用，不参与上报
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private volatile transient String severity;
+
+    /**
+     * 完整堆栈延迟加载器（首次访问 stackTrace 时执行）
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile transient Supplier<String> stackTraceLoader;
+
+    /**
+     * 主机信息延迟加载器（首次访问 hostname / ip / instanceId 时执行）
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile transient Supplier<HostIdentity> hostLoader;
+
+    /**
+     * 请求信息延迟加载器（首次访问 requestInfo 时执行）
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile transient Supplier<RequestInfo> requestInfoLoader;
+
+    public String getFingerprint() {
+        if (fingerprint == null && (exceptionType != null || errorLocation != null)) {
+            fingerprint = FingerprintGenerator.generate(exceptionType, errorLocation);
+        }
+        return fingerprint;
+    }
+
+    public long getFingerprintHash() {
+        if (fingerprintHash == 0) {
+            fingerprintHash = FingerprintGenerator.hash64(exceptionType, errorLocation);
+        }
+        return fingerprintHash;
+    }
+
+    public double getSampleWeight() {
+        return sampleWeight > 0 ? sampleWeight : 1.0;
+    }
+
+    public String getStackTrace() {
+        Supplier<String> loader = stackTraceLoader;
+        if (stackTrace == null && loader != null) {
+            stackTrace = loader.get();
+            stackTraceLoader = null;
+        }
+        return stackTrace;
+    }
+
+    public void setStackTrace(String stackTrace) {
+        this.stackTrace = stackTrace;
+        this.stackTraceLoader = null;
+    }
+
+    public String getHostname() {
+        loadHost();
+        return hostname;
+    }
+
+    public void setHostname(String hostname) {
+        loadHost();
+        this.hostname = hostname;
+    }
+
+    public String getIp() {
+        loadHost();
+        return ip;
+    }
+
+    public void setIp(String ip) {
+        loadHost();
+        this.ip = ip;
+    }
+
+    public String getInstanceId() {
+        loadHost();
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        loadHost();
+        this.instanceId = instanceId;
+    }
+
+    public RequestInfo getRequestInfo() {
+        Supplier<RequestInfo> loader = requestInfoLoader;
+        if (requestInfo == null && loader != null) {
+            requestInfo = loader.get();
+            requestInfoLoader = null;
+        }
+        return requestInfo;
+    }
+
+    public void setRequestInfo(RequestInfo requestInfo) {
+        this.requestInfo = requestInfo;
+        this.requestInfoLoader = null;
+    }
+
+    /**
+     * 加载主机信息（已显式设置的字段不会被覆盖，并发加载结果一致因此无需加锁）
+     */
+    private void loadHost() {
+        Supplier<HostIdentity> loader = hostLoader;
+        if (loader == null) {
+            return;
+        }
+        HostIdentity host = loader.get();
+        if (host != null) {
+            if (hostname == null) {
+                hostname = host.getHostname();
+            }
+            if (ip == null) {
+                ip = host.getIp();
+            }
+            if (instanceId == null) {
+                instanceId = host.getInstanceId();
+            }
+        }
+        // 字段赋值完成后再清除加载器（volatile 写），保证其他线程看到 null 时字段已可见
+        hostLoader = null;
+    }
+
+    /**
+     * 立即生成所有延迟字段并释放加载器
+     * <p>
+     * 加载器引用原始异常对象和请求上下文，需要长时间保留的异常信息（如静默时段延迟队列）应先调用该方法
+     * </p>
+     */
+    public void materialize() {
+        getFingerprint();
+        getStackTrace();
+        getRequestInfo();
+        loadHost();
+    }
+
+    /**
+     * 序列化前先生成所有延迟字段，避免 transient 加载器丢失后信息缺失
+     */
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        materialize();
+        out.defaultWriteObject();
+    }
+
     /**
      * HTTP 请求信息
      */
@@ -0,0 +1,79 @@
+package com.all.in.one.agent.common.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.net.InetAddress;
+
+/**
+ * 主机身份信息（不可变）
+ * <p>
+ * 包含主机名、IP 和预先拼接好的实例 ID，
+ * 解析可能阻塞在 DNS 上，不应在异常处理热路径中调用 {@link #resolve(String)}
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class HostIdentity implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final String UNKNOWN = "Unknown";
+
+    /**
+     * 主机名
+     */
+    private final String hostname;
+
+    /**
+     * 主机 IP
+     */
+    private final String ip;
+
+    /**
+     * 实例 ID (appName@hostname)
+     */
+    private final String instanceId;
+
+    /**
+     * 解析本机主机名和 IP，失败时返回 Unknown
+     */
+    public static HostIdentity resolve(String appName) {
+        HostIdentity identity = tryResolve(appName);
+        return identity != null ? identity : of(appName, UNKNOWN, UNKNOWN);
+    }
+
+    /**
+     * 解析本机主机名和 IP
+     *
+     * @return 主机身份，解析失败时返回 null
+     */
+    public static HostIdentity tryResolve(String appName) {
+        try {
+            InetAddress localHost = InetAddress.getLocalHost();
+            return of(appName, localHost.getHostName(), localHost.getHostAddress());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 切换应用名称（不重新解析主机）
+     */
+    public HostIdentity forApp(String appName) {
+        return of(appName, hostname, ip);
+    }
+
+    private static HostIdentity of(String appName, String hostname, String ip) {
+        return new HostIdentity(hostname, ip, appName + "@" + hostname);
+    }
+}
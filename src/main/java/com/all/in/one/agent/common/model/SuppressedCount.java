@@ -0,0 +1,36 @@
+package com.all.in.one.agent.common.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * 单个指纹在一个回写间隔内未单独落库的次数
+ * <p>
+ * 来源包括被指纹去重过滤的重复异常、静默时段结束后合并释放的延迟异常，
+ * 由定时任务批量累加到工单发生次数和小时趋势统计
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Data
+@Builder
+public class SuppressedCount {
+
+    /**
+     * 异常指纹（MD5，与工单的 exception_fingerprint 一致）
+     */
+    private String fingerprint;
+    private long fingerprintHash;
+    private String appName;
+    private String environment;
+    private String exceptionType;
+
+    /**
+     * 未单独落库的次数
+     */
+    private long count;
+    private Instant firstSeenAt;
+    private Instant lastSeenAt;
+}
@@ -1,20 +1,48 @@
 package com.all.in.one.agent.common.util;
 
 import com.all.in.one.agent.common.model.ExceptionInfo;
-
-import java.net.InetAddress;
+import com.all.in.one.agent.common.model.HostIdentity;
+import com.all.in.one.agent.starter.logging.HttpLogContextHolder;
+import com.all.in.one.agent.starter.logging.HttpLogFilter;
+import com.all.in.one.agent.starter.trace.TraceContextResolver;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * 异常信息构建器
+ * <p>
+ * 实例方式使用时，主机信息从注入的快照提供者读取（如 HostIdentityService），
+ * 不会在每个异常上解析主机名，堆栈按注入的渲染器限制深度；静态方法保留以兼容旧调用方
+ * </p>
  *
  * @author One Agent 4J
  * @since 1.0.0
  */
 public class ExceptionInfoBuilder {
 
+    /**
+     * 主机身份提供者
+     */
+    private final Supplier<HostIdentity> hostSupplier;
+
+    /**
+     * 堆栈渲染器
+     */
+    private final StackTraceRenderer stackTraceRenderer;
+
+    public ExceptionInfoBuilder(Supplier<HostIdentity> hostSupplier, StackTraceRenderer stackTraceRenderer) {
+        this.hostSupplier = hostSupplier;
+        this.stackTraceRenderer = stackTraceRenderer;
+    }
+
     /**
      * 从异常构建异常信息
      *
@@ -24,6 +52,39 @@ public class ExceptionInfoBuilder {
      * @return 异常信息
      */
     public static ExceptionInfo build(Throwable throwable, String appName, String environment) {
+        return build(throwable, appName, environment, CaptureContext.capture());
+    }
+
+    /**
+     * 从异常构建异常信息（使用已采集的调用线程上下文）
+     * <p>
+     * 异步分发模式下，ExceptionInfo 在工作线程中构建，
+     * 线程信息和 TraceId 等 ThreadLocal 数据必须在调用线程上提前采集
+     * </p>
+     *
+     * @param throwable   异常
+     * @param appName     应用名称
+     * @param environment 环境
+     * @param context     调用线程上下文
+     * @return 异常信息
+     */
+    public static ExceptionInfo build(Throwable throwable, String appName, String environment,
+                                      CaptureContext context) {
+        return new ExceptionInfoBuilder(() -> LocalHost.IDENTITY.forApp(appName), StackTraceRenderer.DEFAULT)
+                .create(throwable, appName, environment, context);
+    }
+
+    /**
+     * 从异常构建异常信息
+     *
+     * @param throwable   异常
+     * @param appName     应用名称
+     * @param environment 环境
+     * @param context     调用线程上下文
+     * @return 异常信息
+     */
+    public ExceptionInfo create(Throwable throwable, String appName, String environment,
+                                CaptureContext context) {
         // 1. 提取堆栈信息
         StackTraceElement[] stackTrace = throwable.getStackTrace();
         StackTraceElement firstElement = stackTrace != null && stackTrace.length > 0
@@ -33,160 +94,157 @@ public class ExceptionInfoBuilder {
         // 2. 提取错误位置
         String errorClass = firstElement != null ? firstElement.getClassName() : "Unknown";
         String errorMethod = firstElement != null ? firstElement.getMethodName() : "Unknown";
-        Integer errorLine = firstElement != null ? firstElement.getLineNumber() : 0;
+        int errorLine = firstElement != null ? firstElement.getLineNumber() : 0;
         String errorLocation = errorClass + "." + errorMethod + ":" + errorLine;
 
         // 3. 提取异常类型和消息
         String exceptionType = throwable.getClass().getSimpleName();
         String exceptionMessage = throwable.getMessage();
 
-        // 4. 生成指纹
-        String fingerprint = FingerprintGenerator.generate(exceptionType, errorLocation);
-
-        // 5. 获取完整堆栈
-        String fullStackTrace = getStackTraceAsString(throwable);
+        // 4. 生成 64 位指纹（MD5 指纹在持久化时按需生成）
+        long fingerprintHash = FingerprintGenerator.hash64(exceptionType, errorClass, errorMethod, errorLine);
 
-        // 6. 获取主机信息
-        String hostname = getHostname();
-        String ip = getLocalIp();
-
-        // 7. 获取线程信息
-        Thread currentThread = Thread.currentThread();
-        ExceptionInfo.ThreadInfo threadInfo = ExceptionInfo.ThreadInfo.builder()
-                .threadId(currentThread.getId())
-                .threadName(currentThread.getName())
-                .threadGroupName(currentThread.getThreadGroup() != null
-                        ? currentThread.getThreadGroup().getName()
-                        : null)
-                .priority(currentThread.getPriority())
-                .daemon(currentThread.isDaemon())
-                .build();
+        // 5. 请求上下文（只保留引用，首次访问 requestInfo 时再转换）
+        HttpLogFilter.HttpLogContext httpContext = context.getHttpContext();
 
-        // 8. 构建异常信息
+        // 6. 构建异常信息：完整堆栈、主机信息、请求信息延迟生成
         return ExceptionInfo.builder()
                 .appName(appName)
                 .environment(environment)
-                .instanceId(generateInstanceId(appName, hostname))
-                .hostname(hostname)
-                .ip(ip)
+                .hostLoader(hostSupplier)
                 .exceptionType(exceptionType)
                 .exceptionMessage(exceptionMessage)
-                .stackTrace(fullStackTrace)
-                .fingerprint(fingerprint)
+                .stackTraceLoader(() -> stackTraceRenderer.render(throwable))
+                .requestInfoLoader(httpContext != null ? () -> toRequestInfo(httpContext) : null)
+                .fingerprintHash(fingerprintHash)
                 .errorClass(errorClass)
                 .errorMethod(errorMethod)
                 .errorLine(errorLine)
                 .errorLocation(errorLocation)
-                .threadInfo(threadInfo)
-                .traceId(extractTraceId())
-                .spanId(extractSpanId())
+                .threadInfo(context.getThreadInfo())
+                .traceId(context.getTraceId())
+                .spanId(context.getSpanId())
                 .context(new HashMap<>())
-                .occurredAt(Instant.now())
+                .occurredAt(context.getOccurredAt())
                 .reportedAt(Instant.now())
                 .build();
     }
 
     /**
-     * 将堆栈转换为字符串
+     * 采集当前线程信息
      */
-    private static String getStackTraceAsString(Throwable throwable) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(throwable.getClass().getName());
-        if (throwable.getMessage() != null) {
-            sb.append(": ").append(throwable.getMessage());
-        }
-        sb.append("\n");
-
-        StackTraceElement[] elements = throwable.getStackTrace();
-        if (elements != null) {
-            for (StackTraceElement element : elements) {
-                sb.append("\tat ").append(element.toString()).append("\n");
-            }
-        }
-
-        // 处理 Caused by
-        Throwable cause = throwable.getCause();
-        if (cause != null) {
-            sb.append("Caused by: ").append(getStackTraceAsString(cause));
-        }
-
-        return sb.toString();
+    private static ExceptionInfo.ThreadInfo captureThreadInfo() {
+        Thread currentThread = Thread.currentThread();
+        return ExceptionInfo.ThreadInfo.builder()
+                .threadId(currentThread.getId())
+                .threadName(currentThread.getName())
+                .threadGroupName(currentThread.getThreadGroup() != null
+                        ? currentThread.getThreadGroup().getName()
+                        : null)
+                .priority(currentThread.getPriority())
+                .daemon(currentThread.isDaemon())
+                .build();
     }
 
     /**
-     * 获取主机名
+     * 将 HTTP 请求上下文转换为请求信息
      */
-    private static String getHostname() {
-        try {
-            return InetAddress.getLocalHost().getHostName();
-        } catch (Exception e) {
-            return "Unknown";
-        }
+    private static ExceptionInfo.RequestInfo toRequestInfo(HttpLogFilter.HttpLogContext httpContext) {
+        return ExceptionInfo.RequestInfo.builder()
+                .method(httpContext.getMethod())
+                .uri(httpContext.getUri())
+                .params(parseQueryString(httpContext.getQueryString()))
+                .clientIp(httpContext.getClientIp())
+                .userAgent(httpContext.getUserAgent())
+                .build();
     }
 
     /**
-     * 获取本机 IP
+     * 解析查询字符串
      */
-    private static String getLocalIp() {
+    private static Map<String, String> parseQueryString(String queryString) {
+        if (queryString == null || queryString.isEmpty()) {
+            return null;
+        }
+        Map<String, String> params = new LinkedHashMap<>();
+        for (String pair : queryString.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int index = pair.indexOf('=');
+            String name = index >= 0 ? pair.substring(0, index) : pair;
+            String value = index >= 0 ? pair.substring(index + 1) : "";
+            params.putIfAbsent(decode(name), decode(value));
+        }
+        return params;
+    }
+
+    private static String decode(String value) {
         try {
-            return InetAddress.getLocalHost().getHostAddress();
-        } catch (Exception e) {
-            return "Unknown";
+            return URLDecoder.decode(value, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return value;
         }
     }
 
     /**
-     * 生成实例 ID
+     * 本机身份（静态方法使用，首次访问时解析一次）
      */
-    private static String generateInstanceId(String appName, String hostname) {
-        return appName + "@" + hostname;
+    private static final class LocalHost {
+        private static final HostIdentity IDENTITY = HostIdentity.resolve(null);
     }
 
     /**
-     * 提取 TraceId
-     * 尝试从 HTTP 上下文、MDC 等来源获取
+     * 调用线程上下文
+     * <p>
+     * 保存必须在异常发生线程上读取的信息（线程、链路追踪、发生时间），
+     * 使 ExceptionInfo 可以在其他线程中构建
+     * </p>
      */
-    private static String extractTraceId() {
-        // 1. 尝试从 HTTP 上下文获取
-        try {
-            Class<?> contextHolderClass = Class.forName(
-                "com.all.in.one.agent.starter.logging.HttpLogContextHolder");
-            java.lang.reflect.Method getContextMethod = contextHolderClass.getMethod("getContext");
-            Object context = getContextMethod.invoke(null);
-
-            if (context != null) {
-                java.lang.reflect.Method getTraceIdMethod = context.getClass().getMethod("getTraceId");
-                return (String) getTraceIdMethod.invoke(context);
-            }
-        } catch (Exception e) {
-            // Ignore - HttpLogFilter may not be enabled
-        }
-
-        // 2. 尝试从 MDC 获取
-        try {
-            Class<?> mdcClass = Class.forName("org.slf4j.MDC");
-            java.lang.reflect.Method getMethod = mdcClass.getMethod("get", String.class);
-            String traceId = (String) getMethod.invoke(null, "traceId");
-            if (traceId != null && !traceId.isEmpty()) {
-                return traceId;
-            }
-        } catch (Exception e) {
-            // Ignore - MDC not available
+    @Getter
+    @AllArgsConstructor
+    public static class CaptureContext {
+
+        /**
+         * 线程信息
+         */
+        private final ExceptionInfo.ThreadInfo threadInfo;
+
+        /**
+         * TraceId
+         */
+        private final String traceId;
+
+        /**
+         * SpanId
+         */
+        private final String spanId;
+
+        /**
+         * 发生时间
+         */
+        private final Instant occurredAt;
+
+        /**
+         * HTTP 请求上下文（可能为空）
+         */
+        private final HttpLogFilter.HttpLogContext httpContext;
+
+        /**
+         * 在当前线程上采集上下文（使用默认链路追踪解析器）
+         */
+        public static CaptureContext capture() {
+            return capture(TraceContextResolver.defaultResolver());
         }
 
-        return null;
-    }
-
-    /**
-     * 提取 SpanId
-     */
-    private static String extractSpanId() {
-        try {
-            Class<?> mdcClass = Class.forName("org.slf4j.MDC");
-            java.lang.reflect.Method getMethod = mdcClass.getMethod("get", String.class);
-            return (String) getMethod.invoke(null, "spanId");
-        } catch (Exception e) {
-            return null;
+        /**
+         * 在当前线程上采集上下文
+         *
+         * @param traceResolver 链路追踪解析器
+         */
+        public static CaptureContext capture(TraceContextResolver traceResolver) {
+            return new CaptureContext(captureThreadInfo(), traceResolver.traceId(), traceResolver.spanId(),
+                    Instant.now(), HttpLogContextHolder.getContext());
         }
     }
 }
@@ -0,0 +1,148 @@
+package com.all.in.one.agent.common.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 按指纹合并的事件累加器
+ * <p>
+ * 每个指纹只保留第一条事件派生的值，另外累计次数和首次/最后出现时间，
+ * 由调用方定期 {@link #drain()} 后按指纹批量处理（回写计数、释放延迟事件等）
+ * </p>
+ * <p>
+ * 累加和取出都在 {@link ConcurrentHashMap} 的桶锁内完成：条目被取出后不会再被修改，
+ * 取出之后到达的事件进入新条目，计入下一次取出，不会丢失也不会重复。
+ * 指纹数达到上限后新指纹不再累计（计入 dropped），已有指纹仍然累加
+ * </p>
+ *
+ * @param <T> 每个指纹保留的值
+ * @author One Agent 4J
+ */
+public final class FingerprintAggregator<T> {
+
+    private final int maxFingerprints;
+    private final ConcurrentHashMap<Long, Aggregate<T>> pending = new ConcurrentHashMap<>();
+
+    // 统计信息
+    private final LongAdder added = new LongAdder();
+    private final LongAdder drained = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public FingerprintAggregator(int maxFingerprints) {
+        this.maxFingerprints = Math.max(1, maxFingerprints);
+    }
+
+    /**
+     * 累加一次出现
+     *
+     * @param fingerprintHash 64 位指纹
+     * @param occurredAt      出现时间（毫秒）
+     * @param first           该指纹首次累计时保留的值（指纹已存在时不调用）
+     * @return false=指纹数已达上限，未累计
+     */
+    public boolean add(long fingerprintHash, long occurredAt, Supplier<T> first) {
+        Aggregate<T> existing = pending.computeIfPresent(fingerprintHash, (key, entry) -> entry.add(occurredAt));
+        if (existing != null) {
+            added.increment();
+            return true;
+        }
+        if (pending.size() >= maxFingerprints) {
+            dropped.increment();
+            return false;
+        }
+        // 在桶锁外生成保留值，并发首次出现时多生成的值直接丢弃
+        T value = first.get();
+        pending.compute(fingerprintHash, (key, entry) -> entry == null
+                ? new Aggregate<>(value, occurredAt)
+                : entry.add(occurredAt));
+        added.increment();
+        return true;
+    }
+
+    /**
+     * 取出并清空当前累计的所有指纹
+     */
+    public List<Aggregate<T>> drain() {
+        List<Aggregate<T>> result = new ArrayList<>(pending.size());
+        for (Long key : pending.keySet()) {
+            Aggregate<T> entry = pending.remove(key);
+            if (entry != null) {
+                drained.add(entry.count);
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    public long addedCount() {
+        return added.sum();
+    }
+
+    public long drainedCount() {
+        return drained.sum();
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * 单个指纹的累计（取出前只在桶锁内修改，取出后不再变化）
+     */
+    public static final class Aggregate<T> {
+        private final T first;
+        private long count;
+        private long firstSeen;
+        private long lastSeen;
+
+        private Aggregate(T first, long occurredAt) {
+            this.first = first;
+            this.count = 1;
+            this.firstSeen = occurredAt;
+            this.lastSeen = occurredAt;
+        }
+
+        private Aggregate<T> add(long occurredAt) {
+            count++;
+            firstSeen = Math.min(firstSeen, occurredAt);
+            lastSeen = Math.max(lastSeen, occurredAt);
+            return this;
+        }
+
+        /**
+         * 该指纹首次累计时保留的值
+         */
+        public T getFirst() {
+            return first;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * 首次出现时间（毫秒）
+         */
+        public long getFirstSeen() {
+            return firstSeen;
+        }
+
+        /**
+         * 最后出现时间（毫秒）
+         */
+        public long getLastSeen() {
+            return lastSeen;
+        }
+    }
+}
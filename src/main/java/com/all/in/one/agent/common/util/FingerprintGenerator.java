@@ -7,6 +7,13 @@ import cn.hutool.crypto.digest.DigestUtil;
  * <p>
  * 用于生成异常的唯一指纹,用于去重和聚合
  * </p>
+ * <p>
+ * 提供两种指纹：
+ * - 64 位哈希指纹：直接对异常类型和栈帧字段逐字符计算（Murmur3 风格混合），
+ *   不拼接字符串，用于去重、频率限制等热路径
+ * - MD5 指纹：32 位十六进制字符串，用于数据库存储，保持兼容
+ * 两者基于相同的输入 "异常类型:类名.方法名:行号"
+ * </p>
  *
  * @author One Agent 4J
  * @since 1.0.0
@@ -44,4 +51,127 @@ public class FingerprintGenerator {
         String errorLocation = errorClass + "." + errorMethod + ":" + errorLine;
         return generate(exceptionType, errorLocation);
     }
+
+    /**
+     * 生成 64 位哈希指纹
+     * <p>
+     * 结果与 {@link #hash64(String, String)} 对拼接后的错误位置计算的值一致
+     * </p>
+     *
+     * @param exceptionType 异常类型
+     * @param errorClass    错误类名
+     * @param errorMethod   错误方法名
+     * @param errorLine     错误行号
+     * @return 64 位指纹（不会为 0）
+     */
+    public static long hash64(String exceptionType, String errorClass, String errorMethod, int errorLine) {
+        Hasher hasher = new Hasher();
+        hasher.putString(exceptionType);
+        hasher.putChar(':');
+        hasher.putString(errorClass);
+        hasher.putChar('.');
+        hasher.putString(errorMethod);
+        hasher.putChar(':');
+        hasher.putInt(errorLine);
+        return hasher.finish();
+    }
+
+    /**
+     * 生成 64 位哈希指纹
+     *
+     * @param exceptionType 异常类型
+     * @param errorLocation 错误位置
+     * @return 64 位指纹（不会为 0）
+     */
+    public static long hash64(String exceptionType, String errorLocation) {
+        Hasher hasher = new Hasher();
+        hasher.putString(exceptionType);
+        hasher.putChar(':');
+        hasher.putString(errorLocation);
+        return hasher.finish();
+    }
+
+    /**
+     * 64 位指纹转为 16 位十六进制字符串
+     */
+    public static String toHex(long fingerprintHash) {
+        String hex = Long.toHexString(fingerprintHash);
+        return hex.length() == 16 ? hex : "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    /**
+     * 逐字符哈希（Murmur3 x64 的块混合 + fmix64 终结）
+     * <p>
+     * 每 4 个字符组成一个 64 位块，不产生中间字符串
+     * </p>
+     */
+    private static final class Hasher {
+
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+        private static final String NULL = "null";
+
+        private long h = 0x9368e53c2f6af274L;
+        private long block;
+        private int blockChars;
+        private int length;
+
+        void putString(String value) {
+            String text = value != null ? value : NULL;
+            for (int i = 0, n = text.length(); i < n; i++) {
+                putChar(text.charAt(i));
+            }
+        }
+
+        void putInt(int value) {
+            if (value < 0) {
+                putChar('-');
+            }
+            // 从高位到低位输出十进制数字，与 String.valueOf(int) 的字符序列一致
+            long abs = Math.abs((long) value);
+            long divisor = 1;
+            while (divisor * 10 <= abs) {
+                divisor *= 10;
+            }
+            for (; divisor > 0; divisor /= 10) {
+                putChar((char) ('0' + (abs / divisor) % 10));
+            }
+        }
+
+        void putChar(char c) {
+            block |= ((long) c) << (blockChars << 4);
+            length++;
+            if (++blockChars == 4) {
+                h ^= mixBlock(block);
+                h = Long.rotateLeft(h, 27) * 5 + 0x52dce729;
+                block = 0;
+                blockChars = 0;
+            }
+        }
+
+        long finish() {
+            if (blockChars > 0) {
+                h ^= mixBlock(block);
+            }
+            h ^= length;
+            h = fmix64(h);
+            return h != 0 ? h : 1;
+        }
+
+        private static long mixBlock(long k) {
+            k *= C1;
+            k = Long.rotateLeft(k, 31);
+            k *= C2;
+            return k;
+        }
+
+        private static long fmix64(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
 }
@@ -0,0 +1,129 @@
+package com.all.in.one.agent.common.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁延迟直方图
+ * <p>
+ * 按 HDR 直方图的思路把数值分成对数-线性桶：每个 2 的幂区间再均分为 16 个子桶，
+ * 相对误差不超过 1/16（约 6%），0 到约 18 分钟（纳秒）只需不到 600 个计数器。
+ * 记录一次只是一次 {@link AtomicLongArray#incrementAndGet} 加一次最大值累加，不加锁、不分配对象
+ * </p>
+ * <p>
+ * 百分位取所在桶的上界，最大值精确记录；读取与写入并发时结果是近似快照
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    private static final int MAX_MAGNITUDE = 40;
+    private static final long MAX_TRACKABLE = (1L << MAX_MAGNITUDE) - 1;
+    private static final int BUCKET_COUNT = indexOf(MAX_TRACKABLE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 记录一个数值（负数按 0 计，超出范围按最大可记录值计）
+     */
+    public void record(long value) {
+        long clamped = Math.max(0, Math.min(value, MAX_TRACKABLE));
+        counts.incrementAndGet(indexOf(clamped));
+        sum.add(clamped);
+        max.accumulate(clamped);
+    }
+
+    /**
+     * 一次遍历计算多个百分位
+     *
+     * @param percentiles 百分位（0-100）
+     * @return 各百分位对应的数值（没有记录时为 0）
+     */
+    public long[] percentiles(double... percentiles) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        long[] result = new long[percentiles.length];
+        if (total == 0) {
+            return result;
+        }
+        long maxValue = max.get();
+        for (int p = 0; p < percentiles.length; p++) {
+            long rank = Math.max(1, (long) Math.ceil(total * Math.min(100.0, percentiles[p]) / 100.0));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    result[p] = Math.min(upperBound(i), maxValue);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * 所有记录值之和（与 {@link #count()} 配合可计算任意两次读取之间的均值）
+     */
+    public long sum() {
+        return sum.sum();
+    }
+
+    public double mean() {
+        long total = count();
+        return total > 0 ? (double) sum.sum() / total : 0.0;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * 小于 32 的数值每个值一个桶；之后每个 2 的幂区间 16 个桶
+     */
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    static long lowerBound(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index >> SUB_BUCKET_BITS) - 1;
+        return (long) ((index & (SUB_BUCKETS - 1)) + SUB_BUCKETS) << shift;
+    }
+
+    static long upperBound(int index) {
+        return lowerBound(index + 1) - 1;
+    }
+}
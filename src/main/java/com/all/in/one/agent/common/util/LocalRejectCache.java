@@ -0,0 +1,229 @@
+package com.all.in.one.agent.common.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 线程本地拒绝缓存（L0）
+ * <p>
+ * 同一个线程在紧密循环里反复产生同一个指纹时（批处理或消费者反复重试同一条记录），
+ * 每次都访问共享缓存会在同一个热点条目上产生竞争。
+ * 该缓存为每个线程保存少量“已知应被拒绝”的键及其有效期，命中时只累加线程本地计数，
+ * 不访问任何共享内存；本地计数达到阈值、超过刷新间隔或槽位被替换时，通过 {@link Flusher} 合并回共享状态
+ * </p>
+ * <p>
+ * 线程命中后不再访问缓存（空闲、退出）时，残留的本地计数由定时任务调用 {@link #flushIdle(long)} 合并，
+ * 因此共享状态上的计数最多落后一个刷新间隔。为此每个线程的表都登记在缓存中，
+ * 读写都在该表的锁内完成：锁只在定时合并时才有第二个线程参与，平时没有竞争
+ * </p>
+ * <p>
+ * 缓存只记录拒绝结论，从不放行，因此不会破坏共享状态上的“每个窗口只放行一次”等跨线程语义；
+ * 调用方负责给出不晚于共享记录过期时刻的有效期
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public final class LocalRejectCache {
+
+    private final int mask;
+    private final int flushThreshold;
+    private final long flushIntervalMillis;
+    private final Flusher flusher;
+    private final ThreadLocal<Table> tables;
+    private final Queue<Table> registered = new ConcurrentLinkedQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * @param slots               每个线程的槽位数（向上取整为 2 的幂，直接映射）
+     * @param flushThreshold      本地计数达到该值时合并回共享状态
+     * @param flushIntervalMillis 本地计数最长保留时间（毫秒）
+     * @param flusher             合并本地计数
+     */
+    public LocalRejectCache(int slots, int flushThreshold, long flushIntervalMillis, Flusher flusher) {
+        int capacity = Integer.highestOneBit(Math.max(1, slots) * 2 - 1);
+        this.mask = capacity - 1;
+        this.flushThreshold = Math.max(1, flushThreshold);
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.flusher = flusher;
+        this.tables = ThreadLocal.withInitial(() -> {
+            Table table = new Table(capacity, Thread.currentThread(), generation.get());
+            registered.add(table);
+            return table;
+        });
+    }
+
+    /**
+     * 当前线程是否已知该键应被拒绝
+     *
+     * @param key       键
+     * @param nowMillis 当前时间（毫秒）
+     * @return true=拒绝（已计入本地计数），false=需要查询共享状态
+     */
+    public boolean tryReject(long key, long nowMillis) {
+        Table table = tables.get();
+        int slot = slot(key);
+        synchronized (table) {
+            checkGeneration(table);
+            if (table.keys[slot] != key || table.validUntil[slot] == 0) {
+                return false;
+            }
+            if (nowMillis >= table.validUntil[slot]) {
+                expire(table, slot, nowMillis);
+                return false;
+            }
+            if (++table.pending[slot] >= flushThreshold || nowMillis - table.flushedAt[slot] >= flushIntervalMillis) {
+                flush(table, slot, nowMillis);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 记录当前线程的拒绝结论
+     *
+     * @param key              键
+     * @param validUntilMillis 结论有效期（不晚于共享记录的过期时刻）
+     * @param nowMillis        当前时间（毫秒）
+     */
+    public void remember(long key, long validUntilMillis, long nowMillis) {
+        if (validUntilMillis <= nowMillis) {
+            return;
+        }
+        Table table = tables.get();
+        int slot = slot(key);
+        synchronized (table) {
+            checkGeneration(table);
+            if (table.keys[slot] != key) {
+                flush(table, slot, nowMillis);
+                table.keys[slot] = key;
+            }
+            table.validUntil[slot] = validUntilMillis;
+            table.flushedAt[slot] = nowMillis;
+        }
+    }
+
+    /**
+     * 合并所有线程中超过刷新间隔或已过期的本地计数
+     * <p>
+     * 由定时任务按刷新间隔调用，保证空闲线程上的计数最多落后一个刷新间隔；
+     * 已退出线程的计数全部合并，其表随后移除
+     * </p>
+     *
+     * @param nowMillis 当前时间（毫秒）
+     * @return 本次合并的本地拒绝次数
+     */
+    public long flushIdle(long nowMillis) {
+        long flushed = 0;
+        for (Iterator<Table> iterator = registered.iterator(); iterator.hasNext(); ) {
+            Table table = iterator.next();
+            boolean terminated = !table.owner.isAlive();
+            synchronized (table) {
+                checkGeneration(table);
+                for (int slot = 0; slot < table.keys.length; slot++) {
+                    long pending = table.pending[slot];
+                    if (pending == 0) {
+                        continue;
+                    }
+                    if (terminated || nowMillis - table.flushedAt[slot] >= flushIntervalMillis) {
+                        flush(table, slot, nowMillis);
+                        flushed += pending;
+                    } else if (nowMillis >= table.validUntil[slot]) {
+                        expire(table, slot, nowMillis);
+                        flushed += pending;
+                    }
+                }
+            }
+            if (terminated) {
+                iterator.remove();
+            }
+        }
+        return flushed;
+    }
+
+    /**
+     * 使所有线程的缓存失效（各线程下次访问时丢弃，未合并的本地计数一并丢弃）
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * 本地拒绝次数（只统计已合并回共享状态的部分）
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    private void checkGeneration(Table table) {
+        int current = generation.get();
+        if (table.generation != current) {
+            table.reset(current);
+        }
+    }
+
+    /**
+     * 结论到期：先合并有效期内的计数，再清除结论
+     */
+    private void expire(Table table, int slot, long nowMillis) {
+        flush(table, slot, nowMillis);
+        table.validUntil[slot] = 0;
+    }
+
+    private void flush(Table table, int slot, long nowMillis) {
+        long pending = table.pending[slot];
+        table.pending[slot] = 0;
+        table.flushedAt[slot] = nowMillis;
+        if (pending > 0 && table.validUntil[slot] != 0) {
+            hits.add(pending);
+            flusher.flush(table.keys[slot], pending);
+        }
+    }
+
+    private int slot(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    /**
+     * 合并本地计数到共享状态
+     */
+    @FunctionalInterface
+    public interface Flusher {
+        /**
+         * @param key   键
+         * @param count 自上次合并以来本地拒绝的次数
+         */
+        void flush(long key, long count);
+    }
+
+    /**
+     * 单个线程的直接映射表（字段只在表的锁内读写）
+     */
+    private static final class Table {
+        private final long[] keys;
+        private final long[] validUntil;
+        private final long[] pending;
+        private final long[] flushedAt;
+        private final Thread owner;
+        private int generation;
+
+        Table(int capacity, Thread owner, int generation) {
+            this.keys = new long[capacity];
+            this.validUntil = new long[capacity];
+            this.pending = new long[capacity];
+            this.flushedAt = new long[capacity];
+            this.owner = owner;
+            this.generation = generation;
+        }
+
+        void reset(int generation) {
+            Arrays.fill(validUntil, 0);
+            Arrays.fill(pending, 0);
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,518 @@
+package com.all.in.one.agent.common.util;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * 以 long 为键的本地缓存
+ * <p>
+ * 专为 64 位指纹设计：键以原始类型存储，查找不装箱、不计算字符串哈希。
+ * 内部按段划分，每段是一张线性探测的开放寻址表，
+ * 读操作使用 StampedLock 乐观读（无锁），写操作持段写锁
+ * </p>
+ * <p>
+ * 支持写入后过期和容量上限；容量满时先清理过期条目，
+ * 仍然满则在探测位置附近采样淘汰最早写入的条目（近似 LRU）
+ * </p>
+ *
+ * @param <V> 值类型
+ * @author One Agent 4J
+ */
+public class LongKeyedCache<V> {
+
+    private static final int SEGMENT_COUNT = 16;
+    private static final int SEGMENT_SHIFT = 64 - Integer.numberOfTrailingZeros(SEGMENT_COUNT);
+    private static final int EVICTION_SAMPLES = 8;
+
+    private final Segment<V>[] segments;
+    private final long expireAfterWriteNanos;
+    private final LongSupplier ticker;
+
+    // 统计信息
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * @param maximumSize      最大条目数
+     * @param expireAfterWrite 写入后过期时间（<= 0 表示不过期）
+     * @param unit             时间单位
+     */
+    public LongKeyedCache(long maximumSize, long expireAfterWrite, TimeUnit unit) {
+        this(maximumSize, expireAfterWrite, unit, System::nanoTime);
+    }
+
+    /**
+     * @param maximumSize      最大条目数
+     * @param expireAfterWrite 写入后过期时间（<= 0 表示不过期）
+     * @param unit             时间单位
+     * @param ticker           纳秒时间源（测试中可替换为可控时钟）
+     */
+    @SuppressWarnings("unchecked")
+    public LongKeyedCache(long maximumSize, long expireAfterWrite, TimeUnit unit, LongSupplier ticker) {
+        this.ticker = ticker;
+        int perSegment = (int) Math.max(1, Math.min(1 << 24, (maximumSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT));
+        this.expireAfterWriteNanos = expireAfterWrite > 0 ? unit.toNanos(expireAfterWrite) : 0;
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment<>(perSegment, expireAfterWriteNanos, evictionCount);
+        }
+    }
+
+    /**
+     * 获取缓存值
+     *
+     * @return 缓存值，不存在或已过期时返回 null
+     */
+    public V getIfPresent(long key) {
+        long hash = spread(key);
+        V value = segmentFor(hash).get(key, (int) hash, ticker.getAsLong());
+        if (value != null) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
+        }
+        return value;
+    }
+
+    /**
+     * 获取缓存值，不存在时通过 loader 创建并写入
+     * <p>
+     * loader 在段写锁内执行，同一个键只会创建一次，应保持轻量
+     * </p>
+     */
+    public V get(long key, LongFunction<? extends V> loader) {
+        long hash = spread(key);
+        Segment<V> segment = segmentFor(hash);
+        long now = ticker.getAsLong();
+        V value = segment.get(key, (int) hash, now);
+        if (value != null) {
+            hitCount.increment();
+            return value;
+        }
+        missCount.increment();
+        return segment.computeIfAbsent(key, (int) hash, now, loader);
+    }
+
+    /**
+     * 写入缓存（覆盖已有值并刷新写入时间）
+     */
+    public void put(long key, V value) {
+        if (value == null) {
+            invalidate(key);
+            return;
+        }
+        long hash = spread(key);
+        segmentFor(hash).put(key, (int) hash, ticker.getAsLong(), value);
+    }
+
+    /**
+     * 写入缓存（键已存在时不覆盖），并指定剩余存活时间
+     * <p>
+     * 用于从快照恢复：写入时间按剩余存活时间倒推，条目在原本的过期时刻过期
+     * </p>
+     *
+     * @return 是否写入
+     */
+    public boolean putIfAbsent(long key, V value, long remainingTtl, TimeUnit unit) {
+        if (value == null) {
+            return false;
+        }
+        long now = ticker.getAsLong();
+        long writeTime = now;
+        if (expireAfterWriteNanos > 0) {
+            long remainingNanos = unit.toNanos(remainingTtl);
+            if (remainingNanos <= 0) {
+                return false;
+            }
+            writeTime = now - (expireAfterWriteNanos - Math.min(remainingNanos, expireAfterWriteNanos));
+        }
+        long hash = spread(key);
+        return segmentFor(hash).putIfAbsent(key, (int) hash, now, writeTime, value);
+    }
+
+    /**
+     * 刷新写入时间（键仍映射到 expected 时）
+     * <p>
+     * 值对象内部状态更新后延长条目存活时间；与 put 不同，不会用旧对象覆盖其他线程刚创建的新对象
+     * </p>
+     *
+     * @return 是否刷新
+     */
+    public boolean refresh(long key, V expected) {
+        long hash = spread(key);
+        return segmentFor(hash).refresh(key, (int) hash, ticker.getAsLong(), expected);
+    }
+
+    /**
+     * 遍历所有未过期的条目
+     * <p>
+     * 按段持读锁遍历，回调中不能访问本缓存
+     * </p>
+     */
+    public void forEach(EntryVisitor<? super V> visitor) {
+        long now = ticker.getAsLong();
+        for (Segment<V> segment : segments) {
+            segment.forEach(now, visitor);
+        }
+    }
+
+    /**
+     * 删除缓存值
+     */
+    public void invalidate(long key) {
+        long hash = spread(key);
+        segmentFor(hash).remove(key, (int) hash);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * 当前条目数（可能包含尚未清理的过期条目）
+     */
+    public long estimatedSize() {
+        long size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    public long evictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * 命中率
+     */
+    public double hitRate() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return total > 0 ? (double) hits / total : 0.0;
+    }
+
+    /**
+     * 条目遍历回调
+     *
+     * @param <V> 值类型
+     */
+    @FunctionalInterface
+    public interface EntryVisitor<V> {
+        /**
+         * @param key               键
+         * @param value             值
+         * @param remainingTtlNanos 剩余存活时间（纳秒，不过期的缓存为 Long.MAX_VALUE）
+         */
+        void visit(long key, V value, long remainingTtlNanos);
+    }
+
+    private Segment<V> segmentFor(long hash) {
+        return segments[(int) (hash >>> SEGMENT_SHIFT)];
+    }
+
+    /**
+     * 键再混合（调用方传入的键不一定分布均匀）；高 4 位选择段，低位是段内的起始槽位
+     */
+    static long spread(long key) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        return h ^ (h >>> 32);
+    }
+
+    /**
+     * 缓存段：线性探测开放寻址表，值非空即表示槽位被占用
+     */
+    private static final class Segment<T> {
+
+        private final StampedLock lock = new StampedLock();
+        private final long expireAfterWriteNanos;
+        private final LongAdder evictionCount;
+        private final long[] keys;
+        private final Object[] values;
+        private final long[] writeTimes;
+        private final int mask;
+        private final int maxSize;
+        private volatile int size;
+        private long nextPurgeNanos;
+
+        Segment(int maxSize, long expireAfterWriteNanos, LongAdder evictionCount) {
+            // 负载因子不超过 0.5，保证探测链足够短
+            int capacity = Integer.highestOneBit(Math.max(2, maxSize) * 2 - 1) << 1;
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.writeTimes = new long[capacity];
+            this.mask = capacity - 1;
+            this.maxSize = maxSize;
+            this.expireAfterWriteNanos = expireAfterWriteNanos;
+            this.evictionCount = evictionCount;
+        }
+
+        T get(long key, int hash, long now) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                T value = find(key, hash, now);
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return find(key, hash, now);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        T computeIfAbsent(long key, int hash, long now, LongFunction<? extends T> loader) {
+            long stamp = lock.writeLock();
+            try {
+                int index = indexOf(key, hash);
+                if (index >= 0) {
+                    if (!isExpired(index, now)) {
+                        return valueAt(index);
+                    }
+                    removeAt(index);
+                }
+                T value = loader.apply(key);
+                if (value != null) {
+                    insert(key, hash, now, value);
+                }
+                return value;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void put(long key, int hash, long now, T value) {
+            long stamp = lock.writeLock();
+            try {
+                int index = indexOf(key, hash);
+                if (index >= 0) {
+                    values[index] = value;
+                    writeTimes[index] = now;
+                    return;
+                }
+                insert(key, hash, now, value);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean putIfAbsent(long key, int hash, long now, long writeTime, T value) {
+            long stamp = lock.writeLock();
+            try {
+                int index = indexOf(key, hash);
+                if (index >= 0) {
+                    if (!isExpired(index, now)) {
+                        return false;
+                    }
+                    removeAt(index);
+                }
+                writeTimes[insert(key, hash, now, value)] = writeTime;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean refresh(long key, int hash, long now, T expected) {
+            long stamp = lock.writeLock();
+            try {
+                int index = indexOf(key, hash);
+                if (index < 0 || values[index] != expected) {
+                    return false;
+                }
+                writeTimes[index] = now;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void forEach(long now, EntryVisitor<? super T> visitor) {
+            long stamp = lock.readLock();
+            try {
+                for (int index = 0; index <= mask; index++) {
+                    if (values[index] != null && !isExpired(index, now)) {
+                        long remaining = expireAfterWriteNanos > 0
+                                ? expireAfterWriteNanos - (now - writeTimes[index])
+                                : Long.MAX_VALUE;
+                        visitor.visit(keys[index], valueAt(index), remaining);
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void remove(long key, int hash) {
+            long stamp = lock.writeLock();
+            try {
+                int index = indexOf(key, hash);
+                if (index >= 0) {
+                    removeAt(index);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void clear() {
+            long stamp = lock.writeLock();
+            try {
+                Arrays.fill(values, null);
+                size = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * 查找（可能在乐观读下执行，探测次数有上限，结果由调用方校验）
+         */
+        private T find(long key, int hash, long now) {
+            int index = hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                Object value = values[index];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[index] == key) {
+                    return isExpired(index, now) ? null : castValue(value);
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        private int indexOf(long key, int hash) {
+            int index = hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                if (values[index] == null) {
+                    return -1;
+                }
+                if (keys[index] == key) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int insert(long key, int hash, long now, T value) {
+            if (size >= maxSize) {
+                makeRoom(hash, now);
+            }
+            int index = hash & mask;
+            while (values[index] != null) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            writeTimes[index] = now;
+            values[index] = value;
+            size = size + 1;
+            return index;
+        }
+
+        /**
+         * 腾出空间：先清理过期条目（限频执行），仍然满则采样淘汰
+         */
+        private void makeRoom(int hash, long now) {
+            if (expireAfterWriteNanos > 0 && now - nextPurgeNanos >= 0) {
+                purgeExpired(now);
+                nextPurgeNanos = now + Math.max(expireAfterWriteNanos / 16, TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            if (size < maxSize) {
+                return;
+            }
+
+            int victim = -1;
+            int sampled = 0;
+            int index = hash & mask;
+            for (int probes = 0; probes <= mask && sampled < EVICTION_SAMPLES; probes++) {
+                if (values[index] != null) {
+                    if (victim < 0 || writeTimes[index] - writeTimes[victim] < 0) {
+                        victim = index;
+                    }
+                    sampled++;
+                }
+                index = (index + 1) & mask;
+            }
+            if (victim >= 0) {
+                removeAt(victim);
+                evictionCount.increment();
+            }
+        }
+
+        private void purgeExpired(long now) {
+            int index = 0;
+            while (index <= mask) {
+                if (values[index] != null && isExpired(index, now)) {
+                    // 后移删除可能把后续条目移到当前位置，因此原地再检查一次
+                    removeAt(index);
+                    evictionCount.increment();
+                } else {
+                    index++;
+                }
+            }
+        }
+
+        /**
+         * 删除槽位，并把同一探测链上的后续条目前移（保持线性探测不断链）
+         */
+        private void removeAt(int index) {
+            values[index] = null;
+            size = size - 1;
+            int hole = index;
+            int next = index;
+            for (;;) {
+                next = (next + 1) & mask;
+                if (values[next] == null) {
+                    return;
+                }
+                int home = (int) spread(keys[next]) & mask;
+                boolean movable = hole <= next
+                        ? (home <= hole || home > next)
+                        : (home <= hole && home > next);
+                if (movable) {
+                    keys[hole] = keys[next];
+                    writeTimes[hole] = writeTimes[next];
+                    values[hole] = values[next];
+                    values[next] = null;
+                    hole = next;
+                }
+            }
+        }
+
+        private boolean isExpired(int index, long now) {
+            return expireAfterWriteNanos > 0 && now - writeTimes[index] >= expireAfterWriteNanos;
+        }
+
+        private T valueAt(int index) {
+            return castValue(values[index]);
+        }
+
+        @SuppressWarnings("unchecked")
+        private T castValue(Object value) {
+            return (T) value;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.all.in.one.agent.common.util;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 有界堆栈渲染器
+ * <p>
+ * 输出格式与 JDK printStackTrace 一致（Caused by / Suppressed / "... N more"），并且：
+ * - 每个异常最多输出 maxDepth 行栈帧，超出部分折叠为一行计数
+ * - 与外层异常相同的尾部栈帧省略为 "... N more"
+ * - 防止 cause / suppressed 循环引用
+ * - 可选：把连续的框架栈帧（CGLIB 代理、反射、Tomcat 过滤器链等）折叠为一行计数
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public class StackTraceRenderer {
+
+    /**
+     * 默认渲染器（最大深度 50，不折叠框架栈帧）
+     */
+    public static final StackTraceRenderer DEFAULT = new StackTraceRenderer(50, false, List.of());
+
+    private static final String CAUSE_CAPTION = "Caused by: ";
+    private static final String SUPPRESSED_CAPTION = "Suppressed: ";
+
+    private final int maxDepth;
+    private final boolean collapseFrameworkFrames;
+    private final String[] frameworkFramePatterns;
+
+    /**
+     * @param maxDepth                每个异常最多输出的栈帧行数（<= 0 表示不限制）
+     * @param collapseFrameworkFrames 是否折叠框架栈帧
+     * @param frameworkFramePatterns  框架栈帧类名包含的片段
+     */
+    public StackTraceRenderer(int maxDepth, boolean collapseFrameworkFrames, List<String> frameworkFramePatterns) {
+        this.maxDepth = maxDepth > 0 ? maxDepth : Integer.MAX_VALUE;
+        this.collapseFrameworkFrames = collapseFrameworkFrames && !frameworkFramePatterns.isEmpty();
+        this.frameworkFramePatterns = frameworkFramePatterns.toArray(new String[0]);
+    }
+
+    /**
+     * 渲染异常堆栈
+     */
+    public String render(Throwable throwable) {
+        StringBuilder sb = new StringBuilder(1024);
+        Set<Throwable> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        renderThrowable(sb, throwable, null, "", "", visited);
+        return sb.toString();
+    }
+
+    private void renderThrowable(StringBuilder sb, Throwable throwable, StackTraceElement[] enclosingTrace,
+                                 String caption, String prefix, Set<Throwable> visited) {
+        if (!visited.add(throwable)) {
+            sb.append(prefix).append(caption).append("[CIRCULAR REFERENCE: ").append(throwable).append("]\n");
+            return;
+        }
+
+        // 1. 异常标题（与 printStackTrace 一样使用 toString，包含本地化消息）
+        sb.append(prefix).append(caption).append(throwable).append('\n');
+
+        // 2. 计算与外层异常相同的尾部栈帧
+        StackTraceElement[] trace = throwable.getStackTrace();
+        int last = trace.length - 1;
+        if (enclosingTrace != null) {
+            int n = enclosingTrace.length - 1;
+            while (last >= 0 && n >= 0 && trace[last].equals(enclosingTrace[n])) {
+                last--;
+                n--;
+            }
+        }
+        int framesInCommon = trace.length - 1 - last;
+
+        // 3. 输出栈帧
+        renderFrames(sb, trace, last + 1, prefix);
+        if (framesInCommon > 0) {
+            sb.append(prefix).append("\t... ").append(framesInCommon).append(" more\n");
+        }
+
+        // 4. Suppressed 与 Caused by
+        for (Throwable suppressed : throwable.getSuppressed()) {
+            renderThrowable(sb, suppressed, trace, SUPPRESSED_CAPTION, prefix + "\t", visited);
+        }
+        Throwable cause = throwable.getCause();
+        if (cause != null) {
+            renderThrowable(sb, cause, trace, CAUSE_CAPTION, prefix, visited);
+        }
+    }
+
+    /**
+     * 输出 trace[0, end) 的栈帧，超过最大深度的部分和连续框架栈帧折叠为计数
+     */
+    private void renderFrames(StringBuilder sb, StackTraceElement[] trace, int end, String prefix) {
+        int lines = 0;
+        int i = 0;
+        while (i < end) {
+            if (lines >= maxDepth) {
+                sb.append(prefix).append("\t... ").append(end - i).append(" frames truncated\n");
+                return;
+            }
+
+            // 栈顶帧是错误位置，始终原样输出
+            if (collapseFrameworkFrames && i > 0 && isFrameworkFrame(trace[i])) {
+                int runEnd = i + 1;
+                while (runEnd < end && isFrameworkFrame(trace[runEnd])) {
+                    runEnd++;
+                }
+                int run = runEnd - i;
+                if (run > 1) {
+                    sb.append(prefix).append("\t... ").append(run).append(" framework frames\n");
+                    lines++;
+                    i = runEnd;
+                    continue;
+                }
+            }
+
+            sb.append(prefix).append("\tat ").append(trace[i]).append('\n');
+            lines++;
+            i++;
+        }
+    }
+
+    private boolean isFrameworkFrame(StackTraceElement element) {
+        String className = element.getClassName();
+        for (String pattern : frameworkFramePatterns) {
+            if (className.contains(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,199 @@
+package com.all.in.one.agent.common.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * 状态快照文件
+ * <p>
+ * 把以 64 位指纹为键的状态表写成紧凑的二进制文件，在堆内缓冲中组装后通过 {@link FileChannel} 整块读写，
+ * 10 万条记录的写入和恢复都在毫秒级。格式（大端）：
+ * </p>
+ * <pre>
+ * 头部 40 字节: magic(4) | version(4) | tag(8) | 快照时间毫秒(8) | 条目数(4) | 保留(4) | 条目区 CRC32(8)
+ * 条目 24 字节: key(8) | value(8) | 剩余存活毫秒(8)
+ * </pre>
+ * <p>
+ * tag 由调用方指定（如窗口模式与窗口长度），不一致时拒绝恢复，防止配置变化后错误解释旧状态。
+ * 写入先写临时文件再原子替换，进程在写入中途退出不会损坏已有快照。
+ * 不使用内存映射：映射在 GC 回收前不会释放，Windows 上无法替换或删除仍被映射的文件
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public final class StateSnapshotFile {
+
+    private static final int MAGIC = 0x4F413453;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+    private static final int ENTRY_LONGS = 3;
+    private static final int ENTRY_BYTES = ENTRY_LONGS * Long.BYTES;
+
+    /**
+     * 不过期条目的剩余存活时间
+     */
+    public static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    private StateSnapshotFile() {
+    }
+
+    /**
+     * 写入快照
+     *
+     * @param path      快照文件
+     * @param tag       状态标识（恢复时必须一致）
+     * @param nowMillis 快照时间（墙上时钟毫秒），恢复时据此扣减剩余存活时间
+     * @param source    向 sink 逐条写入状态
+     * @return 写入的条目数
+     */
+    public static int write(Path path, long tag, long nowMillis, Consumer<EntrySink> source) throws IOException {
+        Entries entries = new Entries();
+        source.accept(entries);
+        int count = entries.size / ENTRY_LONGS;
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(HEADER_BYTES + (long) count * ENTRY_BYTES));
+        buffer.position(HEADER_BYTES);
+        buffer.asLongBuffer().put(entries.data, 0, entries.size);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.position(HEADER_BYTES).slice());
+
+        buffer.putInt(0, MAGIC)
+                .putInt(4, VERSION)
+                .putLong(8, tag)
+                .putLong(16, nowMillis)
+                .putInt(24, count)
+                .putInt(28, 0)
+                .putLong(32, crc.getValue());
+        buffer.clear();
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        return count;
+    }
+
+    /**
+     * 读取快照
+     * <p>
+     * 剩余存活时间按快照时间到 nowMillis 的间隔扣减，已过期的条目不回调
+     * </p>
+     *
+     * @param path      快照文件
+     * @param tag       状态标识
+     * @param nowMillis 当前时间（墙上时钟毫秒）
+     * @param sink      接收恢复的条目
+     * @return 恢复的条目数，文件不存在时返回 0
+     * @throws IOException 文件损坏或 tag 不一致
+     */
+    public static int read(Path path, long tag, long nowMillis, EntrySink sink) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("快照文件长度不足: " + size);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("快照文件过大: " + size);
+            }
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("快照文件读取不完整");
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("快照文件格式不支持");
+        }
+        if (buffer.getLong(8) != tag) {
+            throw new IOException("快照状态标识不一致（配置已变化）");
+        }
+        int count = buffer.getInt(24);
+        if (count < 0 || buffer.capacity() != HEADER_BYTES + (long) count * ENTRY_BYTES) {
+            throw new IOException("快照条目数与文件长度不一致: " + count);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.position(HEADER_BYTES).slice());
+        if (crc.getValue() != buffer.getLong(32)) {
+            throw new IOException("快照文件校验失败");
+        }
+
+        long elapsed = Math.max(0, nowMillis - buffer.getLong(16));
+        LongBuffer longs = buffer.position(HEADER_BYTES).slice().asLongBuffer();
+        int restored = 0;
+        for (int i = 0; i < count; i++) {
+            int base = i * ENTRY_LONGS;
+            long remaining = longs.get(base + 2);
+            if (remaining != NO_EXPIRY) {
+                remaining -= elapsed;
+                if (remaining <= 0) {
+                    continue;
+                }
+            }
+            sink.accept(longs.get(base), longs.get(base + 1), remaining);
+            restored++;
+        }
+        return restored;
+    }
+
+    /**
+     * 快照条目接收方
+     */
+    @FunctionalInterface
+    public interface EntrySink {
+        /**
+         * @param key             键
+         * @param value           值（计数等）
+         * @param remainingMillis 剩余存活时间（毫秒，不过期为 {@link StateSnapshotFile#NO_EXPIRY}）
+         */
+        void accept(long key, long value, long remainingMillis);
+    }
+
+    /**
+     * 写入缓冲（按条目平铺的 long 数组）
+     */
+    private static final class Entries implements EntrySink {
+        private long[] data = new long[ENTRY_LONGS * 1024];
+        private int size;
+
+        @Override
+        public void accept(long key, long value, long remainingMillis) {
+            if (size + ENTRY_LONGS > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = key;
+            data[size++] = value;
+            data[size++] = remainingMillis;
+        }
+    }
+}
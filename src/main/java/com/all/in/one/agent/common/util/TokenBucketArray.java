@@ -0,0 +1,122 @@
+package com.all.in.one.agent.common.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * 无锁令牌桶数组
+ * <p>
+ * 预分配固定数量的令牌桶，按 64 位键散列到槽位（不同键可能共用一个桶，结果偏保守）。
+ * 每个桶只保存一个 long：下一个令牌的理论到达时间（GCRA 算法），
+ * 取令牌是一次读取加一次 CAS，不加锁、不分配对象
+ * </p>
+ * <p>
+ * 桶容量为 burst，每秒补充 refillPerSecond 个令牌；空闲的桶自动补满，不需要清理
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public final class TokenBucketArray {
+
+    private final AtomicLongArray arrivals;
+    private final int mask;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final LongSupplier ticker;
+    private final long origin;
+
+    /**
+     * @param slots           桶数量（向上取整为 2 的幂）
+     * @param burst           桶容量（允许的突发数量）
+     * @param refillPerSecond 每秒补充的令牌数
+     */
+    public TokenBucketArray(int slots, int burst, double refillPerSecond) {
+        this(slots, burst, refillPerSecond, System::nanoTime);
+    }
+
+    /**
+     * @param ticker 单调时钟（纳秒），测试中可替换为可控时钟
+     */
+    public TokenBucketArray(int slots, int burst, double refillPerSecond, LongSupplier ticker) {
+        if (burst <= 0 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("burst 和 refillPerSecond 必须大于 0");
+        }
+        int capacity = Integer.highestOneBit(Math.max(1, slots) * 2 - 1);
+        this.arrivals = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        this.emissionIntervalNanos = Math.max(1, (long) (1_000_000_000L / refillPerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.ticker = ticker;
+        // 保证相对时间为正数：初始值 0 即满桶
+        this.origin = ticker.getAsLong() - burstToleranceNanos - emissionIntervalNanos;
+    }
+
+    /**
+     * 从键对应的桶中取一个令牌
+     *
+     * @return true=取到令牌，false=桶已空
+     */
+    public boolean tryAcquire(long key) {
+        int slot = slot(key);
+        long now = ticker.getAsLong() - origin;
+        while (true) {
+            long arrival = arrivals.get(slot);
+            long next = Math.max(arrival, now);
+            if (next - now > burstToleranceNanos) {
+                return false;
+            }
+            if (arrivals.compareAndSet(slot, arrival, next + emissionIntervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 归还一个令牌（上层拒绝时撤销本层已消耗的令牌）
+     */
+    public void release(long key) {
+        int slot = slot(key);
+        long now = ticker.getAsLong() - origin;
+        while (true) {
+            long arrival = arrivals.get(slot);
+            if (arrival <= now) {
+                return;
+            }
+            if (arrivals.compareAndSet(slot, arrival, Math.max(now, arrival - emissionIntervalNanos))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 键对应的桶中当前可用的令牌数
+     */
+    public int available(long key) {
+        long now = ticker.getAsLong() - origin;
+        long backlog = Math.max(0, arrivals.get(slot(key)) - now);
+        return (int) ((burstToleranceNanos + emissionIntervalNanos - backlog) / emissionIntervalNanos);
+    }
+
+    public int slots() {
+        return mask + 1;
+    }
+
+    /**
+     * 重置为满桶
+     */
+    public void clear() {
+        for (int i = 0; i <= mask; i++) {
+            arrivals.set(i, 0);
+        }
+    }
+
+    private int slot(long key) {
+        // murmur3 fmix64，避免低位分布不均的键集中到少数槽位
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+}
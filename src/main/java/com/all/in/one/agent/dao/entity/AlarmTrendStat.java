@@ -114,6 +114,14 @@ public class AlarmTrendStat {
      */
     private Integer p4Count;
 
+    /**
+     * 被指纹去重过滤的数量
+     * <p>
+     * 已计入 exceptionCount，由重复异常计数回写任务累加（按小时统计时有值）
+     * </p>
+     */
+    private Integer suppressedCount;
+
     /**
      * 创建时间
      */
@@ -1,5 +1,6 @@
 package com.all.in.one.agent.dao.mapper;
 
+import com.all.in.one.agent.common.model.SuppressedCount;
 import com.all.in.one.agent.dao.entity.AlarmTrendStat;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
@@ -65,6 +66,17 @@ public interface AlarmTrendStatMapper extends BaseMapper<AlarmTrendStat> {
      */
     void aggregateHourlyStat(@Param("date") LocalDate date);
 
+    /**
+     * 批量累加被去重过滤的次数到小时统计
+     * <p>
+     * exception_count 与 suppressed_count 同时累加，小时聚合重算记录数时保留 suppressed_count，
+     * 整批只执行一条语句
+     * </p>
+     *
+     * @param counts 各指纹在一个回写间隔内被过滤的次数
+     */
+    void incrementSuppressedHourly(@Param("counts") List<SuppressedCount> counts);
+
     /**
      * 查询所有有统计数据的服务名称列表（去重）
      * <p>
@@ -1,8 +1,14 @@
 package com.all.in.one.agent.dao.mapper;
 
+import com.all.in.one.agent.common.model.SuppressedCount;
 import com.all.in.one.agent.dao.entity.AppAlarmTicket;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 告警工单 Mapper
@@ -11,4 +17,32 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface AppAlarmTicketMapper extends BaseMapper<AppAlarmTicket> {
+
+    /**
+     * 批量累加被去重过滤的发生次数
+     * <p>
+     * 按指纹关联未关闭的工单，累加 occurrence_count 并推进 last_occurred_at，
+     * 整批只执行一条语句
+     * </p>
+     *
+     * @param counts 各指纹在一个回写间隔内被过滤的次数
+     * @return 更新的工单数
+     */
+    int incrementOccurrenceBatch(@Param("counts") List<SuppressedCount> counts);
+
+    /**
+     * 累加未关闭工单的发生次数
+     * <p>
+     * 用于已缓存工单 ID 的场景：工单已被关闭时不更新，返回 0
+     * </p>
+     *
+     * @param id             工单 ID
+     * @param lastOccurredAt 最后发生时间
+     * @return 更新的工单数
+     */
+    @Update("UPDATE app_alarm_ticket " +
+            "SET occurrence_count = occurrence_count + 1, " +
+            "last_occurred_at = #{lastOccurredAt} " +
+            "WHERE id = #{id} AND status != 'CLOSED'")
+    int incrementOccurrenceIfOpen(@Param("id") Long id, @Param("lastOccurredAt") LocalDateTime lastOccurredAt);
 }
@@ -0,0 +1,150 @@
+package com.all.in.one.agent.job;
+
+import com.all.in.one.agent.common.model.SuppressedCount;
+import com.all.in.one.agent.dao.mapper.AlarmTrendStatMapper;
+import com.all.in.one.agent.dao.mapper.AppAlarmTicketMapper;
+import com.all.in.one.agent.starter.collector.ExceptionCollector;
+import com.all.in.one.agent.starter.rule.DeferredEventSpool;
+import com.all.in.one.agent.starter.rule.TimeWindowRule;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 静默时段延迟异常释放定时任务
+ * <p>
+ * 静默时段内被延迟的低优先级异常按指纹合并保存在 {@link TimeWindowRule} 的延迟队列中。
+ * 该任务按固定间隔检查静默时段是否结束，结束后一次性取出：
+ * 1. 每个指纹发送第一条事件（持久化、AI 去噪、生成工单）
+ * 2. 其余次数批量累加到工单 occurrence_count 和小时趋势统计，工单次数与静默时段内的真实次数一致
+ * </p>
+ * <p>
+ * 释放（监听器中的持久化、AI 去噪、工单）在专用的单线程中执行，不占用共享的定时任务线程；
+ * 上一批尚未释放完时本次检查跳过，新的延迟事件留在延迟队列中继续按指纹合并，不会在内存中堆积
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "one-agent.rule-engine.time-window", name = "enabled", havingValue = "true")
+public class DeferredEventReleaseJob {
+
+    private final TimeWindowRule timeWindowRule;
+    private final ExceptionCollector exceptionCollector;
+    private final AppAlarmTicketMapper ticketMapper;
+    private final AlarmTrendStatMapper trendStatMapper;
+    private final ThreadPoolExecutor releaseExecutor;
+    private final AtomicBoolean releasing = new AtomicBoolean();
+
+    public DeferredEventReleaseJob(TimeWindowRule timeWindowRule,
+                                   ExceptionCollector exceptionCollector,
+                                   AppAlarmTicketMapper ticketMapper,
+                                   AlarmTrendStatMapper trendStatMapper) {
+        this.timeWindowRule = timeWindowRule;
+        this.exceptionCollector = exceptionCollector;
+        this.ticketMapper = ticketMapper;
+        this.trendStatMapper = trendStatMapper;
+        this.releaseExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1), runnable -> {
+                    Thread thread = new Thread(runnable, "one-agent-deferred-release");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        log.info("DeferredEventReleaseJob 初始化完成");
+    }
+
+    /**
+     * 按固定间隔检查（默认 30 秒）
+     */
+    @Scheduled(fixedDelayString = "${one-agent.rule-engine.time-window.release-check-millis:30000}",
+            initialDelayString = "${one-agent.rule-engine.time-window.release-check-millis:30000}")
+    public void release() {
+        if (!releasing.compareAndSet(false, true)) {
+            log.debug("上一批延迟异常仍在释放，本次检查跳过");
+            return;
+        }
+        List<DeferredEventSpool.DeferredEvent> events;
+        try {
+            events = timeWindowRule.drainReleasable();
+        } catch (RuntimeException e) {
+            releasing.set(false);
+            throw e;
+        }
+        if (events.isEmpty()) {
+            releasing.set(false);
+            return;
+        }
+
+        try {
+            releaseExecutor.execute(() -> {
+                try {
+                    releaseNow(events);
+                } finally {
+                    releasing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 停机中：已取出的事件在当前线程释放完，不丢弃
+            try {
+                releaseNow(events);
+            } finally {
+                releasing.set(false);
+            }
+        }
+    }
+
+    /**
+     * 发送每个指纹的第一条事件并回写其余次数
+     */
+    private void releaseNow(List<DeferredEventSpool.DeferredEvent> events) {
+        long startTime = System.currentTimeMillis();
+        List<SuppressedCount> remaining;
+        try {
+            remaining = exceptionCollector.releaseDeferred(events);
+        } catch (Exception e) {
+            log.error("延迟异常释放失败 - fingerprints={}, error={}", events.size(), e.getMessage(), e);
+            return;
+        }
+        int updatedTickets = 0;
+        if (!remaining.isEmpty()) {
+            try {
+                updatedTickets = ticketMapper.incrementOccurrenceBatch(remaining);
+            } catch (Exception e) {
+                log.error("延迟异常次数回写工单失败 - fingerprints={}, error={}", remaining.size(), e.getMessage(), e);
+            }
+            try {
+                trendStatMapper.incrementSuppressedHourly(remaining);
+            } catch (Exception e) {
+                log.error("延迟异常次数回写趋势统计失败 - fingerprints={}, error={}", remaining.size(), e.getMessage(), e);
+            }
+        }
+
+        log.info("延迟异常释放完成 - fingerprints={}, mergedFingerprints={}, updatedTickets={}, 耗时: {}ms",
+                events.size(), remaining.size(), updatedTickets, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 停机时等待正在进行的释放完成
+     */
+    @PreDestroy
+    public void shutdown() {
+        releaseExecutor.shutdown();
+        try {
+            if (!releaseExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("延迟异常释放未在 10 秒内完成");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
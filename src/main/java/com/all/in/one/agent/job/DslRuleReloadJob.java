@@ -0,0 +1,40 @@
+package com.all.in.one.agent.job;
+
+import com.all.in.one.agent.starter.rule.DslRule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * DSL 规则文件热加载定时任务
+ * <p>
+ * 按固定间隔检查 one-agent.rule-engine.dsl.rules-file 的修改时间，修改后重新编译并原子替换规则集，
+ * 规则有误时保留原规则集（错误原因见 /rules/dsl 的 lastReloadError）
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "one-agent.rule-engine.dsl", name = "enabled", havingValue = "true")
+public class DslRuleReloadJob {
+
+    private final DslRule dslRule;
+
+    public DslRuleReloadJob(DslRule dslRule) {
+        this.dslRule = dslRule;
+        log.info("DslRuleReloadJob 初始化完成");
+    }
+
+    /**
+     * 按固定间隔检查（默认 10 秒）
+     */
+    @Scheduled(fixedDelayString = "${one-agent.rule-engine.dsl.reload-check-millis:10000}",
+            initialDelayString = "${one-agent.rule-engine.dsl.reload-check-millis:10000}")
+    public void reload() {
+        if (dslRule.reloadIfRulesFileChanged()) {
+            log.info("DSL 规则文件已重新加载 - ruleCount={}", dslRule.getStats().getRuleCount());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.all.in.one.agent.job;
+
+import com.all.in.one.agent.starter.dedup.FingerprintDeduplicator;
+import com.all.in.one.agent.starter.rule.FrequencyLimitRule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 线程本地拒绝缓存合并定时任务
+ * <p>
+ * 线程本地拒绝缓存只在所属线程再次访问时合并计数，线程空闲或退出后残留的计数
+ * 由该任务按 one-agent.dedup.local-cache-max-staleness-millis 间隔合并回共享状态
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Slf4j
+@Component
+public class LocalRejectCacheFlushJob {
+
+    private final FingerprintDeduplicator deduplicator;
+    private final FrequencyLimitRule frequencyLimitRule;
+
+    public LocalRejectCacheFlushJob(FingerprintDeduplicator deduplicator,
+                                    ObjectProvider<FrequencyLimitRule> frequencyLimitRule) {
+        this.deduplicator = deduplicator;
+        this.frequencyLimitRule = frequencyLimitRule.getIfAvailable();
+        log.info("LocalRejectCacheFlushJob 初始化完成");
+    }
+
+    /**
+     * 按固定间隔合并（默认 100 毫秒）
+     */
+    @Scheduled(fixedDelayString = "${one-agent.dedup.local-cache-max-staleness-millis:100}",
+            initialDelayString = "${one-agent.dedup.local-cache-max-staleness-millis:100}")
+    public void flush() {
+        try {
+            deduplicator.flushLocalCache();
+            if (frequencyLimitRule != null) {
+                frequencyLimitRule.flushLocalCache();
+            }
+        } catch (Exception e) {
+            log.error("线程本地拒绝计数合并失败 - error={}", e.getMessage(), e);
+        }
+    }
+}
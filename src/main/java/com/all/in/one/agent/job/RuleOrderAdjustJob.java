@@ -0,0 +1,45 @@
+package com.all.in.one.agent.job;
+
+import com.all.in.one.agent.starter.rule.RuleEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 规则执行顺序自适应调整定时任务
+ * <p>
+ * 按固定间隔让 {@link RuleEngine} 用上一周期各规则的实测耗时和命中率重新估算执行顺序，
+ * 当前顺序和调整结论通过 /stats/layer15 查看
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "one-agent.rule-engine.adaptive-order", name = "enabled", havingValue = "true")
+public class RuleOrderAdjustJob {
+
+    private final RuleEngine ruleEngine;
+
+    public RuleOrderAdjustJob(RuleEngine ruleEngine) {
+        this.ruleEngine = ruleEngine;
+        log.info("RuleOrderAdjustJob 初始化完成");
+    }
+
+    /**
+     * 按固定间隔调整（默认 60 秒）
+     */
+    @Scheduled(fixedDelayString = "${one-agent.rule-engine.adaptive-order.interval-millis:60000}",
+            initialDelayString = "${one-agent.rule-engine.adaptive-order.interval-millis:60000}")
+    public void adjust() {
+        try {
+            boolean changed = ruleEngine.reorder();
+            if (!changed) {
+                log.debug("规则执行顺序未调整 - reason={}", ruleEngine.getStats().getOrderReason());
+            }
+        } catch (Exception e) {
+            log.error("规则执行顺序调整失败 - error={}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.all.in.one.agent.job;
+
+import com.all.in.one.agent.common.config.AgentProperties;
+import com.all.in.one.agent.common.model.SuppressedCount;
+import com.all.in.one.agent.dao.mapper.AlarmTrendStatMapper;
+import com.all.in.one.agent.dao.mapper.AppAlarmTicketMapper;
+import com.all.in.one.agent.starter.collector.ExceptionCollector;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 重复异常计数回写定时任务
+ * <p>
+ * 被指纹去重过滤的异常不会落库，工单发生次数和趋势统计会按去重比例少算。
+ * 该任务按固定间隔取出收集器中累计的各指纹过滤次数，批量回写：
+ * 1. 累加未关闭工单的 occurrence_count 并推进 last_occurred_at
+ * 2. 累加小时趋势统计的 exception_count / suppressed_count
+ * 每个间隔每张表一条多行语句（指纹数超过 batchSize 时分批）
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "one-agent.suppressed-count-flush", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SuppressedCountFlushJob {
+
+    private final ExceptionCollector exceptionCollector;
+    private final AppAlarmTicketMapper ticketMapper;
+    private final AlarmTrendStatMapper trendStatMapper;
+    private final int batchSize;
+
+    public SuppressedCountFlushJob(ExceptionCollector exceptionCollector,
+                                   AppAlarmTicketMapper ticketMapper,
+                                   AlarmTrendStatMapper trendStatMapper,
+                                   AgentProperties properties) {
+        this.exceptionCollector = exceptionCollector;
+        this.ticketMapper = ticketMapper;
+        this.trendStatMapper = trendStatMapper;
+        this.batchSize = Math.max(1, properties.getSuppressedCountFlush().getBatchSize());
+        log.info("SuppressedCountFlushJob 初始化完成 - intervalMillis={}, batchSize={}",
+                properties.getSuppressedCountFlush().getIntervalMillis(), batchSize);
+    }
+
+    /**
+     * 按固定间隔回写（默认 10 秒）
+     */
+    @Scheduled(fixedDelayString = "${one-agent.suppressed-count-flush.interval-millis:10000}",
+            initialDelayString = "${one-agent.suppressed-count-flush.interval-millis:10000}")
+    public void flush() {
+        List<SuppressedCount> counts = exceptionCollector.drainSuppressedCounts();
+        if (counts.isEmpty()) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        long total = 0;
+        int updatedTickets = 0;
+        for (int from = 0; from < counts.size(); from += batchSize) {
+            List<SuppressedCount> batch =
+                    counts.subList(from, Math.min(counts.size(), from + batchSize));
+            for (SuppressedCount count : batch) {
+                total += count.getCount();
+            }
+            try {
+                updatedTickets += ticketMapper.incrementOccurrenceBatch(batch);
+            } catch (Exception e) {
+                log.error("重复异常计数回写工单失败 - fingerprints={}, error={}", batch.size(), e.getMessage(), e);
+            }
+            try {
+                trendStatMapper.incrementSuppressedHourly(batch);
+            } catch (Exception e) {
+                log.error("重复异常计数回写趋势统计失败 - fingerprints={}, error={}", batch.size(), e.getMessage(), e);
+            }
+        }
+
+        log.debug("重复异常计数回写完成 - fingerprints={}, suppressed={}, updatedTickets={}, 耗时: {}ms",
+                counts.size(), total, updatedTickets, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 停机前回写剩余的计数
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -100,8 +100,9 @@ public class ExceptionProcessService {
                 return;
             }
 
-            // 3. 生成工单（可以使用 AI 建议的严重级别）
-            Long ticketId = ticketGenerationService.generateTicket(appAlarmRecord, denoiseDecision);
+            // 3. 生成工单（可以使用 AI 建议的严重级别，否则复用事件已计算的级别）
+            Long ticketId = ticketGenerationService.generateTicket(appAlarmRecord, denoiseDecision,
+                    ticketGenerationService.calculateSeverity(exceptionInfo));
             if (ticketId != null) {
                 log.info("异常处理完成 - exceptionRecordId={}, ticketId={}, fingerprint={}, aiSuggestion={}",
                         exceptionRecordId, ticketId, exceptionInfo.getFingerprint(),
@@ -1,19 +1,30 @@
 package com.all.in.one.agent.service;
 
 import com.all.in.one.agent.ai.model.DenoiseDecision;
+import com.all.in.one.agent.common.util.FingerprintGenerator;
 import com.all.in.one.agent.dao.entity.AppAlarmRecord;
 import com.all.in.one.agent.dao.entity.AppAlarmTicket;
 import com.all.in.one.agent.dao.mapper.AppAlarmTicketMapper;
+import com.all.in.one.agent.starter.severity.SeverityClassifier;
+import com.all.in.one.agent.starter.state.FingerprintState;
+import com.all.in.one.agent.starter.state.FingerprintStateProperties;
+import com.all.in.one.agent.starter.state.FingerprintStateTable;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 工单生成服务
+ * <p>
+ * 启用统一指纹状态表（{@link FingerprintStateTable}）时缓存指纹对应的未关闭工单 ID，
+ * 命中时只执行一条带状态条件的更新，不再查询工单表
+ * </p>
  *
  * @author One Agent 4J
  */
@@ -24,17 +35,26 @@ public class TicketGenerationService {
     private final AppAlarmTicketMapper appAlarmTicketMapper;
     private final ResponsibleOwnerService ownerService;
     private final com.all.in.one.agent.notification.manager.NotificationManager notificationManager;
+    private final SeverityClassifier severityClassifier;
+    private final FingerprintStateTable stateTable;
+    private final long openTicketTtlMillis;
     private static final AtomicLong ticketSequence = new AtomicLong(0);
     private static final DateTimeFormatter TICKET_NO_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
 
     public TicketGenerationService(
             AppAlarmTicketMapper appAlarmTicketMapper,
             ResponsibleOwnerService ownerService,
-            com.all.in.one.agent.notification.manager.NotificationManager notificationManager) {
+            com.all.in.one.agent.notification.manager.NotificationManager notificationManager,
+            SeverityClassifier severityClassifier,
+            FingerprintStateProperties stateProperties,
+            ObjectProvider<FingerprintStateTable> stateTable) {
         this.appAlarmTicketMapper = appAlarmTicketMapper;
         this.ownerService = ownerService;
         this.notificationManager = notificationManager;
-        log.info("TicketGenerationService 初始化完成");
+        this.severityClassifier = severityClassifier;
+        this.stateTable = stateTable.getIfAvailable();
+        this.openTicketTtlMillis = TimeUnit.MINUTES.toMillis(stateProperties.getOpenTicketTtlMinutes());
+        log.info("TicketGenerationService 初始化完成 - openTicketCache={}", this.stateTable != null);
     }
 
     /**
@@ -55,7 +75,37 @@ public class TicketGenerationService {
      * @return 工单ID，如果工单已存在则返回null
      */
     public Long generateTicket(AppAlarmRecord appAlarmRecord, DenoiseDecision aiDecision) {
+        return generateTicket(appAlarmRecord, aiDecision, null);
+    }
+
+    /**
+     * 根据告警记录生成工单（支持 AI 建议，复用事件已计算的严重级别）
+     *
+     * @param appAlarmRecord 告警记录
+     * @param aiDecision AI 去噪判断结果（可选）
+     * @param severity 事件的严重级别（可选，为空时按告警记录分级）
+     * @return 工单ID，如果工单已存在则返回null
+     */
+    public Long generateTicket(AppAlarmRecord appAlarmRecord, DenoiseDecision aiDecision, String severity) {
         try {
+            // 已缓存未关闭工单 ID：只执行一条带状态条件的更新
+            FingerprintState state = null;
+            long fingerprintHash = 0;
+            if (stateTable != null) {
+                fingerprintHash = FingerprintGenerator.hash64(
+                        appAlarmRecord.getExceptionType(), appAlarmRecord.getErrorLocation());
+                state = stateTable.state(fingerprintHash);
+                long openTicketId = state.openTicketId(System.currentTimeMillis());
+                if (openTicketId > 0) {
+                    if (appAlarmTicketMapper.incrementOccurrenceIfOpen(openTicketId, appAlarmRecord.getOccurredAt()) > 0) {
+                        log.info("更新已有工单（缓存命中） - ticketId={}", openTicketId);
+                        return openTicketId;
+                    }
+                    // 工单已被关闭
+                    state.clearOpenTicket();
+                }
+            }
+
             // 检查该异常指纹是否已经有未关闭的工单
             LambdaQueryWrapper<AppAlarmTicket> queryWrapper = new LambdaQueryWrapper<>();
             queryWrapper.eq(AppAlarmTicket::getExceptionFingerprint, appAlarmRecord.getFingerprint())
@@ -72,12 +122,14 @@ public class TicketGenerationService {
                 appAlarmTicketMapper.updateById(existingTicket);
                 log.info("更新已有工单 - ticketNo={}, occurrenceCount={}",
                         existingTicket.getTicketNo(), existingTicket.getOccurrenceCount());
+                rememberOpenTicket(fingerprintHash, state, existingTicket.getId());
                 return existingTicket.getId();
             }
 
             // 创建新工单（使用 AI 建议）
-            AppAlarmTicket ticket = buildTicket(appAlarmRecord, aiDecision);
+            AppAlarmTicket ticket = buildTicket(appAlarmRecord, aiDecision, severity);
             appAlarmTicketMapper.insert(ticket);
+            rememberOpenTicket(fingerprintHash, state, ticket.getId());
             log.info("新工单已生成并自动分派 - ticketNo={}, exceptionType={}, severity={}, assignee={}, aiSuggested={}",
                     ticket.getTicketNo(), ticket.getExceptionType(), ticket.getSeverity(),
                     ticket.getAssignee(),
@@ -102,10 +154,20 @@ public class TicketGenerationService {
         }
     }
 
+    /**
+     * 缓存指纹对应的未关闭工单 ID
+     */
+    private void rememberOpenTicket(long fingerprintHash, FingerprintState state, Long ticketId) {
+        if (state != null && ticketId != null) {
+            state.putOpenTicket(ticketId, System.currentTimeMillis() + openTicketTtlMillis);
+            stateTable.touch(fingerprintHash, state);
+        }
+    }
+
     /**
      * 构建工单对象
      */
-    private AppAlarmTicket buildTicket(AppAlarmRecord appAlarmRecord, DenoiseDecision aiDecision) {
+    private AppAlarmTicket buildTicket(AppAlarmRecord appAlarmRecord, DenoiseDecision aiDecision, String eventSeverity) {
         AppAlarmTicket ticket = new AppAlarmTicket();
 
         // 工单编号
@@ -127,7 +189,9 @@ public class TicketGenerationService {
         // 使用 AI 建议的严重级别，如果没有则使用自动计算的
         String severity = (aiDecision != null && aiDecision.getSuggestedSeverity() != null)
                 ? aiDecision.getSuggestedSeverity()
-                : calculateSeverity(appAlarmRecord);
+                : eventSeverity != null
+                ? eventSeverity
+                : severityClassifier.classify(appAlarmRecord.getExceptionType(), appAlarmRecord.getEnvironment());
         ticket.setSeverity(severity);
 
         // 异常内容
@@ -212,54 +276,10 @@ public class TicketGenerationService {
     }
 
     /**
-     * 计算严重级别
-     * P0: 致命 - 内存溢出、系统崩溃
-     * P1: 严重 - 数据库异常、关键业务异常
-     * P2: 一般 - 超时、网络异常
-     * P3: 较低 - 空指针、参数异常
-     * P4: 轻微 - 其他运行时异常
-     */
-    private String calculateSeverity(AppAlarmRecord appAlarmRecord) {
-        String exceptionType = appAlarmRecord.getExceptionType();
-        String environment = appAlarmRecord.getEnvironment();
-
-        // 生产环境提升一个级别
-        boolean isProduction = "prod".equalsIgnoreCase(environment);
-
-        if (exceptionType.contains("OutOfMemory") || exceptionType.contains("StackOverflow")) {
-            return "P0"; // 致命
-        } else if (exceptionType.contains("SQLException") || exceptionType.contains("DataAccess")) {
-            return isProduction ? "P0" : "P1"; // 数据库异常
-        } else if (exceptionType.contains("Timeout")) {
-            return isProduction ? "P1" : "P2"; // 超时
-        } else if (exceptionType.contains("NullPointer") || exceptionType.contains("IllegalArgument")) {
-            return isProduction ? "P2" : "P3"; // 空指针/参数异常
-        } else {
-            return isProduction ? "P3" : "P4"; // 其他异常
-        }
-    }
-
-    /**
-     * 基于 ExceptionInfo 计算严重程度（供规则引擎使用）
+     * 基于 ExceptionInfo 计算严重程度（委托 {@link SeverityClassifier}，结果写入事件供后续复用）
      */
     public String calculateSeverity(com.all.in.one.agent.common.model.ExceptionInfo exceptionInfo) {
-        String exceptionType = exceptionInfo.getExceptionType();
-        String environment = exceptionInfo.getEnvironment();
-
-        // 生产环境提升一个级别
-        boolean isProduction = "prod".equalsIgnoreCase(environment);
-
-        if (exceptionType.contains("OutOfMemory") || exceptionType.contains("StackOverflow")) {
-            return "P0"; // 致命
-        } else if (exceptionType.contains("SQLException") || exceptionType.contains("DataAccess")) {
-            return isProduction ? "P0" : "P1"; // 数据库异常
-        } else if (exceptionType.contains("Timeout")) {
-            return isProduction ? "P1" : "P2"; // 超时
-        } else if (exceptionType.contains("NullPointer") || exceptionType.contains("IllegalArgument")) {
-            return isProduction ? "P2" : "P3"; // 空指针/参数异常
-        } else {
-            return isProduction ? "P3" : "P4"; // 其他异常
-        }
+        return severityClassifier.classify(exceptionInfo);
     }
 
     /**
@@ -5,12 +5,14 @@ import com.all.in.one.agent.starter.capture.ExceptionCaptureAspect;
 import com.all.in.one.agent.starter.capture.ExceptionCaptureFilter;
 import com.all.in.one.agent.starter.capture.GlobalExceptionHandler;
 import com.all.in.one.agent.starter.collector.ExceptionCollector;
+import com.all.in.one.agent.starter.collector.HostIdentityService;
 import com.all.in.one.agent.starter.dedup.FingerprintDeduplicator;
 import com.all.in.one.agent.starter.filter.IgnoreListFilter;
 import com.all.in.one.agent.starter.logging.HttpLogFilter;
 import com.all.in.one.agent.starter.logging.HttpLogProperties;
 import com.all.in.one.agent.starter.reporter.ExceptionReporter;
 import com.all.in.one.agent.starter.rule.RuleEngine;
+import com.all.in.one.agent.starter.trace.TraceContextResolver;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -77,13 +79,27 @@ public class AgentAutoConfiguration {
         return new ExceptionReporter(properties);
     }
 
+    @Bean
+    public HostIdentityService hostIdentityService(AgentProperties properties) {
+        return new HostIdentityService(properties.getAppName(), properties.getHostRefreshIntervalSeconds());
+    }
+
+    @Bean
+    public TraceContextResolver traceContextResolver(AgentProperties properties) {
+        AgentProperties.Trace trace = properties.getTrace();
+        return TraceContextResolver.create(trace.getProviders(), trace.getMdcTraceIdKey(), trace.getMdcSpanIdKey());
+    }
+
     @Bean
     public ExceptionCollector exceptionCollector(AgentProperties properties,
                                                    ExceptionReporter reporter,
                                                    IgnoreListFilter ignoreListFilter,
                                                    FingerprintDeduplicator fingerprintDeduplicator,
-                                                   @Autowired(required = false) RuleEngine ruleEngine) {
-        return new ExceptionCollector(properties, reporter, ignoreListFilter, fingerprintDeduplicator, ruleEngine);
+                                                   @Autowired(required = false) RuleEngine ruleEngine,
+                                                   HostIdentityService hostIdentityService,
+                                                   TraceContextResolver traceContextResolver) {
+        return new ExceptionCollector(properties, reporter, ignoreListFilter, fingerprintDeduplicator, ruleEngine,
+                hostIdentityService, traceContextResolver);
     }
 
     /**
@@ -0,0 +1,189 @@
+package com.all.in.one.agent.starter.collector;
+
+import com.all.in.one.agent.common.config.AgentProperties;
+import com.all.in.one.agent.common.util.LongKeyedCache;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * 按指纹自适应采样器
+ * <p>
+ * 每个指纹在每个周期内的前 keepFirst 次必定保留，之后按配置的模式降低保留概率；
+ * 随机数使用 ThreadLocalRandom，避免共享 Random 的 CAS 竞争。
+ * 采样结果返回权重（1 / 保留概率），下游可据此把计数还原
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public class AdaptiveSampler {
+
+    /**
+     * 不保留
+     */
+    public static final double DROP = 0.0;
+
+    private final AgentProperties properties;
+    private final AgentProperties.AdaptiveSampling config;
+    private final long intervalNanos;
+    private final LongKeyedCache<Counter> counters;
+    private final LongSupplier ticker;
+    private final DoubleSupplier random;
+
+    // 统计信息
+    private final LongAdder totalChecked = new LongAdder();
+    private final LongAdder totalKept = new LongAdder();
+    private final LongAdder totalDropped = new LongAdder();
+
+    public AdaptiveSampler(AgentProperties properties) {
+        this(properties, System::nanoTime, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * 可注入时钟和随机数的构造器（测试使用）
+     *
+     * @param ticker 单调时钟（纳秒），用于划分周期和计数器过期
+     * @param random [0, 1) 均匀随机数
+     */
+    AdaptiveSampler(AgentProperties properties, LongSupplier ticker, DoubleSupplier random) {
+        this.properties = properties;
+        this.ticker = ticker;
+        this.random = random;
+        this.config = properties.getAdaptiveSampling();
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(Math.max(1, config.getIntervalSeconds()));
+        this.counters = new LongKeyedCache<>(
+                config.getMaxTrackedFingerprints(),
+                Math.max(1, config.getIntervalSeconds()) * 2L,
+                TimeUnit.SECONDS,
+                ticker);
+    }
+
+    /**
+     * 采样判断
+     *
+     * @param fingerprintHash 64 位指纹
+     * @return 保留时返回权重（>= 1），不保留时返回 {@link #DROP}
+     */
+    public double sample(long fingerprintHash) {
+        totalChecked.increment();
+
+        double probability = properties.getSamplingRate();
+        if (probability <= 0.0) {
+            totalDropped.increment();
+            return DROP;
+        }
+        if (config.isEnabled()) {
+            probability *= adaptiveProbability(fingerprintHash);
+        }
+
+        if (probability >= 1.0 || random.getAsDouble() < probability) {
+            totalKept.increment();
+            return probability >= 1.0 ? 1.0 : 1.0 / probability;
+        }
+        totalDropped.increment();
+        return DROP;
+    }
+
+    /**
+     * 计算当前指纹的保留概率
+     */
+    private double adaptiveProbability(long fingerprintHash) {
+        Counter counter = counters.get(fingerprintHash, key -> new Counter());
+        long epoch = ticker.getAsLong() / intervalNanos;
+        long count = counter.increment(epoch);
+
+        int keepFirst = Math.max(0, config.getKeepFirst());
+        if (count <= keepFirst) {
+            return 1.0;
+        }
+
+        if (config.getMode() == AgentProperties.SamplingMode.TARGET_RATE) {
+            // 用上一周期的发生次数估算本周期总量，首个周期退化为按当前次数估算
+            long budget = Math.max(0, config.getTargetPerInterval() - keepFirst);
+            long expected = Math.max(counter.previousCount, count) - keepFirst;
+            return Math.min(1.0, (double) budget / Math.max(1, expected));
+        }
+
+        // LOGARITHMIC：第 n 次保留概率 keepFirst / n，保留总数约 keepFirst * (1 + ln(n / keepFirst))
+        return (double) Math.max(1, keepFirst) / count;
+    }
+
+    /**
+     * 获取采样统计
+     */
+    public SamplingStats getStats() {
+        long checked = totalChecked.sum();
+        long kept = totalKept.sum();
+        return SamplingStats.builder()
+                .enabled(config.isEnabled())
+                .mode(config.getMode().name())
+                .samplingRate(properties.getSamplingRate())
+                .totalChecked(checked)
+                .totalKept(kept)
+                .totalDropped(totalDropped.sum())
+                .keepRate(checked > 0 ? (double) kept / checked : 0.0)
+                .trackedFingerprints(counters.estimatedSize())
+                .build();
+    }
+
+    /**
+     * 重置统计
+     */
+    public void resetStats() {
+        totalChecked.reset();
+        totalKept.reset();
+        totalDropped.reset();
+    }
+
+    /**
+     * 指纹计数器：高 32 位为周期编号，低 32 位为周期内次数，CAS 更新
+     */
+    private static final class Counter {
+        private final AtomicLong state = new AtomicLong();
+        private volatile long previousCount;
+
+        long increment(long epoch) {
+            int epochBits = (int) epoch;
+            for (;;) {
+                long current = state.get();
+                int currentEpoch = (int) (current >>> 32);
+                long count = current & 0xFFFFFFFFL;
+                long next;
+                if (currentEpoch == epochBits && current != 0) {
+                    next = count < 0xFFFFFFFFL ? current + 1 : current;
+                } else {
+                    next = ((long) epochBits << 32) | 1L;
+                }
+                if (state.compareAndSet(current, next)) {
+                    if ((next & 0xFFFFFFFFL) == 1L && current != 0) {
+                        // 进入新周期，记录上一周期的次数（相邻周期才有参考意义）
+                        previousCount = epochBits - currentEpoch == 1 ? count : 0;
+                    }
+                    return next & 0xFFFFFFFFL;
+                }
+            }
+        }
+    }
+
+    /**
+     * 采样统计信息
+     */
+    @Data
+    @Builder
+    public static class SamplingStats {
+        private boolean enabled;
+        private String mode;
+        private double samplingRate;
+        private long totalChecked;
+        private long totalKept;
+        private long totalDropped;
+        private double keepRate;
+        private long trackedFingerprints;
+    }
+}
@@ -0,0 +1,167 @@
+package com.all.in.one.agent.starter.collector;
+
+import com.all.in.one.agent.common.config.AgentProperties;
+import com.all.in.one.agent.common.util.ExceptionInfoBuilder;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 异步异常分发器
+ * <p>
+ * 业务线程把异常发布到 {@link ExceptionRingBuffer}，由专用工作线程取出后
+ * 执行完整的降噪漏斗、上报和监听器（持久化 / 工单 / AI）
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Slf4j
+public class AsyncExceptionDispatcher {
+
+    private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ExceptionRingBuffer ringBuffer;
+    private final BiConsumer<Throwable, ExceptionInfoBuilder.CaptureContext> handler;
+    private final List<Thread> workers = new ArrayList<>();
+    private final LongAdder processed = new LongAdder();
+    private volatile boolean running = true;
+
+    public AsyncExceptionDispatcher(AgentProperties.AsyncDispatch config,
+                                    BiConsumer<Throwable, ExceptionInfoBuilder.CaptureContext> handler) {
+        this(config, handler, null);
+    }
+
+    /**
+     * @param dropListener 按溢出策略被丢弃的异常（在发布线程上调用），可以为 null
+     */
+    public AsyncExceptionDispatcher(AgentProperties.AsyncDispatch config,
+                                    BiConsumer<Throwable, ExceptionInfoBuilder.CaptureContext> handler,
+                                    Consumer<Throwable> dropListener) {
+        this.ringBuffer = new ExceptionRingBuffer(
+                config.getBufferSize(),
+                config.getOverflowPolicy(),
+                config.getBlockTimeoutMillis(),
+                dropListener);
+        this.handler = handler;
+
+        int workerThreads = Math.max(1, config.getWorkerThreads());
+        for (int i = 0; i < workerThreads; i++) {
+            Thread worker = new Thread(this::runWorker, "one-agent-dispatcher-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+
+        log.info("异步异常分发器已启动 - bufferSize={}, workerThreads={}, overflowPolicy={}",
+                ringBuffer.getCapacity(), workerThreads, ringBuffer.getOverflowPolicy());
+    }
+
+    /**
+     * 发布异常事件
+     *
+     * @return true=已入队，false=按溢出策略被丢弃
+     */
+    public boolean publish(Throwable throwable, ExceptionInfoBuilder.CaptureContext context) {
+        if (!running) {
+            return false;
+        }
+        return ringBuffer.publish(throwable, context);
+    }
+
+    /**
+     * 工作线程主循环：有事件就处理，空闲时逐步退避
+     */
+    private void runWorker() {
+        ExceptionRingBuffer.Slot slot = new ExceptionRingBuffer.Slot();
+        int idleRounds = 0;
+        while (running) {
+            if (ringBuffer.poll(slot)) {
+                idleRounds = 0;
+                handle(slot);
+                continue;
+            }
+            idleRounds++;
+            if (idleRounds < 100) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(Math.min(MAX_IDLE_PARK_NANOS, 10_000L * (idleRounds - 99)));
+            }
+        }
+
+        // 停止后把剩余事件处理完
+        while (ringBuffer.poll(slot)) {
+            handle(slot);
+        }
+    }
+
+    private void handle(ExceptionRingBuffer.Slot slot) {
+        try {
+            handler.accept(slot.getThrowable(), slot.getContext());
+        } catch (Exception e) {
+            log.error("异步处理异常事件失败 - error={}", e.getMessage(), e);
+        } finally {
+            processed.increment();
+            slot.clear();
+        }
+    }
+
+    /**
+     * 获取分发统计
+     */
+    public DispatchStats getStats() {
+        return DispatchStats.builder()
+                .enabled(true)
+                .capacity(ringBuffer.getCapacity())
+                .queueDepth(ringBuffer.size())
+                .workerThreads(workers.size())
+                .overflowPolicy(ringBuffer.getOverflowPolicy().name())
+                .published(ringBuffer.getPublishedCount())
+                .processed(processed.sum())
+                .droppedOldest(ringBuffer.getDroppedOldestCount())
+                .droppedNewest(ringBuffer.getDroppedNewestCount())
+                .droppedTimeout(ringBuffer.getDroppedTimeoutCount())
+                .build();
+    }
+
+    /**
+     * 关闭分发器，等待工作线程处理完剩余事件
+     */
+    public void shutdown() {
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        log.info("异步异常分发器已关闭 - processed={}, remaining={}", processed.sum(), ringBuffer.size());
+    }
+
+    /**
+     * 分发统计信息
+     */
+    @Data
+    @Builder
+    public static class DispatchStats {
+        private boolean enabled;
+        private int capacity;
+        private int queueDepth;
+        private int workerThreads;
+        private String overflowPolicy;
+        private long published;
+        private long processed;
+        private long droppedOldest;
+        private long droppedNewest;
+        private long droppedTimeout;
+    }
+}
@@ -0,0 +1,73 @@
+package com.all.in.one.agent.starter.collector;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同一 Throwable 实例只收集一次的守卫
+ * <p>
+ * 一个异常向上传播时会被多个捕获点看到：每一层被代理的 Service 都会触发 AOP，
+ * ControllerAdvice 和 Filter 还会再看到一次。这里为每个线程维护一个很小的环，
+ * 按对象身份（==）记录最近收集过的异常实例，命中即跳过，避免重复构建 ExceptionInfo 和执行降噪漏斗
+ * </p>
+ * <p>
+ * 环中只持有弱引用，不会延长异常对象的生命周期；条目超过 {@link #RETENTION_NANOS} 视为失效，
+ * 这样被复用的预分配异常实例（同一个对象反复抛出）在下一次请求中仍然会被收集
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+final class CapturedThrowableGuard {
+
+    /**
+     * 每个线程记录的异常实例数（一次传播路径上的捕获点很少，8 个足够）
+     */
+    private static final int RING_SIZE = 8;
+
+    /**
+     * 条目有效期：同一次传播内的多个捕获点通常在毫秒级内先后触发
+     */
+    private static final long RETENTION_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static final ThreadLocal<Ring> RINGS = ThreadLocal.withInitial(Ring::new);
+
+    private CapturedThrowableGuard() {
+    }
+
+    /**
+     * 首次看到该异常实例时记录并返回 true，近期已被当前线程收集过则返回 false
+     */
+    static boolean markFirstCapture(Throwable throwable) {
+        return markFirstCapture(throwable, System.nanoTime());
+    }
+
+    /**
+     * 可注入时钟的版本（测试使用）
+     */
+    static boolean markFirstCapture(Throwable throwable, long nowNanos) {
+        return RINGS.get().markFirst(throwable, nowNanos);
+    }
+
+    /**
+     * 每线程的定长环（只被所属线程访问，无需同步）
+     */
+    private static final class Ring {
+
+        private final WeakReference<?>[] refs = new WeakReference<?>[RING_SIZE];
+        private final long[] capturedAt = new long[RING_SIZE];
+        private int next;
+
+        boolean markFirst(Throwable throwable, long now) {
+            for (int i = 0; i < RING_SIZE; i++) {
+                WeakReference<?> ref = refs[i];
+                if (ref != null && ref.get() == throwable && now - capturedAt[i] < RETENTION_NANOS) {
+                    return false;
+                }
+            }
+            refs[next] = new WeakReference<>(throwable);
+            capturedAt[next] = now;
+            next = (next + 1) & (RING_SIZE - 1);
+            return true;
+        }
+    }
+}
@@ -2,17 +2,23 @@ package com.all.in.one.agent.starter.collector;
 
 import com.all.in.one.agent.common.config.AgentProperties;
 import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.common.model.SuppressedCount;
 import com.all.in.one.agent.common.util.ExceptionInfoBuilder;
+import com.all.in.one.agent.common.util.FingerprintGenerator;
+import com.all.in.one.agent.common.util.StackTraceRenderer;
 import com.all.in.one.agent.starter.dedup.FingerprintDeduplicator;
 import com.all.in.one.agent.starter.filter.IgnoreListFilter;
+import com.all.in.one.agent.starter.filter.ThrowableIgnoreMatcher;
 import com.all.in.one.agent.starter.reporter.ExceptionReporter;
+import com.all.in.one.agent.starter.rule.DeferredEventSpool;
 import com.all.in.one.agent.starter.rule.RuleEngine;
+import com.all.in.one.agent.starter.trace.TraceContextResolver;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 
 /**
@@ -32,8 +38,14 @@ public class ExceptionCollector {
     private final IgnoreListFilter ignoreListFilter;
     private final FingerprintDeduplicator fingerprintDeduplicator;
     private final RuleEngine ruleEngine;
-    private final Random random = new Random();
-    private final List<Consumer<ExceptionInfo>> listeners = new ArrayList<>();
+    private final ExceptionInfoBuilder exceptionInfoBuilder;
+    private final TraceContextResolver traceResolver;
+    private final ThrowableIgnoreMatcher throwableIgnoreMatcher;
+    private final AdaptiveSampler sampler;
+    private final HeavyHitterTracker heavyHitters;
+    private final SuppressedCountAccumulator suppressedCounts;
+    private final List<Consumer<ExceptionInfo>> listeners = new CopyOnWriteArrayList<>();
+    private final AsyncExceptionDispatcher dispatcher;
 
     /**
      * ThreadLocal 防止递归捕获
@@ -45,17 +57,36 @@ public class ExceptionCollector {
                              ExceptionReporter reporter,
                              IgnoreListFilter ignoreListFilter,
                              FingerprintDeduplicator fingerprintDeduplicator,
-                             RuleEngine ruleEngine) {
+                             RuleEngine ruleEngine,
+                             HostIdentityService hostIdentityService,
+                             TraceContextResolver traceResolver) {
         this.properties = properties;
         this.reporter = reporter;
         this.ignoreListFilter = ignoreListFilter;
         this.fingerprintDeduplicator = fingerprintDeduplicator;
         this.ruleEngine = ruleEngine;
-        log.info("ExceptionCollector 初始化完成 - appName={}, environment={}, samplingRate={}, ruleEngineEnabled={}",
+        this.sampler = new AdaptiveSampler(properties);
+        this.heavyHitters = new HeavyHitterTracker(properties.getHeavyHitters());
+        this.suppressedCounts = new SuppressedCountAccumulator(properties.getSuppressedCountFlush());
+        AgentProperties.CaptureConfig captureConfig = properties.getCaptureConfig();
+        this.exceptionInfoBuilder = new ExceptionInfoBuilder(hostIdentityService, new StackTraceRenderer(
+                captureConfig.getMaxStackDepth(),
+                captureConfig.isCollapseFrameworkFrames(),
+                captureConfig.getFrameworkFramePatterns()));
+        this.traceResolver = traceResolver;
+        this.throwableIgnoreMatcher = new ThrowableIgnoreMatcher(
+                captureConfig.getIgnoredExceptions(),
+                captureConfig.getIgnoredPackages());
+        this.dispatcher = properties.getAsyncDispatch().isEnabled()
+                ? new AsyncExceptionDispatcher(properties.getAsyncDispatch(), this::processAsync,
+                        dropped -> heavyHitters.record(dropped, HeavyHitterTracker.Outcome.DISPATCH_DROPPED))
+                : null;
+        log.info("ExceptionCollector 初始化完成 - appName={}, environment={}, samplingRate={}, ruleEngineEnabled={}, asyncDispatch={}",
                 properties.getAppName(),
                 properties.getEnvironment(),
                 properties.getSamplingRate(),
-                ruleEngine != null);
+                ruleEngine != null,
+                dispatcher != null);
     }
 
     /**
@@ -90,72 +121,180 @@ public class ExceptionCollector {
             // 标记当前线程正在处理异常
             PROCESSING.set(true);
 
-            // 1. 第一阶段：基于 Throwable 的快速过滤（保留旧逻辑，过滤明显不需要的异常）
-            if (shouldIgnoreByThrowable(throwable)) {
+            // 0. 同一个异常实例可能先后被 AOP、ControllerAdvice、Filter 看到，只收集第一次
+            if (!CapturedThrowableGuard.markFirstCapture(throwable)) {
+                heavyHitters.record(throwable, HeavyHitterTracker.Outcome.DUPLICATE_CAPTURE);
+                log.debug("异常实例已被其他捕获点收集，跳过处理 - exceptionType={}", throwable.getClass().getSimpleName());
+                return;
+            }
+
+            // 1. 第一阶段：基于 Throwable 的快速过滤（按异常类缓存结果，过滤明显不需要的异常）
+            if (throwableIgnoreMatcher.shouldIgnore(throwable)) {
+                heavyHitters.record(throwable, HeavyHitterTracker.Outcome.THROWABLE_IGNORED);
                 log.debug("异常被快速过滤（Throwable 级别） - exceptionType={}", throwable.getClass().getSimpleName());
                 return;
             }
 
-            // 2. 构建异常信息
-            ExceptionInfo exceptionInfo = ExceptionInfoBuilder.build(
-                    throwable,
-                    properties.getAppName(),
-                    properties.getEnvironment()
-            );
+            // 2. 采集调用线程上下文（线程信息、TraceId 等只能在当前线程读取）
+            ExceptionInfoBuilder.CaptureContext context = ExceptionInfoBuilder.CaptureContext.capture(traceResolver);
+
+            // 3. 异步模式：交给工作线程处理，业务线程立即返回（被丢弃的事件由分发器回调计入高频指纹统计）
+            if (dispatcher != null) {
+                if (!dispatcher.publish(throwable, context)) {
+                    log.debug("异步缓冲区已满，异常事件被丢弃 - exceptionType={}", throwable.getClass().getSimpleName());
+                }
+                return;
+            }
+
+            process(throwable, context);
 
-            // 3. 第 0 层：基础过滤（基于完整的 ExceptionInfo 进行更精细的过滤）
-            if (ignoreListFilter.shouldIgnore(exceptionInfo)) {
+        } catch (Exception e) {
+            log.error("收集异常信息失败", e);
+        } finally {
+            // 清除标记，允许该线程处理后续的新异常
+            PROCESSING.remove();
+        }
+    }
+
+    /**
+     * 执行降噪漏斗并通知监听器
+     * <p>
+     * 同步模式下在调用线程执行，异步模式下在分发器工作线程执行
+     * </p>
+     */
+    private void process(Throwable throwable, ExceptionInfoBuilder.CaptureContext context) {
+        // 1. 构建异常信息
+        ExceptionInfo exceptionInfo = exceptionInfoBuilder.create(
+                throwable,
+                properties.getAppName(),
+                properties.getEnvironment(),
+                context
+        );
+
+        // 2. 第 0 层：基础过滤（基于完整的 ExceptionInfo 进行更精细的过滤）
+        if (ignoreListFilter.shouldIgnore(exceptionInfo)) {
+            heavyHitters.record(exceptionInfo, HeavyHitterTracker.Outcome.IGNORE_LIST);
+            if (log.isDebugEnabled()) {
                 log.debug("异常被第 0 层过滤 - fingerprint={}, type={}, location={}",
-                        exceptionInfo.getFingerprint(),
+                        FingerprintGenerator.toHex(exceptionInfo.getFingerprintHash()),
                         exceptionInfo.getExceptionType(),
                         exceptionInfo.getErrorLocation());
-                return;
             }
+            return;
+        }
 
-            // 4. 第 1 层：指纹去重（时间窗口内相同指纹的异常只处理一次）
-            if (fingerprintDeduplicator.isDuplicate(exceptionInfo)) {
+        // 3. 第 1 层：指纹去重（时间窗口内相同指纹的异常只处理一次）
+        if (fingerprintDeduplicator.isDuplicate(exceptionInfo)) {
+            heavyHitters.record(exceptionInfo, HeavyHitterTracker.Outcome.DEDUP);
+            // 重复异常不落库，只累计次数，由后台任务批量回写
+            suppressedCounts.record(exceptionInfo);
+            if (log.isDebugEnabled()) {
                 log.debug("异常被第 1 层过滤 (重复) - fingerprint={}, type={}, location={}",
-                        exceptionInfo.getFingerprint(),
+                        FingerprintGenerator.toHex(exceptionInfo.getFingerprintHash()),
                         exceptionInfo.getExceptionType(),
                         exceptionInfo.getErrorLocation());
+            }
+            return;
+        }
+
+        // 3.5. 第 1.5 层：规则引擎（基于业务规则的过滤）
+        if (ruleEngine != null) {
+            RuleEngine.FilterResult ruleResult = ruleEngine.evaluate(exceptionInfo);
+            if (ruleResult.isFiltered()) {
+                heavyHitters.record(exceptionInfo, HeavyHitterTracker.Outcome.RULE_ENGINE);
+                log.info("异常被规则引擎过滤 - fingerprint={}, rule={}, reason={}",
+                        FingerprintGenerator.toHex(exceptionInfo.getFingerprintHash()),
+                        ruleResult.getRuleName(),
+                        ruleResult.getReason());
                 return;
             }
+        }
 
-            // 4.5. 第 1.5 层：规则引擎（基于业务规则的过滤）
-            if (ruleEngine != null) {
-                RuleEngine.FilterResult ruleResult = ruleEngine.evaluate(exceptionInfo);
-                if (ruleResult.isFiltered()) {
-                    log.info("异常被规则引擎过滤 - fingerprint={}, rule={}, reason={}",
-                            exceptionInfo.getFingerprint(),
-                            ruleResult.getRuleName(),
-                            ruleResult.getReason());
-                    return;
-                }
+        heavyHitters.record(exceptionInfo, HeavyHitterTracker.Outcome.PASSED);
+
+        log.info("收集到异常 - fingerprint={}, type={}, location={}",
+                exceptionInfo.getFingerprint(),
+                exceptionInfo.getExceptionType(),
+                exceptionInfo.getErrorLocation());
+
+        // 4. HTTP 上报（可选）
+        if (properties.getStorageStrategy().isEnableHttpReport()) {
+            // 按指纹自适应采样：新异常必定上报，高频异常按概率上报并记录权重
+            double sampleWeight = sampler.sample(exceptionInfo.getFingerprintHash());
+            if (sampleWeight != AdaptiveSampler.DROP) {
+                exceptionInfo.setSampleWeight(sampleWeight);
+                reporter.report(exceptionInfo);
+            } else if (log.isDebugEnabled()) {
+                log.debug("HTTP 上报被采样过滤 - fingerprint={}",
+                        FingerprintGenerator.toHex(exceptionInfo.getFingerprintHash()));
             }
+        }
 
-            log.info("收集到异常 - fingerprint={}, type={}, location={}",
-                    exceptionInfo.getFingerprint(),
-                    exceptionInfo.getExceptionType(),
-                    exceptionInfo.getErrorLocation());
+        // 5. 通知监听器（本地持久化等）
+        // 注意：第 2 层 AI 去噪在持久化阶段进行，AI 会决定是否真正需要持久化和生成工单
+        notifyListeners(exceptionInfo);
+    }
 
-            // 5. HTTP 上报（可选）
-            if (properties.getStorageStrategy().isEnableHttpReport()) {
-                // 注意：采样率可以在 HTTP 上报时使用，避免上报过多数据
-                if (shouldSample()) {
+    /**
+     * 发送静默时段结束后释放的延迟异常
+     * <p>
+     * 每个指纹只发送第一条事件（已经过去重和规则引擎，不再重复判断；HTTP 上报以总次数作为权重），
+     * 返回除第一条以外的次数，由调用方累加到工单发生次数和趋势统计。
+     * 监听器在调用方线程执行，调用方应使用专用线程，不要占用共享的定时任务线程
+     * </p>
+     *
+     * @param events 按指纹合并的延迟事件
+     * @return 每个指纹除第一条以外的次数（只有一条的指纹不返回）
+     */
+    public List<SuppressedCount> releaseDeferred(List<DeferredEventSpool.DeferredEvent> events) {
+        List<SuppressedCount> remaining = new ArrayList<>();
+        try {
+            PROCESSING.set(true);
+            for (DeferredEventSpool.DeferredEvent event : events) {
+                ExceptionInfo exceptionInfo = event.getExceptionInfo();
+                log.info("释放延迟异常 - fingerprint={}, type={}, count={}, firstSeenAt={}, lastSeenAt={}",
+                        exceptionInfo.getFingerprint(),
+                        exceptionInfo.getExceptionType(),
+                        event.getCount(),
+                        event.getFirstSeenAt(),
+                        event.getLastSeenAt());
+
+                if (properties.getStorageStrategy().isEnableHttpReport()) {
+                    exceptionInfo.setSampleWeight(event.getCount());
                     reporter.report(exceptionInfo);
-                } else {
-                    log.debug("HTTP 上报被采样过滤 - fingerprint={}", exceptionInfo.getFingerprint());
                 }
-            }
+                notifyListeners(exceptionInfo);
 
-            // 6. 通知监听器（本地持久化等）
-            // 注意：第 2 层 AI 去噪在持久化阶段进行，AI 会决定是否真正需要持久化和生成工单
-            notifyListeners(exceptionInfo);
+                if (event.getCount() > 1) {
+                    remaining.add(SuppressedCount.builder()
+                            .fingerprint(exceptionInfo.getFingerprint())
+                            .fingerprintHash(exceptionInfo.getFingerprintHash())
+                            .appName(exceptionInfo.getAppName())
+                            .environment(exceptionInfo.getEnvironment())
+                            .exceptionType(exceptionInfo.getExceptionType())
+                            .count(event.getCount() - 1)
+                            .firstSeenAt(event.getFirstSeenAt())
+                            .lastSeenAt(event.getLastSeenAt())
+                            .build());
+                }
+            }
+        } finally {
+            PROCESSING.remove();
+        }
+        return remaining;
+    }
 
+    /**
+     * 异步工作线程入口
+     */
+    private void processAsync(Throwable throwable, ExceptionInfoBuilder.CaptureContext context) {
+        try {
+            // 工作线程处理期间产生的异常同样不应被再次捕获
+            PROCESSING.set(true);
+            process(throwable, context);
         } catch (Exception e) {
             log.error("收集异常信息失败", e);
         } finally {
-            // 清除标记，允许该线程处理后续的新异常
             PROCESSING.remove();
         }
     }
@@ -175,45 +314,75 @@ public class ExceptionCollector {
     }
 
     /**
-     * 是否应该采样
+     * 获取异步分发统计（未启用异步分发时返回 enabled=false）
      */
-    private boolean shouldSample() {
-        double samplingRate = properties.getSamplingRate();
-        if (samplingRate >= 1.0) {
-            return true;
+    public AsyncExceptionDispatcher.DispatchStats getDispatchStats() {
+        if (dispatcher == null) {
+            return AsyncExceptionDispatcher.DispatchStats.builder()
+                    .enabled(false)
+                    .build();
         }
-        if (samplingRate <= 0.0) {
-            return false;
-        }
-        return random.nextDouble() < samplingRate;
+        return dispatcher.getStats();
     }
 
     /**
-     * 基于 Throwable 的快速过滤（保留旧逻辑）
-     * 在构建 ExceptionInfo 之前进行快速判断，避免不必要的堆栈解析
+     * 获取 HTTP 上报采样统计
      */
-    private boolean shouldIgnoreByThrowable(Throwable throwable) {
-        String exceptionClassName = throwable.getClass().getName();
+    public AdaptiveSampler.SamplingStats getSamplingStats() {
+        return sampler.getStats();
+    }
 
-        // 检查忽略的异常类型
-        for (String ignoredException : properties.getCaptureConfig().getIgnoredExceptions()) {
-            if (exceptionClassName.equals(ignoredException) ||
-                    exceptionClassName.endsWith("." + ignoredException)) {
-                return true;
-            }
-        }
+    /**
+     * 重置采样统计
+     */
+    public void resetSamplingStats() {
+        sampler.resetStats();
+    }
 
-        // 检查忽略的包路径
-        StackTraceElement[] stackTrace = throwable.getStackTrace();
-        if (stackTrace != null && stackTrace.length > 0) {
-            String firstClassName = stackTrace[0].getClassName();
-            for (String ignoredPackage : properties.getCaptureConfig().getIgnoredPackages()) {
-                if (firstClassName.startsWith(ignoredPackage)) {
-                    return true;
-                }
-            }
-        }
+    /**
+     * 查询窗口内出现次数最多的指纹（统计包含被各层过滤、跳过和丢弃的异常）
+     *
+     * @param windowMillis 窗口长度（毫秒）
+     * @param limit        返回数量
+     */
+    public List<HeavyHitterTracker.TopFingerprint> getTopFingerprints(long windowMillis, int limit) {
+        return heavyHitters.top(windowMillis, limit);
+    }
+
+    /**
+     * 清空高频指纹统计
+     */
+    public void resetTopFingerprints() {
+        heavyHitters.reset();
+    }
+
+    /**
+     * 高频指纹统计保留时长（分钟）
+     */
+    public int getHeavyHitterRetentionMinutes() {
+        return heavyHitters.getRetentionMinutes();
+    }
 
-        return false;
+    /**
+     * 取出两次回写之间被指纹去重过滤的计数
+     */
+    public List<SuppressedCount> drainSuppressedCounts() {
+        return suppressedCounts.drain();
+    }
+
+    /**
+     * 获取重复异常计数累加统计
+     */
+    public SuppressedCountAccumulator.AccumulatorStats getSuppressedCountStats() {
+        return suppressedCounts.getStats();
+    }
+
+    /**
+     * 关闭收集器（异步模式下等待缓冲区中的事件处理完毕）
+     */
+    public void shutdown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
     }
 }
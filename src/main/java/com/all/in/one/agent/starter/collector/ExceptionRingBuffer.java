@@ -0,0 +1,259 @@
+package com.all.in.one.agent.starter.collector;
+
+import com.all.in.one.agent.common.config.AgentProperties;
+import com.all.in.one.agent.common.util.ExceptionInfoBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 异常事件环形缓冲区
+ * <p>
+ * 有界、多生产者多消费者、槽位预分配的环形队列（基于序号的无锁算法），
+ * 业务线程发布事件，工作线程批量消费
+ * </p>
+ * <p>
+ * 按溢出策略丢弃的事件（被挤出的最旧事件、未入队的新事件）交给丢弃监听器，在发布线程上同步调用
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public class ExceptionRingBuffer {
+
+    private final int capacity;
+    private final int mask;
+    private final Slot[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    private final AgentProperties.OverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+    private final Consumer<Throwable> dropListener;
+
+    // 统计信息
+    private final LongAdder published = new LongAdder();
+    private final LongAdder droppedOldest = new LongAdder();
+    private final LongAdder droppedNewest = new LongAdder();
+    private final LongAdder droppedTimeout = new LongAdder();
+
+    public ExceptionRingBuffer(int bufferSize,
+                               AgentProperties.OverflowPolicy overflowPolicy,
+                               long blockTimeoutMillis) {
+        this(bufferSize, overflowPolicy, blockTimeoutMillis, null);
+    }
+
+    /**
+     * @param dropListener 被丢弃事件的监听器，可以为 null
+     */
+    public ExceptionRingBuffer(int bufferSize,
+                               AgentProperties.OverflowPolicy overflowPolicy,
+                               long blockTimeoutMillis,
+                               Consumer<Throwable> dropListener) {
+        this.capacity = nextPowerOfTwo(Math.max(bufferSize, 2));
+        this.mask = capacity - 1;
+        this.slots = new Slot[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            sequences.set(i, i);
+        }
+        this.overflowPolicy = overflowPolicy != null ? overflowPolicy : AgentProperties.OverflowPolicy.DROP_OLDEST;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(blockTimeoutMillis, 0));
+        this.dropListener = dropListener;
+    }
+
+    /**
+     * 发布事件（按溢出策略处理缓冲区满的情况）
+     *
+     * @return true=已入队，false=事件被丢弃
+     */
+    public boolean publish(Throwable throwable, ExceptionInfoBuilder.CaptureContext context) {
+        if (offer(throwable, context)) {
+            published.increment();
+            return true;
+        }
+
+        switch (overflowPolicy) {
+            case DROP_OLDEST -> {
+                // 丢弃队头事件后重试，竞争激烈时最多重试有限次
+                for (int i = 0; i < 4; i++) {
+                    if (discardOldest()) {
+                        droppedOldest.increment();
+                    }
+                    if (offer(throwable, context)) {
+                        published.increment();
+                        return true;
+                    }
+                }
+                droppedNewest.increment();
+                notifyDropped(throwable);
+                return false;
+            }
+            case BLOCK -> {
+                long deadline = System.nanoTime() + blockTimeoutNanos;
+                int spins = 0;
+                while (System.nanoTime() < deadline) {
+                    if (spins++ < 64) {
+                        Thread.onSpinWait();
+                    } else {
+                        LockSupport.parkNanos(10_000L);
+                    }
+                    if (offer(throwable, context)) {
+                        published.increment();
+                        return true;
+                    }
+                }
+                droppedTimeout.increment();
+                notifyDropped(throwable);
+                return false;
+            }
+            default -> {
+                droppedNewest.increment();
+                notifyDropped(throwable);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 尝试入队
+     */
+    private boolean offer(Throwable throwable, ExceptionInfoBuilder.CaptureContext context) {
+        long pos = tail.get();
+        for (;;) {
+            int index = (int) (pos & mask);
+            long seq = sequences.get(index);
+            long diff = seq - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    Slot slot = slots[index];
+                    slot.throwable = throwable;
+                    slot.context = context;
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false; // 已满
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 出队，将事件拷贝到调用方持有的槽位中
+     *
+     * @param target 接收事件的槽位
+     * @return true=取到事件，false=缓冲区为空
+     */
+    public boolean poll(Slot target) {
+        long pos = head.get();
+        for (;;) {
+            int index = (int) (pos & mask);
+            long seq = sequences.get(index);
+            long diff = seq - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    Slot slot = slots[index];
+                    if (target != null) {
+                        target.throwable = slot.throwable;
+                        target.context = slot.context;
+                    }
+                    slot.clear();
+                    sequences.set(index, pos + capacity);
+                    return true;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return false; // 为空
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    /**
+     * 丢弃队头（最旧）事件
+     */
+    private boolean discardOldest() {
+        if (dropListener == null) {
+            return poll(null);
+        }
+        Slot discarded = new Slot();
+        if (!poll(discarded)) {
+            return false;
+        }
+        notifyDropped(discarded.throwable);
+        return true;
+    }
+
+    private void notifyDropped(Throwable throwable) {
+        if (dropListener != null && throwable != null) {
+            dropListener.accept(throwable);
+        }
+    }
+
+    /**
+     * 当前队列深度
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public AgentProperties.OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getDroppedOldestCount() {
+        return droppedOldest.sum();
+    }
+
+    public long getDroppedNewestCount() {
+        return droppedNewest.sum();
+    }
+
+    public long getDroppedTimeoutCount() {
+        return droppedTimeout.sum();
+    }
+
+    private static int nextPowerOfTwo(int value) {
+        int highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+
+    /**
+     * 缓冲区槽位（预分配，循环复用）
+     */
+    public static class Slot {
+        private Throwable throwable;
+        private ExceptionInfoBuilder.CaptureContext context;
+
+        public Throwable getThrowable() {
+            return throwable;
+        }
+
+        public ExceptionInfoBuilder.CaptureContext getContext() {
+            return context;
+        }
+
+        public void clear() {
+            throwable = null;
+            context = null;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package com.all.in.one.agent.starter.collector;
+
+import com.all.in.one.agent.common.config.AgentProperties;
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.common.util.FingerprintGenerator;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * 高频指纹跟踪器
+ * <p>
+ * 在降噪漏斗入口统计每分钟出现次数最多的指纹（Space-Saving 算法）：
+ * 每分钟一个桶，桶内按指纹哈希分段，每段只保留固定数量的计数器，
+ * 新指纹替换计数最小的条目并把被替换的计数记为误差上界，内存与指纹基数无关。
+ * 同时记录每个指纹最终在哪一层被过滤
+ * </p>
+ * <p>
+ * 进入漏斗之前就被跳过的异常（重复捕获、Throwable 级别快速过滤、异步缓冲区丢弃）还没有构建 ExceptionInfo，
+ * 直接按 Throwable 的类型和第一个栈帧计算同一个 64 位指纹，与漏斗内的记录合并到同一个指纹下
+ * </p>
+ * <p>
+ * 查询时把最近若干分钟的桶合并（同一指纹的计数和误差相加），按计数排序取前 N 个
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public class HeavyHitterTracker {
+
+    private static final int STRIPES = 8;
+    private static final long BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final String UNKNOWN = "Unknown";
+
+    private final boolean enabled;
+    private final int stripeCapacity;
+    private final int retentionMinutes;
+    private final LongSupplier clockMillis;
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    public HeavyHitterTracker(AgentProperties.HeavyHitters config) {
+        this(config, System::currentTimeMillis);
+    }
+
+    HeavyHitterTracker(AgentProperties.HeavyHitters config, LongSupplier clockMillis) {
+        this.enabled = config.isEnabled();
+        this.stripeCapacity = Math.max(1, (config.getCapacity() + STRIPES - 1) / STRIPES);
+        this.retentionMinutes = Math.max(1, config.getRetentionMinutes());
+        this.clockMillis = clockMillis;
+        // 多保留一个桶，保证查询完整的 retentionMinutes 时当前分钟的桶不会覆盖最早的桶
+        this.buckets = new AtomicReferenceArray<>(retentionMinutes + 1);
+    }
+
+    /**
+     * 记录一次异常及其在漏斗中的结果
+     */
+    public void record(ExceptionInfo exceptionInfo, Outcome outcome) {
+        if (!enabled) {
+            return;
+        }
+        offer(exceptionInfo.getFingerprintHash(), exceptionInfo.getExceptionType(),
+                exceptionInfo.getErrorLocation(), null, outcome);
+    }
+
+    /**
+     * 记录一次未进入漏斗的异常（指纹与 ExceptionInfoBuilder 生成的一致）
+     */
+    public void record(Throwable throwable, Outcome outcome) {
+        if (!enabled) {
+            return;
+        }
+        StackTraceElement[] stackTrace = throwable.getStackTrace();
+        StackTraceElement frame = stackTrace != null && stackTrace.length > 0 ? stackTrace[0] : null;
+        String exceptionType = throwable.getClass().getSimpleName();
+        long fingerprintHash = frame != null
+                ? FingerprintGenerator.hash64(exceptionType, frame.getClassName(), frame.getMethodName(),
+                        frame.getLineNumber())
+                : FingerprintGenerator.hash64(exceptionType, UNKNOWN, UNKNOWN, 0);
+        offer(fingerprintHash, exceptionType, null, frame, outcome);
+    }
+
+    private void offer(long fingerprintHash, String exceptionType, String errorLocation,
+                       StackTraceElement frame, Outcome outcome) {
+        Bucket bucket = bucketFor(Math.floorDiv(clockMillis.getAsLong(), BUCKET_MILLIS));
+        bucket.stripes[stripeIndex(fingerprintHash)].offer(fingerprintHash, exceptionType, errorLocation, frame, outcome);
+    }
+
+    /**
+     * 查询窗口内出现次数最多的指纹
+     *
+     * @param windowMillis 窗口长度（毫秒，向上取整到分钟，不超过保留时长）
+     * @param limit        返回数量
+     */
+    public List<TopFingerprint> top(long windowMillis, int limit) {
+        long currentMinute = Math.floorDiv(clockMillis.getAsLong(), BUCKET_MILLIS);
+        long minutes = Math.min(retentionMinutes, Math.max(1, (windowMillis + BUCKET_MILLIS - 1) / BUCKET_MILLIS));
+        long oldestMinute = currentMinute - minutes + 1;
+
+        Map<Long, Aggregate> merged = new HashMap<>();
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.minute >= oldestMinute && bucket.minute <= currentMinute) {
+                for (SpaceSaving stripe : bucket.stripes) {
+                    stripe.mergeInto(merged);
+                }
+            }
+        }
+
+        List<Aggregate> sorted = new ArrayList<>(merged.values());
+        sorted.sort(Comparator.comparingLong((Aggregate aggregate) -> aggregate.count).reversed());
+        int n = Math.min(Math.max(0, limit), sorted.size());
+        List<TopFingerprint> result = new ArrayList<>(n);
+        for (Aggregate aggregate : sorted.subList(0, n)) {
+            result.add(aggregate.toTopFingerprint());
+        }
+        return result;
+    }
+
+    /**
+     * 统计保留时长（分钟）
+     */
+    public int getRetentionMinutes() {
+        return retentionMinutes;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 清空统计
+     */
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, null);
+        }
+    }
+
+    /**
+     * 解析窗口参数（如 30s、5m、1h，纯数字按分钟）
+     *
+     * @return 窗口毫秒数，格式错误时返回 -1
+     */
+    public static long parseWindow(String window) {
+        if (window == null || window.isBlank()) {
+            return -1;
+        }
+        String value = window.trim().toLowerCase();
+        TimeUnit unit = TimeUnit.MINUTES;
+        char suffix = value.charAt(value.length() - 1);
+        if (suffix == 's' || suffix == 'm' || suffix == 'h') {
+            unit = suffix == 's' ? TimeUnit.SECONDS : suffix == 'm' ? TimeUnit.MINUTES : TimeUnit.HOURS;
+            value = value.substring(0, value.length() - 1);
+        }
+        try {
+            long amount = Long.parseLong(value);
+            return amount > 0 ? unit.toMillis(amount) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private Bucket bucketFor(long minute) {
+        int index = (int) Math.floorMod(minute, (long) buckets.length());
+        for (;;) {
+            Bucket bucket = buckets.get(index);
+            if (bucket != null && bucket.minute >= minute) {
+                // 时钟回拨时计入已有的较新桶
+                return bucket;
+            }
+            Bucket fresh = new Bucket(minute, stripeCapacity);
+            if (buckets.compareAndSet(index, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private static int stripeIndex(long fingerprintHash) {
+        return (int) (fingerprintHash >>> 61) & (STRIPES - 1);
+    }
+
+    /**
+     * 漏斗结果（指纹在哪一层被过滤）
+     */
+    public enum Outcome {
+        /**
+         * 同一个异常实例已被其他捕获点收集
+         */
+        DUPLICATE_CAPTURE,
+
+        /**
+         * Throwable 级别快速过滤（忽略的异常类或包）
+         */
+        THROWABLE_IGNORED,
+
+        /**
+         * 异步缓冲区已满，按溢出策略丢弃
+         */
+        DISPATCH_DROPPED,
+
+        /**
+         * 第 0 层：基础过滤
+         */
+        IGNORE_LIST,
+
+        /**
+         * 第 1 层：指纹去重
+         */
+        DEDUP,
+
+        /**
+         * 第 1.5 层：规则引擎
+         */
+        RULE_ENGINE,
+
+        /**
+         * 通过漏斗（进入上报和持久化，第 2 层 AI 去噪在持久化阶段进行）
+         */
+        PASSED
+    }
+
+    /**
+     * 一分钟的统计桶
+     */
+    private static final class Bucket {
+        private final long minute;
+        private final SpaceSaving[] stripes = new SpaceSaving[STRIPES];
+
+        Bucket(long minute, int stripeCapacity) {
+            this.minute = minute;
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new SpaceSaving(stripeCapacity);
+            }
+        }
+    }
+
+    /**
+     * Space-Saving 计数器组（容量很小，线性查找即可）
+     */
+    private static final class SpaceSaving {
+        private static final int OUTCOMES = Outcome.values().length;
+
+        private final long[] keys;
+        private final long[] counts;
+        private final long[] errors;
+        private final long[][] outcomeCounts;
+        private final String[] exceptionTypes;
+        private final String[] errorLocations;
+        private int size;
+
+        SpaceSaving(int capacity) {
+            this.keys = new long[capacity];
+            this.counts = new long[capacity];
+            this.errors = new long[capacity];
+            this.outcomeCounts = new long[capacity][OUTCOMES];
+            this.exceptionTypes = new String[capacity];
+            this.errorLocations = new String[capacity];
+        }
+
+        /**
+         * @param errorLocation 错误位置，为 null 时由 frame 生成（只在新条目时生成）
+         */
+        synchronized void offer(long key, String exceptionType, String errorLocation,
+                                StackTraceElement frame, Outcome outcome) {
+            for (int i = 0; i < size; i++) {
+                if (keys[i] == key) {
+                    counts[i]++;
+                    outcomeCounts[i][outcome.ordinal()]++;
+                    return;
+                }
+            }
+
+            int slot;
+            if (size < keys.length) {
+                slot = size++;
+                errors[slot] = 0;
+                counts[slot] = 1;
+            } else {
+                // 替换计数最小的条目，被替换的计数作为新条目的误差上界
+                slot = 0;
+                for (int i = 1; i < size; i++) {
+                    if (counts[i] < counts[slot]) {
+                        slot = i;
+                    }
+                }
+                errors[slot] = counts[slot];
+                counts[slot]++;
+            }
+            keys[slot] = key;
+            Arrays.fill(outcomeCounts[slot], 0);
+            outcomeCounts[slot][outcome.ordinal()] = 1;
+            exceptionTypes[slot] = exceptionType;
+            errorLocations[slot] = errorLocation != null ? errorLocation : location(frame);
+        }
+
+        private static String location(StackTraceElement frame) {
+            return frame != null
+                    ? frame.getClassName() + "." + frame.getMethodName() + ":" + frame.getLineNumber()
+                    : UNKNOWN + "." + UNKNOWN + ":0";
+        }
+
+        synchronized void mergeInto(Map<Long, Aggregate> merged) {
+            for (int i = 0; i < size; i++) {
+                Aggregate aggregate = merged.get(keys[i]);
+                if (aggregate == null) {
+                    aggregate = new Aggregate(keys[i], exceptionTypes[i], errorLocations[i]);
+                    merged.put(keys[i], aggregate);
+                }
+                aggregate.count += counts[i];
+                aggregate.error += errors[i];
+                for (int o = 0; o < OUTCOMES; o++) {
+                    aggregate.outcomeCounts[o] += outcomeCounts[i][o];
+                }
+            }
+        }
+    }
+
+    /**
+     * 合并中的指纹统计
+     */
+    private static final class Aggregate {
+        private final long fingerprintHash;
+        private final long[] outcomeCounts = new long[Outcome.values().length];
+        private final String exceptionType;
+        private final String errorLocation;
+        private long count;
+        private long error;
+
+        Aggregate(long fingerprintHash, String exceptionType, String errorLocation) {
+            this.fingerprintHash = fingerprintHash;
+            this.exceptionType = exceptionType;
+            this.errorLocation = errorLocation;
+        }
+
+        TopFingerprint toTopFingerprint() {
+            Outcome[] outcomes = Outcome.values();
+            Map<String, Long> byOutcome = new LinkedHashMap<>();
+            Outcome dominant = Outcome.PASSED;
+            long dominantCount = -1;
+            for (Outcome outcome : outcomes) {
+                long value = outcomeCounts[outcome.ordinal()];
+                if (value > 0) {
+                    byOutcome.put(outcome.name(), value);
+                }
+                if (value > dominantCount) {
+                    dominant = outcome;
+                    dominantCount = value;
+                }
+            }
+            return TopFingerprint.builder()
+                    .fingerprint(FingerprintGenerator.toHex(fingerprintHash))
+                    .exceptionType(exceptionType)
+                    .errorLocation(errorLocation)
+                    .count(count)
+                    .maxError(error)
+                    .droppedAt(dominant.name())
+                    .outcomes(byOutcome)
+                    .build();
+        }
+    }
+
+    /**
+     * 高频指纹
+     */
+    @Data
+    @Builder
+    public static class TopFingerprint {
+        /**
+         * 指纹（64 位哈希的十六进制）
+         */
+        private String fingerprint;
+        private String exceptionType;
+        private String errorLocation;
+
+        /**
+         * 窗口内出现次数（估计值，可能偏高）
+         */
+        private long count;
+
+        /**
+         * 计数的误差上界（真实次数 >= count - maxError）
+         */
+        private long maxError;
+
+        /**
+         * 主要在哪一层被过滤（PASSED 表示通过漏斗）
+         */
+        private String droppedAt;
+
+        /**
+         * 各层结果的次数
+         */
+        private Map<String, Long> outcomes;
+    }
+}
@@ -0,0 +1,86 @@
+package com.all.in.one.agent.starter.collector;
+
+import com.all.in.one.agent.common.model.HostIdentity;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 主机身份快照服务
+ * <p>
+ * 启动时解析一次主机名和 IP，之后由后台线程定期刷新；
+ * 异常处理热路径只读取 volatile 快照，不再触发 InetAddress 解析（可能阻塞在 DNS 上）
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Slf4j
+public class HostIdentityService implements Supplier<HostIdentity> {
+
+    private final String appName;
+    private final ScheduledExecutorService scheduler;
+    private volatile HostIdentity current;
+
+    public HostIdentityService(String appName, long refreshIntervalSeconds) {
+        this.appName = appName;
+        this.current = HostIdentity.resolve(appName);
+
+        if (refreshIntervalSeconds > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "one-agent-host-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::refresh,
+                    refreshIntervalSeconds, refreshIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            this.scheduler = null;
+        }
+
+        log.info("主机身份已解析 - hostname={}, ip={}, instanceId={}, refreshInterval={}秒",
+                current.getHostname(), current.getIp(), current.getInstanceId(), refreshIntervalSeconds);
+    }
+
+    /**
+     * 获取当前主机身份快照（无锁）
+     */
+    @Override
+    public HostIdentity get() {
+        return current;
+    }
+
+    /**
+     * 重新解析主机身份
+     * <p>
+     * 解析失败时保留上一次的快照，避免把有效信息覆盖为 Unknown
+     * </p>
+     */
+    public void refresh() {
+        try {
+            HostIdentity latest = HostIdentity.tryResolve(appName);
+            if (latest == null) {
+                log.warn("主机身份刷新失败，继续使用上一次结果 - hostname={}", current.getHostname());
+                return;
+            }
+            if (!latest.equals(current)) {
+                log.info("主机身份已变更 - hostname: {} -> {}, ip: {} -> {}",
+                        current.getHostname(), latest.getHostname(), current.getIp(), latest.getIp());
+                current = latest;
+            }
+        } catch (Exception e) {
+            log.warn("主机身份刷新异常 - error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 停止后台刷新
+     */
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.all.in.one.agent.starter.collector;
+
+import com.all.in.one.agent.common.config.AgentProperties;
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.common.model.SuppressedCount;
+import com.all.in.one.agent.common.util.FingerprintAggregator;
+import com.all.in.one.agent.common.util.FingerprintGenerator;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * 重复异常计数累加器
+ * <p>
+ * 被指纹去重过滤的异常不落库，只在这里按指纹累计次数和首次/最后出现时间，
+ * 由后台任务定期 {@link #drain()} 后批量回写，工单发生次数和趋势统计因此能反映真实流量，
+ * 而不是每个重复异常写一行
+ * </p>
+ * <p>
+ * 按指纹合并由 {@link FingerprintAggregator} 完成，取出之后到达的重复异常计入下一次回写，不会丢失也不会重复
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public class SuppressedCountAccumulator {
+
+    private final boolean enabled;
+    private final LongSupplier clockMillis;
+    private final FingerprintAggregator<Source> aggregator;
+
+    public SuppressedCountAccumulator(AgentProperties.SuppressedCountFlush config) {
+        this(config, System::currentTimeMillis);
+    }
+
+    SuppressedCountAccumulator(AgentProperties.SuppressedCountFlush config, LongSupplier clockMillis) {
+        this.enabled = config.isEnabled();
+        this.clockMillis = clockMillis;
+        this.aggregator = new FingerprintAggregator<>(config.getMaxPendingFingerprints());
+    }
+
+    /**
+     * 记录一次被去重过滤的异常
+     */
+    public void record(ExceptionInfo exceptionInfo) {
+        if (!enabled) {
+            return;
+        }
+        long occurredAt = exceptionInfo.getOccurredAt() != null
+                ? exceptionInfo.getOccurredAt().toEpochMilli()
+                : clockMillis.getAsLong();
+        aggregator.add(exceptionInfo.getFingerprintHash(), occurredAt, () -> new Source(exceptionInfo));
+    }
+
+    /**
+     * 取出并清空当前累计的计数
+     */
+    public List<SuppressedCount> drain() {
+        List<FingerprintAggregator.Aggregate<Source>> aggregates = aggregator.drain();
+        List<SuppressedCount> result = new ArrayList<>(aggregates.size());
+        for (FingerprintAggregator.Aggregate<Source> aggregate : aggregates) {
+            result.add(aggregate.getFirst().toSuppressedCount(aggregate));
+        }
+        return result;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public AccumulatorStats getStats() {
+        return AccumulatorStats.builder()
+                .enabled(enabled)
+                .accumulated(aggregator.addedCount())
+                .drained(aggregator.drainedCount())
+                .dropped(aggregator.droppedCount())
+                .pendingFingerprints(aggregator.size())
+                .build();
+    }
+
+    /**
+     * 回写所需的指纹属性（不保留 ExceptionInfo，避免持有堆栈和请求上下文）
+     */
+    private static final class Source {
+        private final long fingerprintHash;
+        private final String appName;
+        private final String environment;
+        private final String exceptionType;
+        private final String errorLocation;
+
+        Source(ExceptionInfo exceptionInfo) {
+            this.fingerprintHash = exceptionInfo.getFingerprintHash();
+            this.appName = exceptionInfo.getAppName();
+            this.environment = exceptionInfo.getEnvironment();
+            this.exceptionType = exceptionInfo.getExceptionType();
+            this.errorLocation = exceptionInfo.getErrorLocation();
+        }
+
+        SuppressedCount toSuppressedCount(FingerprintAggregator.Aggregate<Source> aggregate) {
+            return SuppressedCount.builder()
+                    // 工单按 MD5 指纹关联，只在回写时计算一次
+                    .fingerprint(FingerprintGenerator.generate(exceptionType, errorLocation))
+                    .fingerprintHash(fingerprintHash)
+                    .appName(appName)
+                    .environment(environment)
+                    .exceptionType(exceptionType)
+                    .count(aggregate.getCount())
+                    .firstSeenAt(Instant.ofEpochMilli(aggregate.getFirstSeen()))
+                    .lastSeenAt(Instant.ofEpochMilli(aggregate.getLastSeen()))
+                    .build();
+        }
+    }
+
+    /**
+     * 累加器统计信息
+     */
+    @Data
+    @Builder
+    public static class AccumulatorStats {
+        private boolean enabled;
+        private long accumulated;
+        private long drained;
+        private long dropped;
+        private int pendingFingerprints;
+    }
+}
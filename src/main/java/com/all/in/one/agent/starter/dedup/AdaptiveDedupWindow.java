@@ -0,0 +1,279 @@
+package com.all.in.one.agent.starter.dedup;
+
+import com.all.in.one.agent.common.util.FingerprintGenerator;
+import com.all.in.one.agent.common.util.LongKeyedCache;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 自适应去重窗口
+ * <p>
+ * 长期反复出现的指纹（如三周来每 2 分钟触发一次）在固定窗口下每个窗口都会放行一次，
+ * 持续产生记录、AI 分析和工单。该组件为每个指纹维护退避级别：
+ * 指纹在当前窗口结束后仍然出现，则放行并把窗口翻倍（2m、4m、8m …… 直到上限），
+ * 窗口未结束时即使基础去重放行也判定为重复
+ * </p>
+ * <p>
+ * 以下情况退避级别归零：指纹安静超过 quietResetMinutes（状态过期）；
+ * 异常消息变化（消息中的数字不参与比较，避免 ID、耗时等变化导致频繁归零）
+ * </p>
+ * <p>
+ * 只在基础去重放行时（每个基础窗口每个指纹一次）访问，不在重复异常的热路径上
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public class AdaptiveDedupWindow {
+
+    private static final int MAX_LEVEL = 30;
+    private static final int TOP_BACKED_OFF = 20;
+
+    private final long baseWindowMillis;
+    private final long maxWindowMillis;
+    private final boolean tumbling;
+    private final LongKeyedCache<BackoffState> states;
+
+    // 统计信息
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder messageResets = new LongAdder();
+
+    /**
+     * @param baseWindowMillis 基础窗口长度（毫秒）
+     * @param tumbling         是否为滚动窗口（按对齐窗口序号计算间隔）
+     * @param config           自适应窗口配置
+     * @param ticker           单调时钟（纳秒），用于状态过期
+     */
+    public AdaptiveDedupWindow(long baseWindowMillis,
+                               boolean tumbling,
+                               FingerprintDedupProperties.AdaptiveWindow config,
+                               LongSupplier ticker) {
+        this.baseWindowMillis = baseWindowMillis;
+        this.maxWindowMillis = Math.max(baseWindowMillis, TimeUnit.MINUTES.toMillis(config.getMaxWindowMinutes()));
+        this.tumbling = tumbling;
+        this.states = new LongKeyedCache<>(
+                Math.max(1, config.getMaxTrackedFingerprints()),
+                Math.max(1, config.getQuietResetMinutes()),
+                TimeUnit.MINUTES,
+                ticker);
+    }
+
+    /**
+     * 基础去重放行时调用，决定是否真正放行
+     *
+     * @param fingerprintHash 指纹
+     * @param message         异常消息
+     * @param nowMillis       当前时间（毫秒）
+     * @return true=放行，false=仍在自适应窗口内（按重复处理）
+     */
+    public boolean admit(long fingerprintHash, String message, long nowMillis) {
+        long signature = messageSignature(message);
+        boolean[] created = new boolean[1];
+        BackoffState state = states.get(fingerprintHash, key -> {
+            created[0] = true;
+            return new BackoffState(signature, nowMillis);
+        });
+        if (created[0]) {
+            // 首次出现或安静超过 quietResetMinutes 后状态已过期
+            return true;
+        }
+
+        boolean admitted;
+        synchronized (state) {
+            if (state.signature != signature) {
+                messageResets.increment();
+                state.reset(signature, nowMillis);
+                admitted = true;
+            } else if (elapsedEnough(state, nowMillis)) {
+                if (windowMillis(state.level) < maxWindowMillis && state.level < MAX_LEVEL) {
+                    state.level++;
+                }
+                state.lastPassAt = nowMillis;
+                admitted = true;
+            } else {
+                admitted = false;
+            }
+        }
+        // 刷新写入时间：指纹仍在出现，不算安静
+        states.put(fingerprintHash, state);
+
+        if (!admitted) {
+            suppressed.increment();
+        }
+        return admitted;
+    }
+
+    /**
+     * 距离上次放行是否已超过当前窗口
+     * <p>
+     * 滚动窗口按对齐窗口序号计算，保证级别 0 时与基础去重完全一致
+     * </p>
+     */
+    private boolean elapsedEnough(BackoffState state, long nowMillis) {
+        long window = windowMillis(state.level);
+        if (tumbling) {
+            long windows = Math.floorDiv(nowMillis, baseWindowMillis) - Math.floorDiv(state.lastPassAt, baseWindowMillis);
+            return windows * baseWindowMillis >= window;
+        }
+        return nowMillis - state.lastPassAt >= window;
+    }
+
+    /**
+     * 退避级别对应的窗口长度
+     */
+    public long windowMillis(int level) {
+        return Math.min(maxWindowMillis, baseWindowMillis << Math.min(level, MAX_LEVEL));
+    }
+
+    /**
+     * 清空所有退避状态
+     */
+    public void clear() {
+        states.invalidateAll();
+    }
+
+    /**
+     * 获取统计信息（按当前窗口长度分布，以及退避级别最高的指纹）
+     */
+    public AdaptiveWindowStats getStats() {
+        Map<Long, Long> byWindow = new TreeMap<>();
+        List<BackedOffFingerprint> backedOff = new ArrayList<>();
+        long[] tracked = new long[1];
+        states.forEach((fingerprintHash, state, remainingNanos) -> {
+            tracked[0]++;
+            int level;
+            long lastPassAt;
+            synchronized (state) {
+                level = state.level;
+                lastPassAt = state.lastPassAt;
+            }
+            long windowMinutes = TimeUnit.MILLISECONDS.toMinutes(windowMillis(level));
+            byWindow.merge(windowMinutes, 1L, Long::sum);
+            if (level > 0) {
+                backedOff.add(BackedOffFingerprint.builder()
+                        .fingerprint(FingerprintGenerator.toHex(fingerprintHash))
+                        .level(level)
+                        .windowMinutes(windowMinutes)
+                        .lastPassAt(lastPassAt)
+                        .build());
+            }
+        });
+        backedOff.sort(Comparator.comparingInt(BackedOffFingerprint::getLevel).reversed());
+
+        return AdaptiveWindowStats.builder()
+                .enabled(true)
+                .maxWindowMinutes(TimeUnit.MILLISECONDS.toMinutes(maxWindowMillis))
+                .trackedFingerprints(tracked[0])
+                .suppressed(suppressed.sum())
+                .messageResets(messageResets.sum())
+                .fingerprintsByWindowMinutes(byWindow)
+                .topBackedOff(backedOff.size() > TOP_BACKED_OFF
+                        ? new ArrayList<>(backedOff.subList(0, TOP_BACKED_OFF))
+                        : backedOff)
+                .build();
+    }
+
+    /**
+     * 重置统计
+     */
+    public void resetStats() {
+        suppressed.reset();
+        messageResets.reset();
+    }
+
+    /**
+     * 消息签名：FNV-1a，连续数字折叠为一个占位符
+     */
+    static long messageSignature(String message) {
+        if (message == null) {
+            return 0;
+        }
+        long hash = 0xcbf29ce484222325L;
+        boolean inDigits = false;
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (inDigits) {
+                    continue;
+                }
+                inDigits = true;
+                c = '#';
+            } else {
+                inDigits = false;
+            }
+            hash ^= c;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * 单个指纹的退避状态
+     */
+    private static final class BackoffState {
+        private long signature;
+        private int level;
+        private long lastPassAt;
+
+        BackoffState(long signature, long nowMillis) {
+            reset(signature, nowMillis);
+        }
+
+        void reset(long signature, long nowMillis) {
+            this.signature = signature;
+            this.level = 0;
+            this.lastPassAt = nowMillis;
+        }
+    }
+
+    /**
+     * 自适应窗口统计信息
+     */
+    @Data
+    @Builder
+    public static class AdaptiveWindowStats {
+        private boolean enabled;
+        private long maxWindowMinutes;
+        private long trackedFingerprints;
+
+        /**
+         * 基础去重放行、但仍在自适应窗口内而被过滤的次数
+         */
+        private long suppressed;
+
+        /**
+         * 因消息变化而归零的次数
+         */
+        private long messageResets;
+
+        /**
+         * 按当前窗口长度（分钟）统计的指纹数
+         */
+        private Map<Long, Long> fingerprintsByWindowMinutes;
+
+        /**
+         * 退避级别最高的指纹
+         */
+        private List<BackedOffFingerprint> topBackedOff;
+    }
+
+    /**
+     * 已退避的指纹
+     */
+    @Data
+    @Builder
+    public static class BackedOffFingerprint {
+        private String fingerprint;
+        private int level;
+        private long windowMinutes;
+        private long lastPassAt;
+    }
+}
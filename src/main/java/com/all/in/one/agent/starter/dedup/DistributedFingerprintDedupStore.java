@@ -0,0 +1,272 @@
+package com.all.in.one.agent.starter.dedup;
+
+import com.all.in.one.agent.common.util.StateSnapshotFile;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分布式指纹去重存储
+ * <p>
+ * 本地近端缓存 + 集群共享存储：
+ * 本地已经见过的指纹直接按本地计数判定重复，不产生网络往返；
+ * 本地首次出现的指纹进入待认领队列，由后台线程按固定间隔批量提交到 {@link SharedDedupStore}，
+ * 每个节点每个指纹每个窗口最多只产生一次认领
+ * </p>
+ * <p>
+ * 认领结果的使用方式有两种：
+ * - 等待（启用异步分发时的默认）：调用方等待下一次批量同步的结果，认领成功才放行，整个集群每个窗口只放行一次；
+ *   只应在异步分发的工作线程上使用（由 {@link FingerprintDeduplicator} 保证）
+ * - 不等待（同步处理模式）：按本地结果立即放行，认领结果在后台回填，认领失败计入 lateDuplicates，
+ *   调用方没有任何网络等待，同一窗口内每个节点各放行一次
+ * </p>
+ * <p>
+ * 共享存储不可用、认领超时或待认领队列已满时按本地结果放行（退化为单机去重）
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Slf4j
+public class DistributedFingerprintDedupStore implements FingerprintDedupStore {
+
+    private final FingerprintDedupStore nearCache;
+    private final SharedDedupStore sharedStore;
+    private final long windowMillis;
+    private final int batchSize;
+    private final long claimTimeoutMillis;
+    private final boolean waitForClaims;
+    private final BlockingQueue<PendingClaim> pendingClaims;
+    private final ScheduledExecutorService scheduler;
+
+    // 统计信息
+    private final LongAdder roundTrips = new LongAdder();
+    private final LongAdder claimsSent = new LongAdder();
+    private final LongAdder claimsWon = new LongAdder();
+    private final LongAdder claimsLost = new LongAdder();
+    private final LongAdder failOpen = new LongAdder();
+    private final LongAdder lateDuplicates = new LongAdder();
+
+    /**
+     * @param nearCache    本地近端缓存
+     * @param sharedStore  集群共享存储
+     * @param windowMillis 窗口长度（毫秒）
+     * @param config        批量同步配置
+     * @param waitForClaims 本地首次出现时是否等待认领结果（调用方必须允许阻塞）
+     */
+    public DistributedFingerprintDedupStore(FingerprintDedupStore nearCache,
+                                            SharedDedupStore sharedStore,
+                                            long windowMillis,
+                                            FingerprintDedupProperties.Distributed config,
+                                            boolean waitForClaims) {
+        this.nearCache = nearCache;
+        this.sharedStore = sharedStore;
+        this.windowMillis = windowMillis;
+        this.batchSize = Math.max(1, config.getBatchSize());
+        this.claimTimeoutMillis = Math.max(1, config.getClaimTimeoutMillis());
+        this.waitForClaims = waitForClaims;
+        this.pendingClaims = new ArrayBlockingQueue<>(Math.max(1, config.getMaxPendingClaims()));
+
+        long intervalMillis = Math.max(1, config.getBatchIntervalMillis());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "one-agent-dedup-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+
+        log.info("分布式指纹去重已启用 - sharedStore={}, batchInterval={}ms, batchSize={}, claimTimeout={}ms, waitForClaims={}",
+                sharedStore.getName(), intervalMillis, batchSize, claimTimeoutMillis, waitForClaims);
+    }
+
+    /**
+     * 记录一次出现
+     *
+     * @return 本地出现次数；等待认领时，本地首次出现但集群内已被其他节点认领返回 2
+     */
+    @Override
+    public long recordOccurrence(long key) {
+        long occurrence = nearCache.recordOccurrence(key);
+        if (occurrence != 1) {
+            return occurrence;
+        }
+        return claim(key) ? 1 : 2;
+    }
+
+    /**
+     * 提交认领；等待模式下等待下一次批量同步的结果，否则立即按本地结果放行
+     */
+    private boolean claim(long key) {
+        PendingClaim claim = new PendingClaim(key, !waitForClaims);
+        if (!pendingClaims.offer(claim)) {
+            failOpen.increment();
+            return true;
+        }
+        if (!waitForClaims) {
+            return true;
+        }
+        try {
+            return claim.result.get(claimTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            failOpen.increment();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failOpen.increment();
+            return true;
+        }
+    }
+
+    /**
+     * 把待认领队列按批次提交到共享存储（每批一次往返）
+     */
+    void flush() {
+        List<PendingClaim> batch = new ArrayList<>(batchSize);
+        long[] keys = new long[batchSize];
+        while (pendingClaims.drainTo(batch, batchSize) > 0) {
+            int count = batch.size();
+            for (int i = 0; i < count; i++) {
+                keys[i] = batch.get(i).key;
+            }
+            try {
+                boolean[] won = sharedStore.claimAll(keys, count, windowMillis);
+                roundTrips.increment();
+                claimsSent.add(count);
+                for (int i = 0; i < count; i++) {
+                    PendingClaim claim = batch.get(i);
+                    if (won[i]) {
+                        claimsWon.increment();
+                    } else {
+                        claimsLost.increment();
+                        if (claim.admitted) {
+                            // 已按本地结果放行，但其他节点先认领了本窗口
+                            lateDuplicates.increment();
+                        }
+                    }
+                    claim.result.complete(won[i]);
+                }
+            } catch (Exception e) {
+                log.warn("共享去重存储认领失败，按本地结果放行 - sharedStore={}, batch={}, error={}",
+                        sharedStore.getName(), count, e.getMessage());
+                for (PendingClaim claim : batch) {
+                    claim.result.complete(true);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    @Override
+    public void addOccurrences(long key, long delta) {
+        nearCache.addOccurrences(key, delta);
+    }
+
+    /**
+     * 只导出近端缓存，共享存储由其自身负责持久化
+     */
+    @Override
+    public void exportEntries(StateSnapshotFile.EntrySink sink) {
+        nearCache.exportEntries(sink);
+    }
+
+    @Override
+    public void restoreEntry(long key, long count, long remainingMillis) {
+        nearCache.restoreEntry(key, count, remainingMillis);
+    }
+
+    @Override
+    public String getType() {
+        return "distributed(" + sharedStore.getName() + ")";
+    }
+
+    @Override
+    public long size() {
+        return nearCache.size();
+    }
+
+    @Override
+    public double hitRate() {
+        return nearCache.hitRate();
+    }
+
+    @Override
+    public long evictionCount() {
+        return nearCache.evictionCount();
+    }
+
+    @Override
+    public void clear() {
+        nearCache.clear();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        flush();
+    }
+
+    /**
+     * 获取批量同步统计
+     */
+    public SyncStats getSyncStats() {
+        return SyncStats.builder()
+                .sharedStore(sharedStore.getName())
+                .roundTrips(roundTrips.sum())
+                .claimsSent(claimsSent.sum())
+                .claimsWon(claimsWon.sum())
+                .claimsLost(claimsLost.sum())
+                .failOpen(failOpen.sum())
+                .waitForClaims(waitForClaims)
+                .lateDuplicates(lateDuplicates.sum())
+                .pendingClaims(pendingClaims.size())
+                .build();
+    }
+
+    /**
+     * 待认领的指纹
+     */
+    private static final class PendingClaim {
+        private final long key;
+        /**
+         * 提交时是否已按本地结果放行（不等待认领）
+         */
+        private final boolean admitted;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        PendingClaim(long key, boolean admitted) {
+            this.key = key;
+            this.admitted = admitted;
+        }
+    }
+
+    /**
+     * 批量同步统计信息
+     */
+    @Data
+    @Builder
+    public static class SyncStats {
+        private String sharedStore;
+        private long roundTrips;
+        private long claimsSent;
+        private long claimsWon;
+        private long claimsLost;
+        private long failOpen;
+        private boolean waitForClaims;
+        /**
+         * 不等待认领时，已放行但认领失败（其他节点在本窗口先放行）的次数
+         */
+        private long lateDuplicates;
+        private int pendingClaims;
+    }
+}
@@ -29,6 +29,14 @@ public class FingerprintDedupProperties {
      */
     private int timeWindowMinutes = 2;
 
+    /**
+     * 窗口模式
+     * SLIDING: 滑动窗口，放行后 timeWindowMinutes 内的相同指纹都被过滤（任意窗口长度内最多放行一次）
+     * TUMBLING: 滚动窗口，按时间对齐切分窗口（如 2 分钟窗口为 10:00、10:02 ...），每个窗口放行一次
+     * 默认: SLIDING
+     */
+    private WindowMode windowMode = WindowMode.SLIDING;
+
     /**
      * 缓存最大数量
      * 防止内存溢出
@@ -36,11 +44,174 @@ public class FingerprintDedupProperties {
      */
     private int maxCacheSize = 10000;
 
+    /**
+     * 自适应窗口配置（长期反复出现的指纹窗口指数增长）
+     */
+    private AdaptiveWindow adaptiveWindow = new AdaptiveWindow();
+
+    /**
+     * 线程本地拒绝缓存（L0）槽位数，0 表示关闭
+     * 同一线程反复产生同一指纹时（批处理、消费者重试）直接在线程本地判定重复，不访问共享存储，
+     * 本地计数定期合并回共享存储
+     * 默认: 16
+     */
+    private int localCacheSlots = 16;
+
+    /**
+     * 线程本地拒绝结论的最长有效期（毫秒），也是本地计数的合并间隔（空闲线程的计数由定时任务按该间隔合并）
+     * 滑动窗口下由其他线程放行的指纹无法得知共享记录的准确过期时刻，本地结论最多保留该时长，
+     * 窗口到期后的下一次放行最多因此推迟该时长（不会多放行）
+     * 默认: 100
+     */
+    private long localCacheMaxStalenessMillis = 100;
+
     /**
      * 存储方式
      * memory: 内存缓存（单机）
-     * redis: Redis（多实例共享，待实现）
+     * offheap: 堆外固定内存表（单机，适合百万级指纹，每个槽位 16 字节）
+     * distributed: 本地近端缓存 + 集群共享存储（多实例共享，需注册 SharedDedupStore Bean，
+     *              未注册时使用进程内回环实现，仅适合本地测试）
      * 默认: memory
      */
     private String storage = "memory";
+
+    /**
+     * 堆外存储预期最大条目数（storage=offheap 时生效）
+     * 按 0.75 负载因子换算为 2 的幂槽位数，默认 100 万条约占 32MB 堆外内存
+     * 默认: 1000000
+     */
+    private int offHeapMaxEntries = 1_000_000;
+
+    /**
+     * 分布式去重配置（storage=distributed 时生效）
+     */
+    private Distributed distributed = new Distributed();
+
+    /**
+     * 状态快照配置（重启后恢复去重与频率限制状态）
+     */
+    private Snapshot snapshot = new Snapshot();
+
+    /**
+     * 分布式去重配置
+     * <p>
+     * 本地首次出现的指纹按批次提交到共享存储认领；默认按本地结果立即放行，
+     * 开启 waitForClaim 后等待认领结果，认领成功才放行
+     * </p>
+     */
+    @Data
+    public static class Distributed {
+        /**
+         * 批量同步间隔（毫秒），也是 waitForClaim=true 时本地首次出现的异常等待认领结果的典型延迟
+         * 默认: 20
+         */
+        private long batchIntervalMillis = 20;
+
+        /**
+         * 每次往返最多提交的认领数
+         * 默认: 256
+         */
+        private int batchSize = 256;
+
+        /**
+         * 等待认领结果的超时时间（毫秒），超时按本地结果放行
+         * 默认: 200
+         */
+        private long claimTimeoutMillis = 200;
+
+        /**
+         * 待认领队列容量，队列满时按本地结果放行
+         * 默认: 10000
+         */
+        private int maxPendingClaims = 10000;
+
+        /**
+         * 本地首次出现的异常是否等待认领结果再判定
+         * true：等待认领结果，认领成功才放行，整个集群每个窗口只放行一次。
+         * 等待发生在分发器工作线程上：每个本地首次出现的指纹占用一个工作线程约一个 batchIntervalMillis
+         * （共享存储变慢时最长 claimTimeoutMillis），新指纹集中爆发时分发队列可能积压并触发溢出策略；
+         * 同步处理模式下忽略该选项，避免业务请求线程被阻塞；
+         * false：按本地结果立即放行，认领在后台提交，结果只计入统计（lateDuplicates），
+         * 调用方没有网络等待，但同一窗口内每个节点各放行一次
+         * 默认: 未设置（启用异步分发时等待，同步处理模式下不等待）
+         */
+        private Boolean waitForClaim;
+    }
+
+    /**
+     * 自适应窗口配置
+     * <p>
+     * 指纹在当前窗口结束后仍然出现时放行并把窗口翻倍（timeWindowMinutes、2 倍、4 倍 …… 直到 maxWindowMinutes），
+     * 安静超过 quietResetMinutes 或异常消息变化时回到基础窗口
+     * </p>
+     */
+    @Data
+    public static class AdaptiveWindow {
+        /**
+         * 是否启用
+         * 默认: false
+         */
+        private boolean enabled = false;
+
+        /**
+         * 窗口上限（分钟）
+         * 默认: 60
+         */
+        private int maxWindowMinutes = 60;
+
+        /**
+         * 指纹安静多久后退避级别归零（分钟）
+         * 默认: 30
+         */
+        private int quietResetMinutes = 30;
+
+        /**
+         * 最多跟踪的指纹数
+         * 默认: 10000
+         */
+        private int maxTrackedFingerprints = 10000;
+    }
+
+    /**
+     * 状态快照配置
+     * <p>
+     * 定期把去重记录和频率限制记录写入本地二进制快照文件，启动时恢复并扣减停机期间流逝的时间，
+     * 避免每次发布后所有长期存在的异常都被当作新异常，集中冲击数据库、AI 和飞书
+     * </p>
+     */
+    @Data
+    public static class Snapshot {
+        /**
+         * 是否启用
+         * 默认: false
+         */
+        private boolean enabled = false;
+
+        /**
+         * 快照目录，为空时使用 ${java.io.tmpdir}/one-agent
+         * 同一台机器上的多个应用按应用名区分文件
+         */
+        private String directory;
+
+        /**
+         * 快照间隔（秒），停机时还会再写一次
+         * 默认: 60
+         */
+        private int intervalSeconds = 60;
+    }
+
+    /**
+     * 去重窗口模式
+     */
+    public enum WindowMode {
+        /**
+         * 滑动窗口：从放行时刻起计时
+         */
+        SLIDING,
+
+        /**
+         * 滚动窗口：按时间对齐的固定窗口
+         */
+        TUMBLING
+    }
 }
@@ -0,0 +1,92 @@
+package com.all.in.one.agent.starter.dedup;
+
+import com.all.in.one.agent.common.util.StateSnapshotFile;
+
+/**
+ * 指纹去重存储
+ * <p>
+ * 以 64 位键记录每个去重窗口内的出现次数，由 {@link FingerprintDeduplicator} 根据
+ * {@link FingerprintDedupProperties#getStorage()} 选择实现。
+ * 实现必须保证：同一个键在一个窗口内只有一次调用得到 1（即唯一的放行者）
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public interface FingerprintDedupStore {
+
+    /**
+     * 记录一次出现
+     *
+     * @param key 去重键（指纹哈希，滚动窗口模式下已混入窗口序号）
+     * @return 本窗口内的出现次数（1 表示首次出现）
+     */
+    long recordOccurrence(long key);
+
+    /**
+     * 把在别处（线程本地缓存）累计的出现次数合并到已存在的键上；键不存在或已过期时忽略
+     *
+     * @param key   去重键
+     * @param delta 增加的次数
+     */
+    default void addOccurrences(long key, long delta) {
+    }
+
+    /**
+     * 存储是否自行按窗口切分记录
+     * <p>
+     * 为 true 时去重键始终是指纹哈希，滚动窗口模式下不再混入窗口序号，由存储根据当前时间判断窗口边界
+     * </p>
+     */
+    default boolean windowAware() {
+        return false;
+    }
+
+    /**
+     * 存储类型名称
+     */
+    String getType();
+
+    /**
+     * 当前条目数（可能包含尚未清理的过期条目）
+     */
+    long size();
+
+    /**
+     * 查找命中率
+     */
+    double hitRate();
+
+    /**
+     * 因容量不足被淘汰的条目数
+     */
+    long evictionCount();
+
+    /**
+     * 清空存储
+     */
+    void clear();
+
+    /**
+     * 导出所有未过期的条目（用于快照），默认不支持
+     *
+     * @param sink 接收键、出现次数和剩余存活毫秒
+     */
+    default void exportEntries(StateSnapshotFile.EntrySink sink) {
+    }
+
+    /**
+     * 恢复一个条目（键已存在时不覆盖），默认不支持
+     *
+     * @param key             去重键
+     * @param count           出现次数
+     * @param remainingMillis 剩余存活时间（毫秒）
+     */
+    default void restoreEntry(long key, long count, long remainingMillis) {
+    }
+
+    /**
+     * 释放资源（后台线程等），默认无操作
+     */
+    default void close() {
+    }
+}
@@ -1,15 +1,21 @@
 package com.all.in.one.agent.starter.dedup;
 
+import com.all.in.one.agent.common.config.AgentProperties;
 import com.all.in.one.agent.common.model.ExceptionInfo;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.stats.CacheStats;
-import lombok.AllArgsConstructor;
+import com.all.in.one.agent.common.util.FingerprintGenerator;
+import com.all.in.one.agent.common.util.LocalRejectCache;
+import com.all.in.one.agent.common.util.StateSnapshotFile;
+import com.all.in.one.agent.starter.state.FingerprintStateTable;
 import lombok.Data;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
 
 /**
  * 第 1 层：指纹去重器
@@ -18,6 +24,26 @@ import java.util.concurrent.TimeUnit;
  * 预期过滤率: 50-60%
  * 性能: < 1ms
  * </p>
+ * <p>
+ * 每个窗口对应一条指纹记录（滑动窗口按指纹、滚动窗口按指纹 + 窗口序号），
+ * 记录的出现次数用原子自增计数，自增后等于 1 的调用方就是该窗口唯一的放行者，
+ * 并发的重复异常不会因为同时到达而被多次放行
+ * </p>
+ * <p>
+ * 记录保存在 {@link FingerprintDedupStore} 中：memory 为堆内缓存（默认），
+ * offheap 为固定内存的堆外表，适合指纹基数很大的场景；
+ * distributed 在本地近端缓存之后批量向集群共享存储认领：启用异步分发时默认等待认领结果，
+ * 多实例部署时整个集群每个窗口只放行一次；同步处理模式（或关闭 wait-for-claim）下按本地结果放行，
+ * 每个节点每个窗口各放行一次
+ * </p>
+ * <p>
+ * 开启自适应窗口（{@link AdaptiveDedupWindow}）后，长期反复出现的指纹在基础窗口放行时还要满足退避窗口，
+ * 窗口随指纹持续出现指数增长
+ * </p>
+ * <p>
+ * 存储之前还有一层线程本地拒绝缓存（{@link LocalRejectCache}）：同一线程在窗口内再次遇到已知重复的指纹时
+ * 直接判定重复，只累加本地计数，热点指纹不再争用共享存储中的同一条记录
+ * </p>
  *
  * @author One Agent 4J
  */
@@ -25,90 +51,299 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class FingerprintDeduplicator {
 
-    private final Cache<String, FingerprintRecord> fingerprintCache;
+    /**
+     * 线程本地计数累计到该值时合并回共享存储
+     */
+    private static final int LOCAL_FLUSH_THRESHOLD = 64;
+
+    private final FingerprintDedupStore store;
+    private final LocalRejectCache localCache;
+    private final AdaptiveDedupWindow adaptiveWindow;
     private final FingerprintDedupProperties properties;
+    private final FingerprintDedupProperties.WindowMode windowMode;
+    private final long windowMillis;
+    private final LongSupplier clockMillis;
+    private final long localCacheMaxStalenessMillis;
 
     // 统计信息
-    private long totalChecked = 0;
-    private long totalFiltered = 0;
+    private final LongAdder totalChecked = new LongAdder();
+    private final LongAdder totalFiltered = new LongAdder();
 
     public FingerprintDeduplicator(FingerprintDedupProperties properties) {
+        this(properties, null, System::currentTimeMillis, System::nanoTime);
+    }
+
+    /**
+     * @param sharedStore     集群共享存储（storage=distributed 时使用，未注册时使用进程内回环实现）
+     * @param stateTable      统一指纹状态表（启用时 storage=memory 的去重窗口存入该表）
+     * @param agentProperties Agent 配置（判断是否启用了异步分发）
+     */
+    @Autowired
+    public FingerprintDeduplicator(FingerprintDedupProperties properties,
+                                   ObjectProvider<SharedDedupStore> sharedStore,
+                                   ObjectProvider<FingerprintStateTable> stateTable,
+                                   ObjectProvider<AgentProperties> agentProperties) {
+        this(properties, sharedStore.getIfAvailable(), stateTable.getIfAvailable(),
+                isAsyncDispatch(agentProperties.getIfAvailable()), System::currentTimeMillis, System::nanoTime);
+    }
+
+    /**
+     * 可注入时钟的构造器（测试使用）
+     *
+     * @param sharedStore 集群共享存储，可以为 null
+     * @param clockMillis 墙上时钟（毫秒），用于滚动窗口对齐
+     * @param ticker      单调时钟（纳秒），用于记录过期
+     */
+    FingerprintDeduplicator(FingerprintDedupProperties properties,
+                            SharedDedupStore sharedStore,
+                            LongSupplier clockMillis,
+                            LongSupplier ticker) {
+        this(properties, sharedStore, null, true, clockMillis, ticker);
+    }
+
+    /**
+     * 可注入时钟的构造器（测试使用）
+     *
+     * @param sharedStore    集群共享存储，可以为 null
+     * @param stateTable     统一指纹状态表，可以为 null
+     * @param callerMayBlock 调用方是否允许阻塞（异步分发的工作线程），否则分布式存储不等待认领结果
+     * @param clockMillis    墙上时钟（毫秒），用于滚动窗口对齐
+     * @param ticker         单调时钟（纳秒），用于记录过期
+     */
+    FingerprintDeduplicator(FingerprintDedupProperties properties,
+                            SharedDedupStore sharedStore,
+                            FingerprintStateTable stateTable,
+                            boolean callerMayBlock,
+                            LongSupplier clockMillis,
+                            LongSupplier ticker) {
         this.properties = properties;
-        this.fingerprintCache = Caffeine.newBuilder()
-                .expireAfterWrite(properties.getTimeWindowMinutes(), TimeUnit.MINUTES)
-                .maximumSize(properties.getMaxCacheSize())
-                .recordStats()
-                .build();
+        this.windowMode = properties.getWindowMode() != null
+                ? properties.getWindowMode()
+                : FingerprintDedupProperties.WindowMode.SLIDING;
+        this.windowMillis = TimeUnit.MINUTES.toMillis(Math.max(1, properties.getTimeWindowMinutes()));
+        this.clockMillis = clockMillis;
+        this.store = createStore(properties, sharedStore, stateTable, callerMayBlock, windowMillis,
+                windowMode == FingerprintDedupProperties.WindowMode.TUMBLING, clockMillis, ticker);
+        this.localCacheMaxStalenessMillis = Math.max(1, properties.getLocalCacheMaxStalenessMillis());
+        this.localCache = properties.getLocalCacheSlots() > 0
+                ? new LocalRejectCache(properties.getLocalCacheSlots(), LOCAL_FLUSH_THRESHOLD,
+                        localCacheMaxStalenessMillis, store::addOccurrences)
+                : null;
+        this.adaptiveWindow = properties.getAdaptiveWindow().isEnabled()
+                ? new AdaptiveDedupWindow(windowMillis,
+                        windowMode == FingerprintDedupProperties.WindowMode.TUMBLING,
+                        properties.getAdaptiveWindow(),
+                        ticker)
+                : null;
+
+        log.info("指纹去重器初始化完成 - timeWindow={}分钟, windowMode={}, storage={}, localCacheSlots={}, adaptiveWindow={}",
+                properties.getTimeWindowMinutes(), windowMode, store.getType(), properties.getLocalCacheSlots(),
+                adaptiveWindow != null);
+    }
 
-        log.info("指纹去重器初始化完成 - timeWindow={}分钟, maxCacheSize={}",
-                properties.getTimeWindowMinutes(), properties.getMaxCacheSize());
+    private static boolean isAsyncDispatch(AgentProperties agentProperties) {
+        return agentProperties != null && agentProperties.getAsyncDispatch().isEnabled();
+    }
+
+    /**
+     * 按配置创建去重存储
+     */
+    private static FingerprintDedupStore createStore(FingerprintDedupProperties properties,
+                                                     SharedDedupStore sharedStore,
+                                                     FingerprintStateTable stateTable,
+                                                     boolean callerMayBlock,
+                                                     long windowMillis,
+                                                     boolean tumbling,
+                                                     LongSupplier clockMillis,
+                                                     LongSupplier ticker) {
+        String storage = properties.getStorage() != null ? properties.getStorage().trim().toLowerCase() : "memory";
+        switch (storage) {
+            case "offheap" -> {
+                OffHeapFingerprintDedupStore offHeapStore = new OffHeapFingerprintDedupStore(
+                        properties.getOffHeapMaxEntries(), windowMillis, ticker);
+                log.info("使用堆外指纹去重存储 - maxEntries={}, slots={}, memory={}MB",
+                        properties.getOffHeapMaxEntries(), offHeapStore.capacity(),
+                        offHeapStore.memoryBytes() / (1024 * 1024));
+                return offHeapStore;
+            }
+            case "memory" -> {
+                if (stateTable != null) {
+                    if (windowMillis > stateTable.getStateTtlMillis()) {
+                        log.warn("去重窗口长于统一状态表记录存活时间，窗口可能提前结束 - window={}ms, stateTtl={}ms",
+                                windowMillis, stateTable.getStateTtlMillis());
+                    }
+                    log.info("去重窗口存入统一指纹状态表");
+                    return new UnifiedFingerprintDedupStore(stateTable, windowMillis, tumbling, clockMillis);
+                }
+                return new HeapFingerprintDedupStore(properties.getMaxCacheSize(), windowMillis, ticker);
+            }
+            case "distributed" -> {
+                if (sharedStore == null) {
+                    log.warn("未注册 SharedDedupStore 实现，使用进程内回环存储（仅去重本进程内的实例）");
+                    sharedStore = new LoopbackSharedDedupStore();
+                }
+                Boolean waitForClaim = properties.getDistributed().getWaitForClaim();
+                boolean waitForClaims = waitForClaim != null ? waitForClaim : callerMayBlock;
+                if (waitForClaims && !callerMayBlock) {
+                    log.warn("未启用异步分发，去重在业务线程上执行，忽略 wait-for-claim，按本地结果放行并在后台认领");
+                    waitForClaims = false;
+                }
+                return new DistributedFingerprintDedupStore(
+                        new HeapFingerprintDedupStore(properties.getMaxCacheSize(), windowMillis, ticker),
+                        sharedStore,
+                        windowMillis,
+                        properties.getDistributed(),
+                        waitForClaims);
+            }
+            default -> {
+                log.warn("不支持的指纹去重存储类型，使用内存存储 - storage={}", properties.getStorage());
+                return new HeapFingerprintDedupStore(properties.getMaxCacheSize(), windowMillis, ticker);
+            }
+        }
     }
 
     /**
      * 检查指纹是否重复
      *
      * @param exceptionInfo 异常信息
-     * @return true=重复（应该过滤），false=首次出现（应该处理）
+     * @return true=重复（应该过滤），false=本窗口首次出现（应该处理）
      */
     public boolean isDuplicate(ExceptionInfo exceptionInfo) {
         if (!properties.isEnabled()) {
             return false;
         }
 
-        totalChecked++;
+        totalChecked.increment();
 
-        String fingerprint = exceptionInfo.getFingerprint();
-        if (fingerprint == null || fingerprint.isEmpty()) {
-            log.warn("异常指纹为空，无法去重 - exceptionType={}", exceptionInfo.getExceptionType());
-            return false;
+        long fingerprintHash = exceptionInfo.getFingerprintHash();
+        long now = clockMillis.getAsLong();
+
+        long key = windowKey(fingerprintHash, now);
+
+        // L0：本线程已知的重复指纹直接过滤，不访问共享存储
+        if (localCache != null && localCache.tryReject(key, now)) {
+            totalFiltered.increment();
+            return true;
         }
 
-        // 尝试获取或创建记录
-        FingerprintRecord record = fingerprintCache.get(fingerprint, key -> {
-            // 首次出现，创建新记录
-            log.debug("首次出现指纹: fingerprint={}, type={}, location={}",
-                    fingerprint,
-                    exceptionInfo.getExceptionType(),
-                    exceptionInfo.getErrorLocation());
-            return new FingerprintRecord(
-                    System.currentTimeMillis(),
-                    exceptionInfo.getAppName(),
-                    exceptionInfo.getExceptionType(),
-                    exceptionInfo.getErrorLocation(),
-                    1
-            );
-        });
-
-        long now = System.currentTimeMillis();
-        long timeSinceFirst = now - record.getFirstSeenTime();
-
-        // 如果刚创建（时间差 < 100ms），说明是首次出现
-        if (timeSinceFirst < 100) {
+        // 原子认领：本窗口内只有第一个计数为 1 的调用方被放行
+        long occurrence = store.recordOccurrence(key);
+        if (localCache != null) {
+            localCache.remember(key, localValidUntil(occurrence, now), now);
+        }
+        if (occurrence == 1) {
+            // 自适应窗口：长期反复出现的指纹还要等退避窗口结束
+            if (adaptiveWindow != null
+                    && !adaptiveWindow.admit(fingerprintHash, exceptionInfo.getExceptionMessage(), now)) {
+                totalFiltered.increment();
+                if (log.isDebugEnabled()) {
+                    log.debug("指纹仍在自适应窗口内，按重复过滤: fingerprint={}",
+                            FingerprintGenerator.toHex(fingerprintHash));
+                }
+                return true;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("首次出现指纹: fingerprint={}, type={}, location={}",
+                        FingerprintGenerator.toHex(fingerprintHash),
+                        exceptionInfo.getExceptionType(),
+                        exceptionInfo.getErrorLocation());
+            }
             return false;
         }
 
         // 重复异常
-        record.incrementCount();
-        totalFiltered++;
+        totalFiltered.increment();
 
-        log.debug("重复异常已过滤: fingerprint={}, 距首次={}ms, 累计次数={}",
-                fingerprint, timeSinceFirst, record.getOccurrenceCount());
+        if (log.isDebugEnabled()) {
+            log.debug("重复异常已过滤: fingerprint={}, 窗口内累计次数={}",
+                    FingerprintGenerator.toHex(fingerprintHash), occurrence);
+        }
 
         return true;
     }
 
+    /**
+     * 线程本地拒绝结论的有效期（不晚于共享记录的过期时刻）
+     * <p>
+     * 滚动窗口到窗口结束为止；滑动窗口下本线程放行的记录刚刚创建，有效期为整个窗口，
+     * 其他线程放行的记录创建时刻未知，最多保留 localCacheMaxStalenessMillis
+     * </p>
+     */
+    private long localValidUntil(long occurrence, long now) {
+        if (windowMode == FingerprintDedupProperties.WindowMode.TUMBLING) {
+            return (Math.floorDiv(now, windowMillis) + 1) * windowMillis;
+        }
+        return occurrence == 1 ? now + windowMillis : now + localCacheMaxStalenessMillis;
+    }
+
+    /**
+     * 计算缓存键
+     * <p>
+     * 滑动窗口直接使用指纹（记录在放行后 windowMillis 过期）；
+     * 滚动窗口把对齐后的窗口序号混入指纹，每个窗口是一条独立记录；
+     * 自行按窗口切分的存储（{@link FingerprintDedupStore#windowAware()}）始终使用指纹
+     * </p>
+     */
+    private long windowKey(long fingerprintHash, long now) {
+        if (windowMode == FingerprintDedupProperties.WindowMode.TUMBLING && !store.windowAware()) {
+            long windowIndex = Math.floorDiv(now, windowMillis);
+            return fingerprintHash ^ ((windowIndex + 1) * 0x9e3779b97f4a7c15L);
+        }
+        return fingerprintHash;
+    }
+
+    /**
+     * 合并空闲线程上残留的本地拒绝计数（由定时任务按 localCacheMaxStalenessMillis 间隔调用）
+     */
+    public void flushLocalCache() {
+        if (localCache != null) {
+            localCache.flushIdle(clockMillis.getAsLong());
+        }
+    }
+
+    /**
+     * 导出所有未过期的去重记录（用于快照）
+     */
+    public void exportEntries(StateSnapshotFile.EntrySink sink) {
+        store.exportEntries(sink);
+    }
+
+    /**
+     * 恢复一条去重记录（键已存在时不覆盖）
+     */
+    public void restoreEntry(long key, long count, long remainingMillis) {
+        store.restoreEntry(key, count, remainingMillis);
+    }
+
+    /**
+     * 快照状态标识：记录键的含义取决于窗口模式和窗口长度，二者任一变化时旧快照不再适用
+     */
+    public long getSnapshotTag() {
+        long tag = windowMillis * 2 + windowMode.ordinal();
+        // 以指纹直接作键的存储与混入窗口序号的存储，滚动窗口下的快照键不通用
+        return store.windowAware() ? -tag : tag;
+    }
+
     /**
      * 获取去重统计
      */
     public DedupStats getStats() {
-        CacheStats cacheStats = fingerprintCache.stats();
+        long checked = totalChecked.sum();
+        long filtered = totalFiltered.sum();
         return DedupStats.builder()
-                .totalChecked(totalChecked)
-                .totalFiltered(totalFiltered)
-                .filterRate(totalChecked > 0 ? (double) totalFiltered / totalChecked : 0.0)
-                .cacheSize(fingerprintCache.estimatedSize())
-                .cacheHitRate(cacheStats.hitRate())
-                .cacheEvictionCount(cacheStats.evictionCount())
+                .windowMode(windowMode.name())
+                .storage(store.getType())
+                .totalChecked(checked)
+                .totalFiltered(filtered)
+                .filterRate(checked > 0 ? (double) filtered / checked : 0.0)
+                .cacheSize(store.size())
+                .cacheHitRate(store.hitRate())
+                .cacheEvictionCount(store.evictionCount())
+                .localRejected(localCache != null ? localCache.hitCount() : 0)
+                .adaptiveWindow(adaptiveWindow != null ? adaptiveWindow.getStats() : null)
+                .syncStats(store instanceof DistributedFingerprintDedupStore distributed
+                        ? distributed.getSyncStats()
+                        : null)
                 .build();
     }
 
@@ -116,52 +351,33 @@ public class FingerprintDeduplicator {
      * 重置统计
      */
     public void resetStats() {
-        totalChecked = 0;
-        totalFiltered = 0;
+        totalChecked.reset();
+        totalFiltered.reset();
+        if (adaptiveWindow != null) {
+            adaptiveWindow.resetStats();
+        }
     }
 
     /**
-     * 清空缓存
+     * 关闭去重器（停止分布式存储的后台同步线程）
      */
-    public void clearCache() {
-        fingerprintCache.invalidateAll();
-        log.info("指纹去重缓存已清空");
+    @PreDestroy
+    public void shutdown() {
+        store.close();
     }
 
     /**
-     * 指纹记录
+     * 清空缓存
      */
-    @Data
-    @AllArgsConstructor
-    public static class FingerprintRecord {
-        /**
-         * 首次出现时间
-         */
-        private long firstSeenTime;
-
-        /**
-         * 应用名称
-         */
-        private String appName;
-
-        /**
-         * 异常类型
-         */
-        private String exceptionType;
-
-        /**
-         * 错误位置
-         */
-        private String errorLocation;
-
-        /**
-         * 出现次数
-         */
-        private int occurrenceCount;
-
-        public void incrementCount() {
-            this.occurrenceCount++;
+    public void clearCache() {
+        store.clear();
+        if (localCache != null) {
+            localCache.invalidateAll();
+        }
+        if (adaptiveWindow != null) {
+            adaptiveWindow.clear();
         }
+        log.info("指纹去重缓存已清空");
     }
 
     /**
@@ -170,11 +386,28 @@ public class FingerprintDeduplicator {
     @Data
     @lombok.Builder
     public static class DedupStats {
+        private String windowMode;
+        private String storage;
         private long totalChecked;
         private long totalFiltered;
         private double filterRate;
         private long cacheSize;
         private double cacheHitRate;
         private long cacheEvictionCount;
+
+        /**
+         * 线程本地缓存直接过滤的次数（已合并部分）
+         */
+        private long localRejected;
+
+        /**
+         * 自适应窗口统计（含各指纹当前窗口长度和退避级别，未启用时为 null）
+         */
+        private AdaptiveDedupWindow.AdaptiveWindowStats adaptiveWindow;
+
+        /**
+         * 分布式批量同步统计（非分布式存储时为 null）
+         */
+        private DistributedFingerprintDedupStore.SyncStats syncStats;
     }
 }
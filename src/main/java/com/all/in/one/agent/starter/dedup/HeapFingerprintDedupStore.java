@@ -0,0 +1,81 @@
+package com.all.in.one.agent.starter.dedup;
+
+import com.all.in.one.agent.common.util.LongKeyedCache;
+import com.all.in.one.agent.common.util.StateSnapshotFile;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 堆内指纹去重存储（默认）
+ * <p>
+ * 基于 {@link LongKeyedCache}，每个窗口一条计数记录，记录在创建后一个窗口长度过期；
+ * 容量满时近似 LRU 淘汰
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public class HeapFingerprintDedupStore implements FingerprintDedupStore {
+
+    private final LongKeyedCache<AtomicLong> cache;
+
+    /**
+     * @param maxEntries   最大条目数
+     * @param windowMillis 窗口长度（毫秒）
+     * @param ticker       单调时钟（纳秒）
+     */
+    public HeapFingerprintDedupStore(int maxEntries, long windowMillis, LongSupplier ticker) {
+        this.cache = new LongKeyedCache<>(maxEntries, windowMillis, TimeUnit.MILLISECONDS, ticker);
+    }
+
+    @Override
+    public long recordOccurrence(long key) {
+        // 记录只会创建一次，自增结果为 1 的调用方就是唯一的放行者
+        return cache.get(key, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    @Override
+    public void addOccurrences(long key, long delta) {
+        AtomicLong count = cache.getIfPresent(key);
+        if (count != null) {
+            count.addAndGet(delta);
+        }
+    }
+
+    @Override
+    public void exportEntries(StateSnapshotFile.EntrySink sink) {
+        cache.forEach((key, count, remainingNanos) ->
+                sink.accept(key, count.get(), TimeUnit.NANOSECONDS.toMillis(remainingNanos)));
+    }
+
+    @Override
+    public void restoreEntry(long key, long count, long remainingMillis) {
+        cache.putIfAbsent(key, new AtomicLong(count), remainingMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String getType() {
+        return "memory";
+    }
+
+    @Override
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public double hitRate() {
+        return cache.hitRate();
+    }
+
+    @Override
+    public long evictionCount() {
+        return cache.evictionCount();
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,67 @@
+package com.all.in.one.agent.starter.dedup;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 进程内回环共享去重存储（参考实现）
+ * <p>
+ * 不依赖外部基础设施，多个 {@link FingerprintDeduplicator} 共享同一个实例即可在本地模拟多节点部署，
+ * 用于测试和开发环境；语义与真实共享存储一致：每个键在有效期内只有一次认领成功
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public class LoopbackSharedDedupStore implements SharedDedupStore {
+
+    private static final int PURGE_THRESHOLD = 100_000;
+
+    private final Map<Long, Long> claims = new ConcurrentHashMap<>();
+    private final LongSupplier clockMillis;
+    private final LongAdder roundTrips = new LongAdder();
+
+    public LoopbackSharedDedupStore() {
+        this(System::currentTimeMillis);
+    }
+
+    public LoopbackSharedDedupStore(LongSupplier clockMillis) {
+        this.clockMillis = clockMillis;
+    }
+
+    @Override
+    public boolean[] claimAll(long[] keys, int count, long windowMillis) {
+        roundTrips.increment();
+        long now = clockMillis.getAsLong();
+        if (claims.size() > PURGE_THRESHOLD) {
+            claims.values().removeIf(expiresAt -> expiresAt <= now);
+        }
+
+        boolean[] won = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            boolean[] claimed = new boolean[1];
+            claims.compute(keys[i], (key, expiresAt) -> {
+                if (expiresAt != null && expiresAt > now) {
+                    return expiresAt;
+                }
+                claimed[0] = true;
+                return now + windowMillis;
+            });
+            won[i] = claimed[0];
+        }
+        return won;
+    }
+
+    @Override
+    public String getName() {
+        return "loopback";
+    }
+
+    /**
+     * 累计往返次数（每次 claimAll 计一次）
+     */
+    public long getRoundTrips() {
+        return roundTrips.sum();
+    }
+}
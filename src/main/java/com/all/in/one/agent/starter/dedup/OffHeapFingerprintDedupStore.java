@@ -0,0 +1,355 @@
+package com.all.in.one.agent.starter.dedup;
+
+import com.all.in.one.agent.common.util.StateSnapshotFile;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 堆外指纹去重存储
+ * <p>
+ * 一张固定大小的堆外（DirectByteBuffer）开放寻址表，每个槽位 16 字节：
+ * 8 字节指纹键 + 8 字节元数据（高 40 位为过期时间毫秒，低 24 位为出现次数）。
+ * 内存在启动时一次性分配，百万级指纹只占几十 MB，运行期间不产生任何堆对象，
+ * 适合错误位置基数爆炸（消息里带 ID、发布事故等）时仍然保持去重能力
+ * </p>
+ * <p>
+ * 过期按时间判断，过期槽位原地复用，不做删除；
+ * 已存在键的计数更新是无锁 CAS，新键插入按键分段加锁，保证同一个键不会占用两个槽位。
+ * 探测范围内没有空闲或过期槽位时，淘汰其中最早过期的条目
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public class OffHeapFingerprintDedupStore implements FingerprintDedupStore {
+
+    private static final int SLOT_BYTES = 16;
+    private static final int META_OFFSET = 8;
+    private static final int MAX_PROBES = 32;
+    private static final int LOCK_STRIPES = 64;
+    private static final int MIN_SLOTS = 1 << 10;
+    private static final int MAX_SLOTS = 1 << 26;
+
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long EXPIRE_MASK = (1L << (64 - COUNT_BITS)) - 1;
+
+    /**
+     * 空槽位（从未使用）
+     */
+    private static final long EMPTY = 0L;
+
+    /**
+     * 槽位正在被插入线程改写
+     */
+    private static final long BUSY = -1L;
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer table;
+    private final int mask;
+    private final long windowMillis;
+    private final LongSupplier ticker;
+    private final long baseNanos;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    // 统计信息
+    private final LongAdder occupied = new LongAdder();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * @param maxEntries   预期最大条目数（按 0.75 负载因子换算槽位数）
+     * @param windowMillis 窗口长度（毫秒）
+     * @param ticker       单调时钟（纳秒）
+     */
+    public OffHeapFingerprintDedupStore(int maxEntries, long windowMillis, LongSupplier ticker) {
+        long wanted = Math.max(MIN_SLOTS, (long) Math.ceil(maxEntries / 0.75));
+        int slots = (int) Math.min(MAX_SLOTS, Long.highestOneBit(wanted - 1) << 1);
+        // CAS 要求 8 字节对齐
+        this.table = ByteBuffer.allocateDirect(slots * SLOT_BYTES + 8).alignedSlice(8).order(ByteOrder.nativeOrder());
+        this.mask = slots - 1;
+        this.windowMillis = Math.max(1, windowMillis);
+        this.ticker = ticker;
+        this.baseNanos = ticker.getAsLong();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public long recordOccurrence(long key) {
+        long now = nowMillis();
+        long hash = spread(key);
+        int home = (int) hash & mask;
+
+        // 快速路径：键已存在时无锁更新计数
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int slot = (home + probe) & mask;
+            long meta = meta(slot);
+            if (meta == EMPTY || meta == BUSY) {
+                break;
+            }
+            if (key(slot) == key) {
+                long result = update(slot, key, now);
+                if (result > 0) {
+                    hitCount.increment();
+                    return result;
+                }
+                break;
+            }
+        }
+
+        // 慢速路径：同一个键的插入串行执行，防止重复占用槽位
+        synchronized (locks[(int) (hash >>> 32) & (LOCK_STRIPES - 1)]) {
+            return insertOrUpdate(key, home, now, now + windowMillis, 1, true);
+        }
+    }
+
+    /**
+     * 插入新键，键已存在时按 updateExisting 决定是否累加计数
+     *
+     * @return 插入或更新后的出现次数，键已存在且不更新时返回 -1
+     */
+    private long insertOrUpdate(long key, int home, long now, long expiresAt, long count, boolean updateExisting) {
+        for (;;) {
+            int free = -1;
+            long freeMeta = 0;
+            int victim = -1;
+            long victimMeta = 0;
+
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                int slot = (home + probe) & mask;
+                long meta = awaitMeta(slot);
+                if (meta == EMPTY) {
+                    if (free < 0) {
+                        free = slot;
+                        freeMeta = EMPTY;
+                    }
+                    break;
+                }
+                if (key(slot) == key) {
+                    if (!updateExisting) {
+                        if (!isExpired(meta, now)) {
+                            return -1;
+                        }
+                        // 同一个键的过期槽位原地复用，避免一个键占用两个槽位
+                        free = slot;
+                        freeMeta = meta;
+                        break;
+                    }
+                    long result = update(slot, key, now);
+                    if (result > 0) {
+                        hitCount.increment();
+                        return result;
+                    }
+                    continue;
+                }
+                if (isExpired(meta, now)) {
+                    if (free < 0) {
+                        free = slot;
+                        freeMeta = meta;
+                    }
+                } else if (victim < 0 || expiresAt(meta) < expiresAt(victimMeta)) {
+                    victim = slot;
+                    victimMeta = meta;
+                }
+            }
+
+            int target = free >= 0 ? free : victim;
+            long expected = free >= 0 ? freeMeta : victimMeta;
+            if (target < 0 || !LONGS.compareAndSet(table, offset(target) + META_OFFSET, expected, BUSY)) {
+                // 槽位被其他键抢先改写，重新扫描
+                continue;
+            }
+
+            LONGS.setVolatile(table, offset(target), key);
+            LONGS.setVolatile(table, offset(target) + META_OFFSET, pack(expiresAt, count));
+            if (updateExisting) {
+                missCount.increment();
+            }
+            if (expected == EMPTY) {
+                occupied.increment();
+            } else if (free < 0) {
+                evictionCount.increment();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * 更新已存在键的计数
+     *
+     * @return 更新后的出现次数，槽位已被其他键占用时返回 -1
+     */
+    private long update(int slot, long key, long now) {
+        int metaOffset = offset(slot) + META_OFFSET;
+        for (;;) {
+            long meta = awaitMeta(slot);
+            if (meta == EMPTY || key(slot) != key) {
+                return -1;
+            }
+            if (isExpired(meta, now)) {
+                // 窗口已过，重新开始计数，CAS 成功者是新窗口唯一的放行者
+                if (LONGS.compareAndSet(table, metaOffset, meta, pack(now + windowMillis, 1))) {
+                    return 1;
+                }
+                continue;
+            }
+            long count = meta & COUNT_MASK;
+            if (count == COUNT_MASK) {
+                // 计数饱和，不再写入
+                return count + 1;
+            }
+            if (LONGS.compareAndSet(table, metaOffset, meta, meta + 1)) {
+                return count + 1;
+            }
+        }
+    }
+
+    @Override
+    public void addOccurrences(long key, long delta) {
+        long now = nowMillis();
+        int home = (int) spread(key) & mask;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int slot = (home + probe) & mask;
+            long meta = awaitMeta(slot);
+            if (meta == EMPTY) {
+                return;
+            }
+            if (key(slot) == key) {
+                int metaOffset = offset(slot) + META_OFFSET;
+                while (!isExpired(meta, now) && key(slot) == key) {
+                    long count = Math.min(COUNT_MASK, (meta & COUNT_MASK) + delta);
+                    if (LONGS.compareAndSet(table, metaOffset, meta, (meta & ~COUNT_MASK) | count)) {
+                        return;
+                    }
+                    meta = awaitMeta(slot);
+                }
+                return;
+            }
+        }
+    }
+
+    private long awaitMeta(int slot) {
+        long meta = meta(slot);
+        while (meta == BUSY) {
+            Thread.onSpinWait();
+            meta = meta(slot);
+        }
+        return meta;
+    }
+
+    private long meta(int slot) {
+        return (long) LONGS.getVolatile(table, offset(slot) + META_OFFSET);
+    }
+
+    private long key(int slot) {
+        return (long) LONGS.getVolatile(table, offset(slot));
+    }
+
+    private static int offset(int slot) {
+        return slot * SLOT_BYTES;
+    }
+
+    private long nowMillis() {
+        // 从 1 开始，保证元数据不会与 EMPTY 冲突
+        return (ticker.getAsLong() - baseNanos) / 1_000_000L + 1;
+    }
+
+    private static long pack(long expiresAt, long count) {
+        return ((expiresAt & EXPIRE_MASK) << COUNT_BITS) | (count & COUNT_MASK);
+    }
+
+    private static long expiresAt(long meta) {
+        return meta >>> COUNT_BITS;
+    }
+
+    private static boolean isExpired(long meta, long now) {
+        return now >= expiresAt(meta);
+    }
+
+    private static long spread(long key) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        return h ^ (h >>> 29);
+    }
+
+    @Override
+    public void exportEntries(StateSnapshotFile.EntrySink sink) {
+        long now = nowMillis();
+        for (int slot = 0; slot <= mask; slot++) {
+            long meta = meta(slot);
+            if (meta == EMPTY || meta == BUSY || isExpired(meta, now)) {
+                continue;
+            }
+            long key = key(slot);
+            // 读取键期间槽位可能被改写，元数据不变才说明键与计数一致
+            if (meta(slot) == meta) {
+                sink.accept(key, meta & COUNT_MASK, expiresAt(meta) - now);
+            }
+        }
+    }
+
+    @Override
+    public void restoreEntry(long key, long count, long remainingMillis) {
+        if (remainingMillis <= 0 || count <= 0) {
+            return;
+        }
+        long now = nowMillis();
+        long hash = spread(key);
+        synchronized (locks[(int) (hash >>> 32) & (LOCK_STRIPES - 1)]) {
+            insertOrUpdate(key, (int) hash & mask, now,
+                    now + Math.min(remainingMillis, windowMillis), Math.min(count, COUNT_MASK), false);
+        }
+    }
+
+    /**
+     * 槽位数
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 堆外内存占用（字节）
+     */
+    public long memoryBytes() {
+        return (long) capacity() * SLOT_BYTES;
+    }
+
+    @Override
+    public String getType() {
+        return "offheap";
+    }
+
+    @Override
+    public long size() {
+        return occupied.sum();
+    }
+
+    @Override
+    public double hitRate() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return total > 0 ? (double) hits / total : 0.0;
+    }
+
+    @Override
+    public long evictionCount() {
+        return evictionCount.sum();
+    }
+
+    @Override
+    public void clear() {
+        for (int slot = 0; slot <= mask; slot++) {
+            LONGS.setVolatile(table, offset(slot) + META_OFFSET, EMPTY);
+        }
+        occupied.reset();
+    }
+}
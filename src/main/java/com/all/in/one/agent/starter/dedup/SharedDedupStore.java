@@ -0,0 +1,30 @@
+package com.all.in.one.agent.starter.dedup;
+
+/**
+ * 集群共享去重存储 SPI
+ * <p>
+ * 多实例部署时，各节点把本地首次出现的指纹批量提交到共享存储认领，
+ * 只有认领成功的节点放行该指纹。实现可以基于 Redis（SET NX PX + pipeline）、数据库等，
+ * 必须保证：同一个键在 windowMillis 内只有一次认领成功。
+ * 注册为 Spring Bean 并配置 one-agent.dedup.storage=distributed 即可生效
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public interface SharedDedupStore {
+
+    /**
+     * 批量认领（一次往返）
+     *
+     * @param keys         去重键（只读取前 count 个）
+     * @param count        键数量
+     * @param windowMillis 认领有效期（毫秒）
+     * @return 每个键的认领结果，true=本次认领成功（集群内首次出现）
+     */
+    boolean[] claimAll(long[] keys, int count, long windowMillis);
+
+    /**
+     * 存储名称（用于日志和统计）
+     */
+    String getName();
+}
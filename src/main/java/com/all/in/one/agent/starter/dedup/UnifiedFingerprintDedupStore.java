@@ -0,0 +1,119 @@
+package com.all.in.one.agent.starter.dedup;
+
+import com.all.in.one.agent.common.util.StateSnapshotFile;
+import com.all.in.one.agent.starter.state.FingerprintState;
+import com.all.in.one.agent.starter.state.FingerprintStateTable;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 基于统一指纹状态表的去重存储
+ * <p>
+ * 去重窗口作为 {@link FingerprintState} 的一个字段，与频率计数、AI 决策、未关闭工单共用一条记录。
+ * 键始终是指纹哈希：滑动窗口在放行后 windowMillis 过期，滚动窗口在对齐窗口结束时过期
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public class UnifiedFingerprintDedupStore implements FingerprintDedupStore {
+
+    private final FingerprintStateTable table;
+    private final long windowMillis;
+    private final boolean tumbling;
+    private final LongSupplier clockMillis;
+
+    /**
+     * @param table        统一指纹状态表
+     * @param windowMillis 窗口长度（毫秒）
+     * @param tumbling     是否为滚动窗口
+     * @param clockMillis  墙上时钟（毫秒）
+     */
+    public UnifiedFingerprintDedupStore(FingerprintStateTable table,
+                                        long windowMillis,
+                                        boolean tumbling,
+                                        LongSupplier clockMillis) {
+        this.table = table;
+        this.windowMillis = windowMillis;
+        this.tumbling = tumbling;
+        this.clockMillis = clockMillis;
+    }
+
+    @Override
+    public long recordOccurrence(long fingerprintHash) {
+        long now = clockMillis.getAsLong();
+        FingerprintState state = table.state(fingerprintHash);
+        long occurrence = state.recordDedup(now, windowExpireAt(now));
+        if (occurrence == 1) {
+            table.touch(fingerprintHash, state);
+        }
+        return occurrence;
+    }
+
+    @Override
+    public void addOccurrences(long fingerprintHash, long delta) {
+        FingerprintState state = table.peek(fingerprintHash);
+        if (state != null) {
+            state.addDedup(delta, clockMillis.getAsLong());
+        }
+    }
+
+    @Override
+    public boolean windowAware() {
+        return true;
+    }
+
+    @Override
+    public void exportEntries(StateSnapshotFile.EntrySink sink) {
+        long now = clockMillis.getAsLong();
+        table.forEach((fingerprintHash, state) -> {
+            long count = state.dedupCount(now);
+            if (count > 0) {
+                sink.accept(fingerprintHash, count, state.dedupExpiresAt() - now);
+            }
+        });
+    }
+
+    @Override
+    public void restoreEntry(long fingerprintHash, long count, long remainingMillis) {
+        long now = clockMillis.getAsLong();
+        FingerprintState state = table.state(fingerprintHash);
+        state.restoreDedup(count, now + remainingMillis, now);
+        table.touch(fingerprintHash, state);
+    }
+
+    @Override
+    public String getType() {
+        return "unified";
+    }
+
+    @Override
+    public long size() {
+        return table.size();
+    }
+
+    @Override
+    public double hitRate() {
+        return table.hitRate();
+    }
+
+    @Override
+    public long evictionCount() {
+        return table.evictionCount();
+    }
+
+    @Override
+    public void clear() {
+        // 只清除去重窗口，保留其他层的状态
+        table.forEach((fingerprintHash, state) -> state.clearDedup());
+    }
+
+    /**
+     * 新窗口的过期时刻
+     */
+    private long windowExpireAt(long now) {
+        if (tumbling) {
+            return (Math.floorDiv(now, windowMillis) + 1) * windowMillis;
+        }
+        return now + windowMillis;
+    }
+}
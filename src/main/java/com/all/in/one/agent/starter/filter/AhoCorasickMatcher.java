@@ -0,0 +1,148 @@
+package com.all.in.one.agent.starter.filter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick 多模式匹配自动机
+ * <p>
+ * 把所有关键词编译成一个自动机，一次扫描输入即可判断是否包含任意关键词，
+ * 耗时与输入长度成正比，与关键词数量无关
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+final class AhoCorasickMatcher {
+
+    private static final char[] NO_LABELS = new char[0];
+    private static final int[] NO_TARGETS = new int[0];
+
+    private final char[][] labels;
+    private final int[][] targets;
+    private final int[] fail;
+    private final boolean[] output;
+    private final boolean ignoreCase;
+    private final boolean empty;
+
+    /**
+     * @param patterns   关键词
+     * @param ignoreCase 是否忽略大小写
+     */
+    AhoCorasickMatcher(Collection<String> patterns, boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        this.empty = patterns.isEmpty();
+
+        // 1. 构建关键词树
+        List<char[]> nodeLabels = new ArrayList<>();
+        List<int[]> nodeTargets = new ArrayList<>();
+        List<Boolean> nodeOutput = new ArrayList<>();
+        nodeLabels.add(NO_LABELS);
+        nodeTargets.add(NO_TARGETS);
+        nodeOutput.add(false);
+        for (String pattern : patterns) {
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = normalize(pattern.charAt(i));
+                int next = find(nodeLabels.get(state), nodeTargets.get(state), c);
+                if (next < 0) {
+                    next = nodeLabels.size();
+                    nodeLabels.add(NO_LABELS);
+                    nodeTargets.add(NO_TARGETS);
+                    nodeOutput.add(false);
+                    insert(nodeLabels, nodeTargets, state, c, next);
+                }
+                state = next;
+            }
+            nodeOutput.set(state, true);
+        }
+
+        int size = nodeLabels.size();
+        this.labels = nodeLabels.toArray(new char[0][]);
+        this.targets = nodeTargets.toArray(new int[0][]);
+        this.output = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            output[i] = nodeOutput.get(i);
+        }
+
+        // 2. 广度优先计算失败指针，并沿失败指针合并输出
+        this.fail = new int[size];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            fail[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < labels[state].length; i++) {
+                char c = labels[state][i];
+                int child = targets[state][i];
+                int f = fail[state];
+                int next = find(labels[f], targets[f], c);
+                while (next < 0 && f != 0) {
+                    f = fail[f];
+                    next = find(labels[f], targets[f], c);
+                }
+                fail[child] = next >= 0 && next != child ? next : 0;
+                output[child] |= output[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * 判断输入是否包含任意关键词
+     */
+    boolean matches(String text) {
+        if (output[0]) {
+            // 存在空关键词，任何输入都包含
+            return true;
+        }
+        int state = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = normalize(text.charAt(i));
+            int next = find(labels[state], targets[state], c);
+            while (next < 0 && state != 0) {
+                state = fail[state];
+                next = find(labels[state], targets[state], c);
+            }
+            state = next >= 0 ? next : 0;
+            if (output[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private char normalize(char c) {
+        return ignoreCase ? Character.toLowerCase(c) : c;
+    }
+
+    private static int find(char[] nodeLabels, int[] nodeTargets, char c) {
+        int index = Arrays.binarySearch(nodeLabels, c);
+        return index >= 0 ? nodeTargets[index] : -1;
+    }
+
+    private static void insert(List<char[]> nodeLabels, List<int[]> nodeTargets, int state, char c, int target) {
+        char[] oldLabels = nodeLabels.get(state);
+        int[] oldTargets = nodeTargets.get(state);
+        int insertAt = -Arrays.binarySearch(oldLabels, c) - 1;
+        char[] newLabels = new char[oldLabels.length + 1];
+        int[] newTargets = new int[oldTargets.length + 1];
+        System.arraycopy(oldLabels, 0, newLabels, 0, insertAt);
+        System.arraycopy(oldTargets, 0, newTargets, 0, insertAt);
+        newLabels[insertAt] = c;
+        newTargets[insertAt] = target;
+        System.arraycopy(oldLabels, insertAt, newLabels, insertAt + 1, oldLabels.length - insertAt);
+        System.arraycopy(oldTargets, insertAt, newTargets, insertAt + 1, oldTargets.length - insertAt);
+        nodeLabels.set(state, newLabels);
+        nodeTargets.set(state, newTargets);
+    }
+}
@@ -0,0 +1,184 @@
+package com.all.in.one.agent.starter.filter;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 编译后的忽略清单（不可变）
+ * <p>
+ * 启动或刷新时由 {@link IgnoreListProperties} 编译生成：
+ * - 应用名、环境、异常类型、精确错误位置、"*.方法名" 使用哈希集合
+ * - 包前缀、"类名.*" 错误位置使用前缀树
+ * - 消息关键词、HTTP 状态码各编译为一个 Aho-Corasick 自动机
+ * 每项检查的耗时只与输入长度有关，与清单条目数量无关
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public final class CompiledIgnoreList {
+
+    private final Set<String> appNames;
+    private final Set<String> environments;
+    private final Set<String> exceptionTypes;
+    private final PrefixTrie packagePrefixes;
+    private final Set<String> exactLocations;
+    private final Set<String> locationMethodNames;
+    private final PrefixTrie locationClassPrefixes;
+    private final AhoCorasickMatcher messageKeywords;
+    private final AhoCorasickMatcher httpStatusCodes;
+
+    private CompiledIgnoreList(IgnoreListProperties properties) {
+        this.appNames = Set.copyOf(properties.getAppNames());
+        this.environments = Set.copyOf(properties.getEnvironments());
+        this.exceptionTypes = Set.copyOf(properties.getExceptionTypes());
+        this.packagePrefixes = new PrefixTrie(properties.getPackagePrefixes());
+
+        // 错误位置模式：精确匹配对所有模式生效；"*.方法名" 和 "类名.*" 分别编译
+        Set<String> methodNames = new HashSet<>();
+        List<String> classPrefixes = new ArrayList<>();
+        for (String pattern : properties.getErrorLocations()) {
+            if (pattern.startsWith("*.")) {
+                methodNames.add(pattern.substring(2));
+            } else if (pattern.endsWith(".*")) {
+                // 保留末尾的 "."，与 location.startsWith(className + ".") 等价
+                classPrefixes.add(pattern.substring(0, pattern.length() - 1));
+            }
+        }
+        this.exactLocations = Set.copyOf(properties.getErrorLocations());
+        this.locationMethodNames = Set.copyOf(methodNames);
+        this.locationClassPrefixes = new PrefixTrie(classPrefixes);
+
+        this.messageKeywords = new AhoCorasickMatcher(properties.getMessageKeywords(), true);
+        List<String> statusCodes = new ArrayList<>();
+        for (Integer statusCode : properties.getHttpStatusCodes()) {
+            statusCodes.add(statusCode.toString());
+        }
+        this.httpStatusCodes = new AhoCorasickMatcher(statusCodes, false);
+    }
+
+    /**
+     * 编译忽略清单
+     */
+    public static CompiledIgnoreList compile(IgnoreListProperties properties) {
+        return new CompiledIgnoreList(properties);
+    }
+
+    /**
+     * 匹配异常信息
+     *
+     * @return 命中的忽略原因，未命中返回 null
+     */
+    public Reason match(ExceptionInfo exceptionInfo) {
+        String appName = exceptionInfo.getAppName();
+        if (appName != null && appNames.contains(appName)) {
+            return Reason.APP_NAME;
+        }
+
+        String environment = exceptionInfo.getEnvironment();
+        if (environment != null && environments.contains(environment)) {
+            return Reason.ENVIRONMENT;
+        }
+
+        if (matchesExceptionType(exceptionInfo.getExceptionType())) {
+            return Reason.EXCEPTION_TYPE;
+        }
+
+        String errorLocation = exceptionInfo.getErrorLocation();
+        if (errorLocation != null) {
+            if (matchesPackage(errorLocation)) {
+                return Reason.PACKAGE;
+            }
+            if (matchesErrorLocation(errorLocation)) {
+                return Reason.ERROR_LOCATION;
+            }
+        }
+
+        String message = exceptionInfo.getExceptionMessage();
+        if (message != null) {
+            if (!messageKeywords.isEmpty() && messageKeywords.matches(message)) {
+                return Reason.MESSAGE_KEYWORD;
+            }
+            if (!httpStatusCodes.isEmpty() && httpStatusCodes.matches(message)) {
+                return Reason.HTTP_STATUS;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * 异常类型：完整类名或简单类名命中即可
+     */
+    private boolean matchesExceptionType(String exceptionType) {
+        if (exceptionType == null || exceptionTypes.isEmpty()) {
+            return false;
+        }
+        if (exceptionTypes.contains(exceptionType)) {
+            return true;
+        }
+        int lastDot = exceptionType.lastIndexOf('.');
+        return lastDot >= 0 && exceptionTypes.contains(exceptionType.substring(lastDot + 1));
+    }
+
+    /**
+     * 包前缀：取错误位置中的类名部分（去掉方法名和行号）做前缀匹配
+     */
+    private boolean matchesPackage(String errorLocation) {
+        if (packagePrefixes.isEmpty()) {
+            return false;
+        }
+        int end = errorLocation.lastIndexOf('.');
+        if (end < 0) {
+            end = errorLocation.length();
+        }
+        int colon = errorLocation.indexOf(':');
+        if (colon >= 0 && colon < end) {
+            end = colon;
+        }
+        return packagePrefixes.matchesPrefix(errorLocation, end);
+    }
+
+    /**
+     * 错误位置：精确匹配、"*.方法名"、"类名.*"
+     */
+    private boolean matchesErrorLocation(String errorLocation) {
+        if (exactLocations.isEmpty()) {
+            return false;
+        }
+        if (exactLocations.contains(errorLocation)) {
+            return true;
+        }
+        if (!locationMethodNames.isEmpty() && locationMethodNames.contains(extractMethodName(errorLocation))) {
+            return true;
+        }
+        return locationClassPrefixes.matchesPrefix(errorLocation, errorLocation.length());
+    }
+
+    /**
+     * 从错误位置中提取方法名
+     * 例如: "com.example.Controller.health:123" → "health"
+     */
+    private static String extractMethodName(String location) {
+        int colon = location.indexOf(':');
+        int end = colon >= 0 ? colon : location.length();
+        int lastDot = location.lastIndexOf('.', end - 1);
+        return location.substring(lastDot + 1, end);
+    }
+
+    /**
+     * 忽略原因
+     */
+    public enum Reason {
+        APP_NAME,
+        ENVIRONMENT,
+        EXCEPTION_TYPE,
+        PACKAGE,
+        ERROR_LOCATION,
+        MESSAGE_KEYWORD,
+        HTTP_STATUS
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Component;
  * 第 0 层：基础过滤器
  * <p>
  * 基于静态黑名单快速过滤明确不需要处理的异常
+ * 黑名单在启动时编译为 {@link CompiledIgnoreList}，调用 {@link #refresh()} 可重新编译
  * 预期过滤率: ~10%
  * 性能: < 1ms
  * </p>
@@ -19,6 +20,7 @@ import org.springframework.stereotype.Component;
 public class IgnoreListFilter {
 
     private final IgnoreListProperties properties;
+    private volatile CompiledIgnoreList compiled;
 
     // 统计信息
     private long totalChecked = 0;
@@ -26,6 +28,7 @@ public class IgnoreListFilter {
 
     public IgnoreListFilter(IgnoreListProperties properties) {
         this.properties = properties;
+        this.compiled = CompiledIgnoreList.compile(properties);
         logConfiguration();
     }
 
@@ -42,234 +45,39 @@ public class IgnoreListFilter {
 
         totalChecked++;
 
-        // 1. 检查应用名称
-        if (shouldIgnoreByAppName(exceptionInfo.getAppName())) {
-            totalFiltered++;
-            log.debug("基础过滤: 应用名称匹配黑名单, app={}", exceptionInfo.getAppName());
-            return true;
-        }
-
-        // 2. 检查环境
-        if (shouldIgnoreByEnvironment(exceptionInfo.getEnvironment())) {
-            totalFiltered++;
-            log.debug("基础过滤: 环境匹配黑名单, env={}", exceptionInfo.getEnvironment());
-            return true;
-        }
-
-        // 3. 检查异常类型（完整类名）
-        if (shouldIgnoreByExceptionType(exceptionInfo.getExceptionType())) {
-            totalFiltered++;
-            log.debug("基础过滤: 异常类型匹配黑名单, type={}", exceptionInfo.getExceptionType());
-            return true;
-        }
-
-        // 4. 检查包前缀
-        if (shouldIgnoreByPackage(exceptionInfo.getErrorLocation())) {
-            totalFiltered++;
-            log.debug("基础过滤: 包前缀匹配黑名单, location={}", exceptionInfo.getErrorLocation());
-            return true;
-        }
-
-        // 5. 检查错误位置
-        if (shouldIgnoreByErrorLocation(exceptionInfo.getErrorLocation())) {
-            totalFiltered++;
-            log.debug("基础过滤: 错误位置匹配黑名单, location={}", exceptionInfo.getErrorLocation());
-            return true;
-        }
-
-        // 6. 检查异常消息关键词
-        if (shouldIgnoreByMessage(exceptionInfo.getExceptionMessage())) {
-            totalFiltered++;
-            log.debug("基础过滤: 异常消息包含黑名单关键词, message={}",
-                exceptionInfo.getExceptionMessage());
-            return true;
-        }
-
-        // 7. 检查 HTTP 状态码（如果有）
-        if (shouldIgnoreByHttpStatus(exceptionInfo)) {
-            totalFiltered++;
-            log.debug("基础过滤: HTTP 状态码匹配黑名单");
-            return true;
-        }
-
-        return false;
-    }
-
-    /**
-     * 检查应用名称
-     */
-    private boolean shouldIgnoreByAppName(String appName) {
-        if (appName == null || properties.getAppNames().isEmpty()) {
-            return false;
-        }
-        return properties.getAppNames().contains(appName);
-    }
-
-    /**
-     * 检查环境
-     */
-    private boolean shouldIgnoreByEnvironment(String environment) {
-        if (environment == null || properties.getEnvironments().isEmpty()) {
-            return false;
-        }
-        return properties.getEnvironments().contains(environment);
-    }
-
-    /**
-     * 检查异常类型
-     * 支持完整类名和简单类名匹配
-     */
-    private boolean shouldIgnoreByExceptionType(String exceptionType) {
-        if (exceptionType == null || properties.getExceptionTypes().isEmpty()) {
-            return false;
-        }
-
-        // 完全匹配
-        if (properties.getExceptionTypes().contains(exceptionType)) {
-            return true;
-        }
-
-        // 简单类名匹配
-        String simpleClassName = exceptionType.contains(".")
-            ? exceptionType.substring(exceptionType.lastIndexOf('.') + 1)
-            : exceptionType;
-
-        return properties.getExceptionTypes().contains(simpleClassName);
-    }
-
-    /**
-     * 检查包前缀
-     */
-    private boolean shouldIgnoreByPackage(String errorLocation) {
-        if (errorLocation == null || properties.getPackagePrefixes().isEmpty()) {
-            return false;
-        }
-
-        // 提取类名部分（去掉方法名和行号）
-        String className = errorLocation.contains(".")
-            ? errorLocation.substring(0, errorLocation.lastIndexOf('.'))
-            : errorLocation;
-
-        // 去掉方法名后的内容
-        if (className.contains(":")) {
-            className = className.substring(0, className.indexOf(':'));
-        }
-
-        // 检查是否匹配任何包前缀
-        for (String prefix : properties.getPackagePrefixes()) {
-            if (className.startsWith(prefix)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    /**
-     * 检查错误位置
-     * 支持精确匹配和通配符匹配
-     * 例如: "com.example.Controller.health" 或 "*.health"
-     */
-    private boolean shouldIgnoreByErrorLocation(String errorLocation) {
-        if (errorLocation == null || properties.getErrorLocations().isEmpty()) {
+        CompiledIgnoreList.Reason reason = compiled.match(exceptionInfo);
+        if (reason == null) {
             return false;
         }
 
-        for (String pattern : properties.getErrorLocations()) {
-            if (matchesLocationPattern(errorLocation, pattern)) {
-                return true;
-            }
+        totalFiltered++;
+        if (log.isDebugEnabled()) {
+            logFiltered(reason, exceptionInfo);
         }
-
-        return false;
+        return true;
     }
 
     /**
-     * 匹配位置模式
+     * 按当前配置重新编译忽略清单（原子替换，不影响正在进行的检查）
      */
-    private boolean matchesLocationPattern(String location, String pattern) {
-        // 精确匹配
-        if (location.equals(pattern)) {
-            return true;
-        }
-
-        // 通配符匹配: *.methodName
-        if (pattern.startsWith("*.")) {
-            String methodName = pattern.substring(2);
-            // 提取 location 中的方法名
-            String locMethodName = extractMethodName(location);
-            return methodName.equals(locMethodName);
-        }
-
-        // 通配符匹配: ClassName.*
-        if (pattern.endsWith(".*")) {
-            String className = pattern.substring(0, pattern.length() - 2);
-            return location.startsWith(className + ".");
-        }
-
-        return false;
-    }
-
-    /**
-     * 从错误位置中提取方法名
-     * 例如: "com.example.Controller.health:123" → "health"
-     */
-    private String extractMethodName(String location) {
-        if (location == null) {
-            return "";
-        }
-
-        // 去掉行号
-        String withoutLine = location.contains(":")
-            ? location.substring(0, location.indexOf(':'))
-            : location;
-
-        // 提取最后一个点之后的内容
-        return withoutLine.contains(".")
-            ? withoutLine.substring(withoutLine.lastIndexOf('.') + 1)
-            : withoutLine;
-    }
-
-    /**
-     * 检查异常消息关键词
-     */
-    private boolean shouldIgnoreByMessage(String message) {
-        if (message == null || properties.getMessageKeywords().isEmpty()) {
-            return false;
-        }
-
-        String lowerMessage = message.toLowerCase();
-        for (String keyword : properties.getMessageKeywords()) {
-            if (lowerMessage.contains(keyword.toLowerCase())) {
-                return true;
-            }
-        }
-
-        return false;
+    public void refresh() {
+        long start = System.nanoTime();
+        this.compiled = CompiledIgnoreList.compile(properties);
+        log.info("第 0 层忽略清单已重新编译 - 耗时={}μs", (System.nanoTime() - start) / 1000);
+        logConfiguration();
     }
 
-    /**
-     * 检查 HTTP 状态码
-     * 从 ExceptionInfo 的扩展字段中提取
-     */
-    private boolean shouldIgnoreByHttpStatus(ExceptionInfo exceptionInfo) {
-        if (properties.getHttpStatusCodes().isEmpty()) {
-            return false;
-        }
-
-        // 尝试从异常消息中提取状态码（如果是 HTTP 异常）
-        // 例如: "404 Not Found" 或 "HTTP 404"
-        String message = exceptionInfo.getExceptionMessage();
-        if (message != null) {
-            for (Integer statusCode : properties.getHttpStatusCodes()) {
-                if (message.contains(statusCode.toString()) ||
-                    message.contains("HTTP " + statusCode)) {
-                    return true;
-                }
-            }
+    private void logFiltered(CompiledIgnoreList.Reason reason, ExceptionInfo exceptionInfo) {
+        switch (reason) {
+            case APP_NAME -> log.debug("基础过滤: 应用名称匹配黑名单, app={}", exceptionInfo.getAppName());
+            case ENVIRONMENT -> log.debug("基础过滤: 环境匹配黑名单, env={}", exceptionInfo.getEnvironment());
+            case EXCEPTION_TYPE -> log.debug("基础过滤: 异常类型匹配黑名单, type={}", exceptionInfo.getExceptionType());
+            case PACKAGE -> log.debug("基础过滤: 包前缀匹配黑名单, location={}", exceptionInfo.getErrorLocation());
+            case ERROR_LOCATION -> log.debug("基础过滤: 错误位置匹配黑名单, location={}", exceptionInfo.getErrorLocation());
+            case MESSAGE_KEYWORD -> log.debug("基础过滤: 异常消息包含黑名单关键词, message={}",
+                    exceptionInfo.getExceptionMessage());
+            case HTTP_STATUS -> log.debug("基础过滤: HTTP 状态码匹配黑名单");
         }
-
-        return false;
     }
 
     /**
@@ -0,0 +1,90 @@
+package com.all.in.one.agent.starter.filter;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 字符前缀树
+ * <p>
+ * 判断输入是否以任意一个已登记的前缀开头，耗时只与输入长度有关，与前缀数量无关
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+final class PrefixTrie {
+
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Node root = new Node();
+    private final boolean empty;
+
+    PrefixTrie(Collection<String> prefixes) {
+        for (String prefix : prefixes) {
+            Node node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.childOrCreate(prefix.charAt(i));
+            }
+            node.terminal = true;
+        }
+        this.empty = prefixes.isEmpty();
+    }
+
+    boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * 判断 text[0, end) 是否以任意已登记的前缀开头
+     */
+    boolean matchesPrefix(String text, int end) {
+        Node node = root;
+        if (node.terminal) {
+            return true;
+        }
+        for (int i = 0; i < end; i++) {
+            node = node.child(text.charAt(i));
+            if (node == null) {
+                return false;
+            }
+            if (node.terminal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 树节点，子节点按字符有序存放，二分查找
+     */
+    private static final class Node {
+        private char[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+        private boolean terminal;
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(labels, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int index = Arrays.binarySearch(labels, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            Node created = new Node();
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newLabels[insertAt] = c;
+            newChildren[insertAt] = created;
+            System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            labels = newLabels;
+            children = newChildren;
+            return created;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.all.in.one.agent.starter.filter;
+
+import java.util.List;
+
+/**
+ * Throwable 级别的快速忽略匹配器（不可变）
+ * <p>
+ * 在构建 ExceptionInfo 之前使用：
+ * - 异常类型：按异常类缓存判断结果（ClassValue），同一个类只计算一次；
+ *   匹配考虑继承关系，忽略某个异常类型即同时忽略其所有子类
+ * - 栈顶类的包路径：编译为前缀树匹配
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public final class ThrowableIgnoreMatcher {
+
+    private final List<String> ignoredExceptions;
+    private final PrefixTrie ignoredPackages;
+
+    private final ClassValue<Boolean> ignoredTypes = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return matchesHierarchy(type);
+        }
+    };
+
+    /**
+     * @param ignoredExceptions 忽略的异常类型（完整类名、简单类名或类名后缀）
+     * @param ignoredPackages   忽略的包路径前缀（匹配栈顶类）
+     */
+    public ThrowableIgnoreMatcher(List<String> ignoredExceptions, List<String> ignoredPackages) {
+        this.ignoredExceptions = List.copyOf(ignoredExceptions);
+        this.ignoredPackages = new PrefixTrie(ignoredPackages);
+    }
+
+    /**
+     * 判断异常是否应该被忽略
+     */
+    public boolean shouldIgnore(Throwable throwable) {
+        if (!ignoredExceptions.isEmpty() && ignoredTypes.get(throwable.getClass())) {
+            return true;
+        }
+
+        if (ignoredPackages.isEmpty()) {
+            return false;
+        }
+        StackTraceElement[] stackTrace = throwable.getStackTrace();
+        if (stackTrace != null && stackTrace.length > 0) {
+            String firstClassName = stackTrace[0].getClassName();
+            return ignoredPackages.matchesPrefix(firstClassName, firstClassName.length());
+        }
+        return false;
+    }
+
+    /**
+     * 沿继承链向上检查（到 Throwable 为止）
+     */
+    private boolean matchesHierarchy(Class<?> type) {
+        for (Class<?> current = type; current != null && Throwable.class.isAssignableFrom(current);
+             current = current.getSuperclass()) {
+            String className = current.getName();
+            for (String ignoredException : ignoredExceptions) {
+                if (className.equals(ignoredException) || className.endsWith("." + ignoredException)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -138,6 +138,7 @@ public class HttpLogFilter implements Filter {
         context.setQueryString(request.getQueryString());
         context.setClientIp(getClientIp(request));
         context.setUserAgent(request.getHeader("User-Agent"));
+        parseTraceparent(context, request.getHeader("traceparent"));
 
         return context;
     }
@@ -344,6 +345,39 @@ public class HttpLogFilter implements Filter {
         return traceId;
     }
 
+    /**
+     * 解析 W3C Trace Context 请求头
+     * 格式: {version}-{trace-id 32位十六进制}-{parent-id 16位十六进制}-{flags}
+     * 例如: 00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01
+     */
+    private void parseTraceparent(HttpLogContext context, String traceparent) {
+        if (traceparent == null || traceparent.length() < 55) {
+            return;
+        }
+        String value = traceparent.trim();
+        if (value.length() < 55 || value.charAt(2) != '-' || value.charAt(35) != '-' || value.charAt(52) != '-') {
+            return;
+        }
+        String traceId = value.substring(3, 35);
+        String parentId = value.substring(36, 52);
+        if (isLowerHex(traceId) && isLowerHex(parentId)
+                && !traceId.equals("00000000000000000000000000000000")
+                && !parentId.equals("0000000000000000")) {
+            context.setTraceparentTraceId(traceId);
+            context.setTraceparentSpanId(parentId);
+        }
+    }
+
+    private boolean isLowerHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * 获取客户端 IP
      */
@@ -386,6 +420,8 @@ public class HttpLogFilter implements Filter {
         private long startTime;
         private String requestId;
         private String traceId;
+        private String traceparentTraceId;
+        private String traceparentSpanId;
         private String method;
         private String uri;
         private String queryString;
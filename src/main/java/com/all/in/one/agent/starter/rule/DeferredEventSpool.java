@@ -0,0 +1,105 @@
+package com.all.in.one.agent.starter.rule;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.common.util.FingerprintAggregator;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 静默时段延迟队列
+ * <p>
+ * 静默时段内被延迟的低优先级异常按指纹合并：每个指纹只保留第一条事件，另外累计次数和首次/最后出现时间。
+ * 静默时段结束后一次性 {@link #drain()}，每个指纹生成一条告警（携带真实次数），而不是每条事件一条
+ * </p>
+ * <p>
+ * 按指纹合并由 {@link FingerprintAggregator} 完成，取出之后到达的事件进入下一批；
+ * 指纹数达到上限后新指纹不再入队（计入 dropped），已入队指纹仍然累加。
+ * 保留的事件在入队前生成完整堆栈和请求信息，不再引用原始异常对象和请求上下文
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public class DeferredEventSpool {
+
+    private final FingerprintAggregator<ExceptionInfo> aggregator;
+
+    public DeferredEventSpool(int maxFingerprints) {
+        this.aggregator = new FingerprintAggregator<>(maxFingerprints);
+    }
+
+    /**
+     * 延迟一条事件
+     *
+     * @return false=队列已满，事件未入队
+     */
+    public boolean defer(ExceptionInfo exceptionInfo, long nowMillis) {
+        long occurredAt = exceptionInfo.getOccurredAt() != null
+                ? exceptionInfo.getOccurredAt().toEpochMilli()
+                : nowMillis;
+        return aggregator.add(exceptionInfo.getFingerprintHash(), occurredAt, () -> {
+            // 静默时段可能持续数小时：保留前先生成延迟字段，释放对异常对象和请求上下文的引用
+            exceptionInfo.materialize();
+            return exceptionInfo;
+        });
+    }
+
+    /**
+     * 取出并清空所有延迟事件（每个指纹一条）
+     */
+    public List<DeferredEvent> drain() {
+        List<FingerprintAggregator.Aggregate<ExceptionInfo>> aggregates = aggregator.drain();
+        List<DeferredEvent> result = new ArrayList<>(aggregates.size());
+        for (FingerprintAggregator.Aggregate<ExceptionInfo> aggregate : aggregates) {
+            result.add(DeferredEvent.builder()
+                    .exceptionInfo(aggregate.getFirst())
+                    .count(aggregate.getCount())
+                    .firstSeenAt(Instant.ofEpochMilli(aggregate.getFirstSeen()))
+                    .lastSeenAt(Instant.ofEpochMilli(aggregate.getLastSeen()))
+                    .build());
+        }
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return aggregator.isEmpty();
+    }
+
+    public int size() {
+        return aggregator.size();
+    }
+
+    public long deferredCount() {
+        return aggregator.addedCount();
+    }
+
+    public long releasedCount() {
+        return aggregator.drainedCount();
+    }
+
+    public long droppedCount() {
+        return aggregator.droppedCount();
+    }
+
+    /**
+     * 单个指纹在静默时段内被延迟的事件
+     */
+    @Data
+    @Builder
+    public static class DeferredEvent {
+        /**
+         * 该指纹的第一条事件（释放时代表整个指纹发送）
+         */
+        private ExceptionInfo exceptionInfo;
+
+        /**
+         * 静默时段内的总次数（含第一条）
+         */
+        private long count;
+        private Instant firstSeenAt;
+        private Instant lastSeenAt;
+    }
+}
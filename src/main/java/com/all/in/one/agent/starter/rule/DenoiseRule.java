@@ -44,4 +44,12 @@ public interface DenoiseRule {
     default boolean isEnabled() {
         return true;
     }
+
+    /**
+     * 规则是否依赖执行顺序
+     * 有副作用（如延迟发送、累计计数）的规则返回 true，启用自适应排序时固定在按优先级排序的位置
+     */
+    default boolean isOrderSensitive() {
+        return false;
+    }
 }
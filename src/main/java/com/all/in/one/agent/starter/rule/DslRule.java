@@ -0,0 +1,373 @@
+package com.all.in.one.agent.starter.rule;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.starter.rule.dsl.CompiledDslRuleSet;
+import com.all.in.one.agent.starter.severity.SeverityClassifier;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 声明式规则（DSL）
+ * <p>
+ * 在配置中用表达式声明降噪规则，无需为每条规则编写 {@link DenoiseRule} 并重新发布，
+ * 表达式语法见 {@link com.all.in.one.agent.starter.rule.dsl.DslParser}
+ * </p>
+ * <p>
+ * 规则在启动和重新加载时编译为 {@link CompiledDslRuleSet}，整体原子替换，检查过程不加锁；
+ * 新规则编译失败时保留原规则集。规则来源：配置中的 rules（或通过接口下发的规则）加上外部规则文件，
+ * 规则文件修改后由定时任务自动重新加载
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Slf4j
+@Component
+public class DslRule implements DenoiseRule {
+
+    private final RuleEngineProperties properties;
+    private final SeverityClassifier severityClassifier;
+    private final LongSupplier ticker;
+    private volatile CompiledDslRuleSet compiled = CompiledDslRuleSet.empty();
+
+    /**
+     * 本线程最近一次命中的规则（规则引擎在 shouldFilter 之后立即在同一线程调用 getReason）
+     */
+    private final ThreadLocal<CompiledDslRuleSet.CompiledRule> lastMatched = new ThreadLocal<>();
+
+    /**
+     * 通过接口下发的规则，为 null 时使用配置中的规则
+     */
+    private volatile List<RuleEngineProperties.DslRuleDefinition> runtimeRules;
+    private volatile long rulesFileModified = -1;
+    private volatile Instant lastReloadAt;
+    private volatile String lastReloadError;
+    private final LongAdder reloadCount = new LongAdder();
+
+    // 统计信息
+    private final LongAdder totalChecked = new LongAdder();
+    private final LongAdder totalFiltered = new LongAdder();
+
+    @Autowired
+    public DslRule(RuleEngineProperties properties, SeverityClassifier severityClassifier) {
+        this(properties, severityClassifier, System::nanoTime);
+    }
+
+    DslRule(RuleEngineProperties properties, SeverityClassifier severityClassifier, LongSupplier ticker) {
+        this.properties = properties;
+        this.severityClassifier = severityClassifier;
+        this.ticker = ticker;
+
+        if (properties.getDsl().isEnabled()) {
+            try {
+                refresh();
+            } catch (IllegalArgumentException e) {
+                // 启动时规则有误不影响应用启动，修正后重新加载即可
+                log.error("DSL 规则编译失败，暂不启用任何 DSL 规则 - error={}", e.getMessage());
+            }
+        }
+        log.info("DSL 规则已初始化 - enabled={}, ruleCount={}, rulesFile={}",
+                properties.getDsl().isEnabled(), compiled.getRuleCount(), properties.getDsl().getRulesFile());
+    }
+
+    @Override
+    public boolean shouldFilter(ExceptionInfo exceptionInfo) {
+        if (!isEnabled()) {
+            return false;
+        }
+
+        totalChecked.increment();
+        CompiledDslRuleSet.CompiledRule matched = compiled.match(exceptionInfo);
+        if (matched == null) {
+            return false;
+        }
+
+        totalFiltered.increment();
+        lastMatched.set(matched);
+        if (log.isDebugEnabled()) {
+            log.debug("DSL 规则命中 - rule={}, type={}, location={}",
+                    matched.getName(), exceptionInfo.getExceptionType(), exceptionInfo.getErrorLocation());
+        }
+        return true;
+    }
+
+    /**
+     * 按当前规则来源（配置或接口下发的规则 + 规则文件）重新编译并原子替换
+     *
+     * @throws IllegalArgumentException 规则有误（保留原规则集）
+     */
+    public synchronized void refresh() {
+        List<RuleEngineProperties.DslRuleDefinition> definitions = new ArrayList<>(
+                runtimeRules != null ? runtimeRules : properties.getDsl().getRules());
+        Path rulesFile = rulesFilePath();
+        long modified = -1;
+        if (rulesFile != null) {
+            try {
+                modified = Files.exists(rulesFile) ? Files.getLastModifiedTime(rulesFile).toMillis() : -1;
+                definitions.addAll(readRulesFile(rulesFile));
+            } catch (IOException e) {
+                throw fail(new IllegalArgumentException("读取 DSL 规则文件失败 - file=" + rulesFile + ", error=" + e.getMessage(), e));
+            } catch (IllegalArgumentException e) {
+                rulesFileModified = modified;
+                throw fail(e);
+            }
+        }
+
+        long start = System.nanoTime();
+        CompiledDslRuleSet next;
+        try {
+            next = CompiledDslRuleSet.compile(definitions, severityClassifier,
+                    properties.getDsl().getMaxTrackedFingerprints(), ticker);
+        } catch (IllegalArgumentException e) {
+            // 记下文件修改时间，同一份有误的文件不反复重试，再次修改后重新加载
+            rulesFileModified = modified;
+            throw fail(e);
+        }
+        this.compiled = next;
+        this.rulesFileModified = modified;
+        this.lastReloadAt = Instant.now();
+        this.lastReloadError = null;
+        reloadCount.increment();
+        log.info("DSL 规则已编译 - rules={}, nodes={}, sharedNodes={}, indexedRules={}, rateConditions={}, 耗时={}μs",
+                next.getRuleCount(), next.getNodeCount(), next.getSharedNodeCount(),
+                next.getIndexedRuleCount(), next.getRateConditionCount(), (System.nanoTime() - start) / 1000);
+    }
+
+    /**
+     * 用接口下发的规则替换配置中的规则（规则文件中的规则仍然生效）
+     *
+     * @param definitions 新规则，为 null 时恢复使用配置中的规则
+     * @throws IllegalArgumentException 规则有误（保留原规则集）
+     */
+    public synchronized void reload(List<RuleEngineProperties.DslRuleDefinition> definitions) {
+        List<RuleEngineProperties.DslRuleDefinition> previous = runtimeRules;
+        runtimeRules = definitions != null ? List.copyOf(definitions) : null;
+        try {
+            refresh();
+        } catch (IllegalArgumentException e) {
+            runtimeRules = previous;
+            throw e;
+        }
+    }
+
+    /**
+     * 规则文件修改过则重新加载（定时任务调用，失败只记录日志）
+     *
+     * @return 是否重新加载
+     */
+    public boolean reloadIfRulesFileChanged() {
+        Path rulesFile = rulesFilePath();
+        if (rulesFile == null) {
+            return false;
+        }
+        long modified;
+        try {
+            modified = Files.exists(rulesFile) ? Files.getLastModifiedTime(rulesFile).toMillis() : -1;
+        } catch (IOException e) {
+            log.warn("检查 DSL 规则文件失败 - file={}, error={}", rulesFile, e.getMessage());
+            return false;
+        }
+        if (modified == rulesFileModified) {
+            return false;
+        }
+        try {
+            refresh();
+            return true;
+        } catch (IllegalArgumentException e) {
+            log.error("DSL 规则文件重新加载失败，保留原规则 - file={}, error={}", rulesFile, e.getMessage());
+            return false;
+        }
+    }
+
+    private IllegalArgumentException fail(IllegalArgumentException e) {
+        this.lastReloadError = e.getMessage();
+        return e;
+    }
+
+    private Path rulesFilePath() {
+        String rulesFile = properties.getDsl().getRulesFile();
+        return rulesFile == null || rulesFile.isBlank() ? null : Path.of(rulesFile);
+    }
+
+    /**
+     * 读取 properties 格式的规则文件：名称.when、名称.reason、名称.enabled，按名称排序
+     */
+    static List<RuleEngineProperties.DslRuleDefinition> readRulesFile(Path rulesFile) throws IOException {
+        if (!Files.exists(rulesFile)) {
+            return List.of();
+        }
+        Properties entries = new Properties();
+        try (Reader reader = Files.newBufferedReader(rulesFile, StandardCharsets.UTF_8)) {
+            entries.load(reader);
+        }
+        Map<String, RuleEngineProperties.DslRuleDefinition> byName = new TreeMap<>();
+        for (String key : entries.stringPropertyNames()) {
+            int dot = key.lastIndexOf('.');
+            if (dot <= 0) {
+                throw new IllegalArgumentException("DSL 规则文件格式错误，应为 名称.when=表达式 - key=" + key);
+            }
+            String name = key.substring(0, dot);
+            String value = entries.getProperty(key).trim();
+            RuleEngineProperties.DslRuleDefinition definition = byName.computeIfAbsent(name, ignored -> {
+                RuleEngineProperties.DslRuleDefinition created = new RuleEngineProperties.DslRuleDefinition();
+                created.setName(name);
+                return created;
+            });
+            switch (key.substring(dot + 1)) {
+                case "when" -> definition.setWhen(value);
+                case "reason" -> definition.setReason(value);
+                case "enabled" -> definition.setEnabled(Boolean.parseBoolean(value));
+                default -> throw new IllegalArgumentException("DSL 规则文件格式错误，未知属性 - key=" + key);
+            }
+        }
+        return new ArrayList<>(byName.values());
+    }
+
+    @Override
+    public String getRuleName() {
+        return "DslRule";
+    }
+
+    @Override
+    public String getReason() {
+        CompiledDslRuleSet.CompiledRule matched = lastMatched.get();
+        return matched != null
+                ? String.format("命中 DSL 规则 [%s]：%s", matched.getName(), matched.getReason())
+                : "命中 DSL 规则";
+    }
+
+    @Override
+    public int getPriority() {
+        return properties.getDsl().getPriority();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return isDslEnabled() && !compiled.isEmpty();
+    }
+
+    /**
+     * 规则引擎和 DSL 开关是否都已打开（不考虑当前是否有规则）
+     */
+    public boolean isDslEnabled() {
+        return properties.isEnabled() && properties.getDsl().isEnabled();
+    }
+
+    @Override
+    public boolean isOrderSensitive() {
+        return compiled.getRateConditionCount() > 0; // rate(...) 只统计执行到该规则的事件
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public DslStats getStats() {
+        CompiledDslRuleSet current = compiled;
+        long checked = totalChecked.sum();
+        long filtered = totalFiltered.sum();
+        List<DslRuleStats> rules = new ArrayList<>(current.getRuleCount());
+        for (CompiledDslRuleSet.CompiledRule rule : current.getRules()) {
+            rules.add(DslRuleStats.builder()
+                    .name(rule.getName())
+                    .expression(rule.getExpression())
+                    .compiledForm(rule.getCompiledForm())
+                    .reason(rule.getReason())
+                    .hits(rule.getHits())
+                    .build());
+        }
+        return DslStats.builder()
+                .enabled(isEnabled())
+                .ruleCount(current.getRuleCount())
+                .nodeCount(current.getNodeCount())
+                .sharedNodeCount(current.getSharedNodeCount())
+                .indexedRuleCount(current.getIndexedRuleCount())
+                .rateConditionCount(current.getRateConditionCount())
+                .runtimeRules(runtimeRules != null)
+                .rulesFile(properties.getDsl().getRulesFile())
+                .reloadCount(reloadCount.sum())
+                .lastReloadAt(lastReloadAt)
+                .lastReloadError(lastReloadError)
+                .totalChecked(checked)
+                .totalFiltered(filtered)
+                .filterRate(checked > 0 ? (double) filtered / checked : 0.0)
+                .rules(rules)
+                .build();
+    }
+
+    /**
+     * 重置统计
+     */
+    public void resetStats() {
+        totalChecked.reset();
+        totalFiltered.reset();
+    }
+
+    /**
+     * 统计信息
+     */
+    @Data
+    @Builder
+    public static class DslStats {
+        private boolean enabled;
+
+        /**
+         * 规则数、去重后的谓词节点数、同一事件内只求值一次的共享节点数、按等值条件索引的规则数、rate 条件数
+         */
+        private int ruleCount;
+        private int nodeCount;
+        private int sharedNodeCount;
+        private int indexedRuleCount;
+        private int rateConditionCount;
+
+        /**
+         * 是否使用接口下发的规则（否则使用配置中的规则）
+         */
+        private boolean runtimeRules;
+        private String rulesFile;
+        private long reloadCount;
+        private Instant lastReloadAt;
+
+        /**
+         * 最近一次重新加载失败的原因（成功后清空）
+         */
+        private String lastReloadError;
+
+        private long totalChecked;
+        private long totalFiltered;
+        private double filterRate;
+        private List<DslRuleStats> rules;
+    }
+
+    /**
+     * 单条 DSL 规则的统计
+     */
+    @Data
+    @Builder
+    public static class DslRuleStats {
+        private String name;
+        private String expression;
+
+        /**
+         * 编译后的规范形式（子条件已按开销排序、合并）
+         */
+        private String compiledForm;
+        private String reason;
+        private long hits;
+    }
+}
@@ -1,12 +1,13 @@
 package com.all.in.one.agent.starter.rule;
 
 import com.all.in.one.agent.common.model.ExceptionInfo;
-import com.all.in.one.agent.service.TicketGenerationService;
+import com.all.in.one.agent.starter.severity.SeverityClassifier;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 环境规则
@@ -22,16 +23,16 @@ import java.util.List;
 public class EnvironmentRule implements DenoiseRule {
 
     private final RuleEngineProperties properties;
-    private final TicketGenerationService ticketGenerationService;
+    private final SeverityClassifier severityClassifier;
 
     // 统计信息
-    private long totalChecked = 0;
-    private long totalFiltered = 0;
+    private final LongAdder totalChecked = new LongAdder();
+    private final LongAdder totalFiltered = new LongAdder();
 
     public EnvironmentRule(RuleEngineProperties properties,
-                          TicketGenerationService ticketGenerationService) {
+                          SeverityClassifier severityClassifier) {
         this.properties = properties;
-        this.ticketGenerationService = ticketGenerationService;
+        this.severityClassifier = severityClassifier;
 
         log.info("环境规则已初始化 - enabled={}, testFilterSeverities={}, prodFilterSeverities={}",
                 properties.getEnvironment().isEnabled(),
@@ -45,15 +46,15 @@ public class EnvironmentRule implements DenoiseRule {
             return false;
         }
 
-        totalChecked++;
+        totalChecked.increment();
 
         String environment = exceptionInfo.getEnvironment();
         if (environment == null || environment.isEmpty()) {
             return false; // 未知环境，不过滤
         }
 
-        // 计算严重级别
-        String severity = ticketGenerationService.calculateSeverity(exceptionInfo);
+        // 严重级别（每个事件只分级一次）
+        String severity = severityClassifier.classify(exceptionInfo);
 
         // 判断是否应该过滤
         boolean shouldFilter = false;
@@ -76,7 +77,7 @@ public class EnvironmentRule implements DenoiseRule {
         }
 
         if (shouldFilter) {
-            totalFiltered++;
+            totalFiltered.increment();
         }
 
         return shouldFilter;
@@ -122,10 +123,12 @@ public class EnvironmentRule implements DenoiseRule {
      * 获取统计信息
      */
     public EnvironmentStats getStats() {
+        long checked = totalChecked.sum();
+        long filtered = totalFiltered.sum();
         return EnvironmentStats.builder()
-                .totalChecked(totalChecked)
-                .totalFiltered(totalFiltered)
-                .filterRate(totalChecked > 0 ? (double) totalFiltered / totalChecked : 0.0)
+                .totalChecked(checked)
+                .totalFiltered(filtered)
+                .filterRate(checked > 0 ? (double) filtered / checked : 0.0)
                 .build();
     }
 
@@ -133,8 +136,8 @@ public class EnvironmentRule implements DenoiseRule {
      * 重置统计
      */
     public void resetStats() {
-        totalChecked = 0;
-        totalFiltered = 0;
+        totalChecked.reset();
+        totalFiltered.reset();
     }
 
     /**
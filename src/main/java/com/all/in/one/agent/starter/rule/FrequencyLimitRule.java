@@ -1,21 +1,39 @@
 package com.all.in.one.agent.starter.rule;
 
 import com.all.in.one.agent.common.model.ExceptionInfo;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
+import com.all.in.one.agent.common.util.FingerprintGenerator;
+import com.all.in.one.agent.common.util.LocalRejectCache;
+import com.all.in.one.agent.common.util.LongKeyedCache;
+import com.all.in.one.agent.common.util.StateSnapshotFile;
+import com.all.in.one.agent.starter.state.FingerprintState;
+import com.all.in.one.agent.starter.state.FingerprintStateTable;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 频率限制规则
  * <p>
  * 防止异常风暴：同一指纹在时间窗口内超过指定次数则过滤
  * </p>
+ * <p>
+ * 指纹超过限制后，该窗口剩余时间内的结果已经确定，由线程本地拒绝缓存直接过滤，
+ * 本地计数定期合并回共享频率记录，热点指纹不再争用同一个计数器
+ * </p>
+ * <p>
+ * 启用统一指纹状态表（{@link FingerprintStateTable}）时，频率计数作为指纹状态的一个字段保存，不再单独维护缓存
+ * </p>
+ * <p>
+ * 启用分层令牌桶（{@link HierarchicalRateLimiter}）时，未超过窗口限制的异常再依次经过指纹、应用、全局令牌桶，
+ * 大量不同指纹同时涌入时由应用层和全局层限流
+ * </p>
  *
  * @author One Agent 4J
  */
@@ -23,26 +41,59 @@ import java.util.concurrent.atomic.AtomicInteger;
 @Component
 public class FrequencyLimitRule implements DenoiseRule {
 
+    /**
+     * 线程本地计数累计到该值或超过该间隔时合并回共享频率记录
+     */
+    private static final int LOCAL_FLUSH_THRESHOLD = 64;
+    private static final long LOCAL_FLUSH_INTERVAL_MILLIS = 100;
+
     private final RuleEngineProperties properties;
-    private final Cache<String, FrequencyRecord> frequencyCache;
+    private final LongKeyedCache<FrequencyRecord> frequencyCache;
+    private final FingerprintStateTable stateTable;
+    private final LocalRejectCache localCache;
+    private final HierarchicalRateLimiter rateLimiter;
 
     // 统计信息
-    private long totalChecked = 0;
-    private long totalFiltered = 0;
+    private final LongAdder totalChecked = new LongAdder();
+    private final LongAdder totalFiltered = new LongAdder();
 
     public FrequencyLimitRule(RuleEngineProperties properties) {
+        this(properties, (FingerprintStateTable) null);
+    }
+
+    @Autowired
+    public FrequencyLimitRule(RuleEngineProperties properties, ObjectProvider<FingerprintStateTable> stateTable) {
+        this(properties, stateTable.getIfAvailable());
+    }
+
+    /**
+     * @param stateTable 统一指纹状态表，为 null 时使用独立的频率缓存
+     */
+    public FrequencyLimitRule(RuleEngineProperties properties, FingerprintStateTable stateTable) {
         this.properties = properties;
+        this.stateTable = stateTable;
 
         // 初始化频率缓存
-        this.frequencyCache = Caffeine.newBuilder()
-                .expireAfterWrite(properties.getFrequencyLimit().getWindowMinutes(), TimeUnit.MINUTES)
-                .maximumSize(10000)
-                .build();
+        this.frequencyCache = stateTable == null
+                ? new LongKeyedCache<>(
+                        Math.max(1, properties.getFrequencyLimit().getMaxTrackedFingerprints()),
+                        properties.getFrequencyLimit().getWindowMinutes(),
+                        TimeUnit.MINUTES)
+                : null;
+        this.localCache = properties.getFrequencyLimit().getLocalCacheSlots() > 0
+                ? new LocalRejectCache(properties.getFrequencyLimit().getLocalCacheSlots(),
+                        LOCAL_FLUSH_THRESHOLD, LOCAL_FLUSH_INTERVAL_MILLIS, this::addCount)
+                : null;
+        this.rateLimiter = properties.getFrequencyLimit().getTokenBucket().isEnabled()
+                ? new HierarchicalRateLimiter(properties.getFrequencyLimit().getTokenBucket())
+                : null;
 
-        log.info("频率限制规则已初始化 - enabled={}, window={}分钟, maxCount={}",
+        log.info("频率限制规则已初始化 - enabled={}, window={}分钟, maxCount={}, unifiedState={}, tokenBucket={}",
                 properties.getFrequencyLimit().isEnabled(),
                 properties.getFrequencyLimit().getWindowMinutes(),
-                properties.getFrequencyLimit().getMaxCount());
+                properties.getFrequencyLimit().getMaxCount(),
+                stateTable != null,
+                rateLimiter != null);
     }
 
     @Override
@@ -51,30 +102,72 @@ public class FrequencyLimitRule implements DenoiseRule {
             return false;
         }
 
-        totalChecked++;
-        String fingerprint = exceptionInfo.getFingerprint();
+        totalChecked.increment();
+        long fingerprintHash = exceptionInfo.getFingerprintHash();
         int maxCount = properties.getFrequencyLimit().getMaxCount();
 
-        // 获取或创建频率记录
-        FrequencyRecord record = frequencyCache.get(fingerprint, key -> {
-            log.debug("创建新的频率记录 - fingerprint={}", fingerprint);
-            return new FrequencyRecord(System.currentTimeMillis(), new AtomicInteger(1));
-        });
+        // L0：本线程已知超限的指纹直接过滤
+        long now = System.currentTimeMillis();
+        if (localCache != null && localCache.tryReject(fingerprintHash, now)) {
+            totalFiltered.increment();
+            return true;
+        }
+
+        long windowMillis = TimeUnit.MINUTES.toMillis(properties.getFrequencyLimit().getWindowMinutes());
+        int currentCount;
+        long firstSeenTime;
+        if (stateTable != null) {
+            // 统一状态表：频率窗口是指纹状态的一个字段
+            FingerprintState state = stateTable.state(fingerprintHash);
+            currentCount = state.recordFrequency(now, windowMillis);
+            firstSeenTime = state.frequencyWindowStart();
+            if (firstSeenTime == now) {
+                stateTable.touch(fingerprintHash, state);
+            }
+        } else {
+            // 获取或创建频率记录
+            FrequencyRecord record = frequencyCache.get(fingerprintHash, key -> {
+                if (log.isDebugEnabled()) {
+                    log.debug("创建新的频率记录 - fingerprint={}", FingerprintGenerator.toHex(key));
+                }
+                return new FrequencyRecord(System.currentTimeMillis(), new AtomicInteger(1));
+            });
 
-        // 增加计数
-        int currentCount = record.getCount().incrementAndGet();
+            // 增加计数
+            currentCount = record.getCount().incrementAndGet();
+            firstSeenTime = record.getFirstSeenTime();
+        }
 
         // 判断是否超过频率限制
         if (currentCount > maxCount) {
-            totalFiltered++;
-            log.debug("频率限制触发 - fingerprint={}, count={}/{}, age={}ms",
-                    fingerprint,
-                    currentCount,
-                    maxCount,
-                    System.currentTimeMillis() - record.getFirstSeenTime());
+            totalFiltered.increment();
+            if (localCache != null) {
+                // 超限结论在频率记录过期前一直成立
+                localCache.remember(fingerprintHash, firstSeenTime + windowMillis, now);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("频率限制触发 - fingerprint={}, count={}/{}, age={}ms",
+                        FingerprintGenerator.toHex(fingerprintHash),
+                        currentCount,
+                        maxCount,
+                        now - firstSeenTime);
+            }
             return true;
         }
 
+        // 分层令牌桶：指纹 → 应用 → 全局
+        if (rateLimiter != null) {
+            HierarchicalRateLimiter.Level level = rateLimiter.tryAcquire(fingerprintHash, exceptionInfo.getAppName());
+            if (level != null) {
+                totalFiltered.increment();
+                if (log.isDebugEnabled()) {
+                    log.debug("令牌桶限流触发 - fingerprint={}, appName={}, level={}",
+                            FingerprintGenerator.toHex(fingerprintHash), exceptionInfo.getAppName(), level);
+                }
+                return true;
+            }
+        }
+
         return false;
     }
 
@@ -95,20 +188,101 @@ public class FrequencyLimitRule implements DenoiseRule {
         return 10; // 高优先级，尽早过滤异常风暴
     }
 
+    @Override
+    public boolean isOrderSensitive() {
+        return true; // 每次检查都会累计频率计数，前面的规则变化会改变计入窗口的事件，超限时刻随之改变
+    }
+
     @Override
     public boolean isEnabled() {
         return properties.isEnabled() && properties.getFrequencyLimit().isEnabled();
     }
 
+    /**
+     * 合并线程本地计数
+     */
+    private void addCount(long fingerprintHash, long count) {
+        if (stateTable != null) {
+            FingerprintState state = stateTable.peek(fingerprintHash);
+            if (state != null) {
+                state.addFrequency(count, System.currentTimeMillis());
+            }
+            return;
+        }
+        FrequencyRecord record = frequencyCache.getIfPresent(fingerprintHash);
+        if (record != null) {
+            record.getCount().addAndGet((int) Math.min(Integer.MAX_VALUE, count));
+        }
+    }
+
+    /**
+     * 合并空闲线程上残留的本地拒绝计数（由定时任务调用）
+     */
+    public void flushLocalCache() {
+        if (localCache != null) {
+            localCache.flushIdle(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 导出所有未过期的频率记录（用于快照）
+     *
+     * @param sink 接收指纹、窗口内次数和剩余存活毫秒
+     */
+    public void exportEntries(StateSnapshotFile.EntrySink sink) {
+        if (stateTable != null) {
+            long now = System.currentTimeMillis();
+            stateTable.forEach((key, state) -> {
+                int count = state.frequencyCount(now);
+                if (count > 0) {
+                    sink.accept(key, count, state.frequencyExpiresAt() - now);
+                }
+            });
+            return;
+        }
+        frequencyCache.forEach((key, record, remainingNanos) ->
+                sink.accept(key, record.getCount().get(), TimeUnit.NANOSECONDS.toMillis(remainingNanos)));
+    }
+
+    /**
+     * 恢复一条频率记录（指纹已有记录时不覆盖）
+     */
+    public void restoreEntry(long fingerprintHash, long count, long remainingMillis) {
+        long windowMillis = TimeUnit.MINUTES.toMillis(properties.getFrequencyLimit().getWindowMinutes());
+        long firstSeenTime = System.currentTimeMillis() - Math.max(0, windowMillis - remainingMillis);
+        int restoredCount = (int) Math.min(Integer.MAX_VALUE, Math.max(0, count));
+        if (stateTable != null) {
+            long now = System.currentTimeMillis();
+            FingerprintState state = stateTable.state(fingerprintHash);
+            state.restoreFrequency(restoredCount, firstSeenTime, now + remainingMillis, now);
+            stateTable.touch(fingerprintHash, state);
+            return;
+        }
+        frequencyCache.putIfAbsent(fingerprintHash,
+                new FrequencyRecord(firstSeenTime, new AtomicInteger(restoredCount)),
+                remainingMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 频率窗口（分钟），快照按此区分配置
+     */
+    public int getWindowMinutes() {
+        return properties.getFrequencyLimit().getWindowMinutes();
+    }
+
     /**
      * 获取统计信息
      */
     public FrequencyLimitStats getStats() {
+        long checked = totalChecked.sum();
+        long filtered = totalFiltered.sum();
         return FrequencyLimitStats.builder()
-                .totalChecked(totalChecked)
-                .totalFiltered(totalFiltered)
-                .filterRate(totalChecked > 0 ? (double) totalFiltered / totalChecked : 0.0)
-                .cacheSize(frequencyCache.estimatedSize())
+                .totalChecked(checked)
+                .totalFiltered(filtered)
+                .filterRate(checked > 0 ? (double) filtered / checked : 0.0)
+                .cacheSize(stateTable != null ? stateTable.size() : frequencyCache.estimatedSize())
+                .localRejected(localCache != null ? localCache.hitCount() : 0)
+                .rateLimit(rateLimiter != null ? rateLimiter.getStats() : null)
                 .build();
     }
 
@@ -116,8 +290,11 @@ public class FrequencyLimitRule implements DenoiseRule {
      * 重置统计
      */
     public void resetStats() {
-        totalChecked = 0;
-        totalFiltered = 0;
+        totalChecked.reset();
+        totalFiltered.reset();
+        if (rateLimiter != null) {
+            rateLimiter.resetStats();
+        }
     }
 
     /**
@@ -140,5 +317,15 @@ public class FrequencyLimitRule implements DenoiseRule {
         private long totalFiltered;
         private double filterRate;
         private long cacheSize;
+
+        /**
+         * 线程本地缓存直接过滤的次数（已合并部分）
+         */
+        private long localRejected;
+
+        /**
+         * 分层令牌桶各层的拒绝次数（未启用时为 null）
+         */
+        private HierarchicalRateLimiter.RateLimitStats rateLimit;
     }
 }
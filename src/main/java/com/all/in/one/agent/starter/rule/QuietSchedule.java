@@ -0,0 +1,234 @@
+package com.all.in.one.agent.starter.rule;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 静默时段日历（预编译）
+ * <p>
+ * 启动时把静默时段配置解析为（星期集合, 开始分钟, 结束分钟）窗口列表。
+ * 判断时缓存当前所处区间的状态和下一个边界时刻，边界之前只需比较时间戳，
+ * 到达边界后才按时区重新计算一次（夏令时切换按时区规则处理）
+ * </p>
+ * <p>
+ * 窗口格式：{@code [星期] HH[:mm]-HH[:mm]}，星期可写单日、列表或范围，如 {@code MON-FRI 22:00-08:00}、
+ * {@code SAT,SUN 0-24}；省略星期表示每天。结束时间不大于开始时间时跨到次日
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Slf4j
+public final class QuietSchedule {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final List<Window> windows;
+    private final ZoneId zone;
+    // 初始状态为空区间，第一次判断时计算
+    private volatile State state = new State(false, Long.MIN_VALUE, Long.MIN_VALUE);
+
+    private QuietSchedule(List<Window> windows, ZoneId zone) {
+        this.windows = windows;
+        this.zone = zone;
+    }
+
+    /**
+     * 编译静默时段配置（格式错误的窗口记录警告后忽略）
+     *
+     * @param quietHours 每天生效的时段，多个用逗号分隔，如 "2-6" 或 "22:30-06:00,12-13"
+     * @param schedules  按星期生效的时段
+     * @param zoneId     时区，为空时使用系统默认时区
+     */
+    public static QuietSchedule compile(String quietHours, List<String> schedules, String zoneId) {
+        List<Window> windows = new ArrayList<>();
+        if (quietHours != null && !quietHours.isBlank()) {
+            for (String part : quietHours.split(",")) {
+                addWindow(windows, part);
+            }
+        }
+        if (schedules != null) {
+            for (String schedule : schedules) {
+                addWindow(windows, schedule);
+            }
+        }
+
+        ZoneId zone = ZoneId.systemDefault();
+        if (zoneId != null && !zoneId.isBlank()) {
+            try {
+                zone = ZoneId.of(zoneId.trim());
+            } catch (Exception e) {
+                log.warn("静默时段时区无效，使用系统默认时区 - zoneId={}", zoneId);
+            }
+        }
+        return new QuietSchedule(List.copyOf(windows), zone);
+    }
+
+    /**
+     * 指定时刻是否处于静默时段
+     */
+    public boolean isQuiet(long nowMillis) {
+        State current = state;
+        if (nowMillis < current.nextBoundary && nowMillis >= current.from) {
+            return current.quiet;
+        }
+        current = evaluate(nowMillis);
+        state = current;
+        return current.quiet;
+    }
+
+    /**
+     * 当前状态的下一个边界时刻（毫秒，没有配置窗口时为 Long.MAX_VALUE）
+     */
+    public long nextBoundary(long nowMillis) {
+        isQuiet(nowMillis);
+        return state.nextBoundary;
+    }
+
+    public boolean isEmpty() {
+        return windows.isEmpty();
+    }
+
+    /**
+     * 计算包含指定时刻的区间：从前一天开始的窗口可能跨到今天，向后最多找一周
+     */
+    private State evaluate(long nowMillis) {
+        if (windows.isEmpty()) {
+            return new State(false, Long.MAX_VALUE, Long.MIN_VALUE);
+        }
+        LocalDate today = Instant.ofEpochMilli(nowMillis).atZone(zone).toLocalDate();
+        boolean quiet = false;
+        long from = Long.MIN_VALUE;
+        long next = Long.MAX_VALUE;
+        for (int offset = -1; offset <= 7; offset++) {
+            LocalDate date = today.plusDays(offset);
+            for (Window window : windows) {
+                if (!window.days.contains(date.getDayOfWeek())) {
+                    continue;
+                }
+                long start = epochMillis(date, window.startMinute);
+                long end = epochMillis(window.endMinute <= window.startMinute ? date.plusDays(1) : date,
+                        window.endMinute);
+                if (start <= nowMillis && nowMillis < end) {
+                    quiet = true;
+                }
+                for (long boundary : new long[]{start, end}) {
+                    if (boundary <= nowMillis) {
+                        from = Math.max(from, boundary);
+                    } else {
+                        next = Math.min(next, boundary);
+                    }
+                }
+            }
+        }
+        // 扫描范围内没有更早的边界时，只确定从当前时刻开始的状态
+        return new State(quiet, next, from != Long.MIN_VALUE ? from : nowMillis);
+    }
+
+    private long epochMillis(LocalDate date, int minuteOfDay) {
+        ZonedDateTime time = minuteOfDay >= MINUTES_PER_DAY
+                ? date.plusDays(1).atStartOfDay(zone)
+                : date.atTime(LocalTime.of(minuteOfDay / 60, minuteOfDay % 60)).atZone(zone);
+        return time.toInstant().toEpochMilli();
+    }
+
+    private static void addWindow(List<Window> windows, String expression) {
+        String text = expression.trim();
+        if (text.isEmpty()) {
+            return;
+        }
+        try {
+            Set<DayOfWeek> days = EnumSet.allOf(DayOfWeek.class);
+            int space = text.lastIndexOf(' ');
+            if (space > 0) {
+                days = parseDays(text.substring(0, space).trim());
+                text = text.substring(space + 1);
+            }
+            String[] parts = text.split("-");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("应为 HH[:mm]-HH[:mm] 格式");
+            }
+            int start = parseMinute(parts[0]);
+            int end = parseMinute(parts[1]);
+            if (start == end || start >= MINUTES_PER_DAY) {
+                throw new IllegalArgumentException("开始时间和结束时间无效");
+            }
+            windows.add(new Window(days, start, end));
+        } catch (Exception e) {
+            log.warn("静默时段格式错误，已忽略 - expression={}, error={}", expression, e.getMessage());
+        }
+    }
+
+    private static Set<DayOfWeek> parseDays(String text) {
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        for (String part : text.split(",")) {
+            String[] range = part.trim().split("-");
+            DayOfWeek first = parseDay(range[0]);
+            DayOfWeek last = range.length > 1 ? parseDay(range[1]) : first;
+            for (DayOfWeek day = first; ; day = day.plus(1)) {
+                days.add(day);
+                if (day == last) {
+                    break;
+                }
+            }
+        }
+        return days;
+    }
+
+    private static DayOfWeek parseDay(String text) {
+        String name = text.trim().toUpperCase(Locale.ROOT);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (day.name().startsWith(name) && name.length() >= 3) {
+                return day;
+            }
+        }
+        throw new IllegalArgumentException("无法识别的星期: " + text);
+    }
+
+    private static int parseMinute(String text) {
+        String[] parts = text.trim().split(":");
+        int hour = Integer.parseInt(parts[0].trim());
+        int minute = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 0;
+        if (hour < 0 || hour > 24 || minute < 0 || minute >= 60 || (hour == 24 && minute > 0)) {
+            throw new IllegalArgumentException("时间超出范围: " + text);
+        }
+        return hour * 60 + minute;
+    }
+
+    private static final class Window {
+        private final Set<DayOfWeek> days;
+        private final int startMinute;
+        private final int endMinute;
+
+        Window(Set<DayOfWeek> days, int startMinute, int endMinute) {
+            this.days = days;
+            this.startMinute = startMinute;
+            this.endMinute = endMinute;
+        }
+    }
+
+    /**
+     * [from, nextBoundary) 区间内静默状态不变
+     */
+    private static final class State {
+        private final boolean quiet;
+        private final long nextBoundary;
+        private final long from;
+
+        State(boolean quiet, long nextBoundary, long from) {
+            this.quiet = quiet;
+            this.nextBoundary = nextBoundary;
+            this.from = from;
+        }
+    }
+}
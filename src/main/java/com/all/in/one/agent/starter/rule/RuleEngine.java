@@ -1,20 +1,39 @@
 package com.all.in.one.agent.starter.rule;
 
 import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.common.util.FingerprintGenerator;
+import com.all.in.one.agent.common.util.LatencyHistogram;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 规则引擎
  * <p>
  * 按优先级执行所有规则，任何一个规则匹配则过滤
  * </p>
+ * <p>
+ * 每个规则单独统计执行次数、命中次数、异常次数和执行耗时分布（p50/p99/max），
+ * 耗时按 1/N 采样记录到 {@link LatencyHistogram}，计数使用 {@link LongAdder}，开销可忽略
+ * </p>
+ * <p>
+ * 启用自适应排序后，{@link #reorder()} 定期用上一周期的实测平均耗时 c 和命中率 p 估算每条规则
+ * "每过滤一个事件的成本" c/p，不依赖顺序的规则按 c/p 从小到大重排（短路过滤下的最优顺序），
+ * {@link DenoiseRule#isOrderSensitive()} 的规则固定在按优先级排序的位置。
+ * 命中率是规则在当前位置上的条件命中率，按规则之间相互独立近似；新顺序的预期每事件耗时
+ * 至少降低 minImprovement 才切换。执行顺序是不可变数组，整体替换，评估时无锁读取
+ * </p>
  *
  * @author One Agent 4J
  */
@@ -24,10 +43,20 @@ public class RuleEngine {
 
     private final List<DenoiseRule> rules;
     private final RuleEngineProperties properties;
+    private final RuleMetrics[] metrics;
+    private final int timingSampleRate;
+
+    /**
+     * 当前执行顺序（rules 下标），调整时整体替换
+     */
+    private volatile int[] order;
+    private volatile String orderReason = "按静态优先级执行";
+    private volatile Instant lastReorderAt;
+    private final LongAdder reorderCount = new LongAdder();
 
     // 统计信息
-    private long totalChecked = 0;
-    private long totalFiltered = 0;
+    private final LongAdder totalChecked = new LongAdder();
+    private final LongAdder totalFiltered = new LongAdder();
 
     public RuleEngine(List<DenoiseRule> rules, RuleEngineProperties properties) {
         this.rules = rules;
@@ -35,11 +64,20 @@ public class RuleEngine {
 
         // 按优先级排序
         this.rules.sort(Comparator.comparingInt(DenoiseRule::getPriority));
+        this.metrics = new RuleMetrics[rules.size()];
+        for (int i = 0; i < metrics.length; i++) {
+            metrics[i] = new RuleMetrics();
+        }
+        this.timingSampleRate = Math.max(0, properties.getMetrics().getTimingSampleRate());
+        this.order = new int[rules.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
 
-        log.info("规则引擎已初始化 - enabled={}, ruleCount={}",
-                properties.isEnabled(), rules.size());
-        rules.forEach(rule -> log.info("  - {} (priority={}, enabled={})",
-                rule.getRuleName(), rule.getPriority(), rule.isEnabled()));
+        log.info("规则引擎已初始化 - enabled={}, ruleCount={}, timingSampleRate={}, adaptiveOrder={}",
+                properties.isEnabled(), rules.size(), timingSampleRate, properties.getAdaptiveOrder().isEnabled());
+        rules.forEach(rule -> log.info("  - {} (priority={}, enabled={}, pinned={})",
+                rule.getRuleName(), rule.getPriority(), rule.isEnabled(), isPinned(rule)));
     }
 
     /**
@@ -53,25 +91,39 @@ public class RuleEngine {
             return FilterResult.pass();
         }
 
-        totalChecked++;
+        totalChecked.increment();
 
-        // 遍历所有规则（按优先级）
-        for (DenoiseRule rule : rules) {
+        // 按 1/N 采样本事件是否记录耗时
+        boolean timed = timingSampleRate == 1
+                || (timingSampleRate > 1 && ThreadLocalRandom.current().nextInt(timingSampleRate) == 0);
+
+        // 遍历所有规则（按当前执行顺序）
+        for (int index : order) {
+            DenoiseRule rule = rules.get(index);
             if (!rule.isEnabled()) {
                 continue;
             }
 
+            RuleMetrics ruleMetrics = metrics[index];
+            ruleMetrics.evaluated.increment();
+            long startNanos = timed ? System.nanoTime() : 0;
             try {
-                if (rule.shouldFilter(exceptionInfo)) {
+                boolean filtered = rule.shouldFilter(exceptionInfo);
+                if (timed) {
+                    ruleMetrics.latency.record(System.nanoTime() - startNanos);
+                }
+                if (filtered) {
                     // 规则匹配，过滤此异常
-                    totalFiltered++;
+                    ruleMetrics.matched.increment();
+                    totalFiltered.increment();
                     log.info("规则引擎过滤异常 - fingerprint={}, rule={}, reason={}",
-                            exceptionInfo.getFingerprint(),
+                            FingerprintGenerator.toHex(exceptionInfo.getFingerprintHash()),
                             rule.getRuleName(),
                             rule.getReason());
                     return FilterResult.filtered(rule.getRuleName(), rule.getReason());
                 }
             } catch (Exception e) {
+                ruleMetrics.errors.increment();
                 log.error("规则执行失败 - rule={}, error={}",
                         rule.getRuleName(), e.getMessage(), e);
                 // 规则执行失败，继续下一个规则
@@ -81,24 +133,251 @@ public class RuleEngine {
         return FilterResult.pass();
     }
 
+    /**
+     * 按上一周期的实测数据调整规则执行顺序（未启用自适应排序时不做任何事）
+     *
+     * @return 执行顺序是否发生变化
+     */
+    public synchronized boolean reorder() {
+        RuleEngineProperties.AdaptiveOrderConfig config = properties.getAdaptiveOrder();
+        if (!config.isEnabled()) {
+            return false;
+        }
+
+        for (RuleMetrics ruleMetrics : metrics) {
+            ruleMetrics.updateEstimate(config.getMinSamples());
+        }
+
+        int[] current = order;
+        int[] currentPosition = new int[current.length];
+        for (int position = 0; position < current.length; position++) {
+            currentPosition[current[position]] = position;
+        }
+
+        // 固定的规则留在按优先级排序的位置，并把执行顺序分成若干段；不依赖顺序的规则只在所在段内调整，
+        // 不会越过固定规则（否则到达固定规则的事件集合会改变，它的副作用随之改变）。
+        // 段内按单位过滤成本排序，还没有估计值的规则（几乎执行不到）排在其后，未启用的规则排在最后，
+        // 相同时保持当前相对顺序
+        boolean anyEstimate = false;
+        for (int i = 0; i < rules.size(); i++) {
+            anyEstimate |= !isPinned(rules.get(i)) && rules.get(i).isEnabled() && metrics[i].hasEstimate;
+        }
+        if (!anyEstimate) {
+            orderReason = String.format("样本不足，保持当前顺序（可调整的规则执行次数均未达到 %d）", config.getMinSamples());
+            return false;
+        }
+        Comparator<Integer> byCost = Comparator
+                .<Integer>comparingInt(i -> !rules.get(i).isEnabled() ? 2 : metrics[i].hasEstimate ? 0 : 1)
+                .thenComparingDouble(i -> metrics[i].costPerFilteredNanos())
+                .thenComparingInt(i -> currentPosition[i]);
+
+        int[] candidate = new int[rules.size()];
+        List<Integer> segment = new ArrayList<>();
+        for (int i = 0; i <= candidate.length; i++) {
+            if (i < candidate.length && !isPinned(rules.get(i))) {
+                segment.add(i);
+                continue;
+            }
+            segment.sort(byCost);
+            int position = i - segment.size();
+            for (int index : segment) {
+                candidate[position++] = index;
+            }
+            segment.clear();
+            if (i < candidate.length) {
+                candidate[i] = i;
+            }
+        }
+
+        double currentCost = expectedCostNanos(current);
+        double candidateCost = expectedCostNanos(candidate);
+        if (Arrays.equals(current, candidate)) {
+            orderReason = String.format("当前顺序已是最优（预期每事件耗时 %.2fμs）", currentCost / 1000.0);
+            return false;
+        }
+        if (candidateCost > currentCost * (1 - config.getMinImprovement())) {
+            orderReason = String.format("预期收益不足，保持当前顺序（%.2fμs → %.2fμs）",
+                    currentCost / 1000.0, candidateCost / 1000.0);
+            return false;
+        }
+
+        order = candidate;
+        lastReorderAt = Instant.now();
+        reorderCount.increment();
+        orderReason = String.format("按单位过滤成本（平均耗时/命中率）重排，预期每事件耗时 %.2fμs → %.2fμs",
+                currentCost / 1000.0, candidateCost / 1000.0);
+        log.info("规则执行顺序已调整 - order={}, reason={}", describeOrder(candidate), orderReason);
+        return true;
+    }
+
+    /**
+     * 按估计值计算某个顺序下每个事件的预期规则耗时：Σ c_i × Π(1 - p_j)，j 为排在 i 之前的规则
+     */
+    private double expectedCostNanos(int[] candidateOrder) {
+        double cost = 0;
+        double reach = 1.0;
+        for (int index : candidateOrder) {
+            if (!rules.get(index).isEnabled()) {
+                continue;
+            }
+            RuleMetrics ruleMetrics = metrics[index];
+            if (!ruleMetrics.hasEstimate) {
+                continue;
+            }
+            cost += reach * ruleMetrics.costNanos;
+            reach *= 1 - ruleMetrics.matchRate;
+        }
+        return cost;
+    }
+
+    private boolean isPinned(DenoiseRule rule) {
+        return rule.isOrderSensitive()
+                || properties.getAdaptiveOrder().getPinnedRules().contains(rule.getRuleName());
+    }
+
+    private String describeOrder(int[] executionOrder) {
+        return Arrays.stream(executionOrder)
+                .mapToObj(index -> rules.get(index).getRuleName())
+                .collect(Collectors.joining(" -> "));
+    }
+
     /**
      * 获取统计信息
      */
     public RuleEngineStats getStats() {
+        long checked = totalChecked.sum();
+        long filtered = totalFiltered.sum();
         return RuleEngineStats.builder()
-                .totalChecked(totalChecked)
-                .totalFiltered(totalFiltered)
-                .filterRate(totalChecked > 0 ? (double) totalFiltered / totalChecked : 0.0)
+                .totalChecked(checked)
+                .totalFiltered(filtered)
+                .filterRate(checked > 0 ? (double) filtered / checked : 0.0)
                 .enabledRuleCount(rules.stream().filter(DenoiseRule::isEnabled).count())
+                .timingSampleRate(timingSampleRate)
+                .adaptiveOrder(properties.getAdaptiveOrder().isEnabled())
+                .executionOrder(describeOrder(order))
+                .orderReason(orderReason)
+                .expectedCostMicros(expectedCostNanos(order) / 1000.0)
+                .reorderCount(reorderCount.sum())
+                .lastReorderAt(lastReorderAt)
+                .rules(getRuleStats())
                 .build();
     }
 
+    /**
+     * 获取各规则的执行统计（按执行顺序）
+     */
+    public List<RuleStats> getRuleStats() {
+        int[] executionOrder = order;
+        List<RuleStats> result = new ArrayList<>(executionOrder.length);
+        for (int position = 0; position < executionOrder.length; position++) {
+            DenoiseRule rule = rules.get(executionOrder[position]);
+            RuleMetrics ruleMetrics = metrics[executionOrder[position]];
+            long evaluated = ruleMetrics.evaluated.sum();
+            long matched = ruleMetrics.matched.sum();
+            long[] latency = ruleMetrics.latency.percentiles(50, 99);
+            result.add(RuleStats.builder()
+                    .ruleName(rule.getRuleName())
+                    .priority(rule.getPriority())
+                    .enabled(rule.isEnabled())
+                    .position(position)
+                    .pinned(isPinned(rule))
+                    .evaluated(evaluated)
+                    .matched(matched)
+                    .errors(ruleMetrics.errors.sum())
+                    .matchRate(evaluated > 0 ? (double) matched / evaluated : 0.0)
+                    .timedSamples(ruleMetrics.latency.count())
+                    .p50Micros(latency[0] / 1000.0)
+                    .p99Micros(latency[1] / 1000.0)
+                    .maxMicros(ruleMetrics.latency.max() / 1000.0)
+                    .meanMicros(ruleMetrics.latency.mean() / 1000.0)
+                    .estimatedCostMicros(ruleMetrics.hasEstimate ? ruleMetrics.costNanos / 1000.0 : null)
+                    .estimatedMatchRate(ruleMetrics.hasEstimate ? ruleMetrics.matchRate : null)
+                    .costPerFilteredMicros(ruleMetrics.hasEstimate && ruleMetrics.matchRate > 0
+                            ? ruleMetrics.costPerFilteredNanos() / 1000.0 : null)
+                    .build());
+        }
+        return result;
+    }
+
     /**
      * 重置统计信息
      */
-    public void resetStats() {
-        totalChecked = 0;
-        totalFiltered = 0;
+    public synchronized void resetStats() {
+        totalChecked.reset();
+        totalFiltered.reset();
+        for (RuleMetrics ruleMetrics : metrics) {
+            ruleMetrics.reset();
+        }
+    }
+
+    /**
+     * 单个规则的执行指标
+     */
+    private static final class RuleMetrics {
+        private final LongAdder evaluated = new LongAdder();
+        private final LongAdder matched = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        /**
+         * 自适应排序使用的估计值（仅在 reorder() 中更新，其它线程只读）
+         */
+        private volatile boolean hasEstimate;
+        private volatile double costNanos;
+        private volatile double matchRate;
+
+        /**
+         * 上一次更新估计值时的累计计数，差值即为本周期的数据
+         */
+        private long evaluatedMark;
+        private long matchedMark;
+        private long timedCountMark;
+        private long timedSumMark;
+
+        /**
+         * 本周期执行次数达到 minSamples 时用本周期数据更新估计值；没有耗时样本时沿用上次的耗时，
+         * 从未有过耗时样本（未开启耗时采样）时所有规则按相同耗时处理，仅按命中率排序
+         */
+        void updateEstimate(long minSamples) {
+            long evaluatedNow = evaluated.sum();
+            long matchedNow = matched.sum();
+            long timedCountNow = latency.count();
+            long timedSumNow = latency.sum();
+            long evaluatedDelta = evaluatedNow - evaluatedMark;
+            if (evaluatedDelta < Math.max(1, minSamples)) {
+                return;
+            }
+            long timedDelta = timedCountNow - timedCountMark;
+            if (timedDelta > 0) {
+                costNanos = Math.max(1.0, (double) (timedSumNow - timedSumMark) / timedDelta);
+            } else if (!hasEstimate) {
+                costNanos = 1.0;
+            }
+            matchRate = (double) (matchedNow - matchedMark) / evaluatedDelta;
+            hasEstimate = true;
+            evaluatedMark = evaluatedNow;
+            matchedMark = matchedNow;
+            timedCountMark = timedCountNow;
+            timedSumMark = timedSumNow;
+        }
+
+        /**
+         * 每过滤一个事件的预期成本 c/p（从不命中的规则为正无穷，排在最后）
+         */
+        double costPerFilteredNanos() {
+            return matchRate > 0 ? costNanos / matchRate : Double.POSITIVE_INFINITY;
+        }
+
+        void reset() {
+            evaluated.reset();
+            matched.reset();
+            errors.reset();
+            latency.reset();
+            evaluatedMark = 0;
+            matchedMark = 0;
+            timedCountMark = 0;
+            timedSumMark = 0;
+        }
     }
 
     /**
@@ -147,5 +426,70 @@ public class RuleEngine {
         private long totalFiltered;
         private double filterRate;
         private long enabledRuleCount;
+
+        /**
+         * 耗时采样率（每 N 个事件记录一次，0 表示不记录）
+         */
+        private int timingSampleRate;
+
+        /**
+         * 是否启用自适应排序、当前执行顺序及最近一次调整的结论
+         */
+        private boolean adaptiveOrder;
+        private String executionOrder;
+        private String orderReason;
+
+        /**
+         * 按估计值计算的当前顺序下每个事件的预期规则耗时（微秒）
+         */
+        private double expectedCostMicros;
+        private long reorderCount;
+        private Instant lastReorderAt;
+
+        /**
+         * 各规则的执行统计（按执行顺序）
+         */
+        private List<RuleStats> rules;
+    }
+
+    /**
+     * 单个规则的执行统计
+     */
+    @Data
+    @Builder
+    public static class RuleStats {
+        private String ruleName;
+        private int priority;
+        private boolean enabled;
+
+        /**
+         * 当前执行位置（从 0 开始），pinned 表示自适应排序时固定位置
+         */
+        private int position;
+        private boolean pinned;
+
+        /**
+         * 执行次数、命中（过滤）次数、执行异常次数
+         */
+        private long evaluated;
+        private long matched;
+        private long errors;
+        private double matchRate;
+
+        /**
+         * 执行耗时（微秒，基于采样），timedSamples 为采样次数
+         */
+        private long timedSamples;
+        private double p50Micros;
+        private double p99Micros;
+        private double maxMicros;
+        private double meanMicros;
+
+        /**
+         * 自适应排序使用的估计值：上一周期的平均耗时、命中率和每过滤一个事件的成本（没有估计值或从不命中时为 null）
+         */
+        private Double estimatedCostMicros;
+        private Double estimatedMatchRate;
+        private Double costPerFilteredMicros;
     }
 }
@@ -1,6 +1,8 @@
 package com.all.in.one.agent.starter.rule;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
@@ -40,6 +42,21 @@ public class RuleEngineProperties {
      */
     private EnvironmentConfig environment = new EnvironmentConfig();
 
+    /**
+     * 规则执行指标配置
+     */
+    private MetricsConfig metrics = new MetricsConfig();
+
+    /**
+     * 自适应规则排序配置
+     */
+    private AdaptiveOrderConfig adaptiveOrder = new AdaptiveOrderConfig();
+
+    /**
+     * 声明式规则（DSL）配置
+     */
+    private DslConfig dsl = new DslConfig();
+
     /**
      * 频率限制配置
      */
@@ -62,6 +79,76 @@ public class RuleEngineProperties {
          * 默认: 10
          */
         private int maxCount = 10;
+
+        /**
+         * 线程本地拒绝缓存槽位数，0 表示关闭
+         * 指纹超过频率限制后，同一线程在该窗口剩余时间内直接过滤，不再访问共享频率记录
+         * 默认: 16
+         */
+        private int localCacheSlots = 16;
+
+        /**
+         * 最多跟踪的指纹数（超出后淘汰最早的频率记录）
+         * 默认: 10000
+         */
+        private int maxTrackedFingerprints = 10000;
+
+        /**
+         * 分层令牌桶限流（指纹 / 应用 / 全局）
+         */
+        private TokenBucketConfig tokenBucket = new TokenBucketConfig();
+    }
+
+    /**
+     * 分层令牌桶配置
+     * <p>
+     * 在窗口计数之后生效：指纹未超过窗口限制时，再依次从指纹、应用、全局令牌桶取令牌
+     * </p>
+     */
+    @Data
+    public static class TokenBucketConfig {
+        /**
+         * 是否启用（默认 false）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 指纹层：每个指纹的突发数量和补充速率
+         */
+        private BucketConfig fingerprint = new BucketConfig(65536, 20, 1.0);
+
+        /**
+         * 应用层：每个应用的突发数量和补充速率
+         */
+        private BucketConfig app = new BucketConfig(1024, 200, 20.0);
+
+        /**
+         * 全局层：所有异常共用一个桶
+         */
+        private BucketConfig global = new BucketConfig(1, 1000, 100.0);
+    }
+
+    /**
+     * 单层令牌桶配置（burst 或 refillPerSecond 不大于 0 时该层不启用）
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BucketConfig {
+        /**
+         * 预分配的桶数量（向上取整为 2 的幂），哈希冲突的键共用一个桶
+         */
+        private int slots = 1024;
+
+        /**
+         * 桶容量（允许的突发数量）
+         */
+        private int burst;
+
+        /**
+         * 每秒补充的令牌数
+         */
+        private double refillPerSecond;
     }
 
     /**
@@ -75,12 +162,44 @@ public class RuleEngineProperties {
         private boolean enabled = false;
 
         /**
-         * 静默时段（24小时制，格式：HH-HH）
-         * 例如：2-6 表示凌晨 2 点到 6 点
+         * 静默时段（24小时制，格式：HH[:mm]-HH[:mm]，每天生效，多个用逗号分隔）
+         * 例如：2-6 表示凌晨 2 点到 6 点，22:30-07:00 跨到次日
          * 默认: 空（不静默）
          */
         private String quietHours = "";
 
+        /**
+         * 按星期生效的静默时段（格式：星期 HH[:mm]-HH[:mm]）
+         * 例如：MON-FRI 22-8、SAT,SUN 0-24
+         * 默认: 空
+         */
+        private List<String> schedules = new ArrayList<>();
+
+        /**
+         * 静默时段所用时区（如 Asia/Shanghai）
+         * 默认: 空（系统默认时区）
+         */
+        private String zoneId = "";
+
+        /**
+         * 静默时段内的低优先级异常是否延迟到时段结束后发送（false 时直接丢弃）
+         * 延迟的异常按指纹合并，时段结束后每个指纹生成一条告警并带上真实次数
+         * 默认: true
+         */
+        private boolean deferEnabled = true;
+
+        /**
+         * 延迟队列最多保存的指纹数，超出后新指纹直接丢弃
+         * 默认: 10000
+         */
+        private int maxDeferredFingerprints = 10000;
+
+        /**
+         * 检查静默时段是否结束并释放延迟队列的间隔（毫秒）
+         * 默认: 30000
+         */
+        private long releaseCheckMillis = 30000;
+
         /**
          * 静默时段允许的严重级别
          * 只有这些级别的异常才会在静默时段告警
@@ -89,6 +208,127 @@ public class RuleEngineProperties {
         private List<String> allowedSeverities = new ArrayList<>(List.of("P0"));
     }
 
+    /**
+     * 规则执行指标配置
+     */
+    @Data
+    public static class MetricsConfig {
+        /**
+         * 耗时采样：每 N 个事件记录一次各规则的执行耗时（1 表示每个事件都记录，0 表示不记录耗时）
+         * 命中次数和异常次数始终全量统计
+         * 默认: 10
+         */
+        private int timingSampleRate = 10;
+    }
+
+    /**
+     * 自适应规则排序配置
+     */
+    @Data
+    public static class AdaptiveOrderConfig {
+        /**
+         * 是否按实测耗时和命中率定期调整规则执行顺序
+         * 默认: false（按静态优先级执行）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 调整间隔（毫秒）
+         * 默认: 60000
+         */
+        private long intervalMillis = 60000;
+
+        /**
+         * 一个调整周期内规则至少执行多少次，才用该周期的数据更新估计值
+         * 默认: 1000
+         */
+        private long minSamples = 1000;
+
+        /**
+         * 新顺序的预期每事件耗时至少降低多少比例才切换，避免顺序来回抖动
+         * 默认: 0.1
+         */
+        private double minImprovement = 0.1;
+
+        /**
+         * 额外固定位置的规则名称（{@link DenoiseRule#isOrderSensitive()} 为 true 的规则始终固定）
+         */
+        private List<String> pinnedRules = new ArrayList<>();
+    }
+
+    /**
+     * 声明式规则（DSL）配置
+     * <p>
+     * 例如：
+     * one-agent.rule-engine.dsl.rules[0].name=report-timeout
+     * one-agent.rule-engine.dsl.rules[0].when=type == 'SocketTimeoutException' and uri startsWith '/api/report' and rate(1m) > 20
+     * one-agent.rule-engine.dsl.rules[0].reason=报表接口超时风暴
+     * </p>
+     */
+    @Data
+    public static class DslConfig {
+        /**
+         * 是否启用 DSL 规则
+         * 默认: false
+         */
+        private boolean enabled = false;
+
+        /**
+         * DSL 规则在规则引擎中的优先级
+         * 默认: 40（在频率、时间窗口、环境规则之后）
+         */
+        private int priority = 40;
+
+        /**
+         * 规则列表（按声明顺序匹配，第一个命中的规则作为过滤原因）
+         */
+        private List<DslRuleDefinition> rules = new ArrayList<>();
+
+        /**
+         * 外部规则文件（properties 格式：名称.when=表达式、名称.reason=原因、名称.enabled=false），
+         * 修改后自动重新编译，无需重启；为空表示不使用
+         */
+        private String rulesFile = "";
+
+        /**
+         * 检查规则文件是否修改的间隔（毫秒）
+         * 默认: 10000
+         */
+        private long reloadCheckMillis = 10000;
+
+        /**
+         * rate(...) 条件最多跟踪的指纹数（每个时间窗口长度一张表）
+         * 默认: 10000
+         */
+        private int maxTrackedFingerprints = 10000;
+    }
+
+    /**
+     * 单条 DSL 规则
+     */
+    @Data
+    public static class DslRuleDefinition {
+        /**
+         * 规则名称（唯一）
+         */
+        private String name;
+
+        /**
+         * 规则表达式，语法见 DslParser
+         */
+        private String when;
+
+        /**
+         * 过滤原因（为空时使用表达式）
+         */
+        private String reason;
+
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+    }
+
     /**
      * 环境规则配置
      */
@@ -1,19 +1,27 @@
 package com.all.in.one.agent.starter.rule;
 
 import com.all.in.one.agent.common.model.ExceptionInfo;
-import com.all.in.one.agent.service.TicketGenerationService;
+import com.all.in.one.agent.starter.severity.SeverityClassifier;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalTime;
+import java.time.Instant;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
 
 /**
  * 时间窗口规则
  * <p>
  * 非工作时间（如凌晨）只告警高优先级异常，低优先级延迟到白天处理
  * </p>
+ * <p>
+ * 静默时段在启动时编译为 {@link QuietSchedule}，每个事件只比较一次下一个边界时刻。
+ * 被延迟的异常按指纹合并进 {@link DeferredEventSpool}，静默时段结束后由定时任务通过 {@link #drainReleasable()} 一次性取出
+ * </p>
  *
  * @author One Agent 4J
  */
@@ -22,21 +30,41 @@ import java.util.List;
 public class TimeWindowRule implements DenoiseRule {
 
     private final RuleEngineProperties properties;
-    private final TicketGenerationService ticketGenerationService;
+    private final SeverityClassifier severityClassifier;
+    private final QuietSchedule schedule;
+    private final DeferredEventSpool spool;
+    private final LongSupplier clockMillis;
 
     // 统计信息
-    private long totalChecked = 0;
-    private long totalFiltered = 0;
+    private final LongAdder totalChecked = new LongAdder();
+    private final LongAdder totalFiltered = new LongAdder();
 
+    @Autowired
     public TimeWindowRule(RuleEngineProperties properties,
-                         TicketGenerationService ticketGenerationService) {
-        this.properties = properties;
-        this.ticketGenerationService = ticketGenerationService;
+                         SeverityClassifier severityClassifier) {
+        this(properties, severityClassifier, System::currentTimeMillis);
+    }
 
-        log.info("时间窗口规则已初始化 - enabled={}, quietHours={}, allowedSeverities={}",
-                properties.getTimeWindow().isEnabled(),
-                properties.getTimeWindow().getQuietHours(),
-                properties.getTimeWindow().getAllowedSeverities());
+    TimeWindowRule(RuleEngineProperties properties,
+                   SeverityClassifier severityClassifier,
+                   LongSupplier clockMillis) {
+        this.properties = properties;
+        this.severityClassifier = severityClassifier;
+        this.clockMillis = clockMillis;
+
+        RuleEngineProperties.TimeWindowConfig config = properties.getTimeWindow();
+        this.schedule = QuietSchedule.compile(config.getQuietHours(), config.getSchedules(), config.getZoneId());
+        this.spool = config.isDeferEnabled()
+                ? new DeferredEventSpool(config.getMaxDeferredFingerprints())
+                : null;
+
+        log.info("时间窗口规则已初始化 - enabled={}, quietHours={}, schedules={}, zoneId={}, allowedSeverities={}, defer={}",
+                config.isEnabled(),
+                config.getQuietHours(),
+                config.getSchedules(),
+                config.getZoneId(),
+                config.getAllowedSeverities(),
+                spool != null);
     }
 
     @Override
@@ -45,62 +73,43 @@ public class TimeWindowRule implements DenoiseRule {
             return false;
         }
 
-        totalChecked++;
+        totalChecked.increment();
 
-        // 解析静默时段
-        String quietHours = properties.getTimeWindow().getQuietHours();
-        if (quietHours == null || quietHours.isEmpty()) {
-            return false; // 未配置静默时段
-        }
-
-        // 判断当前是否在静默时段
-        if (!isInQuietHours(quietHours)) {
-            return false; // 不在静默时段
+        // 判断当前是否在静默时段（未配置静默时段时始终为 false）
+        long now = clockMillis.getAsLong();
+        if (!schedule.isQuiet(now)) {
+            return false;
         }
 
-        // 计算严重级别
-        String severity = ticketGenerationService.calculateSeverity(exceptionInfo);
+        // 严重级别（每个事件只分级一次）
+        String severity = severityClassifier.classify(exceptionInfo);
 
         // 检查是否是允许的严重级别
         List<String> allowedSeverities = properties.getTimeWindow().getAllowedSeverities();
         if (allowedSeverities.contains(severity)) {
-            log.debug("静默时段但允许告警 - severity={}, time={}", severity, LocalTime.now());
+            log.debug("静默时段但允许告警 - severity={}", severity);
             return false; // 允许告警
         }
 
-        // 过滤低优先级异常
-        totalFiltered++;
-        log.debug("静默时段过滤低优先级异常 - severity={}, time={}", severity, LocalTime.now());
+        // 低优先级异常延迟到静默时段结束后发送（队列已满或未启用延迟时丢弃）
+        totalFiltered.increment();
+        boolean deferred = spool != null && spool.defer(exceptionInfo, now);
+        log.debug("静默时段过滤低优先级异常 - severity={}, deferred={}", severity, deferred);
         return true;
     }
 
     /**
-     * 判断当前时间是否在静默时段
-     *
-     * @param quietHours 格式：HH-HH，例如 "2-6" 表示 2:00-6:00
+     * 静默时段结束后取出所有延迟事件（仍在静默时段或没有延迟事件时返回空列表）
      */
-    private boolean isInQuietHours(String quietHours) {
-        try {
-            String[] parts = quietHours.split("-");
-            if (parts.length != 2) {
-                log.warn("静默时段格式错误: {}, 应为 HH-HH 格式", quietHours);
-                return false;
-            }
-
-            int startHour = Integer.parseInt(parts[0].trim());
-            int endHour = Integer.parseInt(parts[1].trim());
-            int currentHour = LocalTime.now().getHour();
-
-            // 跨天情况：如 22-6 (晚上10点到早上6点)
-            if (startHour > endHour) {
-                return currentHour >= startHour || currentHour < endHour;
-            } else {
-                return currentHour >= startHour && currentHour < endHour;
-            }
-        } catch (Exception e) {
-            log.error("解析静默时段失败: {}", quietHours, e);
-            return false;
+    public List<DeferredEventSpool.DeferredEvent> drainReleasable() {
+        if (spool == null || spool.isEmpty() || schedule.isQuiet(clockMillis.getAsLong())) {
+            return Collections.emptyList();
         }
+        List<DeferredEventSpool.DeferredEvent> events = spool.drain();
+        if (!events.isEmpty()) {
+            log.info("静默时段结束，释放延迟异常 - fingerprints={}", events.size());
+        }
+        return events;
     }
 
     @Override
@@ -110,8 +119,8 @@ public class TimeWindowRule implements DenoiseRule {
 
     @Override
     public String getReason() {
-        return String.format("非工作时间（%s）的低优先级异常",
-                properties.getTimeWindow().getQuietHours());
+        return String.format(spool != null ? "非工作时间（%s）的低优先级异常，时段结束后合并发送" : "非工作时间（%s）的低优先级异常",
+                describeSchedule());
     }
 
     @Override
@@ -119,20 +128,44 @@ public class TimeWindowRule implements DenoiseRule {
         return 20; // 中等优先级
     }
 
+    @Override
+    public boolean isOrderSensitive() {
+        return true; // 被延迟的事件会在时段结束后重新发送，前移会让本应被频率限制的事件也进入延迟队列
+    }
+
     @Override
     public boolean isEnabled() {
         return properties.isEnabled() && properties.getTimeWindow().isEnabled();
     }
 
+    private String describeSchedule() {
+        RuleEngineProperties.TimeWindowConfig config = properties.getTimeWindow();
+        if (config.getSchedules() == null || config.getSchedules().isEmpty()) {
+            return config.getQuietHours();
+        }
+        if (config.getQuietHours() == null || config.getQuietHours().isBlank()) {
+            return String.join(", ", config.getSchedules());
+        }
+        return config.getQuietHours() + ", " + String.join(", ", config.getSchedules());
+    }
+
     /**
      * 获取统计信息
      */
     public TimeWindowStats getStats() {
+        long now = clockMillis.getAsLong();
+        long checked = totalChecked.sum();
+        long filtered = totalFiltered.sum();
         return TimeWindowStats.builder()
-                .totalChecked(totalChecked)
-                .totalFiltered(totalFiltered)
-                .filterRate(totalChecked > 0 ? (double) totalFiltered / totalChecked : 0.0)
-                .currentlyInQuietHours(isInQuietHours(properties.getTimeWindow().getQuietHours()))
+                .totalChecked(checked)
+                .totalFiltered(filtered)
+                .filterRate(checked > 0 ? (double) filtered / checked : 0.0)
+                .currentlyInQuietHours(schedule.isQuiet(now))
+                .nextBoundary(schedule.isEmpty() ? null : Instant.ofEpochMilli(schedule.nextBoundary(now)))
+                .deferredEvents(spool != null ? spool.deferredCount() : 0)
+                .deferredFingerprints(spool != null ? spool.size() : 0)
+                .releasedEvents(spool != null ? spool.releasedCount() : 0)
+                .droppedEvents(spool != null ? spool.droppedCount() : 0)
                 .build();
     }
 
@@ -140,8 +173,8 @@ public class TimeWindowRule implements DenoiseRule {
      * 重置统计
      */
     public void resetStats() {
-        totalChecked = 0;
-        totalFiltered = 0;
+        totalChecked.reset();
+        totalFiltered.reset();
     }
 
     /**
@@ -154,5 +187,18 @@ public class TimeWindowRule implements DenoiseRule {
         private long totalFiltered;
         private double filterRate;
         private boolean currentlyInQuietHours;
+
+        /**
+         * 静默状态下一次切换的时间（未配置静默时段时为 null）
+         */
+        private Instant nextBoundary;
+
+        /**
+         * 延迟队列：累计延迟的事件数、当前待释放的指纹数、已释放的事件数、队列已满被丢弃的事件数
+         */
+        private long deferredEvents;
+        private int deferredFingerprints;
+        private long releasedEvents;
+        private long droppedEvents;
     }
 }
@@ -0,0 +1,831 @@
+package com.all.in.one.agent.starter.rule.dsl;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.common.util.LongKeyedCache;
+import com.all.in.one.agent.starter.rule.RuleEngineProperties;
+import com.all.in.one.agent.starter.severity.SeverityClassifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * 编译后的 DSL 规则集（不可变）
+ * <p>
+ * 启动或重新加载时把所有规则的语法树编译为谓词树：
+ * - 相同的子表达式（包括跨规则）只生成一个节点，被多处引用的非平凡节点在同一事件内只求值一次
+ * - and / or 嵌套展开，子条件按开销排序：哈希查找类条件在前，正则在后，rate(...) 始终最后
+ * - or 中同一字段的 == / in 合并为一次哈希集合查找
+ * - 正则在编译时预编译
+ * - 以某个字段的 == / in 为必要条件的规则按该字段建立索引（每条规则选取取值最少的一个），
+ *   匹配时每个索引字段只做一次哈希查找，只检查取值命中的规则和没有等值条件的规则
+ * 热路径上没有解析、字段名查找和对象分配，规则集整体替换即可生效
+ * </p>
+ * <p>
+ * rate(...) 条件按指纹计数执行到该条件的事件，每条规则中的 rate 条件各自计数，不与其它规则共享
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public final class CompiledDslRuleSet {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    /**
+     * 开销不低于该值的共享节点才缓存结果（哈希查找类条件重复执行比查缓存更便宜）
+     */
+    private static final int MEMO_MIN_COST = 2;
+
+    private static final int STARTS_WITH_COST = 1;
+    private static final int CONTAINS_COST = 3;
+    private static final int REGEX_COST = 10;
+    private static final int RATE_COST = 1000;
+
+    private final CompiledRule[] rules;
+    private final int[] genericRules;
+    private final DslField[] indexFields;
+    private final List<Map<String, int[]>> indexes;
+    private final boolean simpleTypeKeys;
+    private final SeverityClassifier classifier;
+    private final ThreadLocal<EvalContext> contexts;
+    private final int nodeCount;
+    private final int sharedNodeCount;
+    private final int rateConditionCount;
+
+    private CompiledDslRuleSet(CompiledRule[] rules, SeverityClassifier classifier, int nodeCount,
+                               int sharedNodeCount, int rateConditionCount) {
+        this.rules = rules;
+        this.classifier = classifier;
+        this.nodeCount = nodeCount;
+        this.sharedNodeCount = sharedNodeCount;
+        this.rateConditionCount = rateConditionCount;
+
+        // 等值索引：字段 → 取值 → 规则下标（升序，保持声明顺序）
+        Map<DslField, Map<String, List<Integer>>> byField = new LinkedHashMap<>();
+        List<Integer> generic = new ArrayList<>();
+        for (int i = 0; i < rules.length; i++) {
+            SetCondition key = requiredSetCondition(rules[i].root);
+            if (key == null) {
+                generic.add(i);
+            } else {
+                Map<String, List<Integer>> byValue = byField.computeIfAbsent(key.field(), field -> new HashMap<>());
+                for (String value : key.values()) {
+                    byValue.computeIfAbsent(value, ignored -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+        this.indexFields = byField.keySet().toArray(new DslField[0]);
+        this.indexes = new ArrayList<>(indexFields.length);
+        for (DslField field : indexFields) {
+            Map<String, int[]> index = new HashMap<>();
+            byField.get(field).forEach((value, indexes) ->
+                    index.put(value, indexes.stream().mapToInt(Integer::intValue).toArray()));
+            this.indexes.add(index);
+        }
+        this.genericRules = generic.stream().mapToInt(Integer::intValue).toArray();
+        this.simpleTypeKeys = byField.containsKey(DslField.TYPE)
+                && byField.get(DslField.TYPE).keySet().stream().anyMatch(name -> name.indexOf('.') < 0);
+        // 候选规则来源：无等值条件的规则 + 每个索引字段一个（type 另加简单类名）
+        int sources = 2 + indexFields.length;
+        this.contexts = ThreadLocal.withInitial(() -> new EvalContext(sharedNodeCount, sources));
+    }
+
+    /**
+     * 空规则集
+     */
+    public static CompiledDslRuleSet empty() {
+        return new CompiledDslRuleSet(new CompiledRule[0], null, 0, 0, 0);
+    }
+
+    /**
+     * 编译规则集（未启用的规则跳过）
+     *
+     * @param classifier             严重级别分级器（severity 条件使用，可为 null）
+     * @param maxTrackedFingerprints rate 条件每个时间窗口长度最多跟踪的指纹数
+     * @param ticker                 纳秒时间源（rate 条件的窗口过期）
+     * @throws IllegalArgumentException 规则名称为空或重复、表达式语法错误
+     */
+    public static CompiledDslRuleSet compile(List<RuleEngineProperties.DslRuleDefinition> definitions,
+                                             SeverityClassifier classifier,
+                                             int maxTrackedFingerprints,
+                                             LongSupplier ticker) {
+        Compiler compiler = new Compiler(Math.max(1, maxTrackedFingerprints), ticker);
+        List<CompiledRule> compiled = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (RuleEngineProperties.DslRuleDefinition definition : definitions) {
+            String name = definition.getName();
+            if (name == null || name.isBlank()) {
+                throw new IllegalArgumentException("DSL 规则名称为空 - when=" + definition.getWhen());
+            }
+            if (!names.add(name)) {
+                throw new IllegalArgumentException("DSL 规则名称重复 - name=" + name);
+            }
+            if (!definition.isEnabled()) {
+                continue;
+            }
+            DslExpression expression;
+            try {
+                expression = DslParser.parse(definition.getWhen());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("DSL 规则 [" + name + "] 编译失败：" + e.getMessage(), e);
+            }
+            String reason = definition.getReason() != null && !definition.getReason().isBlank()
+                    ? definition.getReason() : definition.getWhen();
+            compiled.add(new CompiledRule(name, definition.getWhen(), reason, compiler.build(expression)));
+        }
+
+        // 统计每个节点被多少个父节点（或规则）引用，被多处引用的非平凡节点分配结果缓存槽
+        Map<Node, Integer> refs = new IdentityHashMap<>();
+        Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (CompiledRule rule : compiled) {
+            refs.merge(rule.root, 1, Integer::sum);
+            countReferences(rule.root, refs, visited);
+        }
+        int slots = 0;
+        for (Map.Entry<Node, Integer> entry : refs.entrySet()) {
+            Node node = entry.getKey();
+            if (entry.getValue() > 1 && (node.cost >= MEMO_MIN_COST || node.children().length > 0)) {
+                node.memoSlot = slots++;
+            }
+        }
+        return new CompiledDslRuleSet(compiled.toArray(new CompiledRule[0]), classifier,
+                refs.size(), slots, compiler.rateConditions);
+    }
+
+    private static void countReferences(Node node, Map<Node, Integer> refs, Set<Node> visited) {
+        if (!visited.add(node)) {
+            return;
+        }
+        for (Node child : node.children()) {
+            refs.merge(child, 1, Integer::sum);
+            countReferences(child, refs, visited);
+        }
+    }
+
+    /**
+     * 规则成立的必要条件中取值最少的等值 / 集合条件（根节点本身或根 and 的一个子条件）
+     */
+    private static SetCondition requiredSetCondition(Node root) {
+        if (root instanceof SetCondition) {
+            return (SetCondition) root;
+        }
+        SetCondition best = null;
+        if (root instanceof AndNode) {
+            for (Node child : root.children()) {
+                if (child instanceof SetCondition) {
+                    SetCondition candidate = (SetCondition) child;
+                    if (best == null || candidate.values().size() < best.values().size()
+                            || (candidate.values().size() == best.values().size()
+                            && candidate.field().ordinal() < best.field().ordinal())) {
+                        best = candidate;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 按声明顺序匹配规则
+     *
+     * @return 第一个命中的规则，未命中返回 null
+     */
+    public CompiledRule match(ExceptionInfo exceptionInfo) {
+        if (rules.length == 0) {
+            return null;
+        }
+
+        EvalContext context = contexts.get();
+        context.begin(exceptionInfo, classifier);
+        try {
+            // 收集候选规则来源：每个索引字段按字段值查一次
+            int[][] sources = context.sources;
+            int[] cursors = context.cursors;
+            int count = 0;
+            sources[count++] = genericRules;
+            for (int i = 0; i < indexFields.length; i++) {
+                String value = context.read(indexFields[i]);
+                if (value == null) {
+                    continue;
+                }
+                Map<String, int[]> index = indexes.get(i);
+                int[] matched = index.get(value);
+                if (matched != null) {
+                    sources[count++] = matched;
+                }
+                if (indexFields[i] == DslField.TYPE && simpleTypeKeys) {
+                    int dot = value.lastIndexOf('.');
+                    matched = dot >= 0 ? index.get(value.substring(dot + 1)) : null;
+                    if (matched != null) {
+                        sources[count++] = matched;
+                    }
+                }
+            }
+            Arrays.fill(cursors, 0, count, 0);
+
+            // 多路归并，按规则下标（声明顺序）依次检查
+            while (true) {
+                int next = Integer.MAX_VALUE;
+                for (int i = 0; i < count; i++) {
+                    if (cursors[i] < sources[i].length && sources[i][cursors[i]] < next) {
+                        next = sources[i][cursors[i]];
+                    }
+                }
+                if (next == Integer.MAX_VALUE) {
+                    return null;
+                }
+                for (int i = 0; i < count; i++) {
+                    if (cursors[i] < sources[i].length && sources[i][cursors[i]] == next) {
+                        cursors[i]++;
+                    }
+                }
+                CompiledRule rule = rules[next];
+                if (rule.root.test(context)) {
+                    rule.hits.increment();
+                    return rule;
+                }
+            }
+        } finally {
+            context.end();
+        }
+    }
+
+    public boolean isEmpty() {
+        return rules.length == 0;
+    }
+
+    public List<CompiledRule> getRules() {
+        return List.of(rules);
+    }
+
+    public int getRuleCount() {
+        return rules.length;
+    }
+
+    /**
+     * 去重后的谓词节点数
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * 被多处引用、同一事件内只求值一次的节点数
+     */
+    public int getSharedNodeCount() {
+        return sharedNodeCount;
+    }
+
+    /**
+     * 按等值条件索引的规则数
+     */
+    public int getIndexedRuleCount() {
+        return rules.length - genericRules.length;
+    }
+
+    public int getRateConditionCount() {
+        return rateConditionCount;
+    }
+
+    /**
+     * 编译后的单条规则
+     */
+    public static final class CompiledRule {
+        private final String name;
+        private final String expression;
+        private final String reason;
+        private final Node root;
+        private final LongAdder hits = new LongAdder();
+
+        private CompiledRule(String name, String expression, String reason, Node root) {
+            this.name = name;
+            this.expression = expression;
+            this.reason = reason;
+            this.root = root;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getExpression() {
+            return expression;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        /**
+         * 编译后的规范形式（子条件已排序、合并）
+         */
+        public String getCompiledForm() {
+            return root.key;
+        }
+
+        public long getHits() {
+            return hits.sum();
+        }
+    }
+
+    /**
+     * 语法树 → 谓词树（按规范形式去重）
+     */
+    private static final class Compiler {
+        private final Map<String, Node> interned = new HashMap<>();
+        private final Map<Long, LongKeyedCache<RateWindow>> rateWindows = new HashMap<>();
+        private final int maxTrackedFingerprints;
+        private final LongSupplier ticker;
+        private int rateConditions;
+
+        private Compiler(int maxTrackedFingerprints, LongSupplier ticker) {
+            this.maxTrackedFingerprints = maxTrackedFingerprints;
+            this.ticker = ticker;
+        }
+
+        private Node build(DslExpression expression) {
+            if (expression instanceof DslExpression.Condition) {
+                return condition((DslExpression.Condition) expression);
+            }
+            if (expression instanceof DslExpression.Not) {
+                Node operand = build(((DslExpression.Not) expression).getOperand());
+                if (operand instanceof NotNode) {
+                    return ((NotNode) operand).operand;
+                }
+                return intern(new NotNode(operand));
+            }
+            if (expression instanceof DslExpression.And) {
+                return junction(((DslExpression.And) expression).getOperands(), true);
+            }
+            if (expression instanceof DslExpression.Or) {
+                return junction(((DslExpression.Or) expression).getOperands(), false);
+            }
+            DslExpression.Rate rate = (DslExpression.Rate) expression;
+            LongKeyedCache<RateWindow> windows = rateWindows.computeIfAbsent(rate.getWindowMillis(),
+                    windowMillis -> new LongKeyedCache<>(maxTrackedFingerprints, windowMillis,
+                            TimeUnit.MILLISECONDS, ticker));
+            // rate 条件不参与去重，每处各自计数
+            return new RateNode(++rateConditions, rate.getWindowMillis(), rate.getMinCount(), windows);
+        }
+
+        private Node condition(DslExpression.Condition condition) {
+            DslField field = condition.getField();
+            String value = condition.getValues().get(0);
+            switch (condition.getOperator()) {
+                case EQ:
+                case IN:
+                    return setNode(field, new TreeSet<>(condition.getValues()));
+                case STARTS_WITH:
+                    return intern(new StartsWithNode(field, value));
+                case ENDS_WITH:
+                    return intern(new EndsWithNode(field, value));
+                case CONTAINS:
+                    return intern(new ContainsNode(field, value));
+                default:
+                    return intern(new RegexNode(field, value));
+            }
+        }
+
+        /**
+         * 等值 / 集合条件：type 同时匹配完整类名和简单类名，单个值用 equals，多个值用哈希集合
+         */
+        private Node setNode(DslField field, TreeSet<String> values) {
+            if (field == DslField.TYPE) {
+                return intern(new TypeNode(values));
+            }
+            if (values.size() == 1) {
+                return intern(new EqualsNode(field, values.first()));
+            }
+            return intern(new InNode(field, values));
+        }
+
+        private Node junction(List<DslExpression> operands, boolean and) {
+            List<Node> children = new ArrayList<>();
+            for (DslExpression operand : operands) {
+                Node child = build(operand);
+                boolean sameKind = and ? child instanceof AndNode : child instanceof OrNode;
+                if (sameKind) {
+                    children.addAll(Arrays.asList(child.children()));
+                } else {
+                    children.add(child);
+                }
+            }
+            if (!and) {
+                children = mergeSetConditions(children);
+            }
+
+            // 去掉重复条件，按开销排序（开销相同按规范形式，保证相同条件集合得到相同节点）
+            Map<String, Node> unique = new LinkedHashMap<>();
+            for (Node child : children) {
+                unique.putIfAbsent(child.key, child);
+            }
+            List<Node> sorted = new ArrayList<>(unique.values());
+            sorted.sort(Comparator.<Node>comparingInt(node -> node.cost).thenComparing(node -> node.key));
+            if (sorted.size() == 1) {
+                return sorted.get(0);
+            }
+            Node[] array = sorted.toArray(NO_CHILDREN);
+            return intern(and ? new AndNode(array) : new OrNode(array));
+        }
+
+        /**
+         * or 中同一字段的 == / in 合并为一个集合条件
+         */
+        private List<Node> mergeSetConditions(List<Node> children) {
+            Map<DslField, TreeSet<String>> valuesByField = new LinkedHashMap<>();
+            Map<DslField, Integer> countByField = new HashMap<>();
+            for (Node child : children) {
+                if (child instanceof SetCondition) {
+                    SetCondition condition = (SetCondition) child;
+                    valuesByField.computeIfAbsent(condition.field(), field -> new TreeSet<>()).addAll(condition.values());
+                    countByField.merge(condition.field(), 1, Integer::sum);
+                }
+            }
+            if (countByField.values().stream().noneMatch(count -> count > 1)) {
+                return children;
+            }
+            List<Node> merged = new ArrayList<>();
+            Set<DslField> emitted = new HashSet<>();
+            for (Node child : children) {
+                if (child instanceof SetCondition && countByField.get(((SetCondition) child).field()) > 1) {
+                    DslField field = ((SetCondition) child).field();
+                    if (emitted.add(field)) {
+                        merged.add(setNode(field, valuesByField.get(field)));
+                    }
+                } else {
+                    merged.add(child);
+                }
+            }
+            return merged;
+        }
+
+        private Node intern(Node node) {
+            Node existing = interned.putIfAbsent(node.key, node);
+            return existing != null ? existing : node;
+        }
+    }
+
+    /**
+     * 单个事件的求值上下文（每个线程一份，共享节点的结果按事件序号失效）
+     */
+    private static final class EvalContext {
+        private final int[] stamps;
+        private final boolean[] values;
+        private final int[][] sources;
+        private final int[] cursors;
+        private int epoch;
+        private ExceptionInfo exceptionInfo;
+        private SeverityClassifier classifier;
+
+        private EvalContext(int slots, int sourceCount) {
+            this.stamps = new int[slots];
+            this.values = new boolean[slots];
+            this.sources = new int[sourceCount][];
+            this.cursors = new int[sourceCount];
+        }
+
+        private void begin(ExceptionInfo exceptionInfo, SeverityClassifier classifier) {
+            this.exceptionInfo = exceptionInfo;
+            this.classifier = classifier;
+            if (++epoch == 0) {
+                Arrays.fill(stamps, 0);
+                epoch = 1;
+            }
+        }
+
+        private void end() {
+            this.exceptionInfo = null;
+            Arrays.fill(sources, null);
+        }
+
+        private String read(DslField field) {
+            return field.read(exceptionInfo, classifier);
+        }
+    }
+
+    /**
+     * 谓词节点
+     */
+    private abstract static class Node {
+        private final String key;
+        private final int cost;
+        private int memoSlot = -1;
+
+        private Node(String key, int cost) {
+            this.key = key;
+            this.cost = cost;
+        }
+
+        final boolean test(EvalContext context) {
+            int slot = memoSlot;
+            if (slot < 0) {
+                return eval(context);
+            }
+            if (context.stamps[slot] == context.epoch) {
+                return context.values[slot];
+            }
+            boolean result = eval(context);
+            context.stamps[slot] = context.epoch;
+            context.values[slot] = result;
+            return result;
+        }
+
+        abstract boolean eval(EvalContext context);
+
+        Node[] children() {
+            return NO_CHILDREN;
+        }
+    }
+
+    /**
+     * 可合并的等值 / 集合条件
+     */
+    private interface SetCondition {
+        DslField field();
+
+        Set<String> values();
+    }
+
+    private static final class TypeNode extends Node implements SetCondition {
+        private final Set<String> names;
+        private final boolean hasSimpleNames;
+
+        private TypeNode(Set<String> names) {
+            super("type in " + names, DslField.TYPE.getCost());
+            this.names = Set.copyOf(names);
+            this.hasSimpleNames = names.stream().anyMatch(name -> name.indexOf('.') < 0);
+        }
+
+        @Override
+        boolean eval(EvalContext context) {
+            String type = context.exceptionInfo.getExceptionType();
+            if (type == null) {
+                return false;
+            }
+            if (names.contains(type)) {
+                return true;
+            }
+            int dot = type.lastIndexOf('.');
+            return hasSimpleNames && dot >= 0 && names.contains(type.substring(dot + 1));
+        }
+
+        @Override
+        public DslField field() {
+            return DslField.TYPE;
+        }
+
+        @Override
+        public Set<String> values() {
+            return names;
+        }
+    }
+
+    private static final class EqualsNode extends Node implements SetCondition {
+        private final DslField field;
+        private final String value;
+
+        private EqualsNode(DslField field, String value) {
+            super(field.getToken() + " == " + value, field.getCost());
+            this.field = field;
+            this.value = value;
+        }
+
+        @Override
+        boolean eval(EvalContext context) {
+            return value.equals(context.read(field));
+        }
+
+        @Override
+        public DslField field() {
+            return field;
+        }
+
+        @Override
+        public Set<String> values() {
+            return Set.of(value);
+        }
+    }
+
+    private static final class InNode extends Node implements SetCondition {
+        private final DslField field;
+        private final Set<String> values;
+
+        private InNode(DslField field, Set<String> values) {
+            super(field.getToken() + " in " + values, field.getCost());
+            this.field = field;
+            this.values = Set.copyOf(values);
+        }
+
+        @Override
+        boolean eval(EvalContext context) {
+            String actual = context.read(field);
+            return actual != null && values.contains(actual);
+        }
+
+        @Override
+        public DslField field() {
+            return field;
+        }
+
+        @Override
+        public Set<String> values() {
+            return values;
+        }
+    }
+
+    private static final class StartsWithNode extends Node {
+        private final DslField field;
+        private final String prefix;
+
+        private StartsWithNode(DslField field, String prefix) {
+            super(field.getToken() + " startsWith " + prefix, field.getCost() + STARTS_WITH_COST);
+            this.field = field;
+            this.prefix = prefix;
+        }
+
+        @Override
+        boolean eval(EvalContext context) {
+            String actual = context.read(field);
+            return actual != null && actual.startsWith(prefix);
+        }
+    }
+
+    private static final class EndsWithNode extends Node {
+        private final DslField field;
+        private final String suffix;
+
+        private EndsWithNode(DslField field, String suffix) {
+            super(field.getToken() + " endsWith " + suffix, field.getCost() + STARTS_WITH_COST);
+            this.field = field;
+            this.suffix = suffix;
+        }
+
+        @Override
+        boolean eval(EvalContext context) {
+            String actual = context.read(field);
+            return actual != null && actual.endsWith(suffix);
+        }
+    }
+
+    private static final class ContainsNode extends Node {
+        private final DslField field;
+        private final String keyword;
+
+        private ContainsNode(DslField field, String keyword) {
+            super(field.getToken() + " contains " + keyword, field.getCost() + CONTAINS_COST);
+            this.field = field;
+            this.keyword = keyword;
+        }
+
+        @Override
+        boolean eval(EvalContext context) {
+            String actual = context.read(field);
+            return actual != null && actual.contains(keyword);
+        }
+    }
+
+    private static final class RegexNode extends Node {
+        private final DslField field;
+        private final Pattern pattern;
+
+        private RegexNode(DslField field, String regex) {
+            super(field.getToken() + " matches " + regex, field.getCost() + REGEX_COST);
+            this.field = field;
+            this.pattern = Pattern.compile(regex);
+        }
+
+        @Override
+        boolean eval(EvalContext context) {
+            String actual = context.read(field);
+            return actual != null && pattern.matcher(actual).find();
+        }
+    }
+
+    private static final class NotNode extends Node {
+        private final Node operand;
+        private final Node[] children;
+
+        private NotNode(Node operand) {
+            super("not " + operand.key, operand.cost);
+            this.operand = operand;
+            this.children = new Node[]{operand};
+        }
+
+        @Override
+        boolean eval(EvalContext context) {
+            return !operand.test(context);
+        }
+
+        @Override
+        Node[] children() {
+            return children;
+        }
+    }
+
+    private static final class AndNode extends Node {
+        private final Node[] operands;
+
+        private AndNode(Node[] operands) {
+            super(junctionKey("and", operands), totalCost(operands));
+            this.operands = operands;
+        }
+
+        @Override
+        boolean eval(EvalContext context) {
+            for (Node operand : operands) {
+                if (!operand.test(context)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        Node[] children() {
+            return operands;
+        }
+    }
+
+    private static final class OrNode extends Node {
+        private final Node[] operands;
+
+        private OrNode(Node[] operands) {
+            super(junctionKey("or", operands), totalCost(operands));
+            this.operands = operands;
+        }
+
+        @Override
+        boolean eval(EvalContext context) {
+            for (Node operand : operands) {
+                if (operand.test(context)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        Node[] children() {
+            return operands;
+        }
+    }
+
+    private static final class RateNode extends Node {
+        private final long id;
+        private final long minCount;
+        private final LongKeyedCache<RateWindow> windows;
+
+        private RateNode(long id, long windowMillis, long minCount, LongKeyedCache<RateWindow> windows) {
+            super("rate(" + windowMillis + "ms) >= " + minCount + " #" + id, RATE_COST);
+            this.id = id;
+            this.minCount = minCount;
+            this.windows = windows;
+        }
+
+        @Override
+        boolean eval(EvalContext context) {
+            long key = context.exceptionInfo.getFingerprintHash() ^ (id * 0x9E3779B97F4A7C15L);
+            return windows.get(key, ignored -> new RateWindow()).count.incrementAndGet() >= minCount;
+        }
+    }
+
+    /**
+     * rate 条件的计数窗口（写入后过期，即固定窗口）
+     */
+    private static final class RateWindow {
+        private final AtomicLong count = new AtomicLong();
+    }
+
+    private static String junctionKey(String operator, Node[] operands) {
+        StringBuilder key = new StringBuilder(operator).append('(');
+        for (int i = 0; i < operands.length; i++) {
+            if (i > 0) {
+                key.append(", ");
+            }
+            key.append(operands[i].key);
+        }
+        return key.append(')').toString();
+    }
+
+    private static int totalCost(Node[] operands) {
+        long cost = 0;
+        for (Node operand : operands) {
+            cost += operand.cost;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, cost);
+    }
+}
@@ -0,0 +1,162 @@
+package com.all.in.one.agent.starter.rule.dsl;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 规则 DSL 语法树（不可变）
+ * <p>
+ * 由 {@link DslParser} 生成，只描述规则的结构，不负责执行；
+ * 执行前由 {@link CompiledDslRuleSet} 编译为谓词树
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public abstract class DslExpression {
+
+    private DslExpression() {
+    }
+
+    /**
+     * 字段比较运算符
+     */
+    public enum Operator {
+        EQ("=="),
+        IN("in"),
+        STARTS_WITH("startsWith"),
+        ENDS_WITH("endsWith"),
+        CONTAINS("contains"),
+        MATCHES("matches");
+
+        private final String token;
+
+        Operator(String token) {
+            this.token = token;
+        }
+
+        public String getToken() {
+            return token;
+        }
+    }
+
+    /**
+     * 逻辑与
+     */
+    public static final class And extends DslExpression {
+        private final List<DslExpression> operands;
+
+        public And(List<DslExpression> operands) {
+            this.operands = List.copyOf(operands);
+        }
+
+        public List<DslExpression> getOperands() {
+            return operands;
+        }
+
+        @Override
+        public String toString() {
+            return operands.stream().map(DslExpression::toString).collect(Collectors.joining(" and ", "(", ")"));
+        }
+    }
+
+    /**
+     * 逻辑或
+     */
+    public static final class Or extends DslExpression {
+        private final List<DslExpression> operands;
+
+        public Or(List<DslExpression> operands) {
+            this.operands = List.copyOf(operands);
+        }
+
+        public List<DslExpression> getOperands() {
+            return operands;
+        }
+
+        @Override
+        public String toString() {
+            return operands.stream().map(DslExpression::toString).collect(Collectors.joining(" or ", "(", ")"));
+        }
+    }
+
+    /**
+     * 逻辑非（!= 和 not in 解析为 Not 包裹的 == 和 in）
+     */
+    public static final class Not extends DslExpression {
+        private final DslExpression operand;
+
+        public Not(DslExpression operand) {
+            this.operand = operand;
+        }
+
+        public DslExpression getOperand() {
+            return operand;
+        }
+
+        @Override
+        public String toString() {
+            return "not " + operand;
+        }
+    }
+
+    /**
+     * 字段条件，例如 type == 'java.lang.NullPointerException'、message matches 'timeout.*'
+     * 字段为 null 时所有运算符都不匹配
+     */
+    public static final class Condition extends DslExpression {
+        private final DslField field;
+        private final Operator operator;
+        private final List<String> values;
+
+        public Condition(DslField field, Operator operator, List<String> values) {
+            this.field = field;
+            this.operator = operator;
+            this.values = List.copyOf(values);
+        }
+
+        public DslField getField() {
+            return field;
+        }
+
+        public Operator getOperator() {
+            return operator;
+        }
+
+        public List<String> getValues() {
+            return values;
+        }
+
+        @Override
+        public String toString() {
+            String quoted = values.stream().map(value -> "'" + value + "'").collect(Collectors.joining(", "));
+            return field.getToken() + " " + operator.getToken() + " "
+                    + (operator == Operator.IN ? "[" + quoted + "]" : quoted);
+        }
+    }
+
+    /**
+     * 频率条件：同一指纹在窗口内执行到该条件的次数达到 minCount，例如 rate(1m) > 10
+     */
+    public static final class Rate extends DslExpression {
+        private final long windowMillis;
+        private final long minCount;
+
+        public Rate(long windowMillis, long minCount) {
+            this.windowMillis = windowMillis;
+            this.minCount = minCount;
+        }
+
+        public long getWindowMillis() {
+            return windowMillis;
+        }
+
+        public long getMinCount() {
+            return minCount;
+        }
+
+        @Override
+        public String toString() {
+            return "rate(" + windowMillis + "ms) >= " + minCount;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.all.in.one.agent.starter.rule.dsl;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.starter.severity.SeverityClassifier;
+
+/**
+ * 规则 DSL 可引用的异常字段
+ * <p>
+ * cost 为读取字段的相对开销，编译时用于把便宜的条件排在前面：
+ * 普通属性为 1，异常消息为 2，严重级别需要分级（每个事件只分级一次）为 2，
+ * 请求 URI 可能触发请求信息的延迟加载为 3
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public enum DslField {
+
+    TYPE("type", 1) {
+        @Override
+        public String read(ExceptionInfo exceptionInfo, SeverityClassifier classifier) {
+            return exceptionInfo.getExceptionType();
+        }
+    },
+
+    LOCATION("location", 1) {
+        @Override
+        public String read(ExceptionInfo exceptionInfo, SeverityClassifier classifier) {
+            return exceptionInfo.getErrorLocation();
+        }
+    },
+
+    CLASS("class", 1) {
+        @Override
+        public String read(ExceptionInfo exceptionInfo, SeverityClassifier classifier) {
+            return exceptionInfo.getErrorClass();
+        }
+    },
+
+    METHOD("method", 1) {
+        @Override
+        public String read(ExceptionInfo exceptionInfo, SeverityClassifier classifier) {
+            return exceptionInfo.getErrorMethod();
+        }
+    },
+
+    APP("app", 1) {
+        @Override
+        public String read(ExceptionInfo exceptionInfo, SeverityClassifier classifier) {
+            return exceptionInfo.getAppName();
+        }
+    },
+
+    ENV("env", 1) {
+        @Override
+        public String read(ExceptionInfo exceptionInfo, SeverityClassifier classifier) {
+            return exceptionInfo.getEnvironment();
+        }
+    },
+
+    MESSAGE("message", 2) {
+        @Override
+        public String read(ExceptionInfo exceptionInfo, SeverityClassifier classifier) {
+            return exceptionInfo.getExceptionMessage();
+        }
+    },
+
+    SEVERITY("severity", 2) {
+        @Override
+        public String read(ExceptionInfo exceptionInfo, SeverityClassifier classifier) {
+            return classifier != null ? classifier.classify(exceptionInfo) : exceptionInfo.getSeverity();
+        }
+    },
+
+    URI("uri", 3) {
+        @Override
+        public String read(ExceptionInfo exceptionInfo, SeverityClassifier classifier) {
+            ExceptionInfo.RequestInfo requestInfo = exceptionInfo.getRequestInfo();
+            return requestInfo != null ? requestInfo.getUri() : null;
+        }
+    };
+
+    private final String token;
+    private final int cost;
+
+    DslField(String token, int cost) {
+        this.token = token;
+        this.cost = cost;
+    }
+
+    /**
+     * 读取字段值（字段不存在时返回 null）
+     */
+    public abstract String read(ExceptionInfo exceptionInfo, SeverityClassifier classifier);
+
+    public String getToken() {
+        return token;
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    /**
+     * 按 DSL 中的字段名查找，未知字段返回 null
+     */
+    public static DslField of(String token) {
+        for (DslField field : values()) {
+            if (field.token.equals(token)) {
+                return field;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,307 @@
+package com.all.in.one.agent.starter.rule.dsl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 规则 DSL 解析器
+ * <p>
+ * 语法（关键字区分大小写，字符串用单引号或双引号）：
+ * <pre>
+ * expr      := and ( ("or" | "||") and )*
+ * and       := unary ( ("and" | "&amp;&amp;") unary )*
+ * unary     := ("not" | "!") unary | "(" expr ")" | condition
+ * condition := field ("==" | "!=") string
+ *            | field ["not"] "in" "[" string ("," string)* "]"
+ *            | field ("startsWith" | "endsWith" | "contains" | "matches") string
+ *            | "rate" "(" duration ")" (">" | ">=") number
+ * field     := type | location | class | method | app | env | message | severity | uri
+ * duration  := 数字 + s/m/h，例如 30s、5m、1h
+ * </pre>
+ * 例如：{@code type == 'java.net.SocketTimeoutException' and uri startsWith '/api/report' and rate(1m) > 20}
+ * </p>
+ * <p>
+ * type 的 == / in 同时接受完整类名和简单类名；matches 为正则部分匹配（find）。
+ * 语法错误抛出 {@link IllegalArgumentException}，消息中带出错位置
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public final class DslParser {
+
+    private final String source;
+    private final List<Token> tokens;
+    private int position;
+
+    private DslParser(String source) {
+        this.source = source;
+        this.tokens = tokenize(source);
+    }
+
+    /**
+     * 解析规则表达式
+     *
+     * @throws IllegalArgumentException 语法错误
+     */
+    public static DslExpression parse(String source) {
+        if (source == null || source.isBlank()) {
+            throw new IllegalArgumentException("DSL 表达式为空");
+        }
+        DslParser parser = new DslParser(source);
+        DslExpression expression = parser.parseOr();
+        if (parser.peek().type != TokenType.END) {
+            throw parser.error("多余的内容 '" + parser.peek().text + "'");
+        }
+        return expression;
+    }
+
+    private DslExpression parseOr() {
+        List<DslExpression> operands = new ArrayList<>();
+        operands.add(parseAnd());
+        while (acceptWord("or") || acceptSymbol("||")) {
+            operands.add(parseAnd());
+        }
+        return operands.size() == 1 ? operands.get(0) : new DslExpression.Or(operands);
+    }
+
+    private DslExpression parseAnd() {
+        List<DslExpression> operands = new ArrayList<>();
+        operands.add(parseUnary());
+        while (acceptWord("and") || acceptSymbol("&&")) {
+            operands.add(parseUnary());
+        }
+        return operands.size() == 1 ? operands.get(0) : new DslExpression.And(operands);
+    }
+
+    private DslExpression parseUnary() {
+        if (acceptWord("not") || acceptSymbol("!")) {
+            return new DslExpression.Not(parseUnary());
+        }
+        if (acceptSymbol("(")) {
+            DslExpression expression = parseOr();
+            expectSymbol(")");
+            return expression;
+        }
+        return parseCondition();
+    }
+
+    private DslExpression parseCondition() {
+        Token token = next();
+        if (token.type != TokenType.WORD) {
+            throw error(token, "需要字段名或 rate(...)，实际为 '" + token.text + "'");
+        }
+        if ("rate".equals(token.text)) {
+            return parseRate();
+        }
+        DslField field = DslField.of(token.text);
+        if (field == null) {
+            throw error(token, "未知字段 '" + token.text + "'");
+        }
+
+        if (acceptSymbol("==")) {
+            return new DslExpression.Condition(field, DslExpression.Operator.EQ, List.of(expectString()));
+        }
+        if (acceptSymbol("!=")) {
+            return new DslExpression.Not(
+                    new DslExpression.Condition(field, DslExpression.Operator.EQ, List.of(expectString())));
+        }
+        boolean negated = acceptWord("not");
+        if (acceptWord("in")) {
+            DslExpression condition = new DslExpression.Condition(field, DslExpression.Operator.IN, parseList());
+            return negated ? new DslExpression.Not(condition) : condition;
+        }
+        if (negated) {
+            throw error("'not' 之后需要 'in'");
+        }
+        for (DslExpression.Operator operator : DslExpression.Operator.values()) {
+            if (operator != DslExpression.Operator.EQ && operator != DslExpression.Operator.IN
+                    && acceptWord(operator.getToken())) {
+                String value = expectString();
+                if (operator == DslExpression.Operator.MATCHES) {
+                    try {
+                        Pattern.compile(value);
+                    } catch (PatternSyntaxException e) {
+                        throw error("正则表达式无效 '" + value + "'：" + e.getDescription());
+                    }
+                }
+                return new DslExpression.Condition(field, operator, List.of(value));
+            }
+        }
+        throw error("字段 '" + field.getToken() + "' 之后需要 ==、!=、in、startsWith、endsWith、contains 或 matches");
+    }
+
+    private DslExpression parseRate() {
+        expectSymbol("(");
+        Token duration = next();
+        long windowMillis = parseDuration(duration);
+        expectSymbol(")");
+        boolean inclusive;
+        if (acceptSymbol(">=")) {
+            inclusive = true;
+        } else if (acceptSymbol(">")) {
+            inclusive = false;
+        } else {
+            throw error("rate(...) 之后需要 > 或 >=");
+        }
+        Token number = next();
+        if (number.type != TokenType.NUMBER) {
+            throw error(number, "需要次数，实际为 '" + number.text + "'");
+        }
+        long threshold = Long.parseLong(number.text);
+        return new DslExpression.Rate(windowMillis, inclusive ? Math.max(1, threshold) : threshold + 1);
+    }
+
+    private long parseDuration(Token token) {
+        String text = token.text;
+        int unitStart = 0;
+        while (unitStart < text.length() && Character.isDigit(text.charAt(unitStart))) {
+            unitStart++;
+        }
+        if (unitStart == 0 || unitStart == text.length() || unitStart > 9) {
+            throw error(token, "时间窗口格式应为 30s、5m、1h，实际为 '" + text + "'");
+        }
+        long amount = Long.parseLong(text.substring(0, unitStart));
+        TimeUnit unit = switch (text.substring(unitStart)) {
+            case "s" -> TimeUnit.SECONDS;
+            case "m" -> TimeUnit.MINUTES;
+            case "h" -> TimeUnit.HOURS;
+            default -> throw error(token, "时间单位只支持 s、m、h，实际为 '" + text + "'");
+        };
+        if (amount <= 0) {
+            throw error(token, "时间窗口必须大于 0");
+        }
+        return unit.toMillis(amount);
+    }
+
+    private List<String> parseList() {
+        expectSymbol("[");
+        List<String> values = new ArrayList<>();
+        values.add(expectString());
+        while (acceptSymbol(",")) {
+            values.add(expectString());
+        }
+        expectSymbol("]");
+        return values;
+    }
+
+    private String expectString() {
+        Token token = next();
+        if (token.type != TokenType.STRING) {
+            throw error(token, "需要字符串，实际为 '" + token.text + "'");
+        }
+        return token.text;
+    }
+
+    private void expectSymbol(String symbol) {
+        Token token = next();
+        if (token.type != TokenType.SYMBOL || !token.text.equals(symbol)) {
+            throw error(token, "需要 '" + symbol + "'，实际为 '" + token.text + "'");
+        }
+    }
+
+    private boolean acceptSymbol(String symbol) {
+        Token token = peek();
+        if (token.type == TokenType.SYMBOL && token.text.equals(symbol)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean acceptWord(String word) {
+        Token token = peek();
+        if (token.type == TokenType.WORD && token.text.equals(word)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private Token peek() {
+        return tokens.get(position);
+    }
+
+    private Token next() {
+        Token token = tokens.get(position);
+        if (token.type != TokenType.END) {
+            position++;
+        }
+        return token;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return error(peek(), message);
+    }
+
+    private IllegalArgumentException error(Token token, String message) {
+        return new IllegalArgumentException(String.format("DSL 语法错误（位置 %d）：%s - %s", token.offset, message, source));
+    }
+
+    private static List<Token> tokenize(String source) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        int length = source.length();
+        while (i < length) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'' || c == '"') {
+                StringBuilder value = new StringBuilder();
+                int start = i++;
+                while (i < length && source.charAt(i) != c) {
+                    char ch = source.charAt(i++);
+                    if (ch == '\\' && i < length && (source.charAt(i) == c || source.charAt(i) == '\\')) {
+                        // 仅转义引号和反斜杠本身，正则中的 \d 等原样保留
+                        ch = source.charAt(i++);
+                    }
+                    value.append(ch);
+                }
+                if (i >= length) {
+                    throw new IllegalArgumentException(String.format("DSL 语法错误（位置 %d）：字符串未结束 - %s", start, source));
+                }
+                i++;
+                tokens.add(new Token(TokenType.STRING, value.toString(), start));
+            } else if (Character.isLetterOrDigit(c) || c == '_') {
+                int start = i;
+                while (i < length && (Character.isLetterOrDigit(source.charAt(i)) || source.charAt(i) == '_')) {
+                    i++;
+                }
+                String text = source.substring(start, i);
+                boolean number = text.chars().allMatch(Character::isDigit);
+                tokens.add(new Token(number ? TokenType.NUMBER : TokenType.WORD, text, start));
+            } else {
+                String two = i + 1 < length ? source.substring(i, i + 2) : "";
+                if (two.equals("==") || two.equals("!=") || two.equals(">=") || two.equals("&&") || two.equals("||")) {
+                    tokens.add(new Token(TokenType.SYMBOL, two, i));
+                    i += 2;
+                } else if ("()[],>!".indexOf(c) >= 0) {
+                    tokens.add(new Token(TokenType.SYMBOL, String.valueOf(c), i));
+                    i++;
+                } else {
+                    throw new IllegalArgumentException(String.format("DSL 语法错误（位置 %d）：无法识别的字符 '%c' - %s", i, c, source));
+                }
+            }
+        }
+        tokens.add(new Token(TokenType.END, "<结束>", length));
+        return tokens;
+    }
+
+    private enum TokenType {
+        WORD, NUMBER, STRING, SYMBOL, END
+    }
+
+    private static final class Token {
+        private final TokenType type;
+        private final String text;
+        private final int offset;
+
+        private Token(TokenType type, String text, int offset) {
+            this.type = type;
+            this.text = text;
+            this.offset = offset;
+        }
+    }
+}
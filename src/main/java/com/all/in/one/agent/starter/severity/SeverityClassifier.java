@@ -0,0 +1,328 @@
+package com.all.in.one.agent.starter.severity;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 严重级别分级器
+ * <p>
+ * 启动时把 {@link SeverityProperties} 中的规则编译为集合和前缀数组，
+ * 分级结果按（异常类型, 环境）缓存：同一种异常在同一环境只计算一次，之后每次只是两次哈希查找
+ * </p>
+ * <p>
+ * 每个事件的级别在第一次分级时写入 {@link ExceptionInfo#getSeverity()}，
+ * 规则引擎中的各规则和工单生成直接复用，不再重复计算
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Slf4j
+@Component
+public class SeverityClassifier {
+
+    /**
+     * 严重级别，从高到低
+     */
+    public static final List<String> LEVELS = List.of("P0", "P1", "P2", "P3", "P4");
+
+    private final CompiledRule[] rules;
+    private final int defaultLevel;
+    private final Set<String> escalatedEnvironments;
+    private final boolean needsHierarchy;
+    private final int maxCachedEntries;
+
+    // 环境 -> 异常类型 -> 严重级别
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, String>> cache = new ConcurrentHashMap<>();
+    private final AtomicInteger cachedEntries = new AtomicInteger();
+
+    // 统计信息
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    public SeverityClassifier(SeverityProperties properties) {
+        List<SeverityProperties.Rule> configured = properties.getRules() == null || properties.getRules().isEmpty()
+                ? defaultRules()
+                : properties.getRules();
+        List<CompiledRule> compiled = new ArrayList<>();
+        for (SeverityProperties.Rule rule : configured) {
+            int level = levelOf(rule.getSeverity());
+            if (level < 0) {
+                log.warn("严重级别规则无效，已忽略 - severity={}, exceptionTypes={}",
+                        rule.getSeverity(), rule.getExceptionTypes());
+                continue;
+            }
+            compiled.add(new CompiledRule(rule, level));
+        }
+        this.rules = compiled.toArray(new CompiledRule[0]);
+
+        int level = levelOf(properties.getDefaultSeverity());
+        if (level < 0) {
+            log.warn("默认严重级别无效，使用 P4 - defaultSeverity={}", properties.getDefaultSeverity());
+            level = LEVELS.size() - 1;
+        }
+        this.defaultLevel = level;
+        this.escalatedEnvironments = lowerCaseSet(properties.getEscalatedEnvironments());
+        this.needsHierarchy = compiled.stream().anyMatch(rule -> rule.superTypes != null);
+        this.maxCachedEntries = Math.max(0, properties.getMaxCachedEntries());
+
+        log.info("严重级别分级器已初始化 - rules={}, defaultSeverity={}, escalatedEnvironments={}",
+                rules.length, LEVELS.get(defaultLevel), escalatedEnvironments);
+    }
+
+    /**
+     * 获取事件的严重级别（首次计算后写入事件，之后直接复用）
+     */
+    public String classify(ExceptionInfo exceptionInfo) {
+        String severity = exceptionInfo.getSeverity();
+        if (severity == null) {
+            severity = classify(exceptionInfo.getExceptionType(), exceptionInfo.getEnvironment());
+            exceptionInfo.setSeverity(severity);
+        }
+        return severity;
+    }
+
+    /**
+     * 按异常类型和环境分级
+     */
+    public String classify(String exceptionType, String environment) {
+        String type = exceptionType != null ? exceptionType : "";
+        String env = environment != null ? environment : "";
+        ConcurrentHashMap<String, String> byType = cache.get(env);
+        if (byType != null) {
+            String cached = byType.get(type);
+            if (cached != null) {
+                cacheHits.increment();
+                return cached;
+            }
+        }
+        cacheMisses.increment();
+
+        String severity = compute(type, env);
+        if (cachedEntries.get() < maxCachedEntries) {
+            if (byType == null) {
+                byType = cache.computeIfAbsent(env, key -> new ConcurrentHashMap<>());
+            }
+            if (byType.putIfAbsent(type, severity) == null) {
+                cachedEntries.incrementAndGet();
+            }
+        }
+        return severity;
+    }
+
+    /**
+     * 执行规则匹配
+     */
+    private String compute(String exceptionType, String environment) {
+        String env = environment.toLowerCase(Locale.ROOT);
+        Set<String> hierarchy = needsHierarchy ? hierarchyOf(exceptionType) : null;
+        int level = defaultLevel;
+        boolean escalate = true;
+        for (CompiledRule rule : rules) {
+            if (rule.matches(exceptionType, env, hierarchy)) {
+                level = rule.level;
+                escalate = rule.escalate;
+                break;
+            }
+        }
+        if (escalate && escalatedEnvironments.contains(env)) {
+            level = Math.max(0, level - 1);
+        }
+        return LEVELS.get(level);
+    }
+
+    /**
+     * 异常类本身及所有父类、接口的全限定名（无法加载时只有异常类型名称）
+     */
+    private static Set<String> hierarchyOf(String exceptionType) {
+        Set<String> names = new HashSet<>();
+        names.add(exceptionType);
+        Class<?> type;
+        try {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            type = Class.forName(exceptionType, false,
+                    loader != null ? loader : SeverityClassifier.class.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return names;
+        }
+        collectHierarchy(type, names);
+        return names;
+    }
+
+    private static void collectHierarchy(Class<?> type, Set<String> names) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            names.add(current.getName());
+            for (Class<?> iface : current.getInterfaces()) {
+                collectHierarchy(iface, names);
+            }
+        }
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public SeverityStats getStats() {
+        return SeverityStats.builder()
+                .rules(rules.length)
+                .cachedEntries(cachedEntries.get())
+                .cacheHits(cacheHits.sum())
+                .cacheMisses(cacheMisses.sum())
+                .build();
+    }
+
+    /**
+     * 清空分级缓存（规则不变，重新计算）
+     */
+    public void clearCache() {
+        cache.clear();
+        cachedEntries.set(0);
+    }
+
+    /**
+     * 内置规则（与原硬编码分级一致）
+     */
+    static List<SeverityProperties.Rule> defaultRules() {
+        return List.of(
+                rule("P0", "OutOfMemory", "StackOverflow"),
+                rule("P1", "SQLException", "DataAccess"),
+                rule("P2", "Timeout"),
+                rule("P3", "NullPointer", "IllegalArgument"));
+    }
+
+    private static SeverityProperties.Rule rule(String severity, String... nameContains) {
+        SeverityProperties.Rule rule = new SeverityProperties.Rule();
+        rule.setSeverity(severity);
+        rule.setNameContains(List.of(nameContains));
+        return rule;
+    }
+
+    private static int levelOf(String severity) {
+        return severity != null ? LEVELS.indexOf(severity.trim().toUpperCase(Locale.ROOT)) : -1;
+    }
+
+    private static Set<String> lowerCaseSet(List<String> values) {
+        Set<String> set = new HashSet<>();
+        if (values != null) {
+            for (String value : values) {
+                if (value != null && !value.isBlank()) {
+                    set.add(value.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return set;
+    }
+
+    private static Set<String> setOrNull(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        Set<String> set = new HashSet<>();
+        for (String value : values) {
+            if (value != null && !value.isBlank()) {
+                set.add(value.trim());
+            }
+        }
+        return set.isEmpty() ? null : set;
+    }
+
+    private static String[] arrayOrNull(List<String> values) {
+        Set<String> set = setOrNull(values);
+        return set != null ? set.toArray(new String[0]) : null;
+    }
+
+    /**
+     * 编译后的规则（未配置的条件为 null）
+     */
+    private static final class CompiledRule {
+        private final int level;
+        private final boolean escalate;
+        private final Set<String> exceptionTypes;
+        private final Set<String> superTypes;
+        private final String[] packages;
+        private final String[] nameContains;
+        private final Set<String> environments;
+
+        CompiledRule(SeverityProperties.Rule rule, int level) {
+            this.level = level;
+            this.escalate = rule.isEscalate();
+            this.exceptionTypes = setOrNull(rule.getExceptionTypes());
+            this.superTypes = setOrNull(rule.getSuperTypes());
+            this.packages = arrayOrNull(rule.getPackages());
+            this.nameContains = arrayOrNull(rule.getNameContains());
+            Set<String> envs = lowerCaseSet(rule.getEnvironments());
+            this.environments = envs.isEmpty() ? null : envs;
+        }
+
+        boolean matches(String exceptionType, String environment, Set<String> hierarchy) {
+            if (environments != null && !environments.contains(environment)) {
+                return false;
+            }
+            if (exceptionTypes != null && !exceptionTypes.contains(exceptionType)
+                    && !exceptionTypes.contains(simpleName(exceptionType))) {
+                return false;
+            }
+            if (superTypes != null && !containsAny(superTypes, hierarchy)) {
+                return false;
+            }
+            if (packages != null && !startsWithAny(exceptionType, packages)) {
+                return false;
+            }
+            return nameContains == null || containsAny(exceptionType, nameContains);
+        }
+
+        private static boolean containsAny(Set<String> expected, Set<String> actual) {
+            for (String name : actual) {
+                if (expected.contains(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean startsWithAny(String exceptionType, String[] prefixes) {
+            for (String prefix : prefixes) {
+                if (exceptionType.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean containsAny(String exceptionType, String[] keywords) {
+            for (String keyword : keywords) {
+                if (exceptionType.contains(keyword)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String simpleName(String exceptionType) {
+            int dot = exceptionType.lastIndexOf('.');
+            return dot >= 0 ? exceptionType.substring(dot + 1) : exceptionType;
+        }
+    }
+
+    /**
+     * 分级统计信息
+     */
+    @Data
+    @Builder
+    public static class SeverityStats {
+        private int rules;
+        private int cachedEntries;
+        private long cacheHits;
+        private long cacheMisses;
+    }
+}
@@ -0,0 +1,91 @@
+package com.all.in.one.agent.starter.severity;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 严重级别分级配置
+ * <p>
+ * 规则按顺序匹配，第一条命中的规则决定基础级别；在 escalatedEnvironments 中的环境再提升一级（最高 P0）。
+ * 未配置规则时使用内置规则（OOM/栈溢出 P0、数据库 P1、超时 P2、空指针/参数 P3、其他 P4）
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "one-agent.severity")
+public class SeverityProperties {
+
+    /**
+     * 未匹配任何规则时的严重级别
+     * 默认: P4
+     */
+    private String defaultSeverity = "P4";
+
+    /**
+     * 提升一个级别的环境（不区分大小写）
+     * 默认: prod
+     */
+    private List<String> escalatedEnvironments = new ArrayList<>(List.of("prod"));
+
+    /**
+     * 最多缓存的（异常类型, 环境）组合数，超出后不再缓存新组合
+     * 默认: 10000
+     */
+    private int maxCachedEntries = 10000;
+
+    /**
+     * 分级规则（按顺序匹配），为空时使用内置规则
+     */
+    private List<Rule> rules = new ArrayList<>();
+
+    /**
+     * 分级规则
+     * <p>
+     * 同一条规则内的各条件之间为“且”，每个条件内的多个值为“或”；未配置的条件不参与匹配
+     * </p>
+     */
+    @Data
+    public static class Rule {
+        /**
+         * 命中时的严重级别（P0-P4）
+         */
+        private String severity;
+
+        /**
+         * 异常类型（全限定名或简单类名）
+         */
+        private List<String> exceptionTypes = new ArrayList<>();
+
+        /**
+         * 父类型：异常类本身或任一父类、接口是其中之一即命中（异常类无法加载时按异常类型名称比较）
+         */
+        private List<String> superTypes = new ArrayList<>();
+
+        /**
+         * 异常类所在包（前缀匹配）
+         */
+        private List<String> packages = new ArrayList<>();
+
+        /**
+         * 异常类型名称包含的关键字
+         */
+        private List<String> nameContains = new ArrayList<>();
+
+        /**
+         * 生效环境（不区分大小写），为空时所有环境生效
+         */
+        private List<String> environments = new ArrayList<>();
+
+        /**
+         * 是否在 escalatedEnvironments 中提升一级
+         * 默认: true
+         */
+        private boolean escalate = true;
+    }
+}
@@ -0,0 +1,172 @@
+package com.all.in.one.agent.starter.snapshot;
+
+import com.all.in.one.agent.common.config.AgentProperties;
+import com.all.in.one.agent.common.util.StateSnapshotFile;
+import com.all.in.one.agent.starter.dedup.FingerprintDedupProperties;
+import com.all.in.one.agent.starter.dedup.FingerprintDeduplicator;
+import com.all.in.one.agent.starter.rule.FrequencyLimitRule;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 指纹状态快照
+ * <p>
+ * 定期把第 1 层去重记录和频率限制记录写入本地快照文件（{@link StateSnapshotFile}），
+ * 启动时恢复并按停机时长扣减剩余存活时间：重启后长期存在的异常仍按原窗口被过滤，
+ * 不会在实例启动时集中冲击数据库、AI 和飞书
+ * </p>
+ * <p>
+ * 快照文件损坏或配置变化（窗口模式、窗口长度）时忽略旧快照，从空状态开始
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "one-agent.dedup.snapshot", name = "enabled", havingValue = "true")
+public class FingerprintStateSnapshotter {
+
+    private final FingerprintDeduplicator deduplicator;
+    private final FrequencyLimitRule frequencyLimitRule;
+    private final Path dedupFile;
+    private final Path frequencyFile;
+    private final int intervalSeconds;
+    private ScheduledExecutorService scheduler;
+
+    // 统计信息
+    private final LongAdder snapshots = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile int restoredEntries;
+    private volatile int lastSnapshotEntries;
+    private volatile long lastSnapshotMillis;
+
+    public FingerprintStateSnapshotter(FingerprintDedupProperties dedupProperties,
+                                       AgentProperties agentProperties,
+                                       FingerprintDeduplicator deduplicator,
+                                       ObjectProvider<FrequencyLimitRule> frequencyLimitRule) {
+        this.deduplicator = deduplicator;
+        this.frequencyLimitRule = frequencyLimitRule.getIfAvailable();
+        FingerprintDedupProperties.Snapshot config = dedupProperties.getSnapshot();
+        String directory = config.getDirectory() != null && !config.getDirectory().isBlank()
+                ? config.getDirectory()
+                : Paths.get(System.getProperty("java.io.tmpdir"), "one-agent").toString();
+        String appName = agentProperties.getAppName() != null ? agentProperties.getAppName() : "unknown";
+        this.dedupFile = Paths.get(directory, appName + "-dedup.snapshot");
+        this.frequencyFile = Paths.get(directory, appName + "-frequency.snapshot");
+        this.intervalSeconds = Math.max(1, config.getIntervalSeconds());
+    }
+
+    /**
+     * 启动时恢复状态并开始定期快照
+     */
+    @PostConstruct
+    public void start() {
+        int restored = restore("去重记录", dedupFile, deduplicator.getSnapshotTag(), deduplicator::restoreEntry);
+        if (frequencyLimitRule != null) {
+            restored += restore("频率限制记录", frequencyFile, frequencyLimitRule.getWindowMinutes(),
+                    frequencyLimitRule::restoreEntry);
+        }
+        this.restoredEntries = restored;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "one-agent-state-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::snapshot, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        log.info("指纹状态快照已启用 - dedupFile={}, interval={}秒, restored={}", dedupFile, intervalSeconds, restored);
+    }
+
+    /**
+     * 停机前写入最后一次快照
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        snapshot();
+    }
+
+    /**
+     * 写入快照
+     */
+    public synchronized void snapshot() {
+        long startNanos = System.nanoTime();
+        int entries = write("去重记录", dedupFile, deduplicator.getSnapshotTag(), deduplicator::exportEntries);
+        if (frequencyLimitRule != null) {
+            entries += write("频率限制记录", frequencyFile, frequencyLimitRule.getWindowMinutes(),
+                    frequencyLimitRule::exportEntries);
+        }
+        snapshots.increment();
+        lastSnapshotEntries = entries;
+        lastSnapshotMillis = System.currentTimeMillis();
+        if (log.isDebugEnabled()) {
+            log.debug("指纹状态快照完成 - entries={}, 耗时: {}ms",
+                    entries, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+    }
+
+    private int write(String name, Path file, long tag, Consumer<StateSnapshotFile.EntrySink> source) {
+        try {
+            return StateSnapshotFile.write(file, tag, System.currentTimeMillis(), source);
+        } catch (Exception e) {
+            failures.increment();
+            log.warn("{}快照写入失败 - file={}, error={}", name, file, e.getMessage());
+            return 0;
+        }
+    }
+
+    private int restore(String name, Path file, long tag, StateSnapshotFile.EntrySink sink) {
+        long startNanos = System.nanoTime();
+        try {
+            int restored = StateSnapshotFile.read(file, tag, System.currentTimeMillis(), sink);
+            log.info("{}已从快照恢复 - file={}, entries={}, 耗时: {}ms",
+                    name, file, restored, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            return restored;
+        } catch (Exception e) {
+            log.warn("{}快照不可用，从空状态开始 - file={}, error={}", name, file, e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * 获取快照统计
+     */
+    public SnapshotStats getStats() {
+        return SnapshotStats.builder()
+                .restoredEntries(restoredEntries)
+                .snapshots(snapshots.sum())
+                .failures(failures.sum())
+                .lastSnapshotEntries(lastSnapshotEntries)
+                .lastSnapshotMillis(lastSnapshotMillis)
+                .build();
+    }
+
+    /**
+     * 快照统计信息
+     */
+    @Data
+    @Builder
+    public static class SnapshotStats {
+        private int restoredEntries;
+        private long snapshots;
+        private long failures;
+        private int lastSnapshotEntries;
+        private long lastSnapshotMillis;
+    }
+}
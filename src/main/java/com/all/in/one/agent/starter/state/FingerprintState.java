@@ -0,0 +1,184 @@
+package com.all.in.one.agent.starter.state;
+
+import com.all.in.one.agent.ai.model.DenoiseDecision;
+
+/**
+ * 单个指纹的统一状态记录
+ * <p>
+ * 同一指纹在各层用到的状态放在一条记录中：第 1 层去重窗口、第 1.5 层频率计数、
+ * 第 2 层 AI 决策缓存、未关闭工单 ID。每个字段有自己的过期时刻（墙上时钟毫秒），
+ * 字段过期只影响该字段，记录本身由 {@link FingerprintStateTable} 按写入时间淘汰
+ * </p>
+ * <p>
+ * 所有方法在记录自身上同步，临界区只有几次字段读写
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public final class FingerprintState {
+
+    // 第 1 层：去重窗口
+    private long dedupCount;
+    private long dedupExpiresAt;
+
+    // 第 1.5 层：频率限制
+    private long frequencyWindowStart;
+    private int frequencyCount;
+    private long frequencyExpiresAt;
+
+    // 第 2 层：AI 决策
+    private DenoiseDecision decision;
+    private long decisionExpiresAt;
+
+    // 未关闭工单
+    private long openTicketId;
+    private long openTicketExpiresAt;
+
+    // ========== 去重窗口 ==========
+
+    /**
+     * 记录一次出现
+     *
+     * @param nowMillis      当前时间
+     * @param windowExpireAt 窗口已过期时，新窗口的过期时刻
+     * @return 本窗口内的出现次数（1 表示首次出现，即唯一的放行者）
+     */
+    public synchronized long recordDedup(long nowMillis, long windowExpireAt) {
+        if (nowMillis >= dedupExpiresAt) {
+            dedupCount = 1;
+            dedupExpiresAt = windowExpireAt;
+            return 1;
+        }
+        return ++dedupCount;
+    }
+
+    /**
+     * 合并在别处累计的出现次数（窗口已过期时忽略）
+     */
+    public synchronized void addDedup(long delta, long nowMillis) {
+        if (nowMillis < dedupExpiresAt) {
+            dedupCount += delta;
+        }
+    }
+
+    /**
+     * 恢复去重窗口（当前窗口仍有效时不覆盖）
+     */
+    public synchronized void restoreDedup(long count, long expiresAt, long nowMillis) {
+        if (nowMillis >= dedupExpiresAt && expiresAt > nowMillis) {
+            dedupCount = count;
+            dedupExpiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * 当前窗口内的出现次数，窗口已过期时返回 0
+     */
+    public synchronized long dedupCount(long nowMillis) {
+        return nowMillis < dedupExpiresAt ? dedupCount : 0;
+    }
+
+    public synchronized long dedupExpiresAt() {
+        return dedupExpiresAt;
+    }
+
+    /**
+     * 清除去重窗口
+     */
+    public synchronized void clearDedup() {
+        dedupCount = 0;
+        dedupExpiresAt = 0;
+    }
+
+    // ========== 频率限制 ==========
+
+    /**
+     * 记录一次出现，窗口已过期时从当前时间开始新窗口
+     * <p>
+     * 与独立频率缓存的计数方式一致：新窗口的记录以 1 创建后再累加本次出现
+     * </p>
+     *
+     * @return 窗口内的计数
+     */
+    public synchronized int recordFrequency(long nowMillis, long windowMillis) {
+        if (nowMillis >= frequencyExpiresAt) {
+            frequencyWindowStart = nowMillis;
+            frequencyExpiresAt = nowMillis + windowMillis;
+            frequencyCount = 1;
+        }
+        return ++frequencyCount;
+    }
+
+    /**
+     * 合并在别处累计的次数（窗口已过期时忽略）
+     */
+    public synchronized void addFrequency(long delta, long nowMillis) {
+        if (nowMillis < frequencyExpiresAt) {
+            frequencyCount = (int) Math.min(Integer.MAX_VALUE, frequencyCount + delta);
+        }
+    }
+
+    /**
+     * 恢复频率窗口（当前窗口仍有效时不覆盖）
+     */
+    public synchronized void restoreFrequency(int count, long windowStart, long expiresAt, long nowMillis) {
+        if (nowMillis >= frequencyExpiresAt && expiresAt > nowMillis) {
+            frequencyCount = count;
+            frequencyWindowStart = windowStart;
+            frequencyExpiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * 当前窗口内的计数，窗口已过期时返回 0
+     */
+    public synchronized int frequencyCount(long nowMillis) {
+        return nowMillis < frequencyExpiresAt ? frequencyCount : 0;
+    }
+
+    public synchronized long frequencyWindowStart() {
+        return frequencyWindowStart;
+    }
+
+    public synchronized long frequencyExpiresAt() {
+        return frequencyExpiresAt;
+    }
+
+    // ========== AI 决策 ==========
+
+    /**
+     * 缓存的 AI 决策，已过期时返回 null
+     */
+    public synchronized DenoiseDecision decision(long nowMillis) {
+        return nowMillis < decisionExpiresAt ? decision : null;
+    }
+
+    public synchronized void putDecision(DenoiseDecision decision, long expiresAt) {
+        this.decision = decision;
+        this.decisionExpiresAt = expiresAt;
+    }
+
+    public synchronized void clearDecision() {
+        this.decision = null;
+        this.decisionExpiresAt = 0;
+    }
+
+    // ========== 未关闭工单 ==========
+
+    /**
+     * 缓存的未关闭工单 ID，已过期或不存在时返回 0
+     */
+    public synchronized long openTicketId(long nowMillis) {
+        return nowMillis < openTicketExpiresAt ? openTicketId : 0;
+    }
+
+    public synchronized void putOpenTicket(long ticketId, long expiresAt) {
+        this.openTicketId = ticketId;
+        this.openTicketExpiresAt = expiresAt;
+    }
+
+    public synchronized void clearOpenTicket() {
+        this.openTicketId = 0;
+        this.openTicketExpiresAt = 0;
+    }
+}
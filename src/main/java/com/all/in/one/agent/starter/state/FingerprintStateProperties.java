@@ -0,0 +1,46 @@
+package com.all.in.one.agent.starter.state;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 统一指纹状态表配置
+ * <p>
+ * 启用后第 1 层去重（storage=memory 时）、频率限制、AI 决策缓存和未关闭工单查找
+ * 共用一张以指纹为键的状态表，不再各自维护缓存
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "one-agent.fingerprint-state")
+public class FingerprintStateProperties {
+
+    /**
+     * 是否启用统一状态表
+     * 默认: false
+     */
+    private boolean enabled = false;
+
+    /**
+     * 最大指纹数
+     * 默认: 100000
+     */
+    private int maxEntries = 100000;
+
+    /**
+     * 记录存活时间（分钟），从最后一次字段更新起计算
+     * 应不小于各字段的有效期（去重窗口、频率窗口、AI 决策缓存时间、工单缓存时间）
+     * 默认: 60
+     */
+    private int stateTtlMinutes = 60;
+
+    /**
+     * 未关闭工单 ID 缓存时间（分钟）
+     * 命中时只执行一条带状态条件的更新，工单已被关闭则回退到数据库查询
+     * 默认: 10
+     */
+    private int openTicketTtlMinutes = 10;
+}
@@ -0,0 +1,175 @@
+package com.all.in.one.agent.starter.state;
+
+import com.all.in.one.agent.common.util.LongKeyedCache;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 统一指纹状态表
+ * <p>
+ * 以 64 位指纹为键保存 {@link FingerprintState}，一次哈希查找即可拿到该指纹在各层的状态：
+ * 去重窗口、频率计数、AI 决策、未关闭工单 ID。相比每层一个缓存，每个指纹只占一个槽位和一个记录对象
+ * </p>
+ * <p>
+ * 记录在最后一次 {@link #touch} 后 stateTtlMinutes 过期；各字段的有效期由记录自身管理。
+ * 写入新窗口、新决策或工单 ID 的调用方负责 touch，延长记录存活时间
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "one-agent.fingerprint-state", name = "enabled", havingValue = "true")
+public class FingerprintStateTable {
+
+    private final LongKeyedCache<FingerprintState> states;
+    private final long stateTtlMillis;
+
+    public FingerprintStateTable(FingerprintStateProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    /**
+     * @param ticker 单调时钟（纳秒），用于记录过期（测试中可替换为可控时钟）
+     */
+    public FingerprintStateTable(FingerprintStateProperties properties, LongSupplier ticker) {
+        this.stateTtlMillis = TimeUnit.MINUTES.toMillis(Math.max(1, properties.getStateTtlMinutes()));
+        this.states = new LongKeyedCache<>(
+                Math.max(1, properties.getMaxEntries()),
+                stateTtlMillis,
+                TimeUnit.MILLISECONDS,
+                ticker);
+        log.info("统一指纹状态表已启用 - maxEntries={}, stateTtl={}分钟",
+                properties.getMaxEntries(), properties.getStateTtlMinutes());
+    }
+
+    /**
+     * 获取指纹状态，不存在时创建
+     */
+    public FingerprintState state(long fingerprintHash) {
+        return states.get(fingerprintHash, key -> new FingerprintState());
+    }
+
+    /**
+     * 获取指纹状态，不存在时返回 null
+     */
+    public FingerprintState peek(long fingerprintHash) {
+        return states.getIfPresent(fingerprintHash);
+    }
+
+    /**
+     * 字段写入后延长记录存活时间
+     */
+    public void touch(long fingerprintHash, FingerprintState state) {
+        states.refresh(fingerprintHash, state);
+    }
+
+    /**
+     * 遍历所有未过期的记录（回调中不能访问本表）
+     */
+    public void forEach(StateVisitor visitor) {
+        states.forEach((key, state, remainingNanos) -> visitor.visit(key, state));
+    }
+
+    /**
+     * 记录存活时间（毫秒），字段有效期超过该值时可能随记录提前过期
+     */
+    public long getStateTtlMillis() {
+        return stateTtlMillis;
+    }
+
+    public long size() {
+        return states.estimatedSize();
+    }
+
+    public double hitRate() {
+        return states.hitRate();
+    }
+
+    public long evictionCount() {
+        return states.evictionCount();
+    }
+
+    /**
+     * 清空所有记录
+     */
+    public void clear() {
+        states.invalidateAll();
+    }
+
+    /**
+     * 获取统计信息（逐条统计各字段的有效数量）
+     */
+    public StateTableStats getStats() {
+        long now = System.currentTimeMillis();
+        long[] counts = new long[4];
+        forEach((key, state) -> {
+            if (state.dedupCount(now) > 0) {
+                counts[0]++;
+            }
+            if (state.frequencyCount(now) > 0) {
+                counts[1]++;
+            }
+            if (state.decision(now) != null) {
+                counts[2]++;
+            }
+            if (state.openTicketId(now) > 0) {
+                counts[3]++;
+            }
+        });
+        return StateTableStats.builder()
+                .size(size())
+                .hitRate(hitRate())
+                .evictionCount(evictionCount())
+                .dedupWindows(counts[0])
+                .frequencyWindows(counts[1])
+                .cachedDecisions(counts[2])
+                .openTickets(counts[3])
+                .build();
+    }
+
+    /**
+     * 记录遍历回调
+     */
+    @FunctionalInterface
+    public interface StateVisitor {
+        void visit(long fingerprintHash, FingerprintState state);
+    }
+
+    /**
+     * 状态表统计信息
+     */
+    @Data
+    @Builder
+    public static class StateTableStats {
+        private long size;
+        private double hitRate;
+        private long evictionCount;
+
+        /**
+         * 去重窗口未过期的指纹数
+         */
+        private long dedupWindows;
+
+        /**
+         * 频率窗口未过期的指纹数
+         */
+        private long frequencyWindows;
+
+        /**
+         * 缓存了 AI 决策的指纹数
+         */
+        private long cachedDecisions;
+
+        /**
+         * 缓存了未关闭工单的指纹数
+         */
+        private long openTickets;
+    }
+}
@@ -0,0 +1,30 @@
+package com.all.in.one.agent.starter.trace;
+
+import com.all.in.one.agent.starter.logging.HttpLogContextHolder;
+import com.all.in.one.agent.starter.logging.HttpLogFilter;
+
+/**
+ * 从 HttpLogFilter 的请求上下文读取 TraceId（X-Trace-Id / traceId 请求头或生成的 UUID）
+ *
+ * @author One Agent 4J
+ */
+public class HttpContextTraceProvider implements TraceContextProvider {
+
+    public static final String NAME = "http-context";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String traceId() {
+        HttpLogFilter.HttpLogContext context = HttpLogContextHolder.getContext();
+        return context != null ? context.getTraceId() : null;
+    }
+
+    @Override
+    public String spanId() {
+        return null;
+    }
+}
@@ -0,0 +1,36 @@
+package com.all.in.one.agent.starter.trace;
+
+import org.slf4j.MDC;
+
+/**
+ * 从 SLF4J MDC 读取 TraceId / SpanId
+ *
+ * @author One Agent 4J
+ */
+public class MdcTraceProvider implements TraceContextProvider {
+
+    public static final String NAME = "mdc";
+
+    private final String traceIdKey;
+    private final String spanIdKey;
+
+    public MdcTraceProvider(String traceIdKey, String spanIdKey) {
+        this.traceIdKey = traceIdKey;
+        this.spanIdKey = spanIdKey;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String traceId() {
+        return MDC.get(traceIdKey);
+    }
+
+    @Override
+    public String spanId() {
+        return MDC.get(spanIdKey);
+    }
+}
@@ -0,0 +1,97 @@
+package com.all.in.one.agent.starter.trace;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * 从 OpenTelemetry 当前 Span 读取 TraceId / SpanId
+ * <p>
+ * OpenTelemetry API 不是本项目的依赖，启动时检测类路径：
+ * 存在则查找一次 MethodHandle 并绑定，不存在则该提供者不可用
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Slf4j
+public class OpenTelemetryTraceProvider implements TraceContextProvider {
+
+    public static final String NAME = "opentelemetry";
+
+    private static final String SPAN_CLASS = "io.opentelemetry.api.trace.Span";
+    private static final String SPAN_CONTEXT_CLASS = "io.opentelemetry.api.trace.SpanContext";
+
+    /**
+     * () -> SpanContext，即 Span.current().getSpanContext()
+     */
+    private final MethodHandle currentSpanContext;
+    private final MethodHandle isValid;
+    private final MethodHandle getTraceId;
+    private final MethodHandle getSpanId;
+
+    public OpenTelemetryTraceProvider() {
+        MethodHandle current = null;
+        MethodHandle valid = null;
+        MethodHandle traceId = null;
+        MethodHandle spanId = null;
+        try {
+            ClassLoader classLoader = OpenTelemetryTraceProvider.class.getClassLoader();
+            Class<?> spanClass = Class.forName(SPAN_CLASS, false, classLoader);
+            Class<?> spanContextClass = Class.forName(SPAN_CONTEXT_CLASS, false, classLoader);
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+            MethodHandle spanCurrent = lookup.findStatic(spanClass, "current", MethodType.methodType(spanClass));
+            MethodHandle spanGetContext = lookup.findVirtual(spanClass, "getSpanContext",
+                    MethodType.methodType(spanContextClass));
+            current = MethodHandles.filterReturnValue(spanCurrent, spanGetContext)
+                    .asType(MethodType.methodType(Object.class));
+            valid = lookup.findVirtual(spanContextClass, "isValid", MethodType.methodType(boolean.class))
+                    .asType(MethodType.methodType(boolean.class, Object.class));
+            traceId = lookup.findVirtual(spanContextClass, "getTraceId", MethodType.methodType(String.class))
+                    .asType(MethodType.methodType(String.class, Object.class));
+            spanId = lookup.findVirtual(spanContextClass, "getSpanId", MethodType.methodType(String.class))
+                    .asType(MethodType.methodType(String.class, Object.class));
+        } catch (ClassNotFoundException e) {
+            log.debug("未检测到 OpenTelemetry API，跳过 OpenTelemetry 链路提供者");
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("OpenTelemetry API 绑定失败，跳过 OpenTelemetry 链路提供者 - error={}", e.getMessage());
+            current = null;
+        }
+        this.currentSpanContext = current;
+        this.isValid = valid;
+        this.getTraceId = traceId;
+        this.getSpanId = spanId;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return currentSpanContext != null;
+    }
+
+    @Override
+    public String traceId() {
+        try {
+            Object spanContext = (Object) currentSpanContext.invokeExact();
+            return (boolean) isValid.invokeExact(spanContext) ? (String) getTraceId.invokeExact(spanContext) : null;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String spanId() {
+        try {
+            Object spanContext = (Object) currentSpanContext.invokeExact();
+            return (boolean) isValid.invokeExact(spanContext) ? (String) getSpanId.invokeExact(spanContext) : null;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+}
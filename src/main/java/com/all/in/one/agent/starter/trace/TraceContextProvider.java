@@ -0,0 +1,39 @@
+package com.all.in.one.agent.starter.trace;
+
+/**
+ * 链路追踪上下文提供者
+ * <p>
+ * 在异常发生线程上读取 TraceId / SpanId。
+ * 实现在启动时完成绑定（类加载、方法句柄查找），读取时只做几次字段访问
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public interface TraceContextProvider {
+
+    /**
+     * 提供者名称（对应配置 one-agent.trace.providers 中的取值）
+     */
+    String getName();
+
+    /**
+     * 当前环境下是否可用（启动时调用一次）
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * 读取当前线程的 TraceId
+     *
+     * @return TraceId，没有时返回 null
+     */
+    String traceId();
+
+    /**
+     * 读取当前线程的 SpanId
+     *
+     * @return SpanId，没有时返回 null
+     */
+    String spanId();
+}
@@ -0,0 +1,98 @@
+package com.all.in.one.agent.starter.trace;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 链路追踪上下文解析器
+ * <p>
+ * 启动时按配置顺序实例化提供者并剔除不可用的，
+ * 运行时按顺序取第一个非空的 TraceId / SpanId，不再使用反射
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Slf4j
+public class TraceContextResolver {
+
+    /**
+     * 旧版行为：先读 HTTP 请求上下文，再读 MDC
+     */
+    private static final TraceContextResolver DEFAULT = new TraceContextResolver(new TraceContextProvider[]{
+            new HttpContextTraceProvider(),
+            new MdcTraceProvider("traceId", "spanId")
+    });
+
+    private final TraceContextProvider[] providers;
+
+    public TraceContextResolver(TraceContextProvider[] providers) {
+        this.providers = providers;
+    }
+
+    /**
+     * 按名称创建解析器
+     *
+     * @param names        提供者名称（按优先级排序）
+     * @param mdcTraceIdKey MDC 中 TraceId 的键
+     * @param mdcSpanIdKey  MDC 中 SpanId 的键
+     */
+    public static TraceContextResolver create(List<String> names, String mdcTraceIdKey, String mdcSpanIdKey) {
+        List<TraceContextProvider> providers = new ArrayList<>();
+        for (String name : names) {
+            TraceContextProvider provider = createProvider(name.trim(), mdcTraceIdKey, mdcSpanIdKey);
+            if (provider == null) {
+                log.warn("未知的链路追踪提供者，已忽略 - name={}", name);
+            } else if (provider.isAvailable()) {
+                providers.add(provider);
+            }
+        }
+        log.info("链路追踪提供者已绑定 - providers={}",
+                providers.stream().map(TraceContextProvider::getName).toList());
+        return new TraceContextResolver(providers.toArray(new TraceContextProvider[0]));
+    }
+
+    /**
+     * 默认解析器（HTTP 请求上下文 + MDC）
+     */
+    public static TraceContextResolver defaultResolver() {
+        return DEFAULT;
+    }
+
+    private static TraceContextProvider createProvider(String name, String mdcTraceIdKey, String mdcSpanIdKey) {
+        return switch (name) {
+            case W3cTraceparentProvider.NAME -> new W3cTraceparentProvider();
+            case OpenTelemetryTraceProvider.NAME -> new OpenTelemetryTraceProvider();
+            case HttpContextTraceProvider.NAME -> new HttpContextTraceProvider();
+            case MdcTraceProvider.NAME -> new MdcTraceProvider(mdcTraceIdKey, mdcSpanIdKey);
+            default -> null;
+        };
+    }
+
+    /**
+     * 读取当前线程的 TraceId
+     */
+    public String traceId() {
+        for (TraceContextProvider provider : providers) {
+            String traceId = provider.traceId();
+            if (traceId != null && !traceId.isEmpty()) {
+                return traceId;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 读取当前线程的 SpanId
+     */
+    public String spanId() {
+        for (TraceContextProvider provider : providers) {
+            String spanId = provider.spanId();
+            if (spanId != null && !spanId.isEmpty()) {
+                return spanId;
+            }
+        }
+        return null;
+    }
+}
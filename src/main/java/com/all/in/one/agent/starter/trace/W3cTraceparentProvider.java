@@ -0,0 +1,34 @@
+package com.all.in.one.agent.starter.trace;
+
+import com.all.in.one.agent.starter.logging.HttpLogContextHolder;
+import com.all.in.one.agent.starter.logging.HttpLogFilter;
+
+/**
+ * 从 W3C traceparent 请求头读取 TraceId / SpanId
+ * <p>
+ * 请求头由 HttpLogFilter 在请求开始时解析一次，这里只读取解析结果
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public class W3cTraceparentProvider implements TraceContextProvider {
+
+    public static final String NAME = "w3c";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String traceId() {
+        HttpLogFilter.HttpLogContext context = HttpLogContextHolder.getContext();
+        return context != null ? context.getTraceparentTraceId() : null;
+    }
+
+    @Override
+    public String spanId() {
+        HttpLogFilter.HttpLogContext context = HttpLogContextHolder.getContext();
+        return context != null ? context.getTraceparentSpanId() : null;
+    }
+}
@@ -0,0 +1,100 @@
+package com.all.in.one.agent.common.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 异常信息模型延迟加载测试
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("异常信息模型延迟加载测试")
+class ExceptionInfoTest {
+
+    private final AtomicInteger stackTraceLoads = new AtomicInteger();
+    private final AtomicInteger hostLoads = new AtomicInteger();
+    private final AtomicInteger requestInfoLoads = new AtomicInteger();
+
+    @Test
+    @DisplayName("toString 不触发延迟加载，也不计算 MD5 指纹")
+    void testToStringDoesNotLoad() {
+        ExceptionInfo info = lazyInfo();
+        String text = info.toString();
+
+        assertLoads(0);
+        assertTrue(text.contains("exceptionType=IllegalStateException"), text);
+        assertTrue(text.contains("stackTrace=null"), "尚未加载的字段按 null 输出：" + text);
+        assertTrue(text.contains("fingerprint=null"), text);
+        assertFalse(text.contains("Loader"), "加载器不参与输出");
+    }
+
+    @Test
+    @DisplayName("equals / hashCode 不触发延迟加载")
+    void testEqualsAndHashCodeDoNotLoad() {
+        ExceptionInfo first = lazyInfo();
+        ExceptionInfo second = lazyInfo();
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        Set<ExceptionInfo> set = new HashSet<>();
+        set.add(first);
+        assertTrue(set.contains(second));
+        assertLoads(0);
+
+        second.setExceptionMessage("other");
+        assertNotEquals(first, second);
+        assertLoads(0);
+    }
+
+    @Test
+    @DisplayName("getter 首次访问时各加载一次，之后 toString 输出已加载的值")
+    void testGettersLoadOnce() {
+        ExceptionInfo info = lazyInfo();
+
+        assertEquals("trace", info.getStackTrace());
+        assertEquals("host-1", info.getHostname());
+        assertEquals("10.0.0.1", info.getIp());
+        assertEquals("app@host-1", info.getInstanceId());
+        assertEquals("/orders", info.getRequestInfo().getUri());
+        info.materialize();
+        assertLoads(1);
+
+        String text = info.toString();
+        assertTrue(text.contains("stackTrace=trace"), text);
+        assertTrue(text.contains("hostname=host-1"), text);
+        assertLoads(1);
+    }
+
+    private ExceptionInfo lazyInfo() {
+        return ExceptionInfo.builder()
+                .appName("app")
+                .exceptionType("IllegalStateException")
+                .exceptionMessage("boom")
+                .errorLocation("com.example.OrderService.create:42")
+                .stackTraceLoader(() -> {
+                    stackTraceLoads.incrementAndGet();
+                    return "trace";
+                })
+                .hostLoader(() -> {
+                    hostLoads.incrementAndGet();
+                    return new HostIdentity("host-1", "10.0.0.1", "app@host-1");
+                })
+                .requestInfoLoader(() -> {
+                    requestInfoLoads.incrementAndGet();
+                    return ExceptionInfo.RequestInfo.builder().method("POST").uri("/orders").build();
+                })
+                .build();
+    }
+
+    private void assertLoads(int expected) {
+        assertEquals(expected, stackTraceLoads.get(), "stackTrace 加载次数");
+        assertEquals(expected, hostLoads.get(), "主机信息加载次数");
+        assertEquals(expected, requestInfoLoads.get(), "requestInfo 加载次数");
+    }
+}
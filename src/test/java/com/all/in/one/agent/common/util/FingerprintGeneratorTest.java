@@ -0,0 +1,92 @@
+package com.all.in.one.agent.common.util;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 异常指纹生成器测试
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("异常指纹生成器测试")
+class FingerprintGeneratorTest {
+
+    @Test
+    @DisplayName("按字段计算的 64 位指纹与按拼接后的错误位置计算的一致")
+    void testFieldHashMatchesLocationHash() {
+        String[] types = {"NullPointerException", "E", "", "异常类型", "com.example.VeryLongBusinessException"};
+        String[] classes = {"com.example.OrderService", "A", "", "订单服务", "$Proxy12"};
+        String[] methods = {"createOrder", "m", "", "lambda$run$0", "<init>"};
+        int[] lines = {0, 1, 9, 10, 42, 99, 100, 1234, -1, -2, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        // 覆盖不同长度组合（按 4 个字符分块，块边界位置各不相同）
+        for (String type : types) {
+            for (String errorClass : classes) {
+                for (String method : methods) {
+                    for (int line : lines) {
+                        String location = errorClass + "." + method + ":" + line;
+                        assertEquals(FingerprintGenerator.hash64(type, location),
+                                FingerprintGenerator.hash64(type, errorClass, method, line),
+                                "type=" + type + ", location=" + location);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("null 字段按 \"null\" 参与计算，与字符串拼接一致")
+    void testNullFieldsMatchConcatenation() {
+        assertEquals(FingerprintGenerator.hash64(null, "null.null:0"),
+                FingerprintGenerator.hash64(null, null, null, 0));
+        assertEquals(FingerprintGenerator.hash64("E", "null.run:5"),
+                FingerprintGenerator.hash64("E", null, "run", 5));
+        assertEquals(FingerprintGenerator.hash64("null", "null"), FingerprintGenerator.hash64(null, null));
+    }
+
+    @Test
+    @DisplayName("ExceptionInfoBuilder 与 TicketGenerationService 两种调用方式得到同一指纹")
+    void testBuilderAndLocationCallersAgree() {
+        // 构建异常信息时按字段计算；持久化、工单侧只有 exceptionType 和 errorLocation
+        long fromFields = FingerprintGenerator.hash64("IllegalStateException",
+                "com.example.PaymentService", "charge", 87);
+        ExceptionInfo restored = ExceptionInfo.builder()
+                .exceptionType("IllegalStateException")
+                .errorLocation("com.example.PaymentService.charge:87")
+                .build();
+        assertEquals(fromFields, restored.getFingerprintHash(), "未设置哈希时按 errorLocation 计算");
+        assertEquals(fromFields,
+                FingerprintGenerator.hash64("IllegalStateException", "com.example.PaymentService.charge:87"));
+        assertEquals(FingerprintGenerator.generate("IllegalStateException", "com.example.PaymentService", "charge", 87),
+                FingerprintGenerator.generate("IllegalStateException", "com.example.PaymentService.charge:87"));
+    }
+
+    @Test
+    @DisplayName("字段边界不同的输入得到不同指纹，指纹不为 0")
+    void testDistinctInputs() {
+        Set<Long> hashes = new HashSet<>();
+        hashes.add(FingerprintGenerator.hash64("E", "a.b", "c", 1));
+        hashes.add(FingerprintGenerator.hash64("E", "a", "b.c", 1));
+        hashes.add(FingerprintGenerator.hash64("E", "a.b", "c", 11));
+        hashes.add(FingerprintGenerator.hash64("F", "a.b", "c", 1));
+        hashes.add(FingerprintGenerator.hash64("E", "a.b", "c", -1));
+        assertEquals(4, hashes.size(), "a.b/c 与 a/b.c 拼接后相同，其余应不同");
+
+        for (int line = 0; line < 10_000; line++) {
+            assertNotEquals(0, FingerprintGenerator.hash64("E", "a", "b", line));
+        }
+    }
+
+    @Test
+    @DisplayName("十六进制表示固定 16 位")
+    void testToHex() {
+        assertEquals("0000000000000001", FingerprintGenerator.toHex(1));
+        assertEquals("ffffffffffffffff", FingerprintGenerator.toHex(-1));
+        assertEquals("00000000deadbeef", FingerprintGenerator.toHex(0xdeadbeefL));
+    }
+}
@@ -0,0 +1,211 @@
+package com.all.in.one.agent.common.util;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.starter.dedup.DedupTestFixture;
+import com.all.in.one.agent.starter.dedup.FingerprintDedupProperties;
+import com.all.in.one.agent.starter.dedup.FingerprintDeduplicator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 线程本地拒绝缓存测试
+ * <p>
+ * 时钟全部由测试控制：跨线程的“每个窗口只放行一次”、本地结论的最长有效期，
+ * 以及空闲线程和已退出线程上残留计数的合并
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("线程本地拒绝缓存测试")
+class LocalRejectCacheTest {
+
+    private static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    private static final long STALENESS_MILLIS = 100;
+    private static final long FLUSH_INTERVAL_MILLIS = 1_000;
+
+    @Test
+    @DisplayName("32 线程并发：本地结论有效期内不多放行，超过有效期上限后每个指纹恰好放行一次")
+    void testConcurrentOncePerWindow() throws Exception {
+        AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1) + 12_345);
+        FingerprintDeduplicator deduplicator = DedupTestFixture.newDeduplicator(properties(), null, clock);
+        int fingerprints = 16;
+
+        for (int window = 0; window < 3; window++) {
+            long[] passed = DedupTestFixture.runConcurrently(32, 2_000, fingerprints,
+                    (thread, index) -> !deduplicator.isDuplicate(DedupTestFixture.info(index)));
+            for (int i = 0; i < fingerprints; i++) {
+                assertEquals(1, passed[i], "窗口 " + window + " 指纹 " + i + " 应恰好放行一次");
+            }
+
+            // 窗口结束前 1 毫秒：各线程的本地结论和共享记录都还是重复
+            clock.addAndGet(WINDOW_MILLIS - 1);
+            passed = DedupTestFixture.runConcurrently(32, 200, fingerprints,
+                    (thread, index) -> !deduplicator.isDuplicate(DedupTestFixture.info(index)));
+            for (int i = 0; i < fingerprints; i++) {
+                assertEquals(0, passed[i], "窗口 " + window + " 指纹 " + i + " 不应提前放行");
+            }
+
+            // 超过窗口加本地结论有效期上限后，所有本地结论都已失效
+            clock.addAndGet(1 + STALENESS_MILLIS);
+        }
+    }
+
+    @Test
+    @DisplayName("其他线程放行的指纹：本地结论最多把下一次放行推迟 localCacheMaxStalenessMillis")
+    void testStalenessBound() throws Exception {
+        AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1));
+        FingerprintDeduplicator deduplicator = DedupTestFixture.newDeduplicator(properties(), null, clock);
+        ExceptionInfo info = DedupTestFixture.info(1);
+        long start = clock.get();
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            assertFalse(deduplicator.isDuplicate(info));
+
+            // 另一个线程在窗口末尾看到重复，记住结论 STALENESS_MILLIS
+            clock.set(start + WINDOW_MILLIS - 1);
+            assertTrue(other.submit(() -> deduplicator.isDuplicate(info)).get());
+
+            // 共享记录已过期，本地结论仍有效
+            clock.set(start + WINDOW_MILLIS);
+            assertTrue(other.submit(() -> deduplicator.isDuplicate(info)).get());
+
+            // 本地结论到期，回到共享存储，放行一次
+            clock.set(start + WINDOW_MILLIS - 1 + STALENESS_MILLIS);
+            assertFalse(other.submit(() -> deduplicator.isDuplicate(info)).get());
+            assertTrue(deduplicator.isDuplicate(info));
+        } finally {
+            other.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("空闲线程的本地计数在超过刷新间隔或结论到期时由定时合并")
+    void testIdleThreadCountsFlushed() throws Exception {
+        AtomicLong flushed = new AtomicLong();
+        LocalRejectCache cache = new LocalRejectCache(16, 64, FLUSH_INTERVAL_MILLIS,
+                (key, count) -> flushed.addAndGet(count));
+        long now = 10_000;
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            worker.submit(() -> {
+                cache.remember(1L, now + 60_000, now);
+                for (int i = 0; i < 5; i++) {
+                    assertTrue(cache.tryReject(1L, now));
+                }
+                cache.remember(2L, now + 50, now);
+                for (int i = 0; i < 3; i++) {
+                    assertTrue(cache.tryReject(2L, now));
+                }
+            }).get();
+            assertEquals(0, flushed.get(), "低于阈值且未超过间隔时不合并");
+
+            // 键 2 的结论到期，计数先于刷新间隔合并
+            assertEquals(3, cache.flushIdle(now + 50));
+            assertEquals(3, flushed.get());
+            assertEquals(0, cache.flushIdle(now + 50));
+
+            // 超过刷新间隔，线程一直空闲也会合并
+            assertEquals(5, cache.flushIdle(now + FLUSH_INTERVAL_MILLIS));
+            assertEquals(8, flushed.get());
+            assertEquals(8, cache.hitCount());
+
+            assertFalse(worker.submit(() -> cache.tryReject(2L, now + 50)).get(), "到期的结论已清除");
+        } finally {
+            worker.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("已退出线程的本地计数全部合并")
+    void testTerminatedThreadCountsFlushed() throws Exception {
+        AtomicLong flushed = new AtomicLong();
+        LocalRejectCache cache = new LocalRejectCache(16, 64, FLUSH_INTERVAL_MILLIS,
+                (key, count) -> flushed.addAndGet(count));
+        Thread thread = new Thread(() -> {
+            cache.remember(7L, 60_000, 0);
+            for (int i = 0; i < 3; i++) {
+                cache.tryReject(7L, 0);
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertEquals(3, cache.flushIdle(0));
+        assertEquals(3, flushed.get());
+        assertEquals(0, cache.flushIdle(FLUSH_INTERVAL_MILLIS * 10));
+    }
+
+    @Test
+    @DisplayName("并发命中与定时合并：每次本地拒绝恰好合并一次")
+    void testConcurrentFlushAccounting() throws Exception {
+        AtomicLong flushed = new AtomicLong();
+        LocalRejectCache cache = new LocalRejectCache(16, 64, FLUSH_INTERVAL_MILLIS,
+                (key, count) -> flushed.addAndGet(count));
+        AtomicLong clock = new AtomicLong();
+        int threads = 8;
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long rejected = 0;
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long local = 0;
+                    for (int n = 0; n < 200_000; n++) {
+                        long key = n % 8;
+                        long now = clock.get();
+                        if (cache.tryReject(key, now)) {
+                            local++;
+                        } else {
+                            cache.remember(key, Long.MAX_VALUE, now);
+                        }
+                    }
+                    return local;
+                }));
+            }
+            start.countDown();
+            Thread flusher = new Thread(() -> {
+                while (running.get()) {
+                    cache.flushIdle(clock.addAndGet(FLUSH_INTERVAL_MILLIS / 4));
+                }
+            });
+            flusher.start();
+            for (Future<Long> future : futures) {
+                rejected += future.get(60, TimeUnit.SECONDS);
+            }
+            running.set(false);
+            flusher.join();
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        cache.flushIdle(clock.addAndGet(FLUSH_INTERVAL_MILLIS));
+
+        assertTrue(rejected > 0);
+        assertEquals(rejected, flushed.get());
+        assertEquals(rejected, cache.hitCount());
+    }
+
+    private static FingerprintDedupProperties properties() {
+        FingerprintDedupProperties properties = new FingerprintDedupProperties();
+        properties.setWindowMode(FingerprintDedupProperties.WindowMode.SLIDING);
+        properties.setTimeWindowMinutes((int) TimeUnit.MILLISECONDS.toMinutes(WINDOW_MILLIS));
+        properties.setLocalCacheSlots(16);
+        properties.setLocalCacheMaxStalenessMillis(STALENESS_MILLIS);
+        return properties;
+    }
+}
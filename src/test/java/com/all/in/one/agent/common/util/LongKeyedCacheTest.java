@@ -0,0 +1,291 @@
+package com.all.in.one.agent.common.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * long 键本地缓存测试
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("long 键本地缓存测试")
+class LongKeyedCacheTest {
+
+    /**
+     * maximumSize=64 时每段 4 个条目、8 个槽位
+     */
+    private static final int MAXIMUM_SIZE = 64;
+    private static final int SEGMENT_SLOTS = 8;
+    private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    @DisplayName("删除探测链头部后，同一起始槽位和相邻槽位的条目仍可查到")
+    void testBackwardShiftDeletionKeepsProbeChain() {
+        AtomicLong ticker = new AtomicLong();
+        LongKeyedCache<String> cache = new LongKeyedCache<>(MAXIMUM_SIZE, 0, TimeUnit.SECONDS, ticker::get);
+        // a、b、c 起始槽位都是 2，d 起始槽位是 3（被 b 占用，探测到 5）
+        List<Long> home2 = keysAt(0, 2, 3);
+        long a = home2.get(0);
+        long b = home2.get(1);
+        long c = home2.get(2);
+        long d = keysAt(0, 3, 1).get(0);
+        for (long key : new long[]{a, b, c, d}) {
+            cache.put(key, "v" + key);
+        }
+
+        cache.invalidate(a);
+        assertNull(cache.getIfPresent(a));
+        assertEquals("v" + b, cache.getIfPresent(b));
+        assertEquals("v" + c, cache.getIfPresent(c));
+        assertEquals("v" + d, cache.getIfPresent(d));
+
+        // 删除链中间的条目
+        cache.invalidate(c);
+        assertEquals("v" + b, cache.getIfPresent(b));
+        assertEquals("v" + d, cache.getIfPresent(d));
+        assertNull(cache.getIfPresent(c));
+
+        // 重新插入后仍按探测链找到
+        cache.put(a, "again");
+        assertEquals("again", cache.getIfPresent(a));
+        assertEquals("v" + d, cache.getIfPresent(d));
+        assertEquals(3, cache.estimatedSize());
+        assertEquals(0, cache.evictionCount());
+    }
+
+    @Test
+    @DisplayName("探测链跨过段尾回绕时删除仍保持连通")
+    void testBackwardShiftDeletionAcrossWrapAround() {
+        LongKeyedCache<String> cache = new LongKeyedCache<>(MAXIMUM_SIZE, 0, TimeUnit.SECONDS, () -> 0L);
+        // 起始槽位 7 的三个键占用 7、0、1，起始槽位 0 的键探测到 2
+        List<Long> home7 = keysAt(5, SEGMENT_SLOTS - 1, 3);
+        long wrapped = keysAt(5, 0, 1).get(0);
+        for (long key : home7) {
+            cache.put(key, "v" + key);
+        }
+        cache.put(wrapped, "v" + wrapped);
+
+        cache.invalidate(home7.get(0));
+        cache.invalidate(home7.get(2));
+        assertEquals("v" + home7.get(1), cache.getIfPresent(home7.get(1)));
+        assertEquals("v" + wrapped, cache.getIfPresent(wrapped));
+
+        cache.invalidate(home7.get(1));
+        assertEquals("v" + wrapped, cache.getIfPresent(wrapped));
+        assertEquals(1, cache.estimatedSize());
+    }
+
+    @Test
+    @DisplayName("随机插入删除与 HashMap 对照")
+    void testRandomOperationsMatchHashMap() {
+        LongKeyedCache<Long> cache = new LongKeyedCache<>(1 << 16, 0, TimeUnit.SECONDS, () -> 0L);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            // 键空间很小，探测链上频繁发生插入和删除
+            long key = random.nextInt(2_000);
+            if (random.nextBoolean()) {
+                cache.put(key, (long) i);
+                expected.put(key, (long) i);
+            } else {
+                cache.invalidate(key);
+                expected.remove(key);
+            }
+        }
+        for (long key = 0; key < 2_000; key++) {
+            assertEquals(expected.get(key), cache.getIfPresent(key), "key=" + key);
+        }
+        assertEquals(expected.size(), cache.estimatedSize());
+    }
+
+    @Test
+    @DisplayName("段满时淘汰最早写入的条目")
+    void testCapacityEvictsOldestWrite() {
+        AtomicLong ticker = new AtomicLong();
+        LongKeyedCache<String> cache = new LongKeyedCache<>(MAXIMUM_SIZE, 0, TimeUnit.SECONDS, ticker::get);
+        List<Long> keys = keysInSegment(3, 5);
+        for (long key : keys) {
+            ticker.addAndGet(1);
+            cache.put(key, "v" + key);
+        }
+
+        assertNull(cache.getIfPresent(keys.get(0)), "段内每段 4 个条目，最早写入的被淘汰");
+        for (long key : keys.subList(1, 5)) {
+            assertEquals("v" + key, cache.getIfPresent(key));
+        }
+        assertEquals(1, cache.evictionCount());
+        assertEquals(4, cache.estimatedSize());
+    }
+
+    @Test
+    @DisplayName("条目数不超过容量上限")
+    void testSizeBounded() {
+        LongKeyedCache<Long> cache = new LongKeyedCache<>(256, 0, TimeUnit.SECONDS, () -> 0L);
+        for (long key = 0; key < 10_000; key++) {
+            cache.put(key, key);
+        }
+        assertTrue(cache.estimatedSize() <= 256, "size=" + cache.estimatedSize());
+        assertEquals(10_000 - cache.estimatedSize(), cache.evictionCount());
+    }
+
+    @Test
+    @DisplayName("写入后过期：到期后查不到，loader 重新创建")
+    void testExpireAfterWrite() {
+        AtomicLong ticker = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+        LongKeyedCache<String> cache = new LongKeyedCache<>(MAXIMUM_SIZE, 10, TimeUnit.SECONDS, ticker::get);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("v1", cache.get(42, key -> "v" + loads.incrementAndGet()));
+        ticker.addAndGet(TTL_NANOS - 1);
+        assertEquals("v1", cache.get(42, key -> "v" + loads.incrementAndGet()), "到期前命中");
+
+        ticker.addAndGet(1);
+        assertNull(cache.getIfPresent(42), "写入后恰好一个存活时间时过期");
+        assertEquals("v2", cache.get(42, key -> "v" + loads.incrementAndGet()));
+        assertEquals(2, loads.get());
+
+        // put 覆盖并刷新写入时间
+        ticker.addAndGet(TTL_NANOS / 2);
+        cache.put(42, "v3");
+        ticker.addAndGet(TTL_NANOS - 1);
+        assertEquals("v3", cache.getIfPresent(42));
+    }
+
+    @Test
+    @DisplayName("段满时先清理过期条目，不淘汰未过期的条目")
+    void testPurgesExpiredBeforeEvicting() {
+        AtomicLong ticker = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+        LongKeyedCache<String> cache = new LongKeyedCache<>(MAXIMUM_SIZE, 10, TimeUnit.SECONDS, ticker::get);
+        List<Long> keys = keysInSegment(9, 6);
+        cache.put(keys.get(0), "expired-0");
+        cache.put(keys.get(1), "expired-1");
+        ticker.addAndGet(TTL_NANOS / 2);
+        cache.put(keys.get(2), "live-2");
+        cache.put(keys.get(3), "live-3");
+        ticker.addAndGet(TTL_NANOS / 2);
+
+        cache.put(keys.get(4), "live-4");
+        cache.put(keys.get(5), "live-5");
+
+        for (int i = 2; i < 6; i++) {
+            assertEquals("live-" + i, cache.getIfPresent(keys.get(i)));
+        }
+        assertEquals(2, cache.evictionCount(), "两个过期条目被清理");
+        assertEquals(4, cache.estimatedSize());
+    }
+
+    @Test
+    @DisplayName("putIfAbsent 指定剩余存活时间：按剩余时间过期，已存在时不覆盖")
+    void testPutIfAbsentWithRemainingTtl() {
+        AtomicLong ticker = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+        LongKeyedCache<String> cache = new LongKeyedCache<>(MAXIMUM_SIZE, 10, TimeUnit.SECONDS, ticker::get);
+
+        assertTrue(cache.putIfAbsent(1, "restored", 3, TimeUnit.SECONDS));
+        assertFalse(cache.putIfAbsent(1, "other", 10, TimeUnit.SECONDS), "已存在时不覆盖");
+        assertEquals("restored", cache.getIfPresent(1));
+
+        List<Long> remaining = new ArrayList<>();
+        cache.forEach((key, value, remainingTtlNanos) -> remaining.add(remainingTtlNanos));
+        assertEquals(List.of(TimeUnit.SECONDS.toNanos(3)), remaining);
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(3) - 1);
+        assertEquals("restored", cache.getIfPresent(1));
+        ticker.addAndGet(1);
+        assertNull(cache.getIfPresent(1));
+        assertTrue(cache.putIfAbsent(1, "after-expiry", 5, TimeUnit.SECONDS), "过期条目可被替换");
+
+        // 剩余时间不超过存活时间；已经到期的不写入
+        assertTrue(cache.putIfAbsent(2, "clamped", 1, TimeUnit.HOURS));
+        ticker.addAndGet(TTL_NANOS - 1);
+        assertEquals("clamped", cache.getIfPresent(2));
+        ticker.addAndGet(1);
+        assertNull(cache.getIfPresent(2));
+        assertFalse(cache.putIfAbsent(3, "expired", 0, TimeUnit.SECONDS));
+        assertFalse(cache.putIfAbsent(4, null, 5, TimeUnit.SECONDS));
+        assertNull(cache.getIfPresent(3));
+    }
+
+    @Test
+    @DisplayName("不过期的缓存忽略剩余存活时间")
+    void testPutIfAbsentWithoutExpiry() {
+        AtomicLong ticker = new AtomicLong();
+        LongKeyedCache<String> cache = new LongKeyedCache<>(MAXIMUM_SIZE, 0, TimeUnit.SECONDS, ticker::get);
+        assertTrue(cache.putIfAbsent(1, "forever", 0, TimeUnit.SECONDS));
+        ticker.addAndGet(TimeUnit.DAYS.toNanos(365));
+        assertEquals("forever", cache.getIfPresent(1));
+        cache.forEach((key, value, remainingTtlNanos) -> assertEquals(Long.MAX_VALUE, remainingTtlNanos));
+    }
+
+    @Test
+    @DisplayName("refresh 只在键仍映射到同一个对象时延长存活时间")
+    void testRefresh() {
+        AtomicLong ticker = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+        LongKeyedCache<AtomicLong> cache = new LongKeyedCache<>(MAXIMUM_SIZE, 10, TimeUnit.SECONDS, ticker::get);
+        AtomicLong counter = new AtomicLong();
+        cache.put(7, counter);
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(8));
+        assertTrue(cache.refresh(7, counter));
+        assertFalse(cache.refresh(7, new AtomicLong()), "键已映射到其他对象时不刷新");
+        assertFalse(cache.refresh(8, counter), "不存在的键不刷新");
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(7));
+        assertSame(counter, cache.getIfPresent(7), "刷新后从刷新时刻重新计算存活时间");
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(3));
+        assertNull(cache.getIfPresent(7));
+    }
+
+    @Test
+    @DisplayName("命中率与清空")
+    void testStatsAndInvalidateAll() {
+        LongKeyedCache<String> cache = new LongKeyedCache<>(MAXIMUM_SIZE, 0, TimeUnit.SECONDS, () -> 0L);
+        cache.put(1, "a");
+        assertEquals("a", cache.getIfPresent(1));
+        assertNull(cache.getIfPresent(2));
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(0.5, cache.hitRate(), 1e-9);
+
+        cache.invalidateAll();
+        assertNull(cache.getIfPresent(1));
+        assertEquals(0, cache.estimatedSize());
+    }
+
+    /**
+     * 落在指定段、指定起始槽位的键
+     */
+    private static List<Long> keysAt(int segment, int slot, int count) {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 1; keys.size() < count; key++) {
+            long hash = LongKeyedCache.spread(key);
+            if ((int) (hash >>> 60) == segment && ((int) hash & (SEGMENT_SLOTS - 1)) == slot) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 落在指定段的键
+     */
+    private static List<Long> keysInSegment(int segment, int count) {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 1; keys.size() < count; key++) {
+            if ((int) (LongKeyedCache.spread(key) >>> 60) == segment) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,231 @@
+package com.all.in.one.agent.common.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 有界堆栈渲染器测试
+ * <p>
+ * 不限深度、不折叠时输出应与 {@link Throwable#printStackTrace()} 逐字一致
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("有界堆栈渲染器测试")
+class StackTraceRendererTest {
+
+    private static final StackTraceRenderer UNBOUNDED = new StackTraceRenderer(0, false, List.of());
+
+    @Test
+    @DisplayName("单个异常与 printStackTrace 一致")
+    void testSingleThrowableMatchesJdk() {
+        IllegalArgumentException throwable = new IllegalArgumentException("bad input");
+        assertEquals(printed(throwable), UNBOUNDED.render(throwable));
+
+        IllegalStateException noMessage = new IllegalStateException();
+        assertEquals(printed(noMessage), UNBOUNDED.render(noMessage));
+    }
+
+    @Test
+    @DisplayName("Caused by 链：与外层相同的尾部栈帧省略为 \"... N more\"")
+    void testCommonFramesElided() {
+        Exception throwable = wrapTwice();
+        String rendered = UNBOUNDED.render(throwable);
+
+        assertEquals(printed(throwable), rendered);
+        assertTrue(rendered.contains("Caused by: java.lang.IllegalArgumentException: root"));
+        assertTrue(rendered.matches("(?s).*\\t\\.\\.\\. \\d+ more\\n.*"), rendered);
+    }
+
+    @Test
+    @DisplayName("cause 循环引用输出 CIRCULAR REFERENCE 且不无限递归")
+    void testCircularCause() {
+        IllegalStateException first = new IllegalStateException("first");
+        IllegalArgumentException second = new IllegalArgumentException("second");
+        first.initCause(second);
+        second.initCause(first);
+
+        String rendered = UNBOUNDED.render(first);
+        assertEquals(printed(first), rendered);
+        assertTrue(rendered.contains("Caused by: [CIRCULAR REFERENCE: java.lang.IllegalStateException: first]"));
+    }
+
+    @Test
+    @DisplayName("suppressed 循环引用与 printStackTrace 一致")
+    void testCircularSuppressed() {
+        IllegalStateException first = new IllegalStateException("first");
+        IllegalArgumentException second = new IllegalArgumentException("second");
+        first.addSuppressed(second);
+        second.addSuppressed(first);
+
+        String rendered = UNBOUNDED.render(first);
+        assertEquals(printed(first), rendered);
+        assertTrue(rendered.contains("\t\tSuppressed: [CIRCULAR REFERENCE: java.lang.IllegalStateException: first]"));
+    }
+
+    @Test
+    @DisplayName("嵌套 suppressed（带 cause）逐层缩进，与 printStackTrace 一致")
+    void testNestedSuppressed() {
+        Exception outer = new Exception("outer");
+        Exception closeFailure = closeFailure("close-1");
+        closeFailure.addSuppressed(closeFailure("close-1-nested"));
+        outer.addSuppressed(closeFailure);
+        outer.addSuppressed(new RuntimeException("close-2", new IllegalStateException("close-2-cause")));
+        outer.initCause(wrapTwice());
+
+        String rendered = UNBOUNDED.render(outer);
+        assertEquals(printed(outer), rendered);
+        assertTrue(rendered.contains("\tSuppressed: java.io.IOException: close-1\n"));
+        assertTrue(rendered.contains("\t\tSuppressed: java.io.IOException: close-1-nested\n"));
+        assertTrue(rendered.contains("\tCaused by: java.lang.IllegalStateException: close-2-cause\n"));
+    }
+
+    @Test
+    @DisplayName("超过最大深度的栈帧折叠为一行计数，公共尾部仍按 \"... N more\" 省略")
+    void testFrameTruncation() {
+        Exception throwable = wrapTwice();
+        StackTraceRenderer renderer = new StackTraceRenderer(3, false, List.of());
+        String rendered = renderer.render(throwable);
+
+        StackTraceElement[] trace = throwable.getStackTrace();
+        StringBuilder expected = new StringBuilder()
+                .append(throwable).append('\n');
+        for (int i = 0; i < 3; i++) {
+            expected.append("\tat ").append(trace[i]).append('\n');
+        }
+        expected.append("\t... ").append(trace.length - 3).append(" frames truncated\n");
+        assertTrue(rendered.startsWith(expected.toString()), rendered);
+
+        // 最内层 cause 只输出自己独有的前 3 帧，其余独有帧计入截断，与外层相同的帧计入 more
+        Throwable middle = throwable.getCause();
+        Throwable root = middle.getCause();
+        StackTraceElement[] rootTrace = root.getStackTrace();
+        int common = commonFrames(rootTrace, middle.getStackTrace());
+        int unique = rootTrace.length - common;
+        assertTrue(unique > 3, "测试需要 cause 独有帧多于最大深度");
+        String rootSection = rendered.substring(rendered.indexOf("Caused by: " + root));
+        assertEquals("Caused by: " + root + "\n"
+                        + "\tat " + rootTrace[0] + "\n"
+                        + "\tat " + rootTrace[1] + "\n"
+                        + "\tat " + rootTrace[2] + "\n"
+                        + "\t... " + (unique - 3) + " frames truncated\n"
+                        + "\t... " + common + " more\n",
+                rootSection);
+    }
+
+    @Test
+    @DisplayName("连续框架栈帧折叠为一行计数，栈顶帧和单个框架帧原样输出")
+    void testFrameworkFramesCollapsed() {
+        RuntimeException throwable = new RuntimeException("boom");
+        throwable.setStackTrace(new StackTraceElement[]{
+                frame("org.springframework.aop.Advice", "invoke"),
+                frame("com.example.OrderService", "create"),
+                frame("com.example.OrderService$$SpringCGLIB$$0", "create"),
+                frame("jdk.internal.reflect.DirectMethodHandleAccessor", "invoke"),
+                frame("org.springframework.aop.framework.ReflectiveMethodInvocation", "proceed"),
+                frame("com.example.OrderController", "post"),
+                frame("org.apache.catalina.core.ApplicationFilterChain", "doFilter"),
+                frame("com.example.Main", "main"),
+        });
+        StackTraceRenderer renderer = new StackTraceRenderer(0, true,
+                List.of("org.springframework", "$$SpringCGLIB$$", "jdk.internal.reflect", "org.apache.catalina"));
+
+        assertEquals("java.lang.RuntimeException: boom\n"
+                        + "\tat org.springframework.aop.Advice.invoke(Advice.java:1)\n"
+                        + "\tat com.example.OrderService.create(OrderService.java:1)\n"
+                        + "\t... 3 framework frames\n"
+                        + "\tat com.example.OrderController.post(OrderController.java:1)\n"
+                        + "\tat org.apache.catalina.core.ApplicationFilterChain.doFilter(ApplicationFilterChain.java:1)\n"
+                        + "\tat com.example.Main.main(Main.java:1)\n",
+                renderer.render(throwable));
+
+        // 折叠行计入最大深度
+        StackTraceRenderer bounded = new StackTraceRenderer(3, true, List.of("org.springframework", "$$SpringCGLIB$$",
+                "jdk.internal.reflect"));
+        assertEquals("java.lang.RuntimeException: boom\n"
+                        + "\tat org.springframework.aop.Advice.invoke(Advice.java:1)\n"
+                        + "\tat com.example.OrderService.create(OrderService.java:1)\n"
+                        + "\t... 3 framework frames\n"
+                        + "\t... 3 frames truncated\n",
+                bounded.render(throwable));
+
+        // 关闭折叠或没有配置片段时原样输出
+        assertEquals(printed(throwable), new StackTraceRenderer(0, false, List.of("org.springframework"))
+                .render(throwable));
+        assertEquals(printed(throwable), new StackTraceRenderer(0, true, List.of()).render(throwable));
+    }
+
+    @Test
+    @DisplayName("消息被本地化或 toString 被覆盖的异常与 printStackTrace 一致")
+    void testCustomToString() {
+        Exception throwable = new Exception("raw") {
+            @Override
+            public String getLocalizedMessage() {
+                return "localized";
+            }
+        };
+        throwable.initCause(new IllegalStateException("cause") {
+            @Override
+            public String toString() {
+                return "custom-cause";
+            }
+        });
+        assertEquals(printed(throwable), UNBOUNDED.render(throwable));
+    }
+
+    private static Exception wrapTwice() {
+        try {
+            middle();
+            throw new AssertionError("unreachable");
+        } catch (IllegalStateException e) {
+            return new RuntimeException("outer", e);
+        }
+    }
+
+    private static void middle() {
+        try {
+            deep(6);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("middle", e);
+        }
+    }
+
+    private static void deep(int depth) {
+        if (depth == 0) {
+            throw new IllegalArgumentException("root");
+        }
+        deep(depth - 1);
+    }
+
+    private static Exception closeFailure(String message) {
+        return new IOException(message);
+    }
+
+    private static StackTraceElement frame(String className, String method) {
+        String file = className.substring(className.lastIndexOf('.') + 1).replaceAll("\\$.*", "") + ".java";
+        return new StackTraceElement(className, method, file, 1);
+    }
+
+    private static int commonFrames(StackTraceElement[] trace, StackTraceElement[] enclosing) {
+        int m = trace.length - 1;
+        int n = enclosing.length - 1;
+        while (m >= 0 && n >= 0 && trace[m].equals(enclosing[n])) {
+            m--;
+            n--;
+        }
+        return trace.length - 1 - m;
+    }
+
+    private static String printed(Throwable throwable) {
+        StringWriter writer = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(writer));
+        return writer.toString().replace(System.lineSeparator(), "\n");
+    }
+}
@@ -0,0 +1,128 @@
+package com.all.in.one.agent.dao.mapper;
+
+import com.all.in.one.agent.common.model.SuppressedCount;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.BoundSql;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 重复异常计数相关 Mapper SQL 渲染测试
+ * <p>
+ * 只加载 Mapper XML 并渲染语句，检查多行语句的结构和参数个数，不连接数据库
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("重复异常计数 Mapper SQL 渲染测试")
+class SuppressedCountMapperSqlTest {
+
+    private MybatisConfiguration configuration;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        configuration = new MybatisConfiguration();
+        load("mapper/AppAlarmTicketMapper.xml");
+        load("mapper/AlarmTrendStatMapper.xml");
+    }
+
+    @Test
+    @DisplayName("工单批量累加：整批一条语句，每个指纹一个派生行")
+    void testIncrementOccurrenceBatch() {
+        BoundSql sql = render(AppAlarmTicketMapper.class, "incrementOccurrenceBatch", counts(3));
+
+        String text = normalize(sql.getSql());
+        assertEquals(2, occurrences(text, "UNION ALL"));
+        assertEquals(3 * 3, sql.getParameterMappings().size());
+        assertTrue(text.contains("t.status != 'CLOSED'"));
+        assertTrue(sql.getParameterMappings().get(0).getProperty().endsWith(".fingerprint"));
+        assertTrue(sql.getParameterMappings().get(1).getProperty().endsWith(".count"));
+        assertTrue(sql.getParameterMappings().get(2).getProperty().endsWith(".lastSeenAt"));
+    }
+
+    @Test
+    @DisplayName("小时趋势累加：多行 VALUES 加 ON DUPLICATE KEY UPDATE")
+    void testIncrementSuppressedHourly() {
+        BoundSql sql = render(AlarmTrendStatMapper.class, "incrementSuppressedHourly", counts(4));
+
+        String text = normalize(sql.getSql());
+        assertEquals(4, occurrences(text, "HOUR("));
+        assertEquals(4 * 7, sql.getParameterMappings().size());
+        assertTrue(text.contains("ON DUPLICATE KEY UPDATE"));
+        assertTrue(text.contains("suppressed_count = suppressed_count + VALUES(suppressed_count)"));
+    }
+
+    @Test
+    @DisplayName("日统计聚合：子查询只按日期参数和分组列关联，兼容 ONLY_FULL_GROUP_BY")
+    void testAggregateDailyStatCorrelatesOnGroupedColumns() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("date", LocalDate.of(2026, 10, 17));
+        BoundSql sql = render(AlarmTrendStatMapper.class, "aggregateDailyStat", params);
+
+        String text = normalize(sql.getSql());
+        assertTrue(text.contains("h.stat_date = ?"));
+        assertFalse(text.contains("r.occurred_at"), "子查询不能引用未分组的列");
+        assertTrue(text.contains("h.service_name = r.app_name"));
+        assertTrue(text.contains("h.exception_type = r.exception_type"));
+        assertTrue(text.contains("h.environment = r.environment"));
+        assertTrue(text.contains("GROUP BY DATE(occurred_at), app_name, exception_type, environment"));
+        assertEquals(2, sql.getParameterMappings().size());
+    }
+
+    private void load(String resource) throws Exception {
+        try (InputStream in = Resources.getResourceAsStream(resource)) {
+            new XMLMapperBuilder(in, configuration, resource, configuration.getSqlFragments()).parse();
+        }
+    }
+
+    private BoundSql render(Class<?> mapper, String statement, List<SuppressedCount> counts) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("counts", counts);
+        return render(mapper, statement, params);
+    }
+
+    private BoundSql render(Class<?> mapper, String statement, Map<String, Object> params) {
+        return configuration.getMappedStatement(mapper.getName() + "." + statement).getBoundSql(params);
+    }
+
+    private static String normalize(String sql) {
+        return sql.replaceAll("\\s+", " ");
+    }
+
+    private static int occurrences(String text, String token) {
+        int count = 0;
+        for (int i = text.indexOf(token); i >= 0; i = text.indexOf(token, i + token.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    private static List<SuppressedCount> counts(int fingerprints) {
+        List<SuppressedCount> counts = new ArrayList<>();
+        for (int i = 0; i < fingerprints; i++) {
+            counts.add(SuppressedCount.builder()
+                    .fingerprint("fp-" + i)
+                    .appName("order-service")
+                    .environment("prod")
+                    .exceptionType("java.lang.IllegalStateException")
+                    .count(i + 1)
+                    .firstSeenAt(Instant.ofEpochMilli(1_000))
+                    .lastSeenAt(Instant.ofEpochMilli(2_000))
+                    .build());
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,122 @@
+package com.all.in.one.agent.job;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.common.model.SuppressedCount;
+import com.all.in.one.agent.dao.mapper.AlarmTrendStatMapper;
+import com.all.in.one.agent.dao.mapper.AppAlarmTicketMapper;
+import com.all.in.one.agent.starter.collector.ExceptionCollector;
+import com.all.in.one.agent.starter.rule.DeferredEventSpool;
+import com.all.in.one.agent.starter.rule.TimeWindowRule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * 静默时段延迟异常释放定时任务测试
+ *
+ * @author One Agent 4J
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("静默时段延迟异常释放定时任务测试")
+class DeferredEventReleaseJobTest {
+
+    @Mock
+    private TimeWindowRule timeWindowRule;
+
+    @Mock
+    private ExceptionCollector exceptionCollector;
+
+    @Mock
+    private AppAlarmTicketMapper ticketMapper;
+
+    @Mock
+    private AlarmTrendStatMapper trendStatMapper;
+
+    private DeferredEventReleaseJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new DeferredEventReleaseJob(timeWindowRule, exceptionCollector, ticketMapper, trendStatMapper);
+    }
+
+    @AfterEach
+    void tearDown() {
+        job.shutdown();
+    }
+
+    @Test
+    @DisplayName("释放在专用线程执行，上一批未完成时跳过检查，不再从延迟队列取出")
+    void testReleaseOffSchedulerThreadAndSkipWhileInFlight() throws Exception {
+        List<SuppressedCount> remaining = List.of(SuppressedCount.builder()
+                .fingerprint("fp").count(4).lastSeenAt(Instant.ofEpochMilli(2_000)).build());
+        CompletableFuture<String> releaseThread = new CompletableFuture<>();
+        CountDownLatch proceed = new CountDownLatch(1);
+        when(timeWindowRule.drainReleasable()).thenReturn(List.of(event()));
+        when(exceptionCollector.releaseDeferred(anyList())).thenAnswer(invocation -> {
+            releaseThread.complete(Thread.currentThread().getName());
+            assertTrue(proceed.await(10, TimeUnit.SECONDS));
+            return remaining;
+        });
+
+        job.release();
+        assertEquals("one-agent-deferred-release", releaseThread.get(10, TimeUnit.SECONDS));
+
+        // 上一批仍在释放：不取出新的延迟事件
+        job.release();
+        verify(timeWindowRule, times(1)).drainReleasable();
+
+        proceed.countDown();
+        verify(ticketMapper, timeout(10_000)).incrementOccurrenceBatch(remaining);
+        verify(trendStatMapper, timeout(10_000)).incrementSuppressedHourly(remaining);
+
+        // 上一批完成后恢复检查
+        when(timeWindowRule.drainReleasable()).thenReturn(Collections.emptyList());
+        for (int i = 0; i < 100; i++) {
+            job.release();
+            if (mockingDetails(timeWindowRule).getInvocations().size() > 1) {
+                break;
+            }
+            Thread.sleep(10);
+        }
+        verify(timeWindowRule, atLeast(2)).drainReleasable();
+    }
+
+    @Test
+    @DisplayName("没有可释放的事件时不提交释放")
+    void testNothingToRelease() {
+        when(timeWindowRule.drainReleasable()).thenReturn(Collections.emptyList());
+
+        job.release();
+        job.release();
+
+        verify(timeWindowRule, times(2)).drainReleasable();
+        verifyNoInteractions(exceptionCollector, ticketMapper, trendStatMapper);
+    }
+
+    private static DeferredEventSpool.DeferredEvent event() {
+        return DeferredEventSpool.DeferredEvent.builder()
+                .exceptionInfo(ExceptionInfo.builder()
+                        .exceptionType("java.lang.RuntimeException")
+                        .errorLocation("com.example.A.a:1")
+                        .build())
+                .count(5)
+                .firstSeenAt(Instant.ofEpochMilli(1_000))
+                .lastSeenAt(Instant.ofEpochMilli(2_000))
+                .build();
+    }
+}
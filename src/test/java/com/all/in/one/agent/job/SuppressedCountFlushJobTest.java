@@ -0,0 +1,138 @@
+package com.all.in.one.agent.job;
+
+import com.all.in.one.agent.common.config.AgentProperties;
+import com.all.in.one.agent.common.model.SuppressedCount;
+import com.all.in.one.agent.dao.mapper.AlarmTrendStatMapper;
+import com.all.in.one.agent.dao.mapper.AppAlarmTicketMapper;
+import com.all.in.one.agent.starter.collector.ExceptionCollector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * 重复异常计数回写定时任务测试
+ *
+ * @author One Agent 4J
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("重复异常计数回写定时任务测试")
+class SuppressedCountFlushJobTest {
+
+    @Mock
+    private ExceptionCollector exceptionCollector;
+
+    @Mock
+    private AppAlarmTicketMapper ticketMapper;
+
+    @Mock
+    private AlarmTrendStatMapper trendStatMapper;
+
+    private SuppressedCountFlushJob job;
+
+    @BeforeEach
+    void setUp() {
+        AgentProperties properties = new AgentProperties();
+        properties.getSuppressedCountFlush().setBatchSize(2);
+        job = new SuppressedCountFlushJob(exceptionCollector, ticketMapper, trendStatMapper, properties);
+    }
+
+    @Test
+    @DisplayName("没有累计计数时不访问数据库")
+    void testEmptyDrainSkipsMappers() {
+        when(exceptionCollector.drainSuppressedCounts()).thenReturn(Collections.emptyList());
+
+        job.flush();
+
+        verifyNoInteractions(ticketMapper, trendStatMapper);
+    }
+
+    @Test
+    @DisplayName("指纹数超过 batchSize 时分批回写，每批每张表一条语句")
+    @SuppressWarnings("unchecked")
+    void testSplitsIntoBatches() {
+        List<SuppressedCount> counts = counts(5);
+        when(exceptionCollector.drainSuppressedCounts()).thenReturn(counts);
+        when(ticketMapper.incrementOccurrenceBatch(anyList())).thenReturn(1);
+
+        job.flush();
+
+        ArgumentCaptor<List<SuppressedCount>> ticketBatches = ArgumentCaptor.forClass(List.class);
+        verify(ticketMapper, times(3)).incrementOccurrenceBatch(ticketBatches.capture());
+        assertEquals(List.of(2, 2, 1), ticketBatches.getAllValues().stream().map(List::size).toList());
+
+        ArgumentCaptor<List<SuppressedCount>> trendBatches = ArgumentCaptor.forClass(List.class);
+        verify(trendStatMapper, times(3)).incrementSuppressedHourly(trendBatches.capture());
+        List<SuppressedCount> written = new ArrayList<>();
+        trendBatches.getAllValues().forEach(written::addAll);
+        assertEquals(counts, written, "每个指纹恰好回写一次");
+    }
+
+    @Test
+    @DisplayName("工单回写失败不影响趋势统计和后续批次")
+    void testTicketFailureDoesNotStopOtherWrites() {
+        when(exceptionCollector.drainSuppressedCounts()).thenReturn(counts(4));
+        when(ticketMapper.incrementOccurrenceBatch(anyList()))
+                .thenThrow(new IllegalStateException("db down"))
+                .thenReturn(2);
+
+        job.flush();
+
+        verify(ticketMapper, times(2)).incrementOccurrenceBatch(anyList());
+        verify(trendStatMapper, times(2)).incrementSuppressedHourly(anyList());
+    }
+
+    @Test
+    @DisplayName("趋势统计回写失败不影响后续批次")
+    void testTrendFailureDoesNotStopNextBatch() {
+        when(exceptionCollector.drainSuppressedCounts()).thenReturn(counts(4));
+        doThrow(new IllegalStateException("db down"))
+                .doNothing()
+                .when(trendStatMapper).incrementSuppressedHourly(anyList());
+
+        job.flush();
+
+        verify(ticketMapper, times(2)).incrementOccurrenceBatch(anyList());
+        verify(trendStatMapper, times(2)).incrementSuppressedHourly(anyList());
+    }
+
+    @Test
+    @DisplayName("停机时回写剩余计数")
+    void testShutdownFlushes() {
+        when(exceptionCollector.drainSuppressedCounts()).thenReturn(counts(1));
+
+        job.shutdown();
+
+        verify(ticketMapper).incrementOccurrenceBatch(anyList());
+        verify(trendStatMapper).incrementSuppressedHourly(anyList());
+    }
+
+    private static List<SuppressedCount> counts(int fingerprints) {
+        List<SuppressedCount> counts = new ArrayList<>();
+        for (int i = 0; i < fingerprints; i++) {
+            counts.add(SuppressedCount.builder()
+                    .fingerprint("fp-" + i)
+                    .fingerprintHash(i)
+                    .appName("order-service")
+                    .environment("prod")
+                    .exceptionType("java.lang.IllegalStateException")
+                    .count(i + 1)
+                    .firstSeenAt(Instant.ofEpochMilli(1_000))
+                    .lastSeenAt(Instant.ofEpochMilli(2_000))
+                    .build());
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,205 @@
+package com.all.in.one.agent.starter.collector;
+
+import com.all.in.one.agent.common.config.AgentProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按指纹自适应采样器测试
+ * <p>
+ * 时钟和随机数都由测试控制：随机数固定为 r 时，保留概率 p 满足 r < p 才保留
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("按指纹自适应采样器测试")
+class AdaptiveSamplerTest {
+
+    private static final long INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(60);
+    private static final double DELTA = 1e-9;
+
+    private final AtomicLong ticker = new AtomicLong();
+    private final AtomicReference<Double> random = new AtomicReference<>(0.999_999);
+
+    @Test
+    @DisplayName("每个指纹每个周期的前 keepFirst 次必定保留，权重为 1")
+    void testKeepFirstGuarantee() {
+        AdaptiveSampler sampler = sampler(config(AgentProperties.SamplingMode.LOGARITHMIC, 5, 0), 1.0);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(1.0, sampler.sample(1L), DELTA);
+        }
+        assertEquals(AdaptiveSampler.DROP, sampler.sample(1L), "超过 keepFirst 后按概率采样");
+        for (int i = 0; i < 5; i++) {
+            assertEquals(1.0, sampler.sample(2L), DELTA, "指纹之间互不影响");
+        }
+
+        // 下一个周期重新计数
+        ticker.addAndGet(INTERVAL_NANOS);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(1.0, sampler.sample(1L), DELTA);
+        }
+        assertEquals(AdaptiveSampler.DROP, sampler.sample(1L));
+
+        AdaptiveSampler.SamplingStats stats = sampler.getStats();
+        assertEquals(17, stats.getTotalChecked());
+        assertEquals(15, stats.getTotalKept());
+        assertEquals(2, stats.getTotalDropped());
+        assertEquals(2, stats.getTrackedFingerprints());
+    }
+
+    @Test
+    @DisplayName("LOGARITHMIC：第 n 次的保留概率为 keepFirst / n，保留时权重为 n / keepFirst")
+    void testLogarithmicDecay() {
+        AdaptiveSampler sampler = sampler(config(AgentProperties.SamplingMode.LOGARITHMIC, 4, 0), 1.0);
+        random.set(0.0);
+        for (int n = 1; n <= 100; n++) {
+            double expectedWeight = n <= 4 ? 1.0 : n / 4.0;
+            assertEquals(expectedWeight, sampler.sample(7L), DELTA, "n=" + n);
+        }
+
+        // r = 0.5 时保留到 4 / n > 0.5，即 n < 8
+        ticker.addAndGet(INTERVAL_NANOS);
+        random.set(0.5);
+        for (int n = 1; n <= 7; n++) {
+            assertNotEquals(AdaptiveSampler.DROP, sampler.sample(7L), "n=" + n);
+        }
+        assertEquals(AdaptiveSampler.DROP, sampler.sample(7L));
+    }
+
+    @Test
+    @DisplayName("LOGARITHMIC：保留数量按对数增长")
+    void testLogarithmicKeptCount() {
+        AdaptiveSampler sampler = samplerWithSeed(config(AgentProperties.SamplingMode.LOGARITHMIC, 10, 0), 1L);
+        int kept = 0;
+        int events = 10_000;
+        for (int i = 0; i < events; i++) {
+            if (sampler.sample(3L) != AdaptiveSampler.DROP) {
+                kept++;
+            }
+        }
+        // 期望约 keepFirst * (1 + ln(n / keepFirst)) ≈ 79
+        double expected = 10 * (1 + Math.log(events / 10.0));
+        assertTrue(Math.abs(kept - expected) < expected * 0.3, "kept=" + kept + ", expected≈" + expected);
+    }
+
+    @Test
+    @DisplayName("TARGET_RATE：首个周期按当前次数估算，之后按上一周期的次数分摊预算")
+    void testTargetRateUsesPreviousWindow() {
+        AdaptiveSampler sampler = sampler(config(AgentProperties.SamplingMode.TARGET_RATE, 10, 20), 1.0);
+        random.set(0.0);
+
+        // 首个周期：预算 10，第 n 次的概率为 10 / (n - 10)
+        for (int n = 1; n <= 20; n++) {
+            assertEquals(1.0, sampler.sample(9L), DELTA, "n=" + n);
+        }
+        assertEquals(11.0 / 10.0, sampler.sample(9L), DELTA);
+        for (int n = 22; n <= 110; n++) {
+            assertEquals((n - 10) / 10.0, sampler.sample(9L), DELTA, "n=" + n);
+        }
+
+        // 第二个周期：上一周期 110 次，超出 keepFirst 的部分统一按 10 / 100 保留
+        ticker.addAndGet(INTERVAL_NANOS);
+        for (int n = 1; n <= 10; n++) {
+            assertEquals(1.0, sampler.sample(9L), DELTA);
+        }
+        assertEquals(10.0, sampler.sample(9L), DELTA);
+        random.set(0.099);
+        assertEquals(10.0, sampler.sample(9L), DELTA);
+        random.set(0.1);
+        assertEquals(AdaptiveSampler.DROP, sampler.sample(9L), "r >= p 时不保留");
+
+        // 本周期次数超过上一周期后按当前次数估算
+        random.set(0.0);
+        for (int n = 14; n <= 119; n++) {
+            sampler.sample(9L);
+        }
+        assertEquals(11.0, sampler.sample(9L), DELTA, "第 120 次：10 / (120 - 10)");
+    }
+
+    @Test
+    @DisplayName("TARGET_RATE：间隔超过一个周期后不再参考更早的次数")
+    void testTargetRateIgnoresNonAdjacentWindow() {
+        AdaptiveSampler sampler = sampler(config(AgentProperties.SamplingMode.TARGET_RATE, 10, 20), 1.0);
+        random.set(0.0);
+        // 第 0 个周期末尾出现 110 次，第 2 个周期开始时再次出现（计数器仍未过期）
+        ticker.set(INTERVAL_NANOS - TimeUnit.SECONDS.toNanos(1));
+        for (int n = 1; n <= 110; n++) {
+            sampler.sample(9L);
+        }
+
+        ticker.set(2 * INTERVAL_NANOS);
+        for (int n = 1; n <= 20; n++) {
+            assertEquals(1.0, sampler.sample(9L), DELTA, "n=" + n);
+        }
+    }
+
+    @Test
+    @DisplayName("保留事件的权重 1/p 之和是总次数的无偏估计")
+    void testWeightsEstimateTotal() {
+        AdaptiveSampler sampler = samplerWithSeed(config(AgentProperties.SamplingMode.LOGARITHMIC, 10, 0), 42L);
+        int fingerprints = 50;
+        int eventsPerFingerprint = 2_000;
+        double weighted = 0;
+        for (int i = 0; i < eventsPerFingerprint; i++) {
+            for (long fingerprint = 1; fingerprint <= fingerprints; fingerprint++) {
+                weighted += sampler.sample(fingerprint);
+            }
+        }
+        double total = (double) fingerprints * eventsPerFingerprint;
+        assertEquals(total, weighted, total * 0.1);
+        assertTrue(sampler.getStats().getTotalKept() < total / 10, "大部分事件被采样丢弃");
+    }
+
+    @Test
+    @DisplayName("全局 samplingRate 与自适应概率相乘，为 0 时全部丢弃")
+    void testGlobalSamplingRate() {
+        AgentProperties.AdaptiveSampling disabled = config(AgentProperties.SamplingMode.LOGARITHMIC, 5, 0);
+        disabled.setEnabled(false);
+        AdaptiveSampler sampler = sampler(disabled, 0.25);
+        random.set(0.2);
+        assertEquals(4.0, sampler.sample(1L), DELTA);
+        random.set(0.3);
+        assertEquals(AdaptiveSampler.DROP, sampler.sample(1L));
+
+        // keepFirst 之内的事件也按全局采样率采样
+        AdaptiveSampler combined = sampler(config(AgentProperties.SamplingMode.LOGARITHMIC, 5, 0), 0.5);
+        random.set(0.0);
+        assertEquals(2.0, combined.sample(1L), DELTA);
+
+        AdaptiveSampler off = sampler(config(AgentProperties.SamplingMode.LOGARITHMIC, 5, 0), 0.0);
+        assertEquals(AdaptiveSampler.DROP, off.sample(1L));
+        assertEquals(1, off.getStats().getTotalDropped());
+        assertEquals(0, off.getStats().getTrackedFingerprints(), "采样率为 0 时不跟踪指纹");
+    }
+
+    private AdaptiveSampler sampler(AgentProperties.AdaptiveSampling config, double samplingRate) {
+        AgentProperties properties = new AgentProperties();
+        properties.setSamplingRate(samplingRate);
+        properties.setAdaptiveSampling(config);
+        return new AdaptiveSampler(properties, ticker::get, random::get);
+    }
+
+    private AdaptiveSampler samplerWithSeed(AgentProperties.AdaptiveSampling config, long seed) {
+        AgentProperties properties = new AgentProperties();
+        properties.setAdaptiveSampling(config);
+        return new AdaptiveSampler(properties, ticker::get, new Random(seed)::nextDouble);
+    }
+
+    private static AgentProperties.AdaptiveSampling config(AgentProperties.SamplingMode mode, int keepFirst,
+                                                           int targetPerInterval) {
+        AgentProperties.AdaptiveSampling config = new AgentProperties.AdaptiveSampling();
+        config.setMode(mode);
+        config.setKeepFirst(keepFirst);
+        config.setTargetPerInterval(targetPerInterval);
+        config.setIntervalSeconds(60);
+        return config;
+    }
+}
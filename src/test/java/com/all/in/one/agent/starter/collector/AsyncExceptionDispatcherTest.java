@@ -0,0 +1,201 @@
+package com.all.in.one.agent.starter.collector;
+
+import com.all.in.one.agent.common.config.AgentProperties;
+import com.all.in.one.agent.common.util.ExceptionInfoBuilder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 异步异常分发器测试
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("异步异常分发器测试")
+class AsyncExceptionDispatcherTest {
+
+    @Test
+    @DisplayName("多个业务线程发布、多个工作线程处理：每个事件恰好处理一次，上下文随事件传递")
+    void testEveryEventHandledExactlyOnce() throws Exception {
+        int producers = 8;
+        int eventsPerProducer = 10_000;
+        int total = producers * eventsPerProducer;
+        AtomicIntegerArray handled = new AtomicIntegerArray(total);
+        ConcurrentHashMap<String, Boolean> handlerThreads = new ConcurrentHashMap<>();
+        AsyncExceptionDispatcher dispatcher = new AsyncExceptionDispatcher(
+                config(1024, 4, AgentProperties.OverflowPolicy.BLOCK, TimeUnit.SECONDS.toMillis(30)),
+                (throwable, context) -> {
+                    int id = ((ExceptionRingBufferTest.Event) throwable).id;
+                    assertEquals("trace-" + id, context.getTraceId());
+                    handlerThreads.put(Thread.currentThread().getName(), true);
+                    handled.incrementAndGet(id);
+                });
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int offset = p * eventsPerProducer;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int n = 0; n < eventsPerProducer; n++) {
+                        int id = offset + n;
+                        assertTrue(dispatcher.publish(new ExceptionRingBufferTest.Event(id), context(id)));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        dispatcher.shutdown();
+
+        for (int i = 0; i < total; i++) {
+            assertEquals(1, handled.get(i), "事件 " + i + " 应恰好处理一次");
+        }
+        assertTrue(handlerThreads.keySet().stream().allMatch(name -> name.startsWith("one-agent-dispatcher-")));
+        AsyncExceptionDispatcher.DispatchStats stats = dispatcher.getStats();
+        assertEquals(total, stats.getPublished());
+        assertEquals(total, stats.getProcessed());
+        assertEquals(0, stats.getQueueDepth());
+        assertEquals(4, stats.getWorkerThreads());
+    }
+
+    @Test
+    @DisplayName("关闭时处理完缓冲区中剩余的事件，之后发布的事件被拒绝")
+    void testShutdownDrainsQueue() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        AsyncExceptionDispatcher dispatcher = new AsyncExceptionDispatcher(
+                config(64, 1, AgentProperties.OverflowPolicy.DROP_NEWEST, 0),
+                (throwable, context) -> {
+                    entered.countDown();
+                    awaitQuietly(release);
+                    handled.add(((ExceptionRingBufferTest.Event) throwable).id);
+                });
+
+        assertTrue(dispatcher.publish(new ExceptionRingBufferTest.Event(0), context(0)));
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i <= 20; i++) {
+            assertTrue(dispatcher.publish(new ExceptionRingBufferTest.Event(i), context(i)));
+        }
+        assertEquals(20, dispatcher.getStats().getQueueDepth());
+
+        release.countDown();
+        dispatcher.shutdown();
+
+        assertEquals(21, handled.size());
+        for (int i = 0; i <= 20; i++) {
+            assertEquals(i, handled.get(i), "单个工作线程按发布顺序处理");
+        }
+        assertFalse(dispatcher.publish(new ExceptionRingBufferTest.Event(21), context(21)), "关闭后不再接收事件");
+        AsyncExceptionDispatcher.DispatchStats stats = dispatcher.getStats();
+        assertEquals(21, stats.getPublished());
+        assertEquals(21, stats.getProcessed());
+        assertEquals(0, stats.getQueueDepth());
+    }
+
+    @Test
+    @DisplayName("缓冲区满时按溢出策略丢弃，丢弃计数和丢弃监听器一致")
+    void testDropCountersAndListener() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Throwable> dropped = new CopyOnWriteArrayList<>();
+        AsyncExceptionDispatcher dispatcher = new AsyncExceptionDispatcher(
+                config(4, 1, AgentProperties.OverflowPolicy.DROP_NEWEST, 0),
+                (throwable, context) -> {
+                    entered.countDown();
+                    awaitQuietly(release);
+                },
+                dropped::add);
+        try {
+            // 工作线程阻塞在第一个事件上，缓冲区再放 4 个后已满
+            assertTrue(dispatcher.publish(new ExceptionRingBufferTest.Event(0), context(0)));
+            assertTrue(entered.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i <= 4; i++) {
+                assertTrue(dispatcher.publish(new ExceptionRingBufferTest.Event(i), context(i)));
+            }
+            for (int i = 5; i <= 7; i++) {
+                assertFalse(dispatcher.publish(new ExceptionRingBufferTest.Event(i), context(i)));
+            }
+
+            AsyncExceptionDispatcher.DispatchStats stats = dispatcher.getStats();
+            assertEquals("DROP_NEWEST", stats.getOverflowPolicy());
+            assertEquals(4, stats.getCapacity());
+            assertEquals(5, stats.getPublished());
+            assertEquals(3, stats.getDroppedNewest());
+            assertEquals(0, stats.getDroppedOldest());
+            assertEquals(0, stats.getDroppedTimeout());
+            assertEquals(3, dropped.size());
+        } finally {
+            release.countDown();
+            dispatcher.shutdown();
+        }
+        assertEquals(5, dispatcher.getStats().getProcessed());
+    }
+
+    @Test
+    @DisplayName("处理器抛出异常时工作线程继续处理后续事件")
+    void testHandlerFailureDoesNotStopWorker() {
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        AsyncExceptionDispatcher dispatcher = new AsyncExceptionDispatcher(
+                config(16, 1, AgentProperties.OverflowPolicy.DROP_NEWEST, 0),
+                (throwable, context) -> {
+                    int id = ((ExceptionRingBufferTest.Event) throwable).id;
+                    handled.add(id);
+                    if (id == 0) {
+                        throw new IllegalStateException("handler failed");
+                    }
+                });
+        for (int i = 0; i < 3; i++) {
+            assertTrue(dispatcher.publish(new ExceptionRingBufferTest.Event(i), context(i)));
+        }
+        dispatcher.shutdown();
+
+        assertEquals(List.of(0, 1, 2), handled);
+        assertEquals(3, dispatcher.getStats().getProcessed());
+    }
+
+    private static ExceptionInfoBuilder.CaptureContext context(int id) {
+        return new ExceptionInfoBuilder.CaptureContext(null, "trace-" + id, null, Instant.EPOCH, null);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static AgentProperties.AsyncDispatch config(int bufferSize, int workerThreads,
+                                                        AgentProperties.OverflowPolicy overflowPolicy,
+                                                        long blockTimeoutMillis) {
+        AgentProperties.AsyncDispatch config = new AgentProperties.AsyncDispatch();
+        config.setEnabled(true);
+        config.setBufferSize(bufferSize);
+        config.setWorkerThreads(workerThreads);
+        config.setOverflowPolicy(overflowPolicy);
+        config.setBlockTimeoutMillis(blockTimeoutMillis);
+        return config;
+    }
+}
@@ -0,0 +1,88 @@
+package com.all.in.one.agent.starter.collector;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 同一 Throwable 实例只收集一次的守卫测试
+ * <p>
+ * 守卫按线程保存状态，每个用例都使用新的异常实例，互不干扰
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("同一 Throwable 实例只收集一次的守卫测试")
+class CapturedThrowableGuardTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("同一实例再次捕获时跳过，内容相同的不同实例不跳过")
+    void testSameInstanceSkipped() {
+        RuntimeException first = new RuntimeException("boom");
+        RuntimeException equalContent = new RuntimeException("boom");
+
+        assertTrue(CapturedThrowableGuard.markFirstCapture(first, 0));
+        assertFalse(CapturedThrowableGuard.markFirstCapture(first, 1), "AOP、ControllerAdvice 再次看到同一实例");
+        assertFalse(CapturedThrowableGuard.markFirstCapture(first, 2));
+        assertTrue(CapturedThrowableGuard.markFirstCapture(equalContent, 3), "按对象身份比较");
+        assertFalse(CapturedThrowableGuard.markFirstCapture(equalContent, 4));
+    }
+
+    @Test
+    @DisplayName("8 个槽位写满后回绕，最早的实例被覆盖后可再次收集")
+    void testRingWraps() {
+        RuntimeException oldest = new RuntimeException("oldest");
+        assertTrue(CapturedThrowableGuard.markFirstCapture(oldest, 0));
+
+        RuntimeException[] others = new RuntimeException[7];
+        for (int i = 0; i < others.length; i++) {
+            others[i] = new RuntimeException("other-" + i);
+            assertTrue(CapturedThrowableGuard.markFirstCapture(others[i], 0));
+        }
+        // 环中恰好是 8 个实例，全部仍能命中
+        assertFalse(CapturedThrowableGuard.markFirstCapture(oldest, 0));
+        for (RuntimeException other : others) {
+            assertFalse(CapturedThrowableGuard.markFirstCapture(other, 0));
+        }
+
+        // 第 9 个实例覆盖最早的槽位
+        assertTrue(CapturedThrowableGuard.markFirstCapture(new RuntimeException("ninth"), 0));
+        assertTrue(CapturedThrowableGuard.markFirstCapture(oldest, 0), "最早的实例已被覆盖");
+        // 重新记录 oldest 又覆盖了 others[0]
+        assertTrue(CapturedThrowableGuard.markFirstCapture(others[0], 0));
+        assertFalse(CapturedThrowableGuard.markFirstCapture(others[others.length - 1], 0));
+    }
+
+    @Test
+    @DisplayName("条目超过 5 秒后失效，复用的异常实例再次被收集")
+    void testEntriesExpire() {
+        long base = 1_000 * SECOND;
+        RuntimeException reused = new RuntimeException("preallocated");
+
+        assertTrue(CapturedThrowableGuard.markFirstCapture(reused, base));
+        assertFalse(CapturedThrowableGuard.markFirstCapture(reused, base + 5 * SECOND - 1));
+        assertTrue(CapturedThrowableGuard.markFirstCapture(reused, base + 5 * SECOND), "超过保留期后视为新的捕获");
+        // 重新记录后从新的时间点开始计算保留期
+        assertFalse(CapturedThrowableGuard.markFirstCapture(reused, base + 9 * SECOND));
+        assertTrue(CapturedThrowableGuard.markFirstCapture(reused, base + 10 * SECOND));
+    }
+
+    @Test
+    @DisplayName("每个线程独立记录")
+    void testPerThread() throws Exception {
+        RuntimeException shared = new RuntimeException("shared");
+        assertTrue(CapturedThrowableGuard.markFirstCapture(shared, 0));
+
+        boolean otherThread = CompletableFuture
+                .supplyAsync(() -> CapturedThrowableGuard.markFirstCapture(shared, 0))
+                .get(5, TimeUnit.SECONDS);
+        assertTrue(otherThread, "其他线程没有见过该实例");
+        assertFalse(CapturedThrowableGuard.markFirstCapture(shared, 0));
+    }
+}
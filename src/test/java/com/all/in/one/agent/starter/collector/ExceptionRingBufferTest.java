@@ -0,0 +1,250 @@
+package com.all.in.one.agent.starter.collector;
+
+import com.all.in.one.agent.common.config.AgentProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 异常事件环形缓冲区测试
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("异常事件环形缓冲区测试")
+class ExceptionRingBufferTest {
+
+    @Test
+    @DisplayName("多生产者多消费者：每个事件恰好被取出一次")
+    void testMultiProducerMultiConsumerLosesNothing() throws Exception {
+        int producers = 4;
+        int consumers = 4;
+        int eventsPerProducer = 50_000;
+        int total = producers * eventsPerProducer;
+        // 阻塞策略 + 足够长的超时：生产者在缓冲区满时等待消费者，不丢弃事件
+        ExceptionRingBuffer buffer = new ExceptionRingBuffer(256, AgentProperties.OverflowPolicy.BLOCK,
+                TimeUnit.SECONDS.toMillis(30));
+
+        AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        AtomicBoolean producing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+        try {
+            List<Future<?>> consumerFutures = new ArrayList<>();
+            for (int c = 0; c < consumers; c++) {
+                consumerFutures.add(executor.submit(() -> {
+                    ExceptionRingBuffer.Slot slot = new ExceptionRingBuffer.Slot();
+                    start.await();
+                    while (producing.get() || buffer.size() > 0) {
+                        if (buffer.poll(slot)) {
+                            seen.incrementAndGet(((Event) slot.getThrowable()).id);
+                            slot.clear();
+                        } else {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> producerFutures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int offset = p * eventsPerProducer;
+                producerFutures.add(executor.submit(() -> {
+                    start.await();
+                    for (int n = 0; n < eventsPerProducer; n++) {
+                        assertTrue(buffer.publish(new Event(offset + n), null));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> producer : producerFutures) {
+                producer.get(60, TimeUnit.SECONDS);
+            }
+            producing.set(false);
+            for (Future<?> consumer : consumerFutures) {
+                consumer.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int i = 0; i < total; i++) {
+            assertEquals(1, seen.get(i), "事件 " + i + " 应恰好被取出一次");
+        }
+        assertEquals(total, buffer.getPublishedCount());
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.getDroppedNewestCount() + buffer.getDroppedOldestCount() + buffer.getDroppedTimeoutCount());
+    }
+
+    @Test
+    @DisplayName("先进先出，容量向上取整为 2 的幂")
+    void testFifoAndCapacity() {
+        ExceptionRingBuffer buffer = new ExceptionRingBuffer(5, AgentProperties.OverflowPolicy.DROP_NEWEST, 0);
+        assertEquals(8, buffer.getCapacity());
+
+        ExceptionRingBuffer.Slot slot = new ExceptionRingBuffer.Slot();
+        assertFalse(buffer.poll(slot), "空缓冲区取不到事件");
+        // 多轮循环使用同一批槽位
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 8; i++) {
+                assertTrue(buffer.publish(new Event(round * 8 + i), null));
+            }
+            assertEquals(8, buffer.size());
+            for (int i = 0; i < 8; i++) {
+                assertTrue(buffer.poll(slot));
+                assertEquals(round * 8 + i, ((Event) slot.getThrowable()).id);
+            }
+            assertFalse(buffer.poll(slot));
+        }
+    }
+
+    @Test
+    @DisplayName("DROP_NEWEST：缓冲区满时丢弃新事件，已入队事件不受影响")
+    void testDropNewest() {
+        List<Throwable> dropped = new ArrayList<>();
+        ExceptionRingBuffer buffer = new ExceptionRingBuffer(4, AgentProperties.OverflowPolicy.DROP_NEWEST, 0,
+                dropped::add);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.publish(new Event(i), null));
+        }
+        Event rejected = new Event(4);
+        assertFalse(buffer.publish(rejected, null));
+
+        assertEquals(List.of(rejected), dropped);
+        assertEquals(4, buffer.getPublishedCount());
+        assertEquals(1, buffer.getDroppedNewestCount());
+        assertEquals(0, buffer.getDroppedOldestCount());
+        assertEquals(List.of(0, 1, 2, 3), drainIds(buffer));
+    }
+
+    @Test
+    @DisplayName("DROP_OLDEST：挤出队头事件为新事件腾出空间")
+    void testDropOldest() {
+        List<Throwable> dropped = new ArrayList<>();
+        ExceptionRingBuffer buffer = new ExceptionRingBuffer(4, AgentProperties.OverflowPolicy.DROP_OLDEST, 0,
+                dropped::add);
+        for (int i = 0; i < 6; i++) {
+            assertTrue(buffer.publish(new Event(i), null));
+        }
+
+        assertEquals(List.of(0, 1), ids(dropped));
+        assertEquals(6, buffer.getPublishedCount());
+        assertEquals(2, buffer.getDroppedOldestCount());
+        assertEquals(0, buffer.getDroppedNewestCount());
+        assertEquals(List.of(2, 3, 4, 5), drainIds(buffer));
+    }
+
+    @Test
+    @DisplayName("DROP_OLDEST：腾出的位置连续 4 次被其他生产者抢占时放弃新事件")
+    void testDropOldestGivesUpAfterRetries() {
+        AtomicReference<ExceptionRingBuffer> holder = new AtomicReference<>();
+        List<Throwable> dropped = new ArrayList<>();
+        Event contested = new Event(100);
+        // 丢弃监听器在发布线程上同步调用：每次队头被挤出后立刻发布一个填充事件，模拟并发生产者抢占空位
+        ExceptionRingBuffer buffer = new ExceptionRingBuffer(4, AgentProperties.OverflowPolicy.DROP_OLDEST, 0,
+                throwable -> {
+                    dropped.add(throwable);
+                    if (throwable != contested) {
+                        assertTrue(holder.get().publish(new Event(200 + dropped.size()), null));
+                    }
+                });
+        holder.set(buffer);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.publish(new Event(i), null));
+        }
+
+        assertFalse(buffer.publish(contested, null));
+
+        assertEquals(List.of(0, 1, 2, 3, 100), ids(dropped), "4 个旧事件被挤出，最后放弃新事件本身");
+        assertEquals(4, buffer.getDroppedOldestCount());
+        assertEquals(1, buffer.getDroppedNewestCount());
+        assertEquals(8, buffer.getPublishedCount());
+        assertEquals(List.of(201, 202, 203, 204), drainIds(buffer));
+    }
+
+    @Test
+    @DisplayName("BLOCK：等待超时后丢弃新事件")
+    void testBlockTimesOut() {
+        List<Throwable> dropped = new ArrayList<>();
+        long timeoutMillis = 50;
+        ExceptionRingBuffer buffer = new ExceptionRingBuffer(2, AgentProperties.OverflowPolicy.BLOCK, timeoutMillis,
+                dropped::add);
+        assertTrue(buffer.publish(new Event(0), null));
+        assertTrue(buffer.publish(new Event(1), null));
+
+        long start = System.nanoTime();
+        assertFalse(buffer.publish(new Event(2), null));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis >= timeoutMillis, "应等待到超时: elapsed=" + elapsedMillis + "ms");
+        assertEquals(List.of(2), ids(dropped));
+        assertEquals(1, buffer.getDroppedTimeoutCount());
+        assertEquals(0, buffer.getDroppedNewestCount());
+        assertEquals(List.of(0, 1), drainIds(buffer));
+    }
+
+    @Test
+    @DisplayName("BLOCK：等待期间有空位时入队成功")
+    void testBlockSucceedsWhenConsumerFreesSlot() throws Exception {
+        ExceptionRingBuffer buffer = new ExceptionRingBuffer(2, AgentProperties.OverflowPolicy.BLOCK,
+                TimeUnit.SECONDS.toMillis(10));
+        assertTrue(buffer.publish(new Event(0), null));
+        assertTrue(buffer.publish(new Event(1), null));
+
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            buffer.poll(new ExceptionRingBuffer.Slot());
+        });
+        consumer.start();
+        assertTrue(buffer.publish(new Event(2), null));
+        consumer.join();
+
+        assertEquals(0, buffer.getDroppedTimeoutCount());
+        assertEquals(List.of(1, 2), drainIds(buffer));
+    }
+
+    private static List<Integer> drainIds(ExceptionRingBuffer buffer) {
+        List<Integer> result = new ArrayList<>();
+        ExceptionRingBuffer.Slot slot = new ExceptionRingBuffer.Slot();
+        while (buffer.poll(slot)) {
+            result.add(((Event) slot.getThrowable()).id);
+        }
+        return result;
+    }
+
+    private static List<Integer> ids(List<Throwable> events) {
+        List<Integer> result = new ArrayList<>();
+        for (Throwable event : events) {
+            result.add(((Event) event).id);
+        }
+        return result;
+    }
+
+    /**
+     * 带编号的测试事件（不填充堆栈）
+     */
+    static final class Event extends RuntimeException {
+        final int id;
+
+        Event(int id) {
+            super("event-" + id, null, false, false);
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.all.in.one.agent.starter.collector;
+
+import com.all.in.one.agent.common.config.AgentProperties;
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.common.util.FingerprintGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 高频指纹跟踪器测试
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("高频指纹跟踪器测试")
+class HeavyHitterTrackerTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    @DisplayName("段满后替换计数最小的条目，被替换的计数记为误差上界")
+    void testEvictsMinimumAndRecordsError() {
+        AtomicLong clock = new AtomicLong(HOUR);
+        // 16 个计数器分成 8 段，每段 2 个
+        HeavyHitterTracker tracker = new HeavyHitterTracker(config(16, 10), clock::get);
+
+        record(tracker, hash(0, 1), 5, HeavyHitterTracker.Outcome.DEDUP);
+        record(tracker, hash(0, 2), 3, HeavyHitterTracker.Outcome.DEDUP);
+        record(tracker, hash(0, 3), 1, HeavyHitterTracker.Outcome.PASSED);
+
+        Map<String, HeavyHitterTracker.TopFingerprint> top = byFingerprint(tracker.top(MINUTE, 10));
+        assertEquals(2, top.size());
+        assertNull(top.get(FingerprintGenerator.toHex(hash(0, 2))), "计数最小的条目被替换");
+
+        HeavyHitterTracker.TopFingerprint first = top.get(FingerprintGenerator.toHex(hash(0, 1)));
+        assertEquals(5, first.getCount());
+        assertEquals(0, first.getMaxError());
+
+        HeavyHitterTracker.TopFingerprint replaced = top.get(FingerprintGenerator.toHex(hash(0, 3)));
+        assertEquals(4, replaced.getCount(), "继承被替换条目的计数再加一");
+        assertEquals(3, replaced.getMaxError());
+        assertEquals(Map.of("PASSED", 1L), replaced.getOutcomes(), "各层结果只统计新指纹自己的次数");
+        assertEquals("com.example.Error3Exception", replaced.getExceptionType());
+    }
+
+    @Test
+    @DisplayName("误差上界：真实次数在 [count - maxError, count] 内，高于 N/k 的指纹一定被保留")
+    void testErrorBoundsOnSkewedStream() {
+        AtomicLong clock = new AtomicLong(HOUR);
+        int stripeCapacity = 4;
+        HeavyHitterTracker tracker = new HeavyHitterTracker(config(stripeCapacity * 8, 10), clock::get);
+
+        // 同一段内的偏斜分布：指纹 k 的权重约为 1/k
+        Random random = new Random(42);
+        Map<Long, Long> actual = new HashMap<>();
+        int events = 20_000;
+        for (int i = 0; i < events; i++) {
+            long key = hash(3, 1 + (long) (Math.pow(64, random.nextDouble())));
+            actual.merge(key, 1L, Long::sum);
+            tracker.record(info(key), HeavyHitterTracker.Outcome.DEDUP);
+        }
+
+        List<HeavyHitterTracker.TopFingerprint> top = tracker.top(MINUTE, 100);
+        assertEquals(stripeCapacity, top.size());
+        long reported = 0;
+        for (HeavyHitterTracker.TopFingerprint fingerprint : top) {
+            long key = Long.parseUnsignedLong(fingerprint.getFingerprint(), 16);
+            long trueCount = actual.get(key);
+            assertTrue(fingerprint.getCount() >= trueCount, "计数不会低估: " + fingerprint);
+            assertTrue(fingerprint.getCount() - fingerprint.getMaxError() <= trueCount, "误差上界成立: " + fingerprint);
+            reported += fingerprint.getCount();
+        }
+        assertEquals(events, reported, "段内计数之和等于记录次数");
+
+        for (Map.Entry<Long, Long> entry : actual.entrySet()) {
+            if (entry.getValue() > events / stripeCapacity) {
+                String fingerprint = FingerprintGenerator.toHex(entry.getKey());
+                assertTrue(top.stream().anyMatch(t -> t.getFingerprint().equals(fingerprint)),
+                        "出现次数超过 N/k 的指纹必须保留: " + fingerprint);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("查询合并 8 个分段，按计数排序并截取前 N 个")
+    void testMergesAllStripes() {
+        AtomicLong clock = new AtomicLong(HOUR);
+        HeavyHitterTracker tracker = new HeavyHitterTracker(config(16, 10), clock::get);
+        for (int stripe = 0; stripe < 8; stripe++) {
+            record(tracker, hash(stripe, 1), stripe + 1, HeavyHitterTracker.Outcome.PASSED);
+        }
+
+        List<HeavyHitterTracker.TopFingerprint> all = tracker.top(MINUTE, 100);
+        assertEquals(8, all.size());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(8 - i, all.get(i).getCount());
+            assertEquals(FingerprintGenerator.toHex(hash(7 - i, 1)), all.get(i).getFingerprint());
+        }
+
+        List<HeavyHitterTracker.TopFingerprint> top3 = tracker.top(MINUTE, 3);
+        assertEquals(3, top3.size());
+        assertEquals(8, top3.get(0).getCount());
+        assertEquals(6, top3.get(2).getCount());
+        assertTrue(tracker.top(MINUTE, 0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("跨分钟合并：同一指纹的计数、误差和各层结果相加，主要结果取次数最多的一层")
+    void testMergesMinuteBuckets() {
+        AtomicLong clock = new AtomicLong(HOUR);
+        HeavyHitterTracker tracker = new HeavyHitterTracker(config(8, 10), clock::get);
+
+        // 第 1 分钟：指纹 2 替换指纹 1（误差 2）
+        record(tracker, hash(5, 1), 2, HeavyHitterTracker.Outcome.PASSED);
+        record(tracker, hash(5, 2), 1, HeavyHitterTracker.Outcome.DEDUP);
+        clock.addAndGet(MINUTE);
+        record(tracker, hash(5, 2), 4, HeavyHitterTracker.Outcome.DEDUP);
+        clock.addAndGet(MINUTE);
+        record(tracker, hash(5, 2), 2, HeavyHitterTracker.Outcome.RULE_ENGINE);
+
+        HeavyHitterTracker.TopFingerprint merged = tracker.top(3 * MINUTE, 10).get(0);
+        assertEquals(FingerprintGenerator.toHex(hash(5, 2)), merged.getFingerprint());
+        assertEquals(3 + 4 + 2, merged.getCount());
+        assertEquals(2, merged.getMaxError());
+        assertEquals(Map.of("DEDUP", 5L, "RULE_ENGINE", 2L), merged.getOutcomes());
+        assertEquals("DEDUP", merged.getDroppedAt());
+
+        HeavyHitterTracker.TopFingerprint lastMinute = tracker.top(MINUTE, 10).get(0);
+        assertEquals(2, lastMinute.getCount(), "窗口只包含当前分钟");
+        assertEquals(0, lastMinute.getMaxError());
+        assertEquals("RULE_ENGINE", lastMinute.getDroppedAt());
+
+        // 窗口向上取整到分钟
+        assertEquals(6, tracker.top(MINUTE + 1, 10).get(0).getCount());
+    }
+
+    @Test
+    @DisplayName("过期桶轮转：查询窗口不超过保留时长，旧桶被新的分钟覆盖")
+    void testRotationAndRetention() {
+        AtomicLong clock = new AtomicLong(HOUR);
+        HeavyHitterTracker tracker = new HeavyHitterTracker(config(16, 3), clock::get);
+        assertEquals(3, tracker.getRetentionMinutes());
+
+        record(tracker, hash(1, 1), 1, HeavyHitterTracker.Outcome.PASSED);
+        clock.addAndGet(2 * MINUTE);
+        record(tracker, hash(1, 2), 1, HeavyHitterTracker.Outcome.PASSED);
+        assertEquals(2, tracker.top(HOUR, 10).size());
+
+        // 第 4 分钟：第 1 分钟的桶仍在数组中，但已超出保留时长
+        clock.addAndGet(MINUTE);
+        List<HeavyHitterTracker.TopFingerprint> retained = tracker.top(HOUR, 10);
+        assertEquals(1, retained.size());
+        assertEquals(FingerprintGenerator.toHex(hash(1, 2)), retained.get(0).getFingerprint());
+
+        // 第 5 分钟复用第 1 分钟的槽位，第 7 分钟复用第 3 分钟的槽位，旧数据被替换
+        clock.addAndGet(MINUTE);
+        record(tracker, hash(1, 3), 1, HeavyHitterTracker.Outcome.PASSED);
+        clock.addAndGet(2 * MINUTE);
+        record(tracker, hash(1, 3), 1, HeavyHitterTracker.Outcome.PASSED);
+        List<HeavyHitterTracker.TopFingerprint> rotated = tracker.top(HOUR, 10);
+        assertEquals(1, rotated.size());
+        assertEquals(FingerprintGenerator.toHex(hash(1, 3)), rotated.get(0).getFingerprint());
+        assertEquals(2, rotated.get(0).getCount());
+
+        // 时钟回拨到第 3 分钟时计入占用同一槽位的较新的桶（第 7 分钟）
+        clock.addAndGet(-4 * MINUTE);
+        record(tracker, hash(1, 3), 1, HeavyHitterTracker.Outcome.PASSED);
+        clock.addAndGet(4 * MINUTE);
+        assertEquals(2, tracker.top(MINUTE, 10).get(0).getCount());
+
+        tracker.reset();
+        assertTrue(tracker.top(HOUR, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("未进入漏斗的异常按 Throwable 计算指纹，与漏斗内的记录合并")
+    void testRecordThrowableMatchesExceptionInfoFingerprint() {
+        AtomicLong clock = new AtomicLong(HOUR);
+        HeavyHitterTracker tracker = new HeavyHitterTracker(config(256, 10), clock::get);
+        IllegalStateException throwable = new IllegalStateException("boom");
+        StackTraceElement frame = throwable.getStackTrace()[0];
+        String errorLocation = frame.getClassName() + "." + frame.getMethodName() + ":" + frame.getLineNumber();
+
+        tracker.record(ExceptionInfo.builder()
+                .exceptionType("IllegalStateException")
+                .errorLocation(errorLocation)
+                .fingerprintHash(FingerprintGenerator.hash64("IllegalStateException", frame.getClassName(),
+                        frame.getMethodName(), frame.getLineNumber()))
+                .build(), HeavyHitterTracker.Outcome.PASSED);
+        tracker.record(throwable, HeavyHitterTracker.Outcome.DUPLICATE_CAPTURE);
+        tracker.record(throwable, HeavyHitterTracker.Outcome.DISPATCH_DROPPED);
+        tracker.record(throwable, HeavyHitterTracker.Outcome.DISPATCH_DROPPED);
+
+        List<HeavyHitterTracker.TopFingerprint> top = tracker.top(MINUTE, 10);
+        assertEquals(1, top.size());
+        assertEquals(4, top.get(0).getCount());
+        assertEquals(errorLocation, top.get(0).getErrorLocation());
+        assertEquals("DISPATCH_DROPPED", top.get(0).getDroppedAt());
+        assertEquals(Map.of("PASSED", 1L, "DUPLICATE_CAPTURE", 1L, "DISPATCH_DROPPED", 2L), top.get(0).getOutcomes());
+
+        // 没有栈帧的异常按 Unknown 位置计算
+        IllegalStateException noFrames = new IllegalStateException("no frames");
+        noFrames.setStackTrace(new StackTraceElement[0]);
+        tracker.record(noFrames, HeavyHitterTracker.Outcome.THROWABLE_IGNORED);
+        HeavyHitterTracker.TopFingerprint unknown = tracker.top(MINUTE, 10).get(1);
+        assertEquals(FingerprintGenerator.toHex(
+                FingerprintGenerator.hash64("IllegalStateException", "Unknown.Unknown:0")), unknown.getFingerprint());
+        assertEquals("Unknown.Unknown:0", unknown.getErrorLocation());
+    }
+
+    @Test
+    @DisplayName("关闭时不记录")
+    void testDisabled() {
+        AgentProperties.HeavyHitters config = config(16, 10);
+        config.setEnabled(false);
+        HeavyHitterTracker tracker = new HeavyHitterTracker(config, () -> HOUR);
+
+        tracker.record(info(hash(0, 1)), HeavyHitterTracker.Outcome.PASSED);
+        tracker.record(new IllegalStateException(), HeavyHitterTracker.Outcome.DISPATCH_DROPPED);
+        assertFalse(tracker.isEnabled());
+        assertTrue(tracker.top(HOUR, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("窗口参数：秒、分钟、小时后缀，纯数字按分钟")
+    void testParseWindow() {
+        assertEquals(TimeUnit.SECONDS.toMillis(30), HeavyHitterTracker.parseWindow("30s"));
+        assertEquals(TimeUnit.MINUTES.toMillis(5), HeavyHitterTracker.parseWindow("5m"));
+        assertEquals(TimeUnit.HOURS.toMillis(1), HeavyHitterTracker.parseWindow("1H"));
+        assertEquals(TimeUnit.MINUTES.toMillis(15), HeavyHitterTracker.parseWindow("15"));
+        assertEquals(TimeUnit.MINUTES.toMillis(2), HeavyHitterTracker.parseWindow(" 2m "));
+    }
+
+    @Test
+    @DisplayName("窗口参数格式错误返回 -1")
+    void testParseWindowInvalid() {
+        assertEquals(-1, HeavyHitterTracker.parseWindow(null));
+        assertEquals(-1, HeavyHitterTracker.parseWindow(""));
+        assertEquals(-1, HeavyHitterTracker.parseWindow("   "));
+        assertEquals(-1, HeavyHitterTracker.parseWindow("m"));
+        assertEquals(-1, HeavyHitterTracker.parseWindow("abc"));
+        assertEquals(-1, HeavyHitterTracker.parseWindow("5d"));
+        assertEquals(-1, HeavyHitterTracker.parseWindow("0m"));
+        assertEquals(-1, HeavyHitterTracker.parseWindow("-5m"));
+        assertEquals(-1, HeavyHitterTracker.parseWindow("1.5h"));
+    }
+
+    /**
+     * 落在第 stripe 段的指纹（分段按哈希最高 3 位）
+     */
+    private static long hash(int stripe, long id) {
+        return ((long) stripe << 61) | id;
+    }
+
+    private static void record(HeavyHitterTracker tracker, long fingerprintHash, int times,
+                               HeavyHitterTracker.Outcome outcome) {
+        for (int i = 0; i < times; i++) {
+            tracker.record(info(fingerprintHash), outcome);
+        }
+    }
+
+    private static ExceptionInfo info(long fingerprintHash) {
+        long id = fingerprintHash & 0xFFFF;
+        return ExceptionInfo.builder()
+                .exceptionType("com.example.Error" + id + "Exception")
+                .errorLocation("com.example.Service.call:" + id)
+                .fingerprintHash(fingerprintHash)
+                .build();
+    }
+
+    private static Map<String, HeavyHitterTracker.TopFingerprint> byFingerprint(
+            List<HeavyHitterTracker.TopFingerprint> top) {
+        Map<String, HeavyHitterTracker.TopFingerprint> result = new HashMap<>();
+        for (HeavyHitterTracker.TopFingerprint fingerprint : top) {
+            result.put(fingerprint.getFingerprint(), fingerprint);
+        }
+        return result;
+    }
+
+    private static AgentProperties.HeavyHitters config(int capacity, int retentionMinutes) {
+        AgentProperties.HeavyHitters config = new AgentProperties.HeavyHitters();
+        config.setCapacity(capacity);
+        config.setRetentionMinutes(retentionMinutes);
+        return config;
+    }
+}
@@ -0,0 +1,162 @@
+package com.all.in.one.agent.starter.collector;
+
+import com.all.in.one.agent.common.config.AgentProperties;
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.common.model.SuppressedCount;
+import com.all.in.one.agent.common.util.FingerprintGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 重复异常计数累加器测试
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("重复异常计数累加器测试")
+class SuppressedCountAccumulatorTest {
+
+    @Test
+    @DisplayName("按指纹合并次数和首次/最后出现时间，取出后清空")
+    void testMergePerFingerprint() {
+        AtomicLong clock = new AtomicLong(1_000_000);
+        SuppressedCountAccumulator accumulator = new SuppressedCountAccumulator(config(100), clock::get);
+
+        accumulator.record(info(1, Instant.ofEpochMilli(5_000)));
+        accumulator.record(info(1, Instant.ofEpochMilli(3_000)));
+        accumulator.record(info(1, null));
+        accumulator.record(info(2, Instant.ofEpochMilli(7_000)));
+
+        Map<String, SuppressedCount> byType = byType(accumulator.drain());
+        assertEquals(2, byType.size());
+        SuppressedCount first = byType.get("com.example.Error1Exception");
+        assertEquals(3, first.getCount());
+        assertEquals(Instant.ofEpochMilli(3_000), first.getFirstSeenAt());
+        assertEquals(Instant.ofEpochMilli(1_000_000), first.getLastSeenAt(), "没有发生时间时取当前时间");
+        assertEquals(FingerprintGenerator.generate("com.example.Error1Exception", "com.example.Service.call:1"),
+                first.getFingerprint());
+        assertEquals("order-service", first.getAppName());
+        assertEquals("prod", first.getEnvironment());
+        assertEquals(1, byType.get("com.example.Error2Exception").getCount());
+
+        assertTrue(accumulator.drain().isEmpty());
+        SuppressedCountAccumulator.AccumulatorStats stats = accumulator.getStats();
+        assertEquals(4, stats.getAccumulated());
+        assertEquals(4, stats.getDrained());
+        assertEquals(0, stats.getPendingFingerprints());
+    }
+
+    @Test
+    @DisplayName("指纹数达到上限后新指纹计入丢弃，已有指纹继续累加")
+    void testMaxPendingFingerprints() {
+        SuppressedCountAccumulator accumulator = new SuppressedCountAccumulator(config(2), () -> 0L);
+
+        accumulator.record(info(1, null));
+        accumulator.record(info(2, null));
+        accumulator.record(info(3, null));
+        accumulator.record(info(1, null));
+
+        Map<String, SuppressedCount> byType = byType(accumulator.drain());
+        assertEquals(2, byType.size());
+        assertEquals(2, byType.get("com.example.Error1Exception").getCount());
+        assertEquals(1, accumulator.getStats().getDropped());
+    }
+
+    @Test
+    @DisplayName("关闭时不累计")
+    void testDisabled() {
+        AgentProperties.SuppressedCountFlush config = config(100);
+        config.setEnabled(false);
+        SuppressedCountAccumulator accumulator = new SuppressedCountAccumulator(config, () -> 0L);
+
+        accumulator.record(info(1, null));
+        assertTrue(accumulator.drain().isEmpty());
+        assertEquals(0, accumulator.getStats().getAccumulated());
+    }
+
+    @Test
+    @DisplayName("并发累加与取出：每次记录恰好被取出一次")
+    void testConcurrentRecordAndDrainLosesNothing() throws Exception {
+        SuppressedCountAccumulator accumulator = new SuppressedCountAccumulator(config(1_000), () -> 0L);
+        int threads = 16;
+        int recordsPerThread = 20_000;
+        int fingerprints = 32;
+
+        List<SuppressedCount> drained = new ArrayList<>();
+        AtomicBoolean recording = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            Future<?> drainer = executor.submit(() -> {
+                start.await();
+                while (recording.get()) {
+                    drained.addAll(accumulator.drain());
+                }
+                return null;
+            });
+            List<Future<?>> recorders = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                recorders.add(executor.submit(() -> {
+                    start.await();
+                    for (int n = 0; n < recordsPerThread; n++) {
+                        accumulator.record(info((n + offset) % fingerprints, null));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> recorder : recorders) {
+                recorder.get(60, TimeUnit.SECONDS);
+            }
+            recording.set(false);
+            drainer.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        drained.addAll(accumulator.drain());
+
+        long total = drained.stream().mapToLong(SuppressedCount::getCount).sum();
+        assertEquals((long) threads * recordsPerThread, total);
+        assertEquals(total, accumulator.getStats().getDrained());
+        assertEquals(0, accumulator.getStats().getDropped());
+    }
+
+    private static Map<String, SuppressedCount> byType(List<SuppressedCount> counts) {
+        Map<String, SuppressedCount> result = new HashMap<>();
+        for (SuppressedCount count : counts) {
+            assertNull(result.put(count.getExceptionType(), count), "同一指纹只应有一条");
+        }
+        return result;
+    }
+
+    private static AgentProperties.SuppressedCountFlush config(int maxPendingFingerprints) {
+        AgentProperties.SuppressedCountFlush config = new AgentProperties.SuppressedCountFlush();
+        config.setMaxPendingFingerprints(maxPendingFingerprints);
+        return config;
+    }
+
+    private static ExceptionInfo info(int index, Instant occurredAt) {
+        return ExceptionInfo.builder()
+                .appName("order-service")
+                .environment("prod")
+                .exceptionType("com.example.Error" + index + "Exception")
+                .errorLocation("com.example.Service.call:1")
+                .occurredAt(occurredAt)
+                .build();
+    }
+}
@@ -0,0 +1,134 @@
+package com.all.in.one.agent.starter.dedup;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 自适应去重窗口测试
+ * <p>
+ * 基础窗口 2 分钟、上限 16 分钟，长期反复出现的指纹按 0、2、6、14、30 分钟放行
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("自适应去重窗口测试")
+class AdaptiveDedupWindowTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    @Test
+    @DisplayName("滑动窗口：窗口按 2、4、8、16 分钟增长并停在上限")
+    void testSlidingWindowBacksOffExponentially() {
+        assertBacksOff(FingerprintDedupProperties.WindowMode.SLIDING);
+    }
+
+    @Test
+    @DisplayName("滚动窗口：窗口按 2、4、8、16 分钟增长并停在上限")
+    void testTumblingWindowBacksOffExponentially() {
+        assertBacksOff(FingerprintDedupProperties.WindowMode.TUMBLING);
+    }
+
+    private void assertBacksOff(FingerprintDedupProperties.WindowMode mode) {
+        AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1));
+        FingerprintDeduplicator deduplicator = newDeduplicator(mode, clock);
+        long start = clock.get();
+
+        // 每分钟出现一次，持续 60 分钟
+        StringBuilder passedAt = new StringBuilder();
+        for (int minute = 0; minute <= 60; minute++) {
+            clock.set(start + minute * MINUTE);
+            if (!deduplicator.isDuplicate(info("Connection refused: 10.0.0.1:3306"))) {
+                passedAt.append(minute).append(' ');
+            }
+        }
+        assertEquals("0 2 6 14 30 46 ", passedAt.toString(), mode.name());
+
+        AdaptiveDedupWindow.AdaptiveWindowStats stats = deduplicator.getStats().getAdaptiveWindow();
+        assertEquals(1, stats.getTrackedFingerprints());
+        assertEquals(1L, stats.getFingerprintsByWindowMinutes().get(16L));
+        assertEquals(3, stats.getTopBackedOff().get(0).getLevel());
+        assertEquals(16, stats.getTopBackedOff().get(0).getWindowMinutes());
+        assertTrue(stats.getSuppressed() > 0);
+    }
+
+    @Test
+    @DisplayName("异常消息变化时回到基础窗口，消息中的数字变化不算变化")
+    void testMessageChangeResetsLevel() {
+        AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1));
+        FingerprintDeduplicator deduplicator = newDeduplicator(FingerprintDedupProperties.WindowMode.SLIDING, clock);
+
+        assertFalse(deduplicator.isDuplicate(info("Timeout after 3000ms, orderId=1001")));
+        clock.addAndGet(2 * MINUTE);
+        assertFalse(deduplicator.isDuplicate(info("Timeout after 3000ms, orderId=1002")));
+
+        // 已退避到 4 分钟，数字变化不重置
+        clock.addAndGet(2 * MINUTE);
+        assertTrue(deduplicator.isDuplicate(info("Timeout after 5000ms, orderId=1003")));
+
+        // 消息实质变化，回到基础窗口
+        clock.addAndGet(2 * MINUTE);
+        assertFalse(deduplicator.isDuplicate(info("Connection pool exhausted")));
+        clock.addAndGet(2 * MINUTE);
+        assertFalse(deduplicator.isDuplicate(info("Connection pool exhausted")));
+        assertEquals(1, deduplicator.getStats().getAdaptiveWindow().getMessageResets());
+    }
+
+    @Test
+    @DisplayName("指纹安静超过 quietResetMinutes 后回到基础窗口")
+    void testQuietPeriodResetsLevel() {
+        AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1));
+        FingerprintDeduplicator deduplicator = newDeduplicator(FingerprintDedupProperties.WindowMode.SLIDING, clock);
+        ExceptionInfo info = info("Connection refused");
+
+        assertFalse(deduplicator.isDuplicate(info));
+        clock.addAndGet(2 * MINUTE);
+        assertFalse(deduplicator.isDuplicate(info));
+        clock.addAndGet(4 * MINUTE);
+        assertFalse(deduplicator.isDuplicate(info));
+
+        // 已退避到 8 分钟；安静 31 分钟后状态过期
+        clock.addAndGet(31 * MINUTE);
+        assertFalse(deduplicator.isDuplicate(info));
+        clock.addAndGet(2 * MINUTE);
+        assertFalse(deduplicator.isDuplicate(info), "安静后应按基础窗口放行");
+    }
+
+    @Test
+    @DisplayName("未启用时保持固定窗口，统计中不包含自适应窗口")
+    void testDisabledKeepsFixedWindow() {
+        AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1));
+        FingerprintDedupProperties properties = new FingerprintDedupProperties();
+        FingerprintDeduplicator deduplicator = DedupTestFixture.newDeduplicator(properties, null, clock);
+
+        for (int minute = 0; minute <= 10; minute += 2) {
+            assertFalse(deduplicator.isDuplicate(info("Connection refused")));
+            clock.addAndGet(2 * MINUTE);
+        }
+        assertNull(deduplicator.getStats().getAdaptiveWindow());
+    }
+
+    private static FingerprintDeduplicator newDeduplicator(FingerprintDedupProperties.WindowMode mode,
+                                                           AtomicLong clock) {
+        FingerprintDedupProperties properties = new FingerprintDedupProperties();
+        properties.setWindowMode(mode);
+        properties.getAdaptiveWindow().setEnabled(true);
+        properties.getAdaptiveWindow().setMaxWindowMinutes(16);
+        properties.getAdaptiveWindow().setQuietResetMinutes(30);
+        return DedupTestFixture.newDeduplicator(properties, null, clock);
+    }
+
+    private static ExceptionInfo info(String message) {
+        return ExceptionInfo.builder()
+                .appName("test-app")
+                .exceptionType("java.net.ConnectException")
+                .exceptionMessage(message)
+                .errorLocation("com.example.OrderDao.query:42")
+                .build();
+    }
+}
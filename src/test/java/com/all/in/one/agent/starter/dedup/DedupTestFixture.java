@@ -0,0 +1,110 @@
+package com.all.in.one.agent.starter.dedup;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 指纹去重相关测试共用的构造方法和并发执行器
+ * <p>
+ * 时钟统一用一个 {@link AtomicLong}（毫秒）表示，单调时钟由它换算，测试中推进时间只需修改这一个值
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+public final class DedupTestFixture {
+
+    private DedupTestFixture() {
+    }
+
+    /**
+     * 并发执行中的一次调用
+     */
+    @FunctionalInterface
+    public interface Call {
+
+        /**
+         * @param thread 线程序号
+         * @param index  本次调用的指纹序号
+         * @return 本次调用是否放行
+         */
+        boolean passes(int thread, int index) throws Exception;
+    }
+
+    /**
+     * 使用可控时钟的去重器
+     *
+     * @param sharedStore 集群共享存储，可以为 null
+     */
+    public static FingerprintDeduplicator newDeduplicator(FingerprintDedupProperties properties,
+                                                          SharedDedupStore sharedStore,
+                                                          AtomicLong clock) {
+        return new FingerprintDeduplicator(properties, sharedStore, clock::get,
+                () -> TimeUnit.MILLISECONDS.toNanos(clock.get()));
+    }
+
+    /**
+     * 第 index 个测试指纹（同一 index 的指纹相同）
+     */
+    public static ExceptionInfo info(int index) {
+        return ExceptionInfo.builder()
+                .appName("test-app")
+                .exceptionType("java.lang.IllegalStateException")
+                .errorLocation("com.example.OrderService.create:" + (100 + index))
+                .build();
+    }
+
+    /**
+     * 所有线程就绪后同时开始，每个线程对各个指纹交替调用 callsPerThread 次
+     *
+     * @return 每个指纹被放行的次数
+     */
+    public static long[] runConcurrently(int threads, int callsPerThread, int fingerprints, Call call)
+            throws Exception {
+        AtomicLongArray passed = new AtomicLongArray(fingerprints);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger ready = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    ready.incrementAndGet();
+                    start.await();
+                    for (int n = 0; n < callsPerThread; n++) {
+                        int index = (n + thread) % fingerprints;
+                        if (call.passes(thread, index)) {
+                            passed.incrementAndGet(index);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            while (ready.get() < threads) {
+                Thread.onSpinWait();
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long[] result = new long[fingerprints];
+        for (int i = 0; i < fingerprints; i++) {
+            result[i] = passed.get(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,232 @@
+package com.all.in.one.agent.starter.dedup;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.all.in.one.agent.starter.dedup.DedupTestFixture.info;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分布式指纹去重测试
+ * <p>
+ * 多个去重器共享同一个回环存储，在单进程内模拟多节点部署
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("分布式指纹去重测试")
+class DistributedFingerprintDedupTest {
+
+    private static final int NODES = 4;
+    private static final int THREADS_PER_NODE = 16;
+    private static final int CALLS_PER_THREAD = 500;
+    private static final int FINGERPRINTS = 8;
+    private static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    @Test
+    @DisplayName("等待认领：4 个节点并发，整个集群每个指纹每个窗口只放行一次")
+    void testClusterWideExactlyOncePerWindow() throws Exception {
+        AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1));
+        LoopbackSharedDedupStore sharedStore = new LoopbackSharedDedupStore(clock::get);
+        List<FingerprintDeduplicator> nodes = newCluster(sharedStore, clock, true);
+        try {
+            for (int window = 0; window < 2; window++) {
+                long[] passed = runCluster(nodes);
+                for (int i = 0; i < FINGERPRINTS; i++) {
+                    assertEquals(1, passed[i], "窗口 " + window + " 指纹 " + i + " 在集群内应只放行一次");
+                }
+                clock.addAndGet(WINDOW_MILLIS);
+            }
+
+            long claimsSent = 0;
+            long claimsWon = 0;
+            for (FingerprintDeduplicator node : nodes) {
+                DistributedFingerprintDedupStore.SyncStats syncStats = node.getStats().getSyncStats();
+                assertNotNull(syncStats);
+                assertEquals(0, syncStats.getFailOpen());
+                claimsSent += syncStats.getClaimsSent();
+                claimsWon += syncStats.getClaimsWon();
+            }
+            // 每个节点每个窗口对每个指纹只认领一次，重复异常由近端缓存直接判定
+            assertEquals(2L * NODES * FINGERPRINTS, claimsSent);
+            assertEquals(2L * FINGERPRINTS, claimsWon);
+            // 认领按批次提交，往返次数不超过认领次数
+            assertTrue(sharedStore.getRoundTrips() <= claimsSent);
+        } finally {
+            nodes.forEach(FingerprintDeduplicator::shutdown);
+        }
+    }
+
+    @Test
+    @DisplayName("未配置 wait-for-claim：启用异步分发时默认等待认领，集群每个窗口只放行一次")
+    void testWaitForClaimByDefaultWithAsyncDispatch() throws Exception {
+        AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1));
+        LoopbackSharedDedupStore sharedStore = new LoopbackSharedDedupStore(clock::get);
+        List<FingerprintDeduplicator> nodes = newCluster(sharedStore, clock, null);
+        try {
+            long[] passed = runCluster(nodes);
+            for (int i = 0; i < FINGERPRINTS; i++) {
+                assertEquals(1, passed[i], "指纹 " + i + " 在集群内应只放行一次");
+            }
+            for (FingerprintDeduplicator node : nodes) {
+                DistributedFingerprintDedupStore.SyncStats syncStats = node.getStats().getSyncStats();
+                assertTrue(syncStats.isWaitForClaims());
+                assertEquals(0, syncStats.getLateDuplicates());
+            }
+        } finally {
+            nodes.forEach(FingerprintDeduplicator::shutdown);
+        }
+
+        // 同步处理模式下默认不等待
+        FingerprintDeduplicator syncNode = new FingerprintDeduplicator(distributedProperties(null), sharedStore, null,
+                false, clock::get, () -> TimeUnit.MILLISECONDS.toNanos(clock.get()));
+        try {
+            assertFalse(syncNode.getStats().getSyncStats().isWaitForClaims());
+        } finally {
+            syncNode.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("共享存储不可用时按本地结果放行（每个节点放行一次）")
+    void testFailOpenWhenSharedStoreUnavailable() throws Exception {
+        AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1));
+        SharedDedupStore brokenStore = new SharedDedupStore() {
+            @Override
+            public boolean[] claimAll(long[] keys, int count, long windowMillis) {
+                throw new IllegalStateException("connection refused");
+            }
+
+            @Override
+            public String getName() {
+                return "broken";
+            }
+        };
+        List<FingerprintDeduplicator> nodes = newCluster(brokenStore, clock, true);
+        try {
+            long[] passed = runCluster(nodes);
+            for (int i = 0; i < FINGERPRINTS; i++) {
+                assertEquals(NODES, passed[i]);
+            }
+        } finally {
+            nodes.forEach(FingerprintDeduplicator::shutdown);
+        }
+    }
+
+    @Test
+    @DisplayName("不等待认领：每个节点按本地结果放行一次，认领结果在后台回填")
+    void testLocalAdmitReconciledInBackground() throws Exception {
+        AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1));
+        LoopbackSharedDedupStore sharedStore = new LoopbackSharedDedupStore(clock::get);
+        List<FingerprintDeduplicator> nodes = newCluster(sharedStore, clock, false);
+        try {
+            long[] passed = runCluster(nodes);
+            for (int i = 0; i < FINGERPRINTS; i++) {
+                assertEquals(NODES, passed[i], "指纹 " + i + " 每个节点放行一次");
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            long claimsSent;
+            long lateDuplicates;
+            do {
+                Thread.sleep(5);
+                claimsSent = 0;
+                lateDuplicates = 0;
+                for (FingerprintDeduplicator node : nodes) {
+                    DistributedFingerprintDedupStore.SyncStats syncStats = node.getStats().getSyncStats();
+                    assertFalse(syncStats.isWaitForClaims());
+                    claimsSent += syncStats.getClaimsSent();
+                    lateDuplicates += syncStats.getLateDuplicates();
+                }
+            } while (claimsSent < (long) NODES * FINGERPRINTS && System.nanoTime() < deadline);
+            assertEquals((long) NODES * FINGERPRINTS, claimsSent);
+            // 每个指纹只有一个节点认领成功，其余节点的放行计为迟到的重复
+            assertEquals((long) (NODES - 1) * FINGERPRINTS, lateDuplicates);
+        } finally {
+            nodes.forEach(FingerprintDeduplicator::shutdown);
+        }
+    }
+
+    @Test
+    @DisplayName("同步处理模式：共享存储无响应时调用方也不等待认领")
+    void testCallerNeverWaitsWithoutAsyncDispatch() throws Exception {
+        AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1));
+        CountDownLatch release = new CountDownLatch(1);
+        SharedDedupStore stalledStore = new SharedDedupStore() {
+            @Override
+            public boolean[] claimAll(long[] keys, int count, long windowMillis) {
+                try {
+                    release.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new boolean[count];
+            }
+
+            @Override
+            public String getName() {
+                return "stalled";
+            }
+        };
+        FingerprintDedupProperties properties = distributedProperties(true);
+        // 即使配置了 wait-for-claim，同步处理模式（调用方不允许阻塞）下也不等待
+        FingerprintDeduplicator deduplicator = new FingerprintDeduplicator(properties, stalledStore, null, false,
+                clock::get, () -> TimeUnit.MILLISECONDS.toNanos(clock.get()));
+        try {
+            int fingerprints = 200;
+            long start = System.nanoTime();
+            for (int i = 0; i < fingerprints; i++) {
+                assertFalse(deduplicator.isDuplicate(info(i)), "本地首次出现按本地结果放行");
+                assertTrue(deduplicator.isDuplicate(info(i)));
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            // 等待认领时第一个指纹就要等到认领超时（10 秒）
+            assertTrue(elapsedMillis < properties.getDistributed().getClaimTimeoutMillis() / 10,
+                    "调用方不应等待共享存储: elapsed=" + elapsedMillis + "ms");
+            assertFalse(deduplicator.getStats().getSyncStats().isWaitForClaims());
+        } finally {
+            release.countDown();
+            deduplicator.shutdown();
+        }
+    }
+
+    /**
+     * 所有节点的所有线程同时开始，返回每个指纹在整个集群内被放行的次数
+     */
+    private static long[] runCluster(List<FingerprintDeduplicator> nodes) throws Exception {
+        ExceptionInfo[] infos = new ExceptionInfo[FINGERPRINTS];
+        for (int i = 0; i < FINGERPRINTS; i++) {
+            infos[i] = info(i);
+        }
+        return DedupTestFixture.runConcurrently(NODES * THREADS_PER_NODE, CALLS_PER_THREAD, FINGERPRINTS,
+                (thread, index) -> !nodes.get(thread / THREADS_PER_NODE).isDuplicate(infos[index]));
+    }
+
+    private static List<FingerprintDeduplicator> newCluster(SharedDedupStore sharedStore, AtomicLong clock,
+                                                            Boolean waitForClaim) {
+        List<FingerprintDeduplicator> nodes = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(DedupTestFixture.newDeduplicator(distributedProperties(waitForClaim), sharedStore, clock));
+        }
+        return nodes;
+    }
+
+    /**
+     * @param waitForClaim 是否等待认领，null 表示不配置（按是否异步分发决定）
+     */
+    private static FingerprintDedupProperties distributedProperties(Boolean waitForClaim) {
+        FingerprintDedupProperties properties = new FingerprintDedupProperties();
+        properties.setStorage("distributed");
+        properties.getDistributed().setBatchIntervalMillis(5);
+        properties.getDistributed().setClaimTimeoutMillis(TimeUnit.SECONDS.toMillis(10));
+        properties.getDistributed().setWaitForClaim(waitForClaim);
+        return properties;
+    }
+}
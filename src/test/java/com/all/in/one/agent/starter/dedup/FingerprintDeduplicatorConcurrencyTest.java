@@ -0,0 +1,154 @@
+package com.all.in.one.agent.starter.dedup;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.all.in.one.agent.starter.dedup.DedupTestFixture.info;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 第 1 层指纹去重并发测试
+ * <p>
+ * 64 个线程同时提交相同指纹的异常，验证每个窗口恰好放行一次
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("第 1 层指纹去重并发测试")
+class FingerprintDeduplicatorConcurrencyTest {
+
+    private static final int THREADS = 64;
+    private static final int CALLS_PER_THREAD = 2_000;
+    private static final int FINGERPRINTS = 16;
+    private static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    @Test
+    @DisplayName("滑动窗口：64 线程并发，每个指纹每个窗口恰好放行一次")
+    void testSlidingWindowExactlyOncePerWindow() throws Exception {
+        assertSlidingWindowExactlyOnce("memory");
+    }
+
+    @Test
+    @DisplayName("堆外存储：64 线程并发，每个指纹每个窗口恰好放行一次")
+    void testOffHeapSlidingWindowExactlyOncePerWindow() throws Exception {
+        assertSlidingWindowExactlyOnce("offheap");
+    }
+
+    private void assertSlidingWindowExactlyOnce(String storage) throws Exception {
+        AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1) + 12_345);
+        FingerprintDeduplicator deduplicator = newDeduplicator(FingerprintDedupProperties.WindowMode.SLIDING, storage, clock);
+
+        for (int window = 0; window < 3; window++) {
+            long[] passed = runConcurrently(deduplicator);
+            for (int i = 0; i < FINGERPRINTS; i++) {
+                assertEquals(1, passed[i], "窗口 " + window + " 指纹 " + i + " 应恰好放行一次");
+            }
+            clock.addAndGet(WINDOW_MILLIS);
+        }
+
+        FingerprintDeduplicator.DedupStats stats = deduplicator.getStats();
+        long total = 3L * THREADS * CALLS_PER_THREAD;
+        assertEquals(total, stats.getTotalChecked());
+        assertEquals(total - 3L * FINGERPRINTS, stats.getTotalFiltered());
+    }
+
+    @Test
+    @DisplayName("滑动窗口：窗口未结束前不会再次放行")
+    void testSlidingWindowSuppressesUntilExpiry() {
+        for (String storage : new String[]{"memory", "offheap"}) {
+            AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1));
+            FingerprintDeduplicator deduplicator = newDeduplicator(FingerprintDedupProperties.WindowMode.SLIDING, storage, clock);
+            ExceptionInfo info = info(1);
+
+            assertFalse(deduplicator.isDuplicate(info), storage);
+            clock.addAndGet(WINDOW_MILLIS - 1);
+            assertTrue(deduplicator.isDuplicate(info), storage);
+            clock.addAndGet(1);
+            assertFalse(deduplicator.isDuplicate(info), storage);
+            assertTrue(deduplicator.isDuplicate(info), storage);
+        }
+    }
+
+    @Test
+    @DisplayName("堆外存储：指纹数远超容量时淘汰旧条目，最近的指纹仍然去重")
+    void testOffHeapEvictsUnderCardinalityExplosion() {
+        AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1));
+        OffHeapFingerprintDedupStore store = new OffHeapFingerprintDedupStore(10_000, WINDOW_MILLIS,
+                () -> TimeUnit.MILLISECONDS.toNanos(clock.get()));
+
+        // 每次写入推进 1ms（总计小于窗口长度），淘汰时优先选择更早写入的条目
+        for (long key = 1; key <= 100_000; key++) {
+            clock.incrementAndGet();
+            assertEquals(1, store.recordOccurrence(key * 0x9e3779b97f4a7c15L));
+        }
+        assertEquals(store.capacity(), store.size());
+        assertTrue(store.evictionCount() > 0);
+
+        // 最近写入的指纹仍在表中
+        for (long key = 99_001; key <= 100_000; key++) {
+            assertEquals(2, store.recordOccurrence(key * 0x9e3779b97f4a7c15L));
+        }
+    }
+
+    @Test
+    @DisplayName("滚动窗口：64 线程并发跨越窗口边界，每个对齐窗口恰好放行一次")
+    void testTumblingWindowExactlyOncePerWindow() throws Exception {
+        // 从窗口末尾 1ms 开始，下一轮即进入新的对齐窗口
+        AtomicLong clock = new AtomicLong(10 * WINDOW_MILLIS - 1);
+        FingerprintDeduplicator deduplicator = newDeduplicator(FingerprintDedupProperties.WindowMode.TUMBLING, "memory", clock);
+
+        long[] passed = runConcurrently(deduplicator);
+        for (int i = 0; i < FINGERPRINTS; i++) {
+            assertEquals(1, passed[i]);
+        }
+
+        clock.incrementAndGet();
+        passed = runConcurrently(deduplicator);
+        for (int i = 0; i < FINGERPRINTS; i++) {
+            assertEquals(1, passed[i], "新的对齐窗口应重新放行一次");
+        }
+
+        clock.addAndGet(WINDOW_MILLIS - 1);
+        passed = runConcurrently(deduplicator);
+        for (int i = 0; i < FINGERPRINTS; i++) {
+            assertEquals(0, passed[i], "同一对齐窗口内不应再次放行");
+        }
+    }
+
+    @Test
+    @DisplayName("关闭去重时全部放行")
+    void testDisabled() {
+        FingerprintDedupProperties properties = new FingerprintDedupProperties();
+        properties.setEnabled(false);
+        FingerprintDeduplicator deduplicator = new FingerprintDeduplicator(properties);
+
+        assertFalse(deduplicator.isDuplicate(info(1)));
+        assertFalse(deduplicator.isDuplicate(info(1)));
+    }
+
+    /**
+     * 64 个线程同时开始，对每个指纹交替调用，返回每个指纹被放行的次数
+     */
+    private static long[] runConcurrently(FingerprintDeduplicator deduplicator) throws Exception {
+        ExceptionInfo[] infos = new ExceptionInfo[FINGERPRINTS];
+        for (int i = 0; i < FINGERPRINTS; i++) {
+            infos[i] = info(i);
+        }
+        return DedupTestFixture.runConcurrently(THREADS, CALLS_PER_THREAD, FINGERPRINTS,
+                (thread, index) -> !deduplicator.isDuplicate(infos[index]));
+    }
+
+    private static FingerprintDeduplicator newDeduplicator(FingerprintDedupProperties.WindowMode mode,
+                                                           String storage,
+                                                           AtomicLong clock) {
+        FingerprintDedupProperties properties = new FingerprintDedupProperties();
+        properties.setWindowMode(mode);
+        properties.setStorage(storage);
+        properties.setOffHeapMaxEntries(100_000);
+        return DedupTestFixture.newDeduplicator(properties, null, clock);
+    }
+}
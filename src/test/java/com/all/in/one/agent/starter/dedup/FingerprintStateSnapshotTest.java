@@ -0,0 +1,129 @@
+package com.all.in.one.agent.starter.dedup;
+
+import com.all.in.one.agent.common.util.StateSnapshotFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 指纹状态快照测试
+ * <p>
+ * 去重记录写入快照后在新的存储中恢复，剩余存活时间按停机时长扣减
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("指纹状态快照测试")
+class FingerprintStateSnapshotTest {
+
+    private static final int ENTRIES = 100_000;
+    private static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    private static final long TAG = 42;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("堆内存储：10 万条记录快照后恢复，已过期的记录被丢弃")
+    void testHeapStoreRoundTrip() throws IOException {
+        assertRoundTrip(ticker -> new HeapFingerprintDedupStore(ENTRIES * 2, WINDOW_MILLIS, ticker));
+    }
+
+    @Test
+    @DisplayName("堆外存储：10 万条记录快照后恢复，已过期的记录被丢弃")
+    void testOffHeapStoreRoundTrip() throws IOException {
+        assertRoundTrip(ticker -> new OffHeapFingerprintDedupStore(ENTRIES * 2, WINDOW_MILLIS, ticker));
+    }
+
+    @Test
+    @DisplayName("状态标识不一致或文件损坏时拒绝恢复，文件不存在时恢复 0 条")
+    void testRejectMismatchedOrCorruptedSnapshot() throws IOException {
+        Path file = tempDir.resolve("dedup.snapshot");
+        assertEquals(0, StateSnapshotFile.read(file, TAG, 0, (key, value, remaining) -> fail()));
+
+        StateSnapshotFile.write(file, TAG, 0, sink -> {
+            for (int i = 1; i <= 100; i++) {
+                sink.accept(i, 1, WINDOW_MILLIS);
+            }
+        });
+        assertThrows(IOException.class, () -> StateSnapshotFile.read(file, TAG + 1, 0, (key, value, remaining) -> { }));
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), 100);
+        }
+        assertThrows(IOException.class, () -> StateSnapshotFile.read(file, TAG, 0, (key, value, remaining) -> { }));
+    }
+
+    @Test
+    @DisplayName("同一文件反复读取后覆盖写入，每次读到最新快照且不留临时文件")
+    void testOverwriteAfterRead() throws IOException {
+        Path file = tempDir.resolve("dedup.snapshot");
+        for (int round = 1; round <= 20; round++) {
+            int entries = round * 10;
+            StateSnapshotFile.write(file, TAG, 0, sink -> {
+                for (int i = 1; i <= entries; i++) {
+                    sink.accept(i, entries, StateSnapshotFile.NO_EXPIRY);
+                }
+            });
+            AtomicLong values = new AtomicLong();
+            assertEquals(entries, StateSnapshotFile.read(file, TAG, 0, (key, value, remaining) -> values.addAndGet(value)));
+            assertEquals((long) entries * entries, values.get());
+            assertFalse(Files.exists(tempDir.resolve("dedup.snapshot.tmp")));
+        }
+    }
+
+    /**
+     * 前一半记录在 0 秒写入、后一半在 60 秒写入，90 秒时快照，停机 40 秒后恢复：
+     * 前一半只剩 30 秒，恢复时已过期；后一半还剩 50 秒，恢复后仍是重复
+     */
+    private void assertRoundTrip(StoreFactory factory) throws IOException {
+        AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1));
+        LongSupplier ticker = () -> TimeUnit.MILLISECONDS.toNanos(clock.get());
+        FingerprintDedupStore before = factory.create(ticker);
+        int half = ENTRIES / 2;
+        for (long key = 1; key <= ENTRIES; key++) {
+            if (key == half + 1) {
+                clock.addAndGet(TimeUnit.SECONDS.toMillis(60));
+            }
+            before.recordOccurrence(key);
+            before.recordOccurrence(key);
+        }
+        clock.addAndGet(TimeUnit.SECONDS.toMillis(30));
+
+        Path file = tempDir.resolve(before.getType() + ".snapshot");
+        long snapshotAt = clock.get();
+        int written = StateSnapshotFile.write(file, TAG, snapshotAt, before::exportEntries);
+        assertEquals(ENTRIES, written);
+
+        FingerprintDedupStore after = factory.create(ticker);
+        int restored = StateSnapshotFile.read(file, TAG, snapshotAt + TimeUnit.SECONDS.toMillis(40), after::restoreEntry);
+        assertEquals(ENTRIES - half, restored);
+        assertEquals(ENTRIES - half, after.size());
+
+        // 恢复的记录保留计数，已过期的记录重新开始计数
+        assertEquals(3, after.recordOccurrence(ENTRIES));
+        assertEquals(1, after.recordOccurrence(1));
+
+        // 恢复的记录在原本的过期时刻（快照后 50 秒）过期
+        clock.addAndGet(TimeUnit.SECONDS.toMillis(51));
+        assertEquals(1, after.recordOccurrence(ENTRIES - 1));
+        after.close();
+    }
+
+    @FunctionalInterface
+    private interface StoreFactory {
+        FingerprintDedupStore create(LongSupplier ticker);
+    }
+}
@@ -0,0 +1,59 @@
+package com.all.in.one.agent.starter.filter;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.support.MicroBenchmark;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.all.in.one.agent.starter.filter.IgnoreListFixtures.*;
+
+/**
+ * 第 0 层编译忽略清单基准（默认不执行，见 {@link MicroBenchmark}）
+ * <p>
+ * 以旧版 IgnoreListFilter 的逐条扫描逻辑作为性能基线
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Tag(MicroBenchmark.TAG)
+@DisplayName("第 0 层编译忽略清单基准")
+class CompiledIgnoreListBenchmarkTest {
+
+    @Test
+    @DisplayName("基准：单次检查耗时随清单规模的变化")
+    void benchmarkByListSize() {
+        Random random = new Random(7);
+        MicroBenchmark table = MicroBenchmark.table("第 0 层忽略清单",
+                "清单规模(每类)", "编译匹配 ns/次", "逐条扫描 ns/次");
+        for (int size : LIST_SIZES) {
+            IgnoreListProperties properties = generateProperties(size, random);
+            CompiledIgnoreList compiled = CompiledIgnoreList.compile(properties);
+            List<ExceptionInfo> events = generateEvents(properties, 2_000, random);
+
+            long compiledNanos = MicroBenchmark.nanosPerOp(() -> {
+                int hits = 0;
+                for (ExceptionInfo event : events) {
+                    if (compiled.match(event) != null) {
+                        hits++;
+                    }
+                }
+                return hits;
+            }, events.size(), 20, 50);
+            long linearNanos = MicroBenchmark.nanosPerOp(() -> {
+                int hits = 0;
+                for (ExceptionInfo event : events) {
+                    if (linearScan(properties, event)) {
+                        hits++;
+                    }
+                }
+                return hits;
+            }, events.size(), 20, 50);
+            table.row(size, compiledNanos, linearNanos);
+        }
+        table.log();
+    }
+}
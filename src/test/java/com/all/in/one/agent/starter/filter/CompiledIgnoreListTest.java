@@ -0,0 +1,76 @@
+package com.all.in.one.agent.starter.filter;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.all.in.one.agent.starter.filter.IgnoreListFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 第 0 层编译忽略清单测试
+ * <p>
+ * 以旧版 IgnoreListFilter 的逐条扫描逻辑作为正确性对照
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("第 0 层编译忽略清单测试")
+class CompiledIgnoreListTest {
+
+    @Test
+    @DisplayName("测试各类规则命中")
+    void testMatchEachRule() {
+        IgnoreListProperties properties = new IgnoreListProperties();
+        properties.getAppNames().add("mock-service");
+        properties.getEnvironments().add("local");
+        properties.getExceptionTypes().add("AccessDeniedException");
+        properties.getPackagePrefixes().add("org.springframework.boot.actuate");
+        properties.getErrorLocations().add("com.example.HealthController.health:10");
+        properties.getErrorLocations().add("*.heartbeat");
+        properties.getErrorLocations().add("com.example.PingController.*");
+        properties.getMessageKeywords().add("Health Check");
+        properties.getHttpStatusCodes().add(404);
+        CompiledIgnoreList compiled = CompiledIgnoreList.compile(properties);
+
+        assertEquals(CompiledIgnoreList.Reason.APP_NAME,
+                compiled.match(info("mock-service", "prod", "X", "a.B.c:1", null)));
+        assertEquals(CompiledIgnoreList.Reason.ENVIRONMENT,
+                compiled.match(info("app", "local", "X", "a.B.c:1", null)));
+        assertEquals(CompiledIgnoreList.Reason.EXCEPTION_TYPE,
+                compiled.match(info("app", "prod", "org.springframework.security.AccessDeniedException", "a.B.c:1", null)));
+        assertEquals(CompiledIgnoreList.Reason.PACKAGE,
+                compiled.match(info("app", "prod", "X", "org.springframework.boot.actuate.Endpoint.invoke:42", null)));
+        assertEquals(CompiledIgnoreList.Reason.ERROR_LOCATION,
+                compiled.match(info("app", "prod", "X", "com.example.HealthController.health:10", null)));
+        assertEquals(CompiledIgnoreList.Reason.ERROR_LOCATION,
+                compiled.match(info("app", "prod", "X", "com.other.Job.heartbeat:7", null)));
+        assertEquals(CompiledIgnoreList.Reason.ERROR_LOCATION,
+                compiled.match(info("app", "prod", "X", "com.example.PingController.ping:3", null)));
+        assertEquals(CompiledIgnoreList.Reason.MESSAGE_KEYWORD,
+                compiled.match(info("app", "prod", "X", "a.B.c:1", "upstream HEALTH CHECK failed")));
+        assertEquals(CompiledIgnoreList.Reason.HTTP_STATUS,
+                compiled.match(info("app", "prod", "X", "a.B.c:1", "HTTP 404 Not Found")));
+        assertNull(compiled.match(info("app", "prod", "NullPointerException", "com.example.OrderService.pay:88",
+                "order is null")));
+    }
+
+    @Test
+    @DisplayName("测试编译匹配与逐条扫描结果一致")
+    void testEquivalentToLinearScan() {
+        Random random = new Random(42);
+        for (int size : LIST_SIZES) {
+            IgnoreListProperties properties = generateProperties(size, random);
+            CompiledIgnoreList compiled = CompiledIgnoreList.compile(properties);
+            List<ExceptionInfo> events = generateEvents(properties, 5_000, random);
+            for (ExceptionInfo event : events) {
+                assertEquals(linearScan(properties, event), compiled.match(event) != null,
+                        "结果不一致: size=" + size + ", location=" + event.getErrorLocation()
+                                + ", message=" + event.getExceptionMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.all.in.one.agent.starter.filter;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 忽略清单测试数据与旧版逐条扫描逻辑（正确性对照和性能基线）
+ *
+ * @author One Agent 4J
+ */
+final class IgnoreListFixtures {
+
+    static final int[] LIST_SIZES = {10, 100, 500, 1000, 2000};
+
+    private IgnoreListFixtures() {
+    }
+
+    /**
+     * 生成每类 size 条规则的忽略清单
+     */
+    static IgnoreListProperties generateProperties(int size, Random random) {
+        IgnoreListProperties properties = new IgnoreListProperties();
+        for (int i = 0; i < size; i++) {
+            properties.getAppNames().add("ignored-app-" + i);
+            properties.getEnvironments().add("ignored-env-" + i);
+            properties.getExceptionTypes().add("Ignored" + i + "Exception");
+            properties.getPackagePrefixes().add("com.vendor" + i + ".internal");
+            switch (i % 3) {
+                case 0 -> properties.getErrorLocations().add("com.app.Controller" + i + ".handle:" + i);
+                case 1 -> properties.getErrorLocations().add("*.method" + i);
+                default -> properties.getErrorLocations().add("com.app.Job" + i + ".*");
+            }
+            properties.getMessageKeywords().add("keyword-" + Integer.toHexString(random.nextInt()));
+            properties.getHttpStatusCodes().add(1000 + i);
+        }
+        return properties;
+    }
+
+    /**
+     * 生成事件：约 90% 不命中（真实业务异常），其余随机命中某类规则
+     */
+    static List<ExceptionInfo> generateEvents(IgnoreListProperties properties, int count, Random random) {
+        List<String> keywords = new ArrayList<>(properties.getMessageKeywords());
+        int size = properties.getAppNames().size();
+        List<ExceptionInfo> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int n = random.nextInt(size);
+            String location = "com.app.service.OrderService" + (i % 50) + ".process:" + (100 + i % 30);
+            String message = "Order " + i + " failed: connection reset by peer";
+            String type = "IllegalStateException";
+            if (random.nextInt(10) == 0) {
+                switch (random.nextInt(6)) {
+                    case 0 -> type = "java.lang.Ignored" + n + "Exception";
+                    case 1 -> location = "com.vendor" + n + ".internal.Client.call:12";
+                    case 2 -> location = "com.app.Controller" + (n - n % 3) + ".handle:" + (n - n % 3);
+                    case 3 -> location = "com.x.Y.method" + (n - n % 3 + 1) + ":5";
+                    case 4 -> message = "prefix " + keywords.get(n).toUpperCase() + " suffix";
+                    default -> message = "status " + (1000 + n);
+                }
+            }
+            events.add(info("order-service", "prod", type, location, message));
+        }
+        return events;
+    }
+
+    static ExceptionInfo info(String appName, String environment, String type, String location, String message) {
+        ExceptionInfo info = new ExceptionInfo();
+        info.setAppName(appName);
+        info.setEnvironment(environment);
+        info.setExceptionType(type);
+        info.setErrorLocation(location);
+        info.setExceptionMessage(message);
+        return info;
+    }
+
+    /**
+     * 旧版逐条扫描逻辑
+     */
+    static boolean linearScan(IgnoreListProperties properties, ExceptionInfo info) {
+        if (info.getAppName() != null && properties.getAppNames().contains(info.getAppName())) {
+            return true;
+        }
+        if (info.getEnvironment() != null && properties.getEnvironments().contains(info.getEnvironment())) {
+            return true;
+        }
+        String type = info.getExceptionType();
+        if (type != null && (properties.getExceptionTypes().contains(type)
+                || properties.getExceptionTypes().contains(type.substring(type.lastIndexOf('.') + 1)))) {
+            return true;
+        }
+        String location = info.getErrorLocation();
+        if (location != null) {
+            String className = location.contains(".") ? location.substring(0, location.lastIndexOf('.')) : location;
+            if (className.contains(":")) {
+                className = className.substring(0, className.indexOf(':'));
+            }
+            for (String prefix : properties.getPackagePrefixes()) {
+                if (className.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            for (String pattern : properties.getErrorLocations()) {
+                if (location.equals(pattern)) {
+                    return true;
+                }
+                if (pattern.startsWith("*.")) {
+                    String withoutLine = location.contains(":") ? location.substring(0, location.indexOf(':')) : location;
+                    String method = withoutLine.substring(withoutLine.lastIndexOf('.') + 1);
+                    if (pattern.substring(2).equals(method)) {
+                        return true;
+                    }
+                } else if (pattern.endsWith(".*")
+                        && location.startsWith(pattern.substring(0, pattern.length() - 2) + ".")) {
+                    return true;
+                }
+            }
+        }
+        String message = info.getExceptionMessage();
+        if (message != null) {
+            String lowerMessage = message.toLowerCase();
+            for (String keyword : properties.getMessageKeywords()) {
+                if (lowerMessage.contains(keyword.toLowerCase())) {
+                    return true;
+                }
+            }
+            for (Integer statusCode : properties.getHttpStatusCodes()) {
+                if (message.contains(statusCode.toString())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
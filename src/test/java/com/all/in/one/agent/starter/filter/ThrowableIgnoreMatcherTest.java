@@ -0,0 +1,126 @@
+package com.all.in.one.agent.starter.filter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Throwable 级别快速忽略匹配器测试
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("Throwable 级别快速忽略匹配器测试")
+class ThrowableIgnoreMatcherTest {
+
+    @Test
+    @DisplayName("完整类名、简单类名和类名后缀精确匹配异常类型")
+    void testExactClassMatch() {
+        assertTrue(matcher("java.util.concurrent.TimeoutException").shouldIgnore(new TimeoutException()));
+        assertTrue(matcher("TimeoutException").shouldIgnore(new TimeoutException()));
+        assertTrue(matcher("concurrent.TimeoutException").shouldIgnore(new TimeoutException()));
+        assertTrue(matcher("ThrowableIgnoreMatcherTest$IgnoredBase").shouldIgnore(new IgnoredBase()),
+                "内部类按 $ 分隔的名称匹配");
+
+        // 后缀必须落在包名边界上
+        assertFalse(matcher("StateException").shouldIgnore(new IllegalStateException()));
+        assertFalse(matcher("util.TimeoutException").shouldIgnore(new TimeoutException()));
+        assertFalse(matcher("java.util.concurrent.Timeout").shouldIgnore(new TimeoutException()));
+    }
+
+    @Test
+    @DisplayName("忽略父类即忽略所有子类，沿继承链向上匹配")
+    void testSubclassMatch() {
+        ThrowableIgnoreMatcher matcher = matcher("java.io.IOException");
+        assertTrue(matcher.shouldIgnore(new IOException()));
+        assertTrue(matcher.shouldIgnore(new FileNotFoundException()));
+        assertTrue(matcher.shouldIgnore(new NoSuchFileException("/tmp/missing")), "跨两层继承");
+        assertFalse(matcher.shouldIgnore(new UncheckedIOException(new IOException())), "只看异常类型，不看 cause");
+
+        ThrowableIgnoreMatcher custom = matcher("ThrowableIgnoreMatcherTest$IgnoredBase");
+        assertTrue(custom.shouldIgnore(new IgnoredChild()));
+        assertTrue(custom.shouldIgnore(new IgnoredChild() {
+        }), "匿名子类");
+        assertFalse(custom.shouldIgnore(new RuntimeException()), "父类不会因子类被忽略而被忽略");
+    }
+
+    @Test
+    @DisplayName("缓存命中后，未匹配的类仍然未匹配，已匹配的类仍然匹配")
+    void testCachedResultsStable() {
+        ThrowableIgnoreMatcher matcher = matcher("IOException");
+        for (int i = 0; i < 3; i++) {
+            assertFalse(matcher.shouldIgnore(new IllegalStateException("round " + i)));
+            assertTrue(matcher.shouldIgnore(new FileNotFoundException("round " + i)));
+            assertFalse(matcher.shouldIgnore(new IgnoredChild()));
+        }
+
+        // 缓存按匹配器实例隔离：另一个配置不受已缓存结果影响
+        ThrowableIgnoreMatcher other = matcher("IllegalStateException");
+        assertTrue(other.shouldIgnore(new IllegalStateException()));
+        assertFalse(other.shouldIgnore(new FileNotFoundException()));
+        assertFalse(matcher.shouldIgnore(new IllegalStateException()));
+    }
+
+    @Test
+    @DisplayName("栈顶类的包路径按前缀匹配")
+    void testPackagePrefix() {
+        ThrowableIgnoreMatcher matcher = new ThrowableIgnoreMatcher(List.of(),
+                List.of("com.example.generated.", "org.legacy."));
+
+        assertTrue(matcher.shouldIgnore(thrownAt("com.example.generated.Mapper")));
+        assertTrue(matcher.shouldIgnore(thrownAt("org.legacy.sub.Client")));
+        assertFalse(matcher.shouldIgnore(thrownAt("com.example.service.OrderService")));
+        assertFalse(matcher.shouldIgnore(thrownAt("com.example.Generated")));
+
+        // 只看栈顶帧
+        RuntimeException deeper = new RuntimeException();
+        deeper.setStackTrace(new StackTraceElement[]{
+                new StackTraceElement("com.example.service.OrderService", "create", "OrderService.java", 10),
+                new StackTraceElement("org.legacy.Client", "call", "Client.java", 20),
+        });
+        assertFalse(matcher.shouldIgnore(deeper));
+
+        RuntimeException noFrames = new RuntimeException();
+        noFrames.setStackTrace(new StackTraceElement[0]);
+        assertFalse(matcher.shouldIgnore(noFrames));
+    }
+
+    @Test
+    @DisplayName("异常类型和包路径任一匹配即忽略；都未配置时不忽略")
+    void testCombinedAndEmpty() {
+        ThrowableIgnoreMatcher matcher = new ThrowableIgnoreMatcher(List.of("TimeoutException"),
+                List.of("org.legacy."));
+        assertTrue(matcher.shouldIgnore(new TimeoutException()));
+        assertTrue(matcher.shouldIgnore(thrownAt("org.legacy.Client")));
+        assertFalse(matcher.shouldIgnore(thrownAt("com.example.Client")));
+
+        ThrowableIgnoreMatcher empty = new ThrowableIgnoreMatcher(List.of(), List.of());
+        assertFalse(empty.shouldIgnore(new TimeoutException()));
+        assertFalse(empty.shouldIgnore(thrownAt("org.legacy.Client")));
+    }
+
+    private static ThrowableIgnoreMatcher matcher(String ignoredException) {
+        return new ThrowableIgnoreMatcher(List.of(ignoredException), List.of());
+    }
+
+    private static RuntimeException thrownAt(String className) {
+        RuntimeException throwable = new RuntimeException();
+        throwable.setStackTrace(new StackTraceElement[]{
+                new StackTraceElement(className, "run", "Source.java", 1),
+        });
+        return throwable;
+    }
+
+    static class IgnoredBase extends RuntimeException {
+    }
+
+    static class IgnoredChild extends IgnoredBase {
+    }
+}
@@ -0,0 +1,165 @@
+package com.all.in.one.agent.starter.rule;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.starter.severity.SeverityClassifier;
+import com.all.in.one.agent.starter.severity.SeverityProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DSL 规则测试
+ * <p>
+ * 规则从配置、接口下发和规则文件加载，重新编译后原子替换，编译失败保留原规则集
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("DSL 规则测试")
+class DslRuleTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("配置中的规则生效，过滤原因带出命中的规则")
+    void testConfiguredRules() {
+        RuleEngineProperties properties = properties();
+        properties.getDsl().getRules().add(definition("health", "location endsWith '.health' and env != 'prod'", "健康检查"));
+        properties.getDsl().getRules().add(definition("p4-test", "severity == 'P4' and env == 'test'", null));
+        DslRule rule = newRule(properties);
+
+        assertTrue(rule.isEnabled());
+        assertTrue(rule.shouldFilter(info("test", "java.lang.RuntimeException", "com.app.Api.health")));
+        assertEquals("命中 DSL 规则 [health]：健康检查", rule.getReason());
+        assertFalse(rule.shouldFilter(info("prod", "java.lang.RuntimeException", "com.app.Api.health")));
+        assertTrue(rule.shouldFilter(info("test", "com.app.BizException", "com.app.Api.create")),
+                "未匹配内置规则的异常默认分级为 P4");
+        assertEquals("命中 DSL 规则 [p4-test]：severity == 'P4' and env == 'test'", rule.getReason());
+
+        DslRule.DslStats stats = rule.getStats();
+        assertEquals(2, stats.getRuleCount());
+        assertEquals(3, stats.getTotalChecked());
+        assertEquals(2, stats.getTotalFiltered());
+        assertEquals(1, stats.getRules().get(0).getHits());
+        assertFalse(rule.isOrderSensitive());
+    }
+
+    @Test
+    @DisplayName("下发有误的规则时保留原规则集，恢复后使用配置中的规则")
+    void testReloadIsAtomic() {
+        RuleEngineProperties properties = properties();
+        properties.getDsl().getRules().add(definition("npe", "type == 'NullPointerException'", null));
+        DslRule rule = newRule(properties);
+        ExceptionInfo npe = info("prod", "java.lang.NullPointerException", "com.app.A.a");
+        ExceptionInfo timeout = info("prod", "java.net.SocketTimeoutException", "com.app.A.a");
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> rule.reload(List.of(definition("bad", "type === 'x'", null))));
+        assertEquals(error.getMessage(), rule.getStats().getLastReloadError());
+        assertTrue(rule.shouldFilter(npe), "原规则仍然生效");
+        assertFalse(rule.getStats().isRuntimeRules());
+
+        rule.reload(List.of(definition("storm", "type == 'SocketTimeoutException' and rate(1m) >= 2", null)));
+        assertNull(rule.getStats().getLastReloadError());
+        assertTrue(rule.getStats().isRuntimeRules());
+        assertTrue(rule.isOrderSensitive(), "包含 rate 条件的规则固定执行位置");
+        assertFalse(rule.shouldFilter(npe));
+        assertFalse(rule.shouldFilter(timeout));
+        assertTrue(rule.shouldFilter(timeout));
+
+        rule.reload(null);
+        assertTrue(rule.shouldFilter(npe));
+        assertEquals(3, rule.getStats().getReloadCount());
+    }
+
+    @Test
+    @DisplayName("规则文件修改后自动重新加载，文件有误时保留原规则")
+    void testRulesFileHotReload() throws Exception {
+        Path rulesFile = tempDir.resolve("dsl-rules.properties");
+        write(rulesFile, "ignore-npe.when=type == 'NullPointerException'\nignore-npe.reason=已知问题\n", 1_000);
+        RuleEngineProperties properties = properties();
+        properties.getDsl().setRulesFile(rulesFile.toString());
+        DslRule rule = newRule(properties);
+        ExceptionInfo npe = info("prod", "java.lang.NullPointerException", "com.app.A.a");
+        ExceptionInfo iae = info("prod", "java.lang.IllegalArgumentException", "com.app.A.a");
+
+        assertTrue(rule.shouldFilter(npe));
+        assertEquals("命中 DSL 规则 [ignore-npe]：已知问题", rule.getReason());
+        assertFalse(rule.reloadIfRulesFileChanged(), "文件未修改");
+
+        write(rulesFile, "ignore-npe.when=type == 'NullPointerException'\nignore-npe.enabled=false\n"
+                + "ignore-iae.when=type == 'IllegalArgumentException'\n", 2_000);
+        assertTrue(rule.reloadIfRulesFileChanged());
+        assertFalse(rule.shouldFilter(npe));
+        assertTrue(rule.shouldFilter(iae));
+
+        write(rulesFile, "ignore-iae.when=type ==\n", 3_000);
+        assertFalse(rule.reloadIfRulesFileChanged());
+        assertNotNull(rule.getStats().getLastReloadError());
+        assertTrue(rule.shouldFilter(iae), "保留原规则");
+        assertFalse(rule.reloadIfRulesFileChanged(), "同一份有误的文件不反复重试");
+
+        write(rulesFile, "ignore-iae.unknown=x\n", 4_000);
+        assertFalse(rule.reloadIfRulesFileChanged());
+        assertTrue(rule.getStats().getLastReloadError().contains("未知属性"));
+    }
+
+    private static void write(Path file, String content, long modifiedMillis) throws Exception {
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedMillis));
+    }
+
+    @Test
+    @DisplayName("DSL 开关关闭时下发的规则可以编译，但规则不执行")
+    void testReloadWhileDslDisabled() {
+        RuleEngineProperties properties = properties();
+        properties.getDsl().setEnabled(false);
+        DslRule rule = newRule(properties);
+
+        rule.reload(List.of(definition("npe", "type == 'NullPointerException'", null)));
+        assertEquals(1, rule.getStats().getRuleCount());
+        assertFalse(rule.isDslEnabled());
+        assertFalse(rule.isEnabled());
+
+        properties.getDsl().setEnabled(true);
+        assertTrue(rule.isDslEnabled());
+        assertTrue(rule.isEnabled());
+    }
+
+    private static RuleEngineProperties properties() {
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.getDsl().setEnabled(true);
+        return properties;
+    }
+
+    private static DslRule newRule(RuleEngineProperties properties) {
+        return new DslRule(properties, new SeverityClassifier(new SeverityProperties()), System::nanoTime);
+    }
+
+    private static RuleEngineProperties.DslRuleDefinition definition(String name, String when, String reason) {
+        RuleEngineProperties.DslRuleDefinition definition = new RuleEngineProperties.DslRuleDefinition();
+        definition.setName(name);
+        definition.setWhen(when);
+        definition.setReason(reason);
+        return definition;
+    }
+
+    private static ExceptionInfo info(String environment, String type, String location) {
+        return ExceptionInfo.builder()
+                .appName("test-app")
+                .environment(environment)
+                .exceptionType(type)
+                .errorLocation(location)
+                .fingerprintHash(type.hashCode())
+                .build();
+    }
+}
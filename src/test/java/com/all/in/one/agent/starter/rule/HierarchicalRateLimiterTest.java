@@ -0,0 +1,144 @@
+package com.all.in.one.agent.starter.rule;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分层令牌桶限流测试
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("分层令牌桶限流测试")
+class HierarchicalRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("指纹层：突发用完后按补充速率放行")
+    void testFingerprintBurstAndRefill() {
+        AtomicLong clock = new AtomicLong();
+        HierarchicalRateLimiter limiter = new HierarchicalRateLimiter(config(
+                new RuleEngineProperties.BucketConfig(1024, 5, 1.0),
+                new RuleEngineProperties.BucketConfig(16, 0, 0),
+                new RuleEngineProperties.BucketConfig(1, 0, 0)), clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertNull(limiter.tryAcquire(1, "app"));
+        }
+        assertEquals(HierarchicalRateLimiter.Level.FINGERPRINT, limiter.tryAcquire(1, "app"));
+        assertNull(limiter.tryAcquire(2, "app"), "其他指纹有自己的桶");
+
+        clock.addAndGet(SECOND);
+        assertNull(limiter.tryAcquire(1, "app"));
+        assertEquals(HierarchicalRateLimiter.Level.FINGERPRINT, limiter.tryAcquire(1, "app"));
+
+        // 空闲足够久后补满，但不超过容量
+        clock.addAndGet(60 * SECOND);
+        for (int i = 0; i < 5; i++) {
+            assertNull(limiter.tryAcquire(1, "app"));
+        }
+        assertNotNull(limiter.tryAcquire(1, "app"));
+    }
+
+    @Test
+    @DisplayName("大量不同指纹涌入时由应用层和全局层限流，并统计拒绝发生在哪一层")
+    void testAppAndGlobalLevelsShedDistinctFingerprints() {
+        AtomicLong clock = new AtomicLong();
+        HierarchicalRateLimiter limiter = new HierarchicalRateLimiter(config(
+                new RuleEngineProperties.BucketConfig(65536, 20, 1.0),
+                new RuleEngineProperties.BucketConfig(16, 100, 10.0),
+                new RuleEngineProperties.BucketConfig(1, 150, 10.0)), clock::get);
+
+        int passedA = 0;
+        for (long fingerprint = 1; fingerprint <= 1000; fingerprint++) {
+            if (limiter.tryAcquire(fingerprint, "app-a") == null) {
+                passedA++;
+            }
+        }
+        assertEquals(100, passedA, "应用层桶容量 100");
+
+        int passedB = 0;
+        for (long fingerprint = 1; fingerprint <= 1000; fingerprint++) {
+            if (limiter.tryAcquire(fingerprint + 10_000, "app-b") == null) {
+                passedB++;
+            }
+        }
+        assertEquals(50, passedB, "全局桶只剩 50 个令牌");
+
+        HierarchicalRateLimiter.RateLimitStats stats = limiter.getStats();
+        assertEquals(150, stats.getAcquired());
+        assertEquals(900, stats.getAppRejected());
+        assertEquals(950, stats.getGlobalRejected());
+        assertEquals(0, stats.getFingerprintRejected());
+        assertEquals("GLOBAL", stats.getLastShedLevel());
+    }
+
+    @Test
+    @DisplayName("上层拒绝时归还指纹层令牌")
+    void testRejectedUpperLevelReleasesFingerprintToken() {
+        AtomicLong clock = new AtomicLong();
+        HierarchicalRateLimiter limiter = new HierarchicalRateLimiter(config(
+                new RuleEngineProperties.BucketConfig(1024, 2, 0.1),
+                new RuleEngineProperties.BucketConfig(16, 0, 0),
+                new RuleEngineProperties.BucketConfig(1, 1, 1.0)), clock::get);
+
+        assertNull(limiter.tryAcquire(1, "app"));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(HierarchicalRateLimiter.Level.GLOBAL, limiter.tryAcquire(1, "app"));
+        }
+        clock.addAndGet(SECOND);
+        assertNull(limiter.tryAcquire(1, "app"), "被全局层拒绝的请求不应耗尽指纹层令牌");
+    }
+
+    @Test
+    @DisplayName("多线程并发取令牌不超发")
+    void testConcurrentAcquireNeverExceedsBurst() throws Exception {
+        HierarchicalRateLimiter limiter = new HierarchicalRateLimiter(config(
+                new RuleEngineProperties.BucketConfig(1024, 0, 0),
+                new RuleEngineProperties.BucketConfig(16, 0, 0),
+                new RuleEngineProperties.BucketConfig(1, 500, 0.001)), () -> 0L);
+        int threads = 32;
+        LongAdder passed = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                executor.submit(() -> {
+                    start.await();
+                    for (int n = 0; n < 1000; n++) {
+                        if (limiter.tryAcquire(n, "app") == null) {
+                            passed.increment();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(500, passed.sum());
+    }
+
+    private static RuleEngineProperties.TokenBucketConfig config(RuleEngineProperties.BucketConfig fingerprint,
+                                                                 RuleEngineProperties.BucketConfig app,
+                                                                 RuleEngineProperties.BucketConfig global) {
+        RuleEngineProperties.TokenBucketConfig config = new RuleEngineProperties.TokenBucketConfig();
+        config.setEnabled(true);
+        config.setFingerprint(fingerprint);
+        config.setApp(app);
+        config.setGlobal(global);
+        return config;
+    }
+}
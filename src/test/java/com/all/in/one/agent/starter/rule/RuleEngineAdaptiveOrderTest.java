@@ -0,0 +1,159 @@
+package com.all.in.one.agent.starter.rule;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 规则自适应排序测试
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("规则自适应排序测试")
+class RuleEngineAdaptiveOrderTest {
+
+    @Test
+    @DisplayName("按平均耗时/命中率重排，依赖顺序的规则固定在原位置，结果不变")
+    void testReorderByCostPerFilteredEvent() {
+        RuleEngineProperties properties = adaptiveProperties(100);
+        RuleEngine engine = new RuleEngine(new ArrayList<>(List.of(
+                rule("Expensive", 1, false, info -> {
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+                    return info.getErrorLine() % 10 == 0;
+                }),
+                rule("Cheap", 2, false, info -> info.getErrorLine() % 2 == 0),
+                rule("Pinned", 3, true, info -> false),
+                rule("Never", 4, false, info -> false))), properties);
+
+        int filteredBefore = run(engine, 400);
+        assertTrue(engine.reorder());
+
+        RuleEngine.RuleEngineStats stats = engine.getStats();
+        assertEquals("Cheap -> Expensive -> Pinned -> Never", stats.getExecutionOrder());
+        assertEquals(1, stats.getReorderCount());
+        assertNotNull(stats.getLastReorderAt());
+        assertTrue(stats.getOrderReason().contains("重排"), stats.getOrderReason());
+
+        List<RuleEngine.RuleStats> rules = stats.getRules();
+        assertEquals("Cheap", rules.get(0).getRuleName());
+        assertEquals(0, rules.get(0).getPosition());
+        // 条件命中率：Cheap 原先只能看到未被 Expensive 过滤的事件（个位非 0），其中偶数占 4/9
+        assertEquals(4.0 / 9, rules.get(0).getEstimatedMatchRate(), 1e-9);
+        assertTrue(rules.get(2).isPinned());
+        assertEquals(2, rules.get(2).getPosition());
+        assertNull(rules.get(3).getCostPerFilteredMicros(), "从不命中的规则没有单位过滤成本");
+
+        // 过滤结果与顺序无关，只是更早短路
+        assertEquals(filteredBefore, run(engine, 400));
+        assertFalse(engine.reorder(), "顺序已稳定，不再抖动");
+        assertEquals(1, engine.getStats().getReorderCount());
+    }
+
+    @Test
+    @DisplayName("规则只在固定规则分隔的段内调整，从不命中的规则也不会越过固定规则")
+    void testNeverCrossPinnedRule() {
+        RuleEngine engine = new RuleEngine(new ArrayList<>(List.of(
+                rule("Never", 1, false, info -> false),
+                rule("Pinned", 2, true, info -> info.getErrorLine() % 3 == 0),
+                rule("Expensive", 3, false, info -> {
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+                    return info.getErrorLine() % 10 == 1;
+                }),
+                rule("Cheap", 4, false, info -> info.getErrorLine() % 2 == 0))), adaptiveProperties(100));
+
+        run(engine, 400);
+        assertTrue(engine.reorder());
+        assertEquals("Never -> Pinned -> Cheap -> Expensive", engine.getStats().getExecutionOrder(),
+                "Never 留在 Pinned 之前，Pinned 看到的事件不变");
+        assertTrue(engine.getStats().getRules().get(1).isPinned());
+    }
+
+    @Test
+    @DisplayName("未启用、样本不足或收益不足时保持当前顺序")
+    void testKeepOrder() {
+        RuleEngineProperties disabled = new RuleEngineProperties();
+        RuleEngine staticEngine = new RuleEngine(twoRules(), disabled);
+        run(staticEngine, 200);
+        assertFalse(staticEngine.reorder());
+        assertEquals("Rare -> Frequent", staticEngine.getStats().getExecutionOrder());
+        assertFalse(staticEngine.getStats().isAdaptiveOrder());
+
+        RuleEngineProperties properties = adaptiveProperties(1000);
+        RuleEngine engine = new RuleEngine(twoRules(), properties);
+        run(engine, 200);
+        assertFalse(engine.reorder());
+        assertTrue(engine.getStats().getOrderReason().startsWith("样本不足"), engine.getStats().getOrderReason());
+
+        properties.getAdaptiveOrder().setMinSamples(100);
+        properties.getAdaptiveOrder().setMinImprovement(0.99);
+        assertFalse(engine.reorder());
+        assertTrue(engine.getStats().getOrderReason().startsWith("预期收益不足"), engine.getStats().getOrderReason());
+
+        properties.getAdaptiveOrder().setMinImprovement(0.0);
+        properties.getAdaptiveOrder().setPinnedRules(List.of("Rare"));
+        run(engine, 200);
+        assertFalse(engine.reorder(), "按名称固定的规则不参与排序");
+        assertEquals("Rare -> Frequent", engine.getStats().getExecutionOrder());
+    }
+
+    private static List<DenoiseRule> twoRules() {
+        return new ArrayList<>(List.of(
+                rule("Rare", 1, false, info -> info.getErrorLine() % 100 == 0),
+                rule("Frequent", 2, false, info -> info.getErrorLine() % 2 == 0)));
+    }
+
+    private static RuleEngineProperties adaptiveProperties(long minSamples) {
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.getMetrics().setTimingSampleRate(1);
+        properties.getAdaptiveOrder().setEnabled(true);
+        properties.getAdaptiveOrder().setMinSamples(minSamples);
+        return properties;
+    }
+
+    private static int run(RuleEngine engine, int events) {
+        int filtered = 0;
+        for (int i = 0; i < events; i++) {
+            if (engine.evaluate(ExceptionInfo.builder().errorLine(i).build()).isFiltered()) {
+                filtered++;
+            }
+        }
+        return filtered;
+    }
+
+    private static DenoiseRule rule(String name, int priority, boolean orderSensitive, Predicate<ExceptionInfo> filter) {
+        return new DenoiseRule() {
+            @Override
+            public boolean shouldFilter(ExceptionInfo exceptionInfo) {
+                return filter.test(exceptionInfo);
+            }
+
+            @Override
+            public String getRuleName() {
+                return name;
+            }
+
+            @Override
+            public String getReason() {
+                return name;
+            }
+
+            @Override
+            public int getPriority() {
+                return priority;
+            }
+
+            @Override
+            public boolean isOrderSensitive() {
+                return orderSensitive;
+            }
+        };
+    }
+}
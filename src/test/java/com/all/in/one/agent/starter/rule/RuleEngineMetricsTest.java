@@ -0,0 +1,151 @@
+package com.all.in.one.agent.starter.rule;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.common.util.LatencyHistogram;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 规则引擎执行指标测试
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("规则引擎执行指标测试")
+class RuleEngineMetricsTest {
+
+    @Test
+    @DisplayName("按规则统计执行、命中、异常次数和耗时分布")
+    void testPerRuleCountersAndLatency() {
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.getMetrics().setTimingSampleRate(1);
+        List<DenoiseRule> rules = new ArrayList<>();
+        rules.add(rule("Broken", 1, info -> {
+            throw new IllegalStateException("boom");
+        }));
+        rules.add(rule("Slow", 2, info -> {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(2));
+            return false;
+        }));
+        rules.add(rule("EveryOther", 3, info -> info.getErrorLine() % 2 == 0));
+        RuleEngine engine = new RuleEngine(rules, properties);
+
+        for (int i = 0; i < 20; i++) {
+            engine.evaluate(ExceptionInfo.builder().exceptionType("java.lang.RuntimeException").errorLine(i).build());
+        }
+
+        RuleEngine.RuleEngineStats stats = engine.getStats();
+        assertEquals(20, stats.getTotalChecked());
+        assertEquals(10, stats.getTotalFiltered());
+        List<RuleEngine.RuleStats> ruleStats = stats.getRules();
+        assertEquals(List.of("Broken", "Slow", "EveryOther"),
+                ruleStats.stream().map(RuleEngine.RuleStats::getRuleName).toList());
+
+        RuleEngine.RuleStats broken = ruleStats.get(0);
+        assertEquals(20, broken.getEvaluated());
+        assertEquals(20, broken.getErrors());
+        assertEquals(0, broken.getTimedSamples(), "执行异常的调用不计入耗时");
+
+        RuleEngine.RuleStats slow = ruleStats.get(1);
+        assertEquals(20, slow.getTimedSamples());
+        assertTrue(slow.getP50Micros() >= 1_800, "p50=" + slow.getP50Micros());
+        assertTrue(slow.getMaxMicros() >= slow.getP99Micros());
+
+        RuleEngine.RuleStats everyOther = ruleStats.get(2);
+        assertEquals(20, everyOther.getEvaluated());
+        assertEquals(10, everyOther.getMatched());
+        assertEquals(0.5, everyOther.getMatchRate(), 1e-9);
+        assertTrue(everyOther.getP99Micros() < slow.getP50Micros());
+
+        engine.resetStats();
+        assertEquals(0, engine.getRuleStats().get(1).getTimedSamples());
+        assertEquals(0, engine.getStats().getTotalChecked());
+    }
+
+    @Test
+    @DisplayName("耗时采样：每 N 个事件记录一次，计数仍然全量统计；0 表示不记录耗时")
+    void testTimingSampling() {
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.getMetrics().setTimingSampleRate(10);
+        RuleEngine sampled = new RuleEngine(new ArrayList<>(List.of(rule("Pass", 1, info -> false))), properties);
+        for (int i = 0; i < 10_000; i++) {
+            sampled.evaluate(ExceptionInfo.builder().build());
+        }
+        RuleEngine.RuleStats stats = sampled.getRuleStats().get(0);
+        assertEquals(10_000, stats.getEvaluated());
+        assertTrue(stats.getTimedSamples() > 700 && stats.getTimedSamples() < 1300,
+                "timedSamples=" + stats.getTimedSamples());
+
+        properties.getMetrics().setTimingSampleRate(0);
+        RuleEngine untimed = new RuleEngine(new ArrayList<>(List.of(rule("Pass", 1, info -> false))), properties);
+        untimed.evaluate(ExceptionInfo.builder().build());
+        assertEquals(0, untimed.getRuleStats().get(0).getTimedSamples());
+        assertEquals(1, untimed.getRuleStats().get(0).getEvaluated());
+    }
+
+    @Test
+    @DisplayName("直方图百分位相对误差不超过 1/16，并发记录不丢失")
+    void testHistogramAccuracyAndConcurrency() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+        long[] percentiles = histogram.percentiles(50, 99, 100);
+        assertEquals(50_000, percentiles[0], 50_000 / 16.0);
+        assertEquals(99_000, percentiles[1], 99_000 / 16.0);
+        assertEquals(100_000, percentiles[2]);
+        assertEquals(100_000, histogram.max());
+        assertEquals(50_000.5, histogram.mean(), 1e-6);
+
+        histogram.reset();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int t = 0; t < 8; t++) {
+                executor.submit(() -> {
+                    for (int i = 0; i < 100_000; i++) {
+                        histogram.record(i % 1000);
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(800_000, histogram.count());
+        assertEquals(999, histogram.max());
+    }
+
+    private static DenoiseRule rule(String name, int priority, Predicate<ExceptionInfo> filter) {
+        return new DenoiseRule() {
+            @Override
+            public boolean shouldFilter(ExceptionInfo exceptionInfo) {
+                return filter.test(exceptionInfo);
+            }
+
+            @Override
+            public String getRuleName() {
+                return name;
+            }
+
+            @Override
+            public String getReason() {
+                return name;
+            }
+
+            @Override
+            public int getPriority() {
+                return priority;
+            }
+        };
+    }
+}
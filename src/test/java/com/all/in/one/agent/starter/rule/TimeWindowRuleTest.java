@@ -0,0 +1,170 @@
+package com.all.in.one.agent.starter.rule;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.starter.severity.SeverityClassifier;
+import com.all.in.one.agent.starter.severity.SeverityProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 时间窗口规则测试
+ * <p>
+ * 静默时段预编译为日历，低优先级异常按指纹延迟，时段结束后合并释放
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("时间窗口规则测试")
+class TimeWindowRuleTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    @Test
+    @DisplayName("按星期的静默时段跨到次日，下一个边界为时段结束时刻")
+    void testWeeklyScheduleCrossesMidnight() {
+        // 2024-01-01 是星期一
+        QuietSchedule schedule = QuietSchedule.compile("", List.of("MON-FRI 22-8"), "Asia/Shanghai");
+
+        assertTrue(schedule.isQuiet(at(2024, 1, 1, 23, 0)));
+        assertEquals(at(2024, 1, 2, 8, 0), schedule.nextBoundary(at(2024, 1, 1, 23, 0)));
+        assertTrue(schedule.isQuiet(at(2024, 1, 2, 7, 59)));
+        assertFalse(schedule.isQuiet(at(2024, 1, 2, 8, 0)));
+        assertEquals(at(2024, 1, 2, 22, 0), schedule.nextBoundary(at(2024, 1, 2, 8, 0)));
+        // 星期五晚上的时段延续到星期六早上，星期日不静默
+        assertTrue(schedule.isQuiet(at(2024, 1, 6, 1, 0)));
+        assertFalse(schedule.isQuiet(at(2024, 1, 7, 23, 0)));
+        assertFalse(schedule.isQuiet(at(2024, 1, 1, 7, 0)));
+        // 时钟回拨同样正确
+        assertTrue(schedule.isQuiet(at(2024, 1, 1, 23, 30)));
+    }
+
+    @Test
+    @DisplayName("每天生效的多个时段，格式错误的时段被忽略")
+    void testDailyWindowsAndInvalidExpressions() {
+        QuietSchedule schedule = QuietSchedule.compile("22:30-6, 12-13, abc, 7-7",
+                List.of("XYZ 1-2", "SAT,SUN 0-24"), "Asia/Shanghai");
+
+        assertTrue(schedule.isQuiet(at(2024, 1, 3, 23, 0)));
+        assertFalse(schedule.isQuiet(at(2024, 1, 3, 22, 29)));
+        assertTrue(schedule.isQuiet(at(2024, 1, 3, 12, 30)));
+        assertFalse(schedule.isQuiet(at(2024, 1, 3, 13, 0)));
+        assertFalse(schedule.isQuiet(at(2024, 1, 3, 9, 0)), "09:00 不在任何时段");
+        assertTrue(schedule.isQuiet(at(2024, 1, 6, 15, 0)), "周末全天静默");
+
+        assertTrue(QuietSchedule.compile("", List.of(), "").isEmpty());
+        assertFalse(QuietSchedule.compile("", null, null).isQuiet(System.currentTimeMillis()));
+    }
+
+    @Test
+    @DisplayName("静默时段内低优先级异常按指纹合并，时段结束后一次性释放并带上真实次数")
+    void testDeferAndReleaseOncePerFingerprint() {
+        AtomicLong clock = new AtomicLong(at(2024, 1, 3, 3, 0));
+        TimeWindowRule rule = newRule("2-6", true, 100, clock);
+
+        for (int i = 0; i < 5; i++) {
+            clock.addAndGet(1000);
+            assertTrue(rule.shouldFilter(exception("java.lang.NullPointerException", "com.example.A.a:1", clock.get())));
+        }
+        for (int i = 0; i < 2; i++) {
+            clock.addAndGet(1000);
+            assertTrue(rule.shouldFilter(exception("java.lang.RuntimeException", "com.example.B.b:2", clock.get())));
+        }
+        assertFalse(rule.shouldFilter(exception("java.lang.OutOfMemoryError", "com.example.C.c:3", clock.get())),
+                "P0 在静默时段照常告警");
+        assertTrue(rule.drainReleasable().isEmpty(), "静默时段内不释放");
+
+        clock.set(at(2024, 1, 3, 6, 0));
+        assertFalse(rule.shouldFilter(exception("java.lang.RuntimeException", "com.example.B.b:2", clock.get())));
+        List<DeferredEventSpool.DeferredEvent> events = rule.drainReleasable();
+        events.sort(Comparator.comparingLong(DeferredEventSpool.DeferredEvent::getCount).reversed());
+        assertEquals(2, events.size());
+        assertEquals(5, events.get(0).getCount());
+        assertEquals("java.lang.NullPointerException", events.get(0).getExceptionInfo().getExceptionType());
+        assertEquals(Instant.ofEpochMilli(at(2024, 1, 3, 3, 0) + 1000), events.get(0).getFirstSeenAt());
+        assertEquals(Instant.ofEpochMilli(at(2024, 1, 3, 3, 0) + 5000), events.get(0).getLastSeenAt());
+        assertEquals(2, events.get(1).getCount());
+        assertTrue(rule.drainReleasable().isEmpty(), "已释放的事件不会重复释放");
+
+        TimeWindowRule.TimeWindowStats stats = rule.getStats();
+        assertEquals(7, stats.getTotalFiltered());
+        assertEquals(7, stats.getDeferredEvents());
+        assertEquals(7, stats.getReleasedEvents());
+        assertEquals(0, stats.getDeferredFingerprints());
+        assertFalse(stats.isCurrentlyInQuietHours());
+        assertEquals(Instant.ofEpochMilli(at(2024, 1, 4, 2, 0)), stats.getNextBoundary());
+    }
+
+    @Test
+    @DisplayName("延迟队列已满时新指纹被丢弃，关闭延迟时直接过滤")
+    void testSpoolLimitAndDeferDisabled() {
+        AtomicLong clock = new AtomicLong(at(2024, 1, 3, 3, 0));
+        TimeWindowRule limited = newRule("2-6", true, 1, clock);
+        assertTrue(limited.shouldFilter(exception("java.lang.RuntimeException", "com.example.A.a:1", clock.get())));
+        assertTrue(limited.shouldFilter(exception("java.lang.RuntimeException", "com.example.B.b:2", clock.get())));
+        assertTrue(limited.shouldFilter(exception("java.lang.RuntimeException", "com.example.A.a:1", clock.get())));
+        assertEquals(1, limited.getStats().getDroppedEvents());
+        assertEquals(1, limited.getStats().getDeferredFingerprints());
+
+        TimeWindowRule dropping = newRule("2-6", false, 100, clock);
+        assertTrue(dropping.shouldFilter(exception("java.lang.RuntimeException", "com.example.A.a:1", clock.get())));
+        clock.set(at(2024, 1, 3, 7, 0));
+        assertTrue(dropping.drainReleasable().isEmpty());
+    }
+
+    @Test
+    @DisplayName("入队的事件先生成完整堆栈和请求信息，只有每个指纹保留的那条会生成")
+    void testSpoolMaterializesRetainedEvent() {
+        DeferredEventSpool spool = new DeferredEventSpool(100);
+        AtomicLong loads = new AtomicLong();
+        for (int i = 0; i < 3; i++) {
+            ExceptionInfo info = ExceptionInfo.builder()
+                    .exceptionType("java.lang.RuntimeException")
+                    .errorLocation("com.example.A.a:1")
+                    .stackTraceLoader(() -> "trace-" + loads.incrementAndGet())
+                    .requestInfoLoader(() -> ExceptionInfo.RequestInfo.builder().uri("/orders").build())
+                    .build();
+            assertTrue(spool.defer(info, 1000));
+        }
+        assertEquals(1, loads.get(), "入队时已生成，后续同指纹事件不保留也不生成");
+
+        List<DeferredEventSpool.DeferredEvent> events = spool.drain();
+        assertEquals(1, events.size());
+        assertEquals(3, events.get(0).getCount());
+        assertEquals("trace-1", events.get(0).getExceptionInfo().getStackTrace());
+        assertEquals("/orders", events.get(0).getExceptionInfo().getRequestInfo().getUri());
+        assertEquals(1, loads.get());
+    }
+
+    private static TimeWindowRule newRule(String quietHours, boolean defer, int maxFingerprints, AtomicLong clock) {
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.getTimeWindow().setEnabled(true);
+        properties.getTimeWindow().setQuietHours(quietHours);
+        properties.getTimeWindow().setZoneId("Asia/Shanghai");
+        properties.getTimeWindow().setDeferEnabled(defer);
+        properties.getTimeWindow().setMaxDeferredFingerprints(maxFingerprints);
+        return new TimeWindowRule(properties, new SeverityClassifier(new SeverityProperties()), clock::get);
+    }
+
+    private static ExceptionInfo exception(String exceptionType, String errorLocation, long occurredAt) {
+        return ExceptionInfo.builder()
+                .appName("test-app")
+                .environment("test")
+                .exceptionType(exceptionType)
+                .errorLocation(errorLocation)
+                .occurredAt(Instant.ofEpochMilli(occurredAt))
+                .build();
+    }
+
+    private static long at(int year, int month, int day, int hour, int minute) {
+        return LocalDateTime.of(year, month, day, hour, minute).atZone(ZONE).toInstant().toEpochMilli();
+    }
+}
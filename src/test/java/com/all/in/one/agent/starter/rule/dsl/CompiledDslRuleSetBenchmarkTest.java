@@ -0,0 +1,60 @@
+package com.all.in.one.agent.starter.rule.dsl;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.starter.rule.RuleEngineProperties;
+import com.all.in.one.agent.support.MicroBenchmark;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.all.in.one.agent.starter.rule.dsl.DslRuleFixtures.*;
+
+/**
+ * DSL 规则编译执行基准（默认不执行，见 {@link MicroBenchmark}）
+ * <p>
+ * 以直接遍历语法树的解释执行作为性能基线
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Tag(MicroBenchmark.TAG)
+@DisplayName("DSL 规则编译执行基准")
+class CompiledDslRuleSetBenchmarkTest {
+
+    @Test
+    @DisplayName("基准：500 条规则编译执行与解释执行的单次检查耗时")
+    void benchmarkCompiledVersusInterpreted() {
+        Random random = new Random(7);
+        List<RuleEngineProperties.DslRuleDefinition> definitions = generateRules(RULE_COUNT);
+        CompiledDslRuleSet compiled = compile(definitions);
+        List<DslExpression> parsed = parseAll(definitions);
+        List<ExceptionInfo> events = generateEvents(2_000, random);
+
+        long compiledNanos = MicroBenchmark.nanosPerOp(() -> {
+            int hits = 0;
+            for (ExceptionInfo event : events) {
+                if (compiled.match(event) != null) {
+                    hits++;
+                }
+            }
+            return hits;
+        }, events.size(), 5, 10);
+        long interpretedNanos = MicroBenchmark.nanosPerOp(() -> {
+            int hits = 0;
+            for (ExceptionInfo event : events) {
+                if (interpret(parsed, event) >= 0) {
+                    hits++;
+                }
+            }
+            return hits;
+        }, events.size(), 5, 10);
+
+        MicroBenchmark.table("DSL 规则", "规则数", "编译执行 ns/次", "解释执行 ns/次", "节点数", "共享节点", "等值索引规则")
+                .row(RULE_COUNT, compiledNanos, interpretedNanos,
+                        compiled.getNodeCount(), compiled.getSharedNodeCount(), compiled.getIndexedRuleCount())
+                .log();
+    }
+}
@@ -0,0 +1,149 @@
+package com.all.in.one.agent.starter.rule.dsl;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.starter.rule.RuleEngineProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.all.in.one.agent.starter.rule.dsl.DslRuleFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DSL 规则编译测试
+ * <p>
+ * 以直接遍历语法树的解释执行作为正确性对照
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("DSL 规则编译测试")
+class CompiledDslRuleSetTest {
+
+    @Test
+    @DisplayName("测试各类运算符与 null 字段")
+    void testOperators() {
+        ExceptionInfo event = info("order-service", "prod", "java.net.SocketTimeoutException",
+                "com.app.order.OrderClient.call:42", "Read timed out after 3000ms");
+        event.setRequestInfo(ExceptionInfo.RequestInfo.builder().uri("/api/report/daily").build());
+
+        assertTrue(matches("type == 'SocketTimeoutException'", event), "简单类名");
+        assertTrue(matches("type == 'java.net.SocketTimeoutException'", event), "完整类名");
+        assertTrue(matches("type != 'NullPointerException' && app == 'order-service'", event));
+        assertTrue(matches("env in ['prod', 'staging'] and location startsWith 'com.app.order.'", event));
+        assertTrue(matches("location endsWith ':42' and not (env not in ['prod'])", event));
+        assertTrue(matches("message matches 'after \\\\d+ms$' or message contains 'refused'", event));
+        assertTrue(matches("uri startsWith \"/api/report\"", event));
+        assertFalse(matches("message contains 'refused' || app == 'other'", event));
+        assertFalse(matches("class == 'com.app.order.OrderClient'", event), "未设置的字段不匹配");
+        assertTrue(matches("class != 'com.app.order.OrderClient'", event), "未设置的字段 != 成立");
+        assertFalse(matches("uri startsWith '/api'", info("a", "prod", "X", "a.B.c:1", "m")), "没有请求信息");
+    }
+
+    @Test
+    @DisplayName("测试语法错误带出位置，编译失败指出规则名")
+    void testSyntaxErrors() {
+        assertSyntaxError("unknown == 'x'", "未知字段");
+        assertSyntaxError("type = 'x'", "位置 5");
+        assertSyntaxError("message matches '(unclosed'", "正则表达式无效");
+        assertSyntaxError("type == 'x", "字符串未结束");
+        assertSyntaxError("type == 'x' and", "需要字段名");
+        assertSyntaxError("rate(5d) > 1", "时间单位");
+        assertSyntaxError("(type == 'x'", "需要 ')'");
+        assertSyntaxError("type == 'x' app == 'y'", "多余的内容");
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> compile(List.of(rule("ok", "app == 'a'"), rule("broken", "app =="))));
+        assertTrue(error.getMessage().contains("[broken]"), error.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                () -> compile(List.of(rule("dup", "app == 'a'"), rule("dup", "app == 'b'"))));
+    }
+
+    @Test
+    @DisplayName("测试公共子表达式共享、便宜条件在前、or 合并与等值索引")
+    void testCompiledForm() {
+        CompiledDslRuleSet compiled = compile(List.of(
+                rule("slow-first", "message matches 'timeout' and app == 'a'"),
+                rule("same-regex", "app == 'b' and message matches 'timeout'"),
+                rule("type-or", "type == 'java.net.ConnectException' or type == 'SocketTimeoutException'"),
+                rule("typed-and", "location contains 'Client' and type in ['IllegalStateException']"),
+                rule("dup", "not not (app == 'a' and message matches 'timeout')")));
+
+        List<CompiledDslRuleSet.CompiledRule> rules = compiled.getRules();
+        assertEquals("and(app == a, message matches timeout)", rules.get(0).getCompiledForm());
+        assertEquals("type in [SocketTimeoutException, java.net.ConnectException]", rules.get(2).getCompiledForm());
+        assertEquals("and(type in [IllegalStateException], location contains Client)", rules.get(3).getCompiledForm());
+        assertEquals(rules.get(0).getCompiledForm(), rules.get(4).getCompiledForm(), "双重否定消去后与第一条规则相同");
+        assertEquals(5, compiled.getIndexedRuleCount(), "每条规则都有可索引的 app 或 type 等值条件");
+        // 共享节点：正则条件（两条规则引用）、第一条与最后一条规则的根节点
+        assertEquals(2, compiled.getSharedNodeCount());
+        assertEquals(9, compiled.getNodeCount());
+
+        ExceptionInfo event = info("a", "prod", "java.lang.IllegalStateException", "com.x.Client.call:1", "timeout");
+        assertEquals("slow-first", compiled.match(event).getName());
+        assertEquals("typed-and", compiled.match(info("c", "prod", "IllegalStateException", "com.x.Client.call:1", "x"))
+                .getName());
+        assertEquals("type-or", compiled.match(info("c", "prod", "java.net.SocketTimeoutException", "a.B.c:1", "x"))
+                .getName());
+        assertNull(compiled.match(info("c", "prod", "java.lang.IllegalStateException", "com.x.Service.run:1", "x")));
+        assertEquals(1, rules.get(0).getHits());
+    }
+
+    @Test
+    @DisplayName("测试 rate 条件按指纹固定窗口计数")
+    void testRateCondition() {
+        AtomicLong ticker = new AtomicLong();
+        CompiledDslRuleSet compiled = CompiledDslRuleSet.compile(
+                List.of(rule("storm", "rate(1m) > 2 and type == 'X'")), null, 100, ticker::get);
+        assertEquals("storm", compiled.getRules().get(0).getName());
+        assertEquals(1, compiled.getRateConditionCount());
+
+        ExceptionInfo first = info("a", "prod", "X", "a.B.c:1", "m");
+        first.setFingerprintHash(1L);
+        ExceptionInfo other = info("a", "prod", "Y", "a.B.c:1", "m");
+        other.setFingerprintHash(1L);
+        assertNull(compiled.match(first));
+        assertNull(compiled.match(other), "类型不符的事件不计数");
+        assertNull(compiled.match(first));
+        assertNotNull(compiled.match(first), "窗口内第 3 次命中");
+
+        ExceptionInfo second = info("a", "prod", "X", "a.B.c:1", "m");
+        second.setFingerprintHash(2L);
+        assertNull(compiled.match(second), "按指纹分别计数");
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        assertNull(compiled.match(first), "窗口过期后重新计数");
+    }
+
+    @Test
+    @DisplayName("测试编译执行与解释执行结果一致")
+    void testEquivalentToInterpreter() {
+        Random random = new Random(42);
+        List<RuleEngineProperties.DslRuleDefinition> definitions = generateRules(RULE_COUNT);
+        CompiledDslRuleSet compiled = compile(definitions);
+        List<DslExpression> parsed = parseAll(definitions);
+        int hits = 0;
+        for (ExceptionInfo event : generateEvents(5_000, random)) {
+            int expected = interpret(parsed, event);
+            CompiledDslRuleSet.CompiledRule actual = compiled.match(event);
+            assertEquals(expected < 0 ? null : definitions.get(expected).getName(),
+                    actual == null ? null : actual.getName(),
+                    "结果不一致: type=" + event.getExceptionType() + ", message=" + event.getExceptionMessage());
+            hits += expected < 0 ? 0 : 1;
+        }
+        assertTrue(hits > 100, "测试数据应有一定命中: " + hits);
+    }
+
+    private static boolean matches(String when, ExceptionInfo event) {
+        return compile(List.of(rule("r", when))).match(event) != null;
+    }
+
+    private static void assertSyntaxError(String when, String expected) {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> DslParser.parse(when));
+        assertTrue(error.getMessage().contains(expected), error.getMessage());
+    }
+}
@@ -0,0 +1,180 @@
+package com.all.in.one.agent.starter.rule.dsl;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.starter.rule.RuleEngineProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * DSL 规则测试数据与解释执行（正确性对照和性能基线）
+ * <p>
+ * 解释执行直接遍历语法树：每次检查都按字段名取值、逐条规则执行、现场编译正则
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+final class DslRuleFixtures {
+
+    static final int RULE_COUNT = 500;
+
+    private DslRuleFixtures() {
+    }
+
+    /**
+     * 生成规则：五类规则轮流出现，其中正则和环境条件在大量规则间重复
+     */
+    static List<RuleEngineProperties.DslRuleDefinition> generateRules(int count) {
+        List<RuleEngineProperties.DslRuleDefinition> definitions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String when = switch (i % 5) {
+                case 0 -> "type == 'com.app.Error" + i + "Exception' and message contains 'code-" + i + "'";
+                case 1 -> "app == 'svc-" + i + "' and env in ['prod', 'staging'] and location startsWith 'com.app.mod"
+                        + (i % 7) + ".'";
+                case 2 -> "uri startsWith '/api/v" + i + "/' and message matches 'timed? ?out after \\\\d+ms'";
+                case 3 -> "(type == 'java.net.SocketTimeoutException' or type == 'ConnectException') and app == 'svc-"
+                        + i + "'";
+                default -> "not env == 'prod' and method == 'handle" + i + "' and message matches '^(retry|abort) #\\\\d+'";
+            };
+            definitions.add(rule("rule-" + i, when));
+        }
+        return definitions;
+    }
+
+    /**
+     * 生成事件：约 90% 不命中任何规则（需要检查完所有规则），其余命中随机一条
+     */
+    static List<ExceptionInfo> generateEvents(int count, Random random) {
+        List<ExceptionInfo> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int n = random.nextInt(RULE_COUNT);
+            String app = "order-service";
+            String env = random.nextBoolean() ? "prod" : "test";
+            String type = "java.lang.IllegalStateException";
+            String location = "com.app.service.OrderService" + (i % 50) + ".process:" + (100 + i % 30);
+            String method = "process";
+            String message = "Order " + i + " failed: read timed out after 3000ms";
+            String uri = "/api/orders/" + i;
+            if (random.nextInt(10) == 0) {
+                switch (n % 5) {
+                    case 0 -> {
+                        type = "com.app.Error" + n + "Exception";
+                        message = "failed with code-" + n;
+                    }
+                    case 1 -> {
+                        app = "svc-" + n;
+                        env = "staging";
+                        location = "com.app.mod" + (n % 7) + ".Handler.run:1";
+                    }
+                    case 2 -> uri = "/api/v" + n + "/items";
+                    case 3 -> {
+                        type = random.nextBoolean() ? "java.net.SocketTimeoutException" : "java.net.ConnectException";
+                        app = "svc-" + n;
+                    }
+                    default -> {
+                        env = "test";
+                        method = "handle" + n;
+                        message = "retry #" + n;
+                    }
+                }
+            }
+            ExceptionInfo event = info(app, env, type, location, message);
+            event.setErrorMethod(method);
+            event.setRequestInfo(ExceptionInfo.RequestInfo.builder().uri(uri).build());
+            events.add(event);
+        }
+        return events;
+    }
+
+    static List<DslExpression> parseAll(List<RuleEngineProperties.DslRuleDefinition> definitions) {
+        List<DslExpression> parsed = new ArrayList<>(definitions.size());
+        for (RuleEngineProperties.DslRuleDefinition definition : definitions) {
+            parsed.add(DslParser.parse(definition.getWhen()));
+        }
+        return parsed;
+    }
+
+    /**
+     * 解释执行：逐条规则遍历语法树
+     *
+     * @return 第一个命中的规则下标，未命中返回 -1
+     */
+    static int interpret(List<DslExpression> rules, ExceptionInfo event) {
+        for (int i = 0; i < rules.size(); i++) {
+            if (interpret(rules.get(i), event)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean interpret(DslExpression expression, ExceptionInfo event) {
+        if (expression instanceof DslExpression.And) {
+            for (DslExpression operand : ((DslExpression.And) expression).getOperands()) {
+                if (!interpret(operand, event)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (expression instanceof DslExpression.Or) {
+            for (DslExpression operand : ((DslExpression.Or) expression).getOperands()) {
+                if (interpret(operand, event)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (expression instanceof DslExpression.Not) {
+            return !interpret(((DslExpression.Not) expression).getOperand(), event);
+        }
+        DslExpression.Condition condition = (DslExpression.Condition) expression;
+        String actual = DslField.of(condition.getField().getToken()).read(event, null);
+        if (actual == null) {
+            return false;
+        }
+        String value = condition.getValues().get(0);
+        switch (condition.getOperator()) {
+            case EQ:
+            case IN:
+                for (String candidate : condition.getValues()) {
+                    if (actual.equals(candidate) || (condition.getField() == DslField.TYPE
+                            && actual.substring(actual.lastIndexOf('.') + 1).equals(candidate))) {
+                        return true;
+                    }
+                }
+                return false;
+            case STARTS_WITH:
+                return actual.startsWith(value);
+            case ENDS_WITH:
+                return actual.endsWith(value);
+            case CONTAINS:
+                return actual.contains(value);
+            default:
+                return Pattern.compile(value).matcher(actual).find();
+        }
+    }
+
+    static CompiledDslRuleSet compile(List<RuleEngineProperties.DslRuleDefinition> definitions) {
+        return CompiledDslRuleSet.compile(definitions, null, 1000, System::nanoTime);
+    }
+
+    static RuleEngineProperties.DslRuleDefinition rule(String name, String when) {
+        RuleEngineProperties.DslRuleDefinition definition = new RuleEngineProperties.DslRuleDefinition();
+        definition.setName(name);
+        definition.setWhen(when);
+        return definition;
+    }
+
+    static ExceptionInfo info(String appName, String environment, String type, String location, String message) {
+        ExceptionInfo info = new ExceptionInfo();
+        info.setAppName(appName);
+        info.setEnvironment(environment);
+        info.setExceptionType(type);
+        info.setErrorLocation(location);
+        info.setExceptionMessage(message);
+        return info;
+    }
+}
@@ -0,0 +1,92 @@
+package com.all.in.one.agent.starter.severity;
+
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 严重级别分级器测试
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("严重级别分级器测试")
+class SeverityClassifierTest {
+
+    @Test
+    @DisplayName("内置规则与原硬编码分级一致，生产环境提升一级")
+    void testDefaultRulesMatchLegacyMapping() {
+        SeverityClassifier classifier = new SeverityClassifier(new SeverityProperties());
+
+        assertEquals("P0", classifier.classify("java.lang.OutOfMemoryError", "dev"));
+        assertEquals("P0", classifier.classify("java.lang.OutOfMemoryError", "prod"));
+        assertEquals("P1", classifier.classify("java.sql.SQLException", "dev"));
+        assertEquals("P0", classifier.classify("java.sql.SQLException", "PROD"));
+        assertEquals("P2", classifier.classify("java.util.concurrent.TimeoutException", "test"));
+        assertEquals("P1", classifier.classify("java.util.concurrent.TimeoutException", "prod"));
+        assertEquals("P3", classifier.classify("java.lang.NullPointerException", "dev"));
+        assertEquals("P2", classifier.classify("java.lang.IllegalArgumentException", "prod"));
+        assertEquals("P4", classifier.classify("java.lang.RuntimeException", "dev"));
+        assertEquals("P3", classifier.classify("java.lang.RuntimeException", "prod"));
+        assertEquals("P4", classifier.classify(null, null));
+    }
+
+    @Test
+    @DisplayName("按父类型、包名、异常类型和环境匹配，第一条命中的规则生效")
+    void testConfiguredRules() {
+        SeverityProperties properties = new SeverityProperties();
+        properties.setRules(List.of(
+                rule("P2", r -> {
+                    r.setPackages(List.of("com.example.payment"));
+                    r.setEnvironments(List.of("prod"));
+                    r.setEscalate(false);
+                }),
+                rule("P1", r -> r.setSuperTypes(List.of("java.sql.SQLException"))),
+                rule("P3", r -> r.setExceptionTypes(List.of("IllegalStateException")))));
+        SeverityClassifier classifier = new SeverityClassifier(properties);
+
+        // SQLTimeoutException 继承 SQLException
+        assertEquals("P1", classifier.classify("java.sql.SQLTimeoutException", "dev"));
+        assertEquals("P0", classifier.classify("java.sql.SQLTimeoutException", "prod"));
+        // 简单类名匹配
+        assertEquals("P3", classifier.classify("java.lang.IllegalStateException", "dev"));
+        // 包名规则只在 prod 生效，且不提升
+        assertEquals("P2", classifier.classify("com.example.payment.PayFailedException", "prod"));
+        assertEquals("P4", classifier.classify("com.example.payment.PayFailedException", "dev"));
+        // 无法加载的类只按名称比较
+        assertEquals("P4", classifier.classify("com.example.UnknownException", "dev"));
+    }
+
+    @Test
+    @DisplayName("按（异常类型, 环境）缓存，每个事件只分级一次")
+    void testCachedPerTypeAndEnvironment() {
+        SeverityClassifier classifier = new SeverityClassifier(new SeverityProperties());
+        for (int i = 0; i < 100; i++) {
+            classifier.classify("java.sql.SQLException", "dev");
+            classifier.classify("java.sql.SQLException", "prod");
+        }
+        SeverityClassifier.SeverityStats stats = classifier.getStats();
+        assertEquals(2, stats.getCachedEntries());
+        assertEquals(2, stats.getCacheMisses());
+        assertEquals(198, stats.getCacheHits());
+
+        ExceptionInfo info = ExceptionInfo.builder()
+                .exceptionType("java.lang.NullPointerException")
+                .environment("prod")
+                .build();
+        assertEquals("P2", classifier.classify(info));
+        assertEquals("P2", info.getSeverity());
+        info.setEnvironment("dev");
+        assertEquals("P2", classifier.classify(info), "已分级的事件直接复用结果");
+    }
+
+    private static SeverityProperties.Rule rule(String severity, java.util.function.Consumer<SeverityProperties.Rule> customizer) {
+        SeverityProperties.Rule rule = new SeverityProperties.Rule();
+        rule.setSeverity(severity);
+        customizer.accept(rule);
+        return rule;
+    }
+}
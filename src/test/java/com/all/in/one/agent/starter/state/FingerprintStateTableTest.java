@@ -0,0 +1,149 @@
+package com.all.in.one.agent.starter.state;
+
+import com.all.in.one.agent.ai.model.DenoiseDecision;
+import com.all.in.one.agent.common.model.ExceptionInfo;
+import com.all.in.one.agent.starter.dedup.DedupTestFixture;
+import com.all.in.one.agent.starter.dedup.UnifiedFingerprintDedupStore;
+import com.all.in.one.agent.starter.rule.FrequencyLimitRule;
+import com.all.in.one.agent.starter.rule.RuleEngineProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 统一指纹状态表测试
+ * <p>
+ * 去重窗口、频率计数、AI 决策和未关闭工单共用一条记录，各字段独立过期
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@DisplayName("统一指纹状态表测试")
+class FingerprintStateTableTest {
+
+    private static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    @Test
+    @DisplayName("各层状态共用一条记录，去重窗口过期不影响 AI 决策和工单")
+    void testFieldsShareOneRecordWithIndependentExpiry() {
+        AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1));
+        FingerprintStateTable table = newTable(clock);
+        UnifiedFingerprintDedupStore store = new UnifiedFingerprintDedupStore(table, WINDOW_MILLIS, false, clock::get);
+        FrequencyLimitRule frequencyRule = new FrequencyLimitRule(new RuleEngineProperties(), table);
+        ExceptionInfo info = DedupTestFixture.info(0);
+        long fingerprintHash = info.getFingerprintHash();
+
+        assertEquals(1, store.recordOccurrence(fingerprintHash));
+        assertEquals(2, store.recordOccurrence(fingerprintHash));
+        assertFalse(frequencyRule.shouldFilter(info));
+        FingerprintState state = table.peek(fingerprintHash);
+        state.putDecision(DenoiseDecision.builder().shouldAlert(false).build(), clock.get() + 5 * MINUTE);
+        state.putOpenTicket(42, clock.get() + 10 * MINUTE);
+
+        assertEquals(1, table.size());
+        assertSame(state, table.state(fingerprintHash));
+        assertTrue(state.frequencyCount(System.currentTimeMillis()) > 0);
+
+        // 去重窗口过期后重新放行，AI 决策和工单仍然有效
+        clock.addAndGet(WINDOW_MILLIS);
+        assertEquals(1, store.recordOccurrence(fingerprintHash));
+        assertNotNull(state.decision(clock.get()));
+        assertEquals(42, state.openTicketId(clock.get()));
+
+        // AI 决策先于工单过期
+        clock.addAndGet(3 * MINUTE);
+        assertNull(state.decision(clock.get()));
+        assertEquals(42, state.openTicketId(clock.get()));
+
+        FingerprintStateTable.StateTableStats stats = table.getStats();
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    @DisplayName("字段写入后延长记录存活时间，长期不更新的记录过期")
+    void testTouchExtendsRecordLifetime() {
+        AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1));
+        FingerprintStateTable table = newTable(clock);
+        UnifiedFingerprintDedupStore store = new UnifiedFingerprintDedupStore(table, WINDOW_MILLIS, false, clock::get);
+
+        store.recordOccurrence(1);
+        store.recordOccurrence(2);
+        clock.addAndGet(9 * MINUTE);
+        FingerprintState state = table.state(1);
+        state.putOpenTicket(7, clock.get() + 10 * MINUTE);
+        table.touch(1, state);
+
+        // 状态表存活时间 10 分钟：指纹 2 已过期，指纹 1 在 9 分钟时被更新
+        clock.addAndGet(5 * MINUTE);
+        assertNull(table.peek(2));
+        assertSame(state, table.peek(1));
+        assertEquals(7, state.openTicketId(clock.get()));
+    }
+
+    @Test
+    @DisplayName("滚动窗口：记录按指纹保存，每个对齐窗口放行一次")
+    void testTumblingWindowKeyedByFingerprint() {
+        AtomicLong clock = new AtomicLong(10 * WINDOW_MILLIS - 1);
+        FingerprintStateTable table = newTable(clock);
+        UnifiedFingerprintDedupStore store = new UnifiedFingerprintDedupStore(table, WINDOW_MILLIS, true, clock::get);
+
+        assertEquals(1, store.recordOccurrence(1));
+        assertEquals(2, store.recordOccurrence(1));
+        clock.incrementAndGet();
+        assertEquals(1, store.recordOccurrence(1), "新的对齐窗口应重新放行一次");
+        clock.addAndGet(WINDOW_MILLIS - 1);
+        assertEquals(2, store.recordOccurrence(1));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    @DisplayName("64 线程并发：每个指纹每个窗口恰好放行一次")
+    void testConcurrentExactlyOncePerWindow() throws Exception {
+        AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1));
+        FingerprintStateTable table = newTable(clock);
+        UnifiedFingerprintDedupStore store = new UnifiedFingerprintDedupStore(table, WINDOW_MILLIS, false, clock::get);
+        int fingerprints = 16;
+
+        for (int window = 0; window < 3; window++) {
+            long[] passed = DedupTestFixture.runConcurrently(64, 2_000, fingerprints,
+                    (thread, index) -> store.recordOccurrence(index + 1) == 1);
+            for (int i = 0; i < fingerprints; i++) {
+                assertEquals(1, passed[i], "窗口 " + window + " 指纹 " + i + " 应恰好放行一次");
+            }
+            clock.addAndGet(WINDOW_MILLIS);
+        }
+    }
+
+    @Test
+    @DisplayName("去重窗口导出后在新表中恢复，剩余时间不变")
+    void testExportAndRestoreDedupWindows() {
+        AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toMillis(1));
+        UnifiedFingerprintDedupStore before = new UnifiedFingerprintDedupStore(newTable(clock), WINDOW_MILLIS, false, clock::get);
+        for (long key = 1; key <= 1000; key++) {
+            before.recordOccurrence(key);
+            before.recordOccurrence(key);
+        }
+        clock.addAndGet(MINUTE);
+
+        UnifiedFingerprintDedupStore after = new UnifiedFingerprintDedupStore(newTable(clock), WINDOW_MILLIS, false, clock::get);
+        before.exportEntries(after::restoreEntry);
+        assertEquals(1000, after.size());
+        assertEquals(3, after.recordOccurrence(500));
+
+        clock.addAndGet(MINUTE);
+        assertEquals(1, after.recordOccurrence(500));
+    }
+
+    private static FingerprintStateTable newTable(AtomicLong clock) {
+        FingerprintStateProperties properties = new FingerprintStateProperties();
+        properties.setEnabled(true);
+        properties.setMaxEntries(10_000);
+        properties.setStateTtlMinutes(10);
+        return new FingerprintStateTable(properties, () -> TimeUnit.MILLISECONDS.toNanos(clock.get()));
+    }
+}
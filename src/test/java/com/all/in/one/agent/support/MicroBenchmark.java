@@ -0,0 +1,97 @@
+package com.all.in.one.agent.support;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.IntSupplier;
+
+/**
+ * 测试用微基准工具
+ * <p>
+ * 预热若干轮后计时，返回每次操作的平均纳秒数，结果以表格形式输出到日志。
+ * 基准方法统一标注 {@code @Tag(MicroBenchmark.TAG)}，默认构建不执行（pom.xml 中的 excludedGroups），
+ * 需要时运行：mvn test -Dgroups=benchmark -DexcludedGroups=
+ * </p>
+ * <p>
+ * 耗时只用于观察和对比，不做断言：共享的 CI 机器上墙钟时间不稳定
+ * </p>
+ *
+ * @author One Agent 4J
+ */
+@Slf4j
+public final class MicroBenchmark {
+
+    public static final String TAG = "benchmark";
+
+    /**
+     * 防止 JIT 把测量的代码当作无用代码消除
+     */
+    private static volatile long sink;
+
+    private final String title;
+    private final String[] columns;
+    private final List<String> rows = new ArrayList<>();
+
+    private MicroBenchmark(String title, String[] columns) {
+        this.title = title;
+        this.columns = columns;
+    }
+
+    /**
+     * 创建结果表格
+     *
+     * @param title   表格标题
+     * @param columns 列名
+     */
+    public static MicroBenchmark table(String title, String... columns) {
+        return new MicroBenchmark(title, columns);
+    }
+
+    /**
+     * 测量每次操作的平均耗时
+     *
+     * @param round        执行一轮操作，返回值参与防消除计算
+     * @param opsPerRound  每轮的操作次数
+     * @param warmupRounds 预热轮数（不计时）
+     * @param rounds       计时轮数
+     * @return 每次操作的平均纳秒数（至少为 1）
+     */
+    public static long nanosPerOp(IntSupplier round, int opsPerRound, int warmupRounds, int rounds) {
+        long result = 0;
+        for (int i = 0; i < warmupRounds; i++) {
+            result += round.getAsInt();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            result += round.getAsInt();
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += result;
+        return Math.max(1, elapsed / ((long) rounds * opsPerRound));
+    }
+
+    /**
+     * 追加一行结果（按列顺序）
+     */
+    public MicroBenchmark row(Object... values) {
+        StringJoiner joiner = new StringJoiner(" | ");
+        for (Object value : values) {
+            joiner.add(String.valueOf(value));
+        }
+        rows.add(joiner.toString());
+        return this;
+    }
+
+    /**
+     * 输出表格到日志
+     */
+    public void log() {
+        log.info("基准：{}", title);
+        log.info(String.join(" | ", columns));
+        for (String row : rows) {
+            log.info(row);
+        }
+    }
+}